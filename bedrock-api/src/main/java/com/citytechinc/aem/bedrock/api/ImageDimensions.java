@@ -0,0 +1,18 @@
+package com.citytechinc.aem.bedrock.api;
+
+/**
+ * Pixel dimensions of a rendered image, e.g. for rendering the <code>width</code> and <code>height</code> attributes
+ * of an <code>img</code> element.
+ */
+public interface ImageDimensions {
+
+    /**
+     * @return width in pixels
+     */
+    int getWidth();
+
+    /**
+     * @return height in pixels
+     */
+    int getHeight();
+}
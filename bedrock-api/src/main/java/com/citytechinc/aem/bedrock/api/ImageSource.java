@@ -40,6 +40,65 @@ public interface ImageSource {
      */
     Optional<String> getImageSource(String name, int width);
 
+    /**
+     * Get the <code>srcset</code> attribute value for the default image (named "image") for this node, with an image
+     * source for each configured image width that renders the image smaller than its full width, followed by the image
+     * source for the full image.  Each candidate is described by its rendered width, which is less than the configured
+     * width for cropped and rotated images.
+     *
+     * @return optional srcset (absent if the referenced image has no content, the image dimensions are not known, or
+     * no image widths are configured)
+     */
+    Optional<String> getImageSrcset();
+
+    /**
+     * Get the <code>srcset</code> attribute value for the named image for this node.
+     *
+     * @param name image name (name of image as defined in dialog)
+     * @return optional srcset (absent if the referenced image has no content, the image dimensions are not known, or
+     * no image widths are configured)
+     */
+    Optional<String> getImageSrcset(String name);
+
+    /**
+     * Get the dimensions of the default image (named "image") for this node, as rendered by the image source.  The
+     * dimensions are read from the image file header without decoding the image, and reflect the image crop and
+     * rotation.
+     *
+     * @return optional image dimensions (absent if the image has no content, the image format is not recognized, or
+     * the image has a configured size or size constraints)
+     */
+    Optional<ImageDimensions> getImageDimensions();
+
+    /**
+     * Get the dimensions of the default image (named "image") for this node, as rendered by the image source for the
+     * given width.  Images are not resized to widths greater than their original width.
+     *
+     * @param width image width
+     * @return optional image dimensions (absent if the image has no content, the image format is not recognized, or
+     * the image has a configured size or size constraints)
+     */
+    Optional<ImageDimensions> getImageDimensions(int width);
+
+    /**
+     * Get the dimensions of the named image for this node, as rendered by the image source.
+     *
+     * @param name image name (name of image as defined in dialog)
+     * @return optional image dimensions (absent if the image has no content, the image format is not recognized, or
+     * the image has a configured size or size constraints)
+     */
+    Optional<ImageDimensions> getImageDimensions(String name);
+
+    /**
+     * Get the dimensions of the named image for this node, as rendered by the image source for the given width.
+     *
+     * @param name image name (name of image as defined in dialog)
+     * @param width image width
+     * @return optional image dimensions (absent if the image has no content, the image format is not recognized, or
+     * the image has a configured size or size constraints)
+     */
+    Optional<ImageDimensions> getImageDimensions(String name, int width);
+
     /**
      * Check if the current resource has a default image.
      *
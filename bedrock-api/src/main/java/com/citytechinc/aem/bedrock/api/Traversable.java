@@ -38,7 +38,6 @@ public interface Traversable<T> {
      */
     <V> Optional<T> findAncestorWithPropertyValue(String propertyName, V propertyValue);
 
-
     /**
      * Get a list of descendant resources that match the given predicate condition.
      *
@@ -46,4 +45,44 @@ public interface Traversable<T> {
      * @return list of resources that match the predicate condition or empty list if none exist
      */
     List<T> findDescendants(Predicate<T> predicate);
+
+    /**
+     * Get a list of descendant resources that match the given predicate condition, stopping the traversal once the
+     * limit is reached.
+     *
+     * @param predicate predicate to match descendant resources against
+     * @param limit maximum number of resources to return
+     * @return list of resources that match the predicate condition or empty list if none exist
+     */
+    List<T> findDescendants(Predicate<T> predicate, int limit);
+
+    /**
+     * Find the first descendant resource in depth-first order that matches the given predicate condition.
+     *
+     * @param predicate predicate to match descendant resources against
+     * @return <code>Optional</code> resource that matches the predicate condition
+     */
+    Optional<T> findFirstDescendant(Predicate<T> predicate);
+
+    /**
+     * Iterate over descendant resources that match the given predicate condition in depth-first order.  Descendants
+     * are visited lazily as the returned iterable is consumed.
+     *
+     * @param predicate predicate to match descendant resources against
+     * @return resources that match the predicate condition
+     */
+    Iterable<T> iterateDescendants(Predicate<T> predicate);
+
+    /**
+     * Iterate over descendant resources that match the given predicate condition in depth-first order, skipping
+     * entire subtrees that do not match the traversal predicate.  Descendants are visited lazily as the returned
+     * iterable is consumed.
+     *
+     * @param predicate predicate to match descendant resources against
+     * @param traversalPredicate descendant resources that do not match this predicate are skipped along with all of
+     * their descendants
+     * @param maxDepth maximum depth to traverse relative to this resource (1 for children only), or -1 for no limit
+     * @return resources that match the predicate condition
+     */
+    Iterable<T> iterateDescendants(Predicate<T> predicate, Predicate<T> traversalPredicate, int maxDepth);
 }
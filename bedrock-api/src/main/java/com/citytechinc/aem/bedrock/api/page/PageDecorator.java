@@ -134,6 +134,40 @@ public interface PageDecorator extends Page, Accessible, Inheritable, Linkable,
      */
     NavigationLink getNavigationLink(boolean isActive, boolean mapped);
 
+    /**
+     * Get a navigation tree with this page as the root, containing navigation links for the displayable descendants
+     * (i.e. not hidden in nav) of this page to the given depth.  Links use the navigation title as the link title,
+     * defaulting to the JCR title if it does not exist.
+     *
+     * @param depth number of descendant levels to include, 0 for the root link only
+     * @return navigation link for this page with nested child links
+     */
+    NavigationLink getNavigationTree(int depth);
+
+    /**
+     * Get a navigation tree with this page as the root, containing navigation links for the displayable descendants
+     * (i.e. not hidden in nav) of this page to the given depth.  Links for the current page and its ancestors are
+     * active.
+     *
+     * @param depth number of descendant levels to include, 0 for the root link only
+     * @param currentPage page used to determine the active trail, may be null if no links should be active
+     * @return navigation link for this page with nested child links
+     */
+    NavigationLink getNavigationTree(int depth, Page currentPage);
+
+    /**
+     * Get a navigation tree with this page as the root, containing navigation links for the displayable descendants
+     * (i.e. not hidden in nav) of this page to the given depth.  Links for the current page and its ancestors are
+     * active.
+     *
+     * @param depth number of descendant levels to include, 0 for the root link only
+     * @param currentPage page used to determine the active trail, may be null if no links should be active
+     * @param mapped if true, link paths will be routed through the resource resolver to determine the mapped path
+     * (e.g. without leading "/content").
+     * @return navigation link for this page with nested child links
+     */
+    NavigationLink getNavigationTree(int depth, Page currentPage, boolean mapped);
+
     /**
      * Get the template path for this page.  This method is preferred over getTemplate().getPath(), which is dependent
      * on access to /apps and will therefore fail in publish mode.
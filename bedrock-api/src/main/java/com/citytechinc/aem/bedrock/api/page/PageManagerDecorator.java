@@ -89,7 +89,8 @@ public interface PageManagerDecorator extends PageManager {
     List<PageDecorator> findPages(String rootPath, Collection<String> tagIds, boolean matchOne);
 
     /**
-     * Find all descendant pages of the given path matching the template path.
+     * Find all descendant pages of the given path matching the template path, in document order.  Use
+     * <code>findPagesWithTemplate</code> to query the repository index instead of traversing the page tree.
      *
      * @param rootPath root path
      * @param templatePath template path
@@ -97,6 +98,39 @@ public interface PageManagerDecorator extends PageManager {
      */
     List<PageDecorator> findPages(String rootPath, String templatePath);
 
+    /**
+     * Find descendant pages of the given path where the page content node has the given property value.  A JCR-SQL2
+     * query is used if the repository can answer it from an index, otherwise the page tree is traversed.  The query
+     * or traversal is executed when the result is iterated, and pages are resolved as they are consumed.  Query
+     * results are not returned in document order.
+     *
+     * @param rootPath root path
+     * @param propertyName name of property on the page content node
+     * @param propertyValue property value
+     * @return pages having the specified property value
+     */
+    Iterable<PageDecorator> findPagesWithPropertyValue(String rootPath, String propertyName, String propertyValue);
+
+    /**
+     * Find descendant pages of the given path where the page content node has the given resource type.  Pages are
+     * resolved lazily as described in <code>findPagesWithPropertyValue</code>.
+     *
+     * @param rootPath root path
+     * @param resourceType sling:resourceType of the page content node
+     * @return pages having the specified resource type
+     */
+    Iterable<PageDecorator> findPagesWithResourceType(String rootPath, String resourceType);
+
+    /**
+     * Find descendant pages of the given path matching the template path.  Pages are resolved lazily as described in
+     * <code>findPagesWithPropertyValue</code>.
+     *
+     * @param rootPath root path
+     * @param templatePath template path
+     * @return pages matching specified template
+     */
+    Iterable<PageDecorator> findPagesWithTemplate(String rootPath, String templatePath);
+
     /**
      * Find all descendant pages of the given path that match the predicate.
      *
@@ -106,6 +140,17 @@ public interface PageManagerDecorator extends PageManager {
      */
     List<PageDecorator> findPages(String rootPath, Predicate<PageDecorator> predicate);
 
+    /**
+     * Find descendant pages of the given path that match the predicate, stopping the traversal once the limit is
+     * reached.
+     *
+     * @param rootPath root path
+     * @param predicate predicate to determine if a page should be included in the result list
+     * @param limit maximum number of pages to return
+     * @return pages matching filter criteria
+     */
+    List<PageDecorator> findPages(String rootPath, Predicate<PageDecorator> predicate, int limit);
+
     /**
      * Returns the page that contains this resource. If the resource is a page the resource is returned. Otherwise it
      * walks up the parent resources until a page is found.
@@ -194,8 +239,31 @@ public interface PageManagerDecorator extends PageManager {
      * Search for pages using a query with the given result limit.
      *
      * @param query JCR query
-     * @param limit result limit
+     * @param limit result limit, -1 for all results, no results are returned for other negative values
      * @return list of pages for the query result
      */
     List<PageDecorator> search(Query query, int limit);
+
+    /**
+     * Search for a page of results using a query.  Results containing multiple rows for the same page are
+     * de-duplicated, so the row limit of a copy of the query is set to the number of pages required and increased only
+     * if duplicate rows leave the page window unfilled.  Queries with bind variables cannot be copied and are executed
+     * without a row limit.  Iteration of the query result stops as soon as the window is filled.  The given query is
+     * not modified.
+     *
+     * @param query JCR query
+     * @param offset number of pages to skip, must be non-negative
+     * @param limit maximum number of pages to return, must be non-negative
+     * @return list of pages for the query result window
+     */
+    List<PageDecorator> search(Query query, int offset, int limit);
+
+    /**
+     * Search for pages using a query, resolving pages lazily as the result is iterated.  The query is executed each
+     * time the result is iterated and duplicate rows for the same page are skipped.
+     *
+     * @param query JCR query
+     * @return pages for the query result
+     */
+    Iterable<PageDecorator> iterateSearch(Query query);
 }
@@ -56,7 +56,9 @@ final class BedrockAdapterFactory implements AdapterFactory {
         def result
 
         if (type == PageManagerDecorator) {
-            result = new DefaultPageManagerDecorator(resourceResolver) as AdapterType
+            result = DecoratorCache.get(resourceResolver, PageManagerDecorator, "", {
+                new DefaultPageManagerDecorator(resourceResolver)
+            }) as AdapterType
         } else {
             result = null
         }
@@ -68,11 +70,13 @@ final class BedrockAdapterFactory implements AdapterFactory {
         def result
 
         if (type == PageDecorator) {
-            def page = resource.adaptTo(Page)
+            result = DecoratorCache.get(resource, PageDecorator, {
+                def page = resource.adaptTo(Page)
 
-            result = page == null ? null : new DefaultPageDecorator(page) as AdapterType
+                page == null ? null : new DefaultPageDecorator(page)
+            }) as AdapterType
         } else if (type == ComponentNode) {
-            result = new DefaultComponentNode(resource) as AdapterType
+            result = DecoratorCache.get(resource, ComponentNode, { new DefaultComponentNode(resource) }) as AdapterType
         } else if (type == BasicNode) {
             result = new DefaultBasicNode(resource) as AdapterType
         } else {
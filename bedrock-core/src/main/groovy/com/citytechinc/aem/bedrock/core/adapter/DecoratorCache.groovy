@@ -0,0 +1,186 @@
+package com.citytechinc.aem.bedrock.core.adapter
+
+import com.citytechinc.aem.bedrock.core.services.cache.PathKeyIndex
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import groovy.util.logging.Slf4j
+import org.apache.sling.api.resource.Resource
+import org.apache.sling.api.resource.ResourceResolver
+import org.apache.sling.api.resource.ResourceUtil
+import org.apache.sling.api.resource.ResourceWrapper
+
+import java.util.concurrent.Callable
+import java.util.concurrent.atomic.AtomicLong
+
+import static java.util.concurrent.TimeUnit.SECONDS
+
+/**
+ * Identity cache for Bedrock decorators scoped to a <code>ResourceResolver</code>.  Repeated adaptations of the same
+ * path within the lifetime of a resolver (typically a single request) return the same decorator instance.  Entries for
+ * a resolver are discarded when the resolver has pending changes or is no longer live.  When the decorator cache event
+ * listener observes a saved repository change, the entries of all resolvers for the changed paths, their ancestors,
+ * and their descendants are discarded.  Since saves by any session, including the session of a cached resolver, are
+ * observed asynchronously, callers that commit and then re-adapt within the same request should call
+ * <code>invalidate</code>.
+ * Resource existence checks for strict links are cached by the same mechanism under the <code>Boolean</code> type.
+ */
+@Slf4j("LOG")
+final class DecoratorCache {
+
+    private static final long MAXIMUM_SIZE = 1000
+
+    /** bounds the number of resolvers with cached decorators, e.g. when resolvers are opened faster than they expire */
+    private static final long MAXIMUM_RESOLVERS = 1000
+
+    /** guards long-lived (e.g. service) resolvers from holding stale decorators indefinitely */
+    private static final long EXPIRE_AFTER_WRITE_SECONDS = 60
+
+    /** request-scoped resolvers are closed and discarded well within this idle period */
+    private static final long EXPIRE_AFTER_ACCESS_SECONDS = 10
+
+    /**
+     * Weak keys compare resolvers by identity.  Cached decorators hold strong references to their resolver, so the
+     * size bound and idle expiration are what release the entries of closed resolvers.
+     */
+    private static final Cache<ResourceResolver, Decorators> CACHES = CacheBuilder.newBuilder()
+        .weakKeys()
+        .maximumSize(MAXIMUM_RESOLVERS)
+        .expireAfterAccess(EXPIRE_AFTER_ACCESS_SECONDS, SECONDS)
+        .build()
+
+    /** keys are the decorator type name and the decorated path */
+    private static final Closure<String> DECORATED_PATH = { String key -> key.substring(key.indexOf('|') + 1) }
+
+    /** incremented for each invalidation, decorators loaded during an invalidation are not cached */
+    private static final AtomicLong GENERATION = new AtomicLong()
+
+    /**
+     * Get the cached decorator of the given type for a path, creating and caching it if it does not exist.
+     *
+     * @param resourceResolver resolver owning the decorator
+     * @param type decorator type
+     * @param path content path
+     * @param loader creates the decorator if it is not cached, may return null
+     * @return decorator instance or null if the loader returned null
+     */
+    static <T> T get(ResourceResolver resourceResolver, Class<T> type, String path, Callable<T> loader) {
+        def result
+
+        if (isCacheable(resourceResolver)) {
+            def decorators = CACHES.get(resourceResolver, { new Decorators() } as Callable)
+            def key = type.name + '|' + path
+
+            result = decorators.cache.getIfPresent(key) as T
+
+            if (result == null) {
+                def generation = GENERATION.get()
+
+                result = loader.call()
+
+                if (result != null && GENERATION.get() == generation) {
+                    decorators.put(key, result)
+
+                    // an invalidation that started before the key was indexed may have missed it
+                    if (GENERATION.get() != generation) {
+                        decorators.cache.invalidate(key)
+                    }
+                }
+            }
+        } else {
+            invalidate(resourceResolver)
+
+            result = loader.call()
+        }
+
+        result
+    }
+
+    /**
+     * Get the cached decorator of the given type for a resource.  Wrapped, synthetic, and non-existing resources are
+     * not cached since their state is not fully determined by their path.
+     *
+     * @param resource resource to decorate
+     * @param type decorator type
+     * @param loader creates the decorator if it is not cached, may return null
+     * @return decorator instance or null if the loader returned null
+     */
+    static <T> T get(Resource resource, Class<T> type, Callable<T> loader) {
+        def result
+
+        if (resource instanceof ResourceWrapper || ResourceUtil.isSyntheticResource(resource) ||
+            ResourceUtil.isNonExistingResource(resource)) {
+            result = loader.call()
+        } else {
+            result = get(resource.resourceResolver, type, resource.path, loader)
+        }
+
+        result
+    }
+
+    /**
+     * Discard all cached decorators for the given resolver.  Callers that commit or refresh a resolver outside of the
+     * Bedrock page manager should call this method before adapting content again.
+     *
+     * @param resourceResolver resource resolver
+     */
+    static void invalidate(ResourceResolver resourceResolver) {
+        if (resourceResolver != null && CACHES.getIfPresent(resourceResolver) != null) {
+            LOG.debug("invalidating decorator cache for resource resolver = {}", resourceResolver)
+
+            CACHES.invalidate(resourceResolver)
+        }
+    }
+
+    /**
+     * Discard the cached decorators of all resolvers for the given paths, their ancestors, and their descendants, e.g.
+     * after changes to the paths are saved.
+     *
+     * @param paths changed content paths
+     */
+    static void invalidate(Collection<String> paths) {
+        GENERATION.incrementAndGet()
+
+        CACHES.asMap().values().each { decorators ->
+            def keys = new HashSet<String>()
+
+            paths.each { path -> keys.addAll(decorators.keyIndex.getRelated(path)) }
+
+            if (keys) {
+                decorators.cache.invalidateAll(keys)
+            }
+        }
+    }
+
+    /**
+     * Discard the cached decorators for all resolvers.
+     */
+    static void invalidateAll() {
+        GENERATION.incrementAndGet()
+
+        CACHES.asMap().values().each { decorators -> decorators.cache.invalidateAll() }
+    }
+
+    private static boolean isCacheable(ResourceResolver resourceResolver) {
+        resourceResolver != null && resourceResolver.live && !resourceResolver.hasChanges()
+    }
+
+    private static class Decorators {
+
+        final PathKeyIndex<String> keyIndex = new PathKeyIndex<String>(DECORATED_PATH)
+
+        final Cache<String, Object> cache = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(EXPIRE_AFTER_WRITE_SECONDS, SECONDS)
+            .removalListener(keyIndex)
+            .build()
+
+        void put(String key, Object decorator) {
+            cache.put(key, decorator)
+            keyIndex.add(key)
+        }
+    }
+
+    private DecoratorCache() {
+
+    }
+}
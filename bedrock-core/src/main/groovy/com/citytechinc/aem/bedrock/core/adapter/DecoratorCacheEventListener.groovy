@@ -0,0 +1,83 @@
+package com.citytechinc.aem.bedrock.core.adapter
+
+import com.citytechinc.aem.bedrock.core.services.AbstractObservationService
+import groovy.util.logging.Slf4j
+import org.apache.felix.scr.annotations.Activate
+import org.apache.felix.scr.annotations.Component
+import org.apache.felix.scr.annotations.Deactivate
+import org.apache.felix.scr.annotations.Property
+import org.apache.felix.scr.annotations.PropertyUnbounded
+import org.osgi.service.component.ComponentContext
+
+import javax.jcr.RepositoryException
+import javax.jcr.observation.Event
+import javax.jcr.observation.EventIterator
+import javax.jcr.observation.EventListener
+
+import static com.citytechinc.aem.bedrock.core.constants.PathConstants.PATH_CONTENT
+
+/**
+ * Discards the decorators cached for the changed paths when a change below one of the configured root paths is saved or
+ * replicated, so that a resolver refreshed or committed outside of Bedrock does not return stale decorators.
+ */
+@Component(immediate = true, metatype = true, label = "Bedrock Decorator Cache Event Listener",
+    description = "Invalidates cached page and component decorators when repository content changes.")
+@Slf4j("LOG")
+class DecoratorCacheEventListener extends AbstractObservationService {
+
+    private static final int EVENT_TYPES = CONTENT_EVENT_TYPES | Event.NODE_MOVED
+
+    @Property(label = "Root Paths", description = "Root paths observed for content changes.",
+        value = [PATH_CONTENT, "/etc"], unbounded = PropertyUnbounded.ARRAY)
+    static final String ROOT_PATHS = "rootPaths"
+
+    @Activate
+    @Override
+    protected void activate(ComponentContext componentContext, Map<String, Object> properties) {
+        try {
+            getConfiguration(properties).getAsList(ROOT_PATHS, [PATH_CONTENT, "/etc"]).findAll().each { rootPath ->
+                addEventListener(new InvalidatingEventListener(), EVENT_TYPES, rootPath)
+            }
+        } catch (RepositoryException e) {
+            LOG.error("error registering decorator cache event listeners", e)
+        }
+    }
+
+    @Deactivate
+    @Override
+    protected void deactivate(ComponentContext componentContext, Map<String, Object> properties) {
+        removeEventListeners()
+    }
+
+    /**
+     * Events are delivered once per saved change set, so the changed node paths of each batch of events are invalidated
+     * together.  Property events invalidate the node owning the property.
+     */
+    @Slf4j("LOG")
+    static class InvalidatingEventListener implements EventListener {
+
+        @Override
+        void onEvent(EventIterator events) {
+            def paths = new LinkedHashSet<String>()
+
+            while (events.hasNext()) {
+                def event = events.nextEvent()
+
+                try {
+                    def path = event.path
+                    def property = event.type & AbstractObservationService.PROPERTY_EVENT_TYPES
+
+                    paths.add(property ? path.substring(0, path.lastIndexOf('/')) : path)
+                } catch (RepositoryException e) {
+                    LOG.error("error reading event path", e)
+                }
+            }
+
+            if (paths) {
+                LOG.debug("content changed, invalidating decorator caches for paths = {}", paths)
+
+                DecoratorCache.invalidate(paths)
+            }
+        }
+    }
+}
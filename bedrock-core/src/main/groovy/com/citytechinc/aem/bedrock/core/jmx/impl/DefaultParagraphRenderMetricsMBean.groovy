@@ -0,0 +1,121 @@
+package com.citytechinc.aem.bedrock.core.jmx.impl
+
+import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean
+import com.citytechinc.aem.bedrock.core.jmx.ParagraphRenderMetricsMBean
+import groovy.util.logging.Slf4j
+import org.apache.felix.scr.annotations.Component
+import org.apache.felix.scr.annotations.Property
+import org.apache.felix.scr.annotations.Service
+
+import javax.management.NotCompliantMBeanException
+import javax.management.openmbean.CompositeDataSupport
+import javax.management.openmbean.CompositeType
+import javax.management.openmbean.OpenType
+import javax.management.openmbean.SimpleType
+import javax.management.openmbean.TabularDataSupport
+import javax.management.openmbean.TabularType
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Render time statistics by resource type for paragraphs rendered in parallel by the paragraph JSON servlet, which
+ * records into this service.
+ */
+@Component
+@Property(name = "jmx.objectname", value = "com.citytechinc.aem.bedrock:type=Paragraph Render Metrics")
+@Service(ParagraphRenderMetricsMBean)
+@Slf4j("LOG")
+class DefaultParagraphRenderMetricsMBean extends AnnotatedStandardMBean implements ParagraphRenderMetricsMBean {
+
+    private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<>()
+
+    public DefaultParagraphRenderMetricsMBean() throws NotCompliantMBeanException {
+        super(ParagraphRenderMetricsMBean)
+    }
+
+    @Override
+    TabularDataSupport getRenderMetrics() {
+        TabularDataSupport tabularDataSupport = null
+
+        try {
+            def itemNamesAndDescriptions = ["Resource Type", "Render Count", "Average Render Time (ms)",
+                                            "Max Render Time (ms)", "Timeout Count"] as String[]
+            def itemTypes = [SimpleType.STRING, SimpleType.LONG, SimpleType.DOUBLE, SimpleType.DOUBLE,
+                             SimpleType.LONG] as OpenType[]
+            def indexNames = ["Resource Type"] as String[]
+
+            def renderType = new CompositeType("render", "Render time statistics", itemNamesAndDescriptions,
+                itemNamesAndDescriptions, itemTypes)
+            def renderTabularType = new TabularType("List of Resource Types and Render Times",
+                "List of Resource Types and Render Times", renderType, indexNames)
+
+            tabularDataSupport = new TabularDataSupport(renderTabularType)
+
+            statistics.each { resourceType, resourceTypeStatistics ->
+                def count = resourceTypeStatistics.count.get()
+                def averageMillis = count == 0 ? 0D : toMillis(resourceTypeStatistics.totalNanos.get()) / count
+
+                tabularDataSupport.put(new CompositeDataSupport(renderType, itemNamesAndDescriptions,
+                    [resourceType, count, averageMillis as double, toMillis(resourceTypeStatistics.maxNanos.get()),
+                     resourceTypeStatistics.timeouts.get()] as Object[]))
+            }
+        } catch (exception) {
+            LOG.error "An exception occurred building tabulardata for paragraph render metrics.", exception
+        }
+
+        tabularDataSupport
+    }
+
+    @Override
+    void resetRenderMetrics() {
+        statistics.clear()
+    }
+
+    @Override
+    void recordRender(String resourceType, long durationNanos) {
+        def resourceTypeStatistics = getStatistics(resourceType)
+
+        resourceTypeStatistics.count.incrementAndGet()
+        resourceTypeStatistics.totalNanos.addAndGet(durationNanos)
+
+        def max = resourceTypeStatistics.maxNanos.get()
+
+        while (durationNanos > max && !resourceTypeStatistics.maxNanos.compareAndSet(max, durationNanos)) {
+            max = resourceTypeStatistics.maxNanos.get()
+        }
+    }
+
+    @Override
+    void recordTimeout(String resourceType) {
+        getStatistics(resourceType).timeouts.incrementAndGet()
+    }
+
+    private Statistics getStatistics(String resourceType) {
+        def resourceTypeStatistics = statistics.get(resourceType)
+
+        if (resourceTypeStatistics == null) {
+            def newStatistics = new Statistics()
+
+            resourceTypeStatistics = statistics.putIfAbsent(resourceType, newStatistics) ?: newStatistics
+        }
+
+        resourceTypeStatistics
+    }
+
+    private static double toMillis(long nanos) {
+        (double) nanos / TimeUnit.MILLISECONDS.toNanos(1)
+    }
+
+    private static class Statistics {
+
+        final AtomicLong count = new AtomicLong()
+
+        final AtomicLong totalNanos = new AtomicLong()
+
+        final AtomicLong maxNanos = new AtomicLong()
+
+        final AtomicLong timeouts = new AtomicLong()
+    }
+}
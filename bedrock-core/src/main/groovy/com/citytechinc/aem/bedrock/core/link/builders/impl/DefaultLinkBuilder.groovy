@@ -18,20 +18,28 @@ import groovy.util.logging.Slf4j
 
 import static com.google.common.base.Preconditions.checkNotNull
 
+/**
+ * Link builder that allocates parameter, property, selector, and child collections only when they are added, so the
+ * common case of a path with a default extension builds a link with a single right-sized <code>StringBuilder</code>.
+ */
 @Slf4j("LOG")
 final class DefaultLinkBuilder implements LinkBuilder {
 
     private static final String UTF_8 = Charsets.UTF_8.name()
 
-    private SetMultimap<String, String> parameters = LinkedHashMultimap.create()
+    /** lazily allocated */
+    private SetMultimap<String, String> parameters
 
     private String path
 
-    private Map<String, String> properties = [:]
+    /** lazily allocated */
+    private Map<String, String> properties
 
-    private List<String> selectors = []
+    /** lazily allocated */
+    private List<String> selectors
 
-    private List<NavigationLink> children = []
+    /** lazily allocated */
+    private List<NavigationLink> children
 
     // initialized with default values
 
@@ -63,96 +71,165 @@ final class DefaultLinkBuilder implements LinkBuilder {
 
     @Override
     LinkBuilder addChild(NavigationLink child) {
-        children.add(checkNotNull(child))
+        checkNotNull(child)
+
+        if (children == null) {
+            children = []
+        }
+
+        children.add(child)
 
         this
     }
 
     @Override
     LinkBuilder addParameter(String name, String value) {
-        parameters.put(checkNotNull(name), checkNotNull(value))
+        checkNotNull(name)
+        checkNotNull(value)
+
+        getOrCreateParameters().put(name, value)
 
         this
     }
 
     @Override
     LinkBuilder addParameters(Map<String, String> parameters) {
-        this.parameters.putAll(Multimaps.forMap(checkNotNull(parameters)))
+        checkNotNull(parameters)
+
+        if (!parameters.isEmpty()) {
+            getOrCreateParameters().putAll(Multimaps.forMap(parameters))
+        }
 
         this
     }
 
     @Override
     LinkBuilder addParameters(SetMultimap<String, String> parameters) {
-        this.parameters.putAll(checkNotNull(parameters))
+        checkNotNull(parameters)
+
+        if (!parameters.isEmpty()) {
+            getOrCreateParameters().putAll(parameters)
+        }
 
         this
     }
 
     @Override
     LinkBuilder addProperties(Map<String, String> properties) {
-        this.properties.putAll(checkNotNull(properties))
+        checkNotNull(properties)
+
+        if (!properties.isEmpty()) {
+            getOrCreateProperties().putAll(properties)
+        }
 
         this
     }
 
     @Override
     LinkBuilder addProperty(String name, String value) {
-        properties.put(checkNotNull(name), checkNotNull(value))
+        checkNotNull(name)
+        checkNotNull(value)
+
+        getOrCreateProperties().put(name, value)
 
         this
     }
 
     @Override
     LinkBuilder addSelector(String selector) {
-        selectors.add(checkNotNull(selector))
+        checkNotNull(selector)
+
+        if (selectors == null) {
+            selectors = []
+        }
+
+        selectors.add(selector)
 
         this
     }
 
     @Override
     LinkBuilder addSelectors(List<String> selectors) {
-        this.selectors.addAll(checkNotNull(selectors))
+        checkNotNull(selectors)
+
+        if (!selectors.isEmpty()) {
+            if (this.selectors == null) {
+                this.selectors = new ArrayList<String>(selectors.size())
+            }
+
+            this.selectors.addAll(selectors)
+        }
 
         this
     }
 
     @Override
     Link build() {
-        def builder = new StringBuilder()
-
-        builder.append(buildHost())
-        builder.append(path)
-        builder.append(buildSelectors())
+        def hasHost = !isExternal && host
+        def hasSelectors = !isExternal && selectors
 
         def extension
+        def appendExtension = false
 
         if (path.contains(PathConstants.SELECTOR)) {
             extension = path.substring(path.indexOf(PathConstants.SELECTOR) + 1)
+        } else if (isExternal) {
+            extension = ""
         } else {
-            if (isExternal) {
-                extension = ""
-            } else {
-                extension = this.extension == null ? PathConstants.EXTENSION_HTML : this.extension
-
-                if (extension) {
-                    builder.append('.')
-                    builder.append(extension)
-                }
+            extension = this.extension == null ? PathConstants.EXTENSION_HTML : this.extension
+            appendExtension = extension as boolean
+        }
+
+        def queryString = parameters != null && !parameters.isEmpty() ? buildQueryString() : ""
+
+        // precompute the href length so that the builder is never resized
+        def length = path.length() + queryString.length() + (suffix ? suffix.length() : 0)
+
+        if (hasHost) {
+            // scheme, host, and port
+            length += 14 + host.length()
+        }
+
+        if (hasSelectors) {
+            for (selector in selectors) {
+                length += selector.length() + 1
+            }
+        }
+
+        if (appendExtension) {
+            length += extension.length() + 1
+        }
+
+        def builder = new StringBuilder(length)
+
+        if (hasHost) {
+            builder.append(secure ? "https://" : "http://").append(host)
+
+            if (port > 0) {
+                builder.append(':').append(port)
             }
         }
 
-        builder.append(suffix)
+        builder.append(path)
+
+        if (hasSelectors) {
+            for (selector in selectors) {
+                builder.append('.').append(selector)
+            }
+        }
 
-        def queryString = buildQueryString()
+        if (appendExtension) {
+            builder.append('.').append(extension)
+        }
 
-        builder.append(queryString)
+        builder.append(suffix).append(queryString)
 
         def href = builder.toString()
 
         LOG.debug("building href = {}", href)
 
-        new DefaultLink(path, extension, suffix, href, selectors, queryString, isExternal, target, title, properties)
+        new DefaultLink(path, extension, suffix, href, selectors ?: Collections.<String>emptyList(), queryString,
+            isExternal, target, title, properties ?: Collections.<String, String>emptyMap())
     }
 
     @Override
@@ -166,7 +243,7 @@ final class DefaultLinkBuilder implements LinkBuilder {
     NavigationLink buildNavigationLink() {
         def link = build()
 
-        new DefaultNavigationLink(link, isActive, children)
+        new DefaultNavigationLink(link, isActive, children ?: Collections.<NavigationLink>emptyList())
     }
 
     @Override
@@ -239,61 +316,44 @@ final class DefaultLinkBuilder implements LinkBuilder {
         this
     }
 
-    private String buildHost() {
-        def builder = new StringBuilder()
+    private SetMultimap<String, String> getOrCreateParameters() {
+        if (parameters == null) {
+            parameters = LinkedHashMultimap.create()
+        }
 
-        if (!isExternal && host) {
-            builder.append(secure ? "https" : "http")
-            builder.append("://")
-            builder.append(host)
+        parameters
+    }
 
-            if (port > 0) {
-                builder.append(':')
-                builder.append(port)
-            }
+    private Map<String, String> getOrCreateProperties() {
+        if (properties == null) {
+            properties = [:]
         }
 
-        builder.toString()
+        properties
     }
 
     private String buildQueryString() {
         def builder = new StringBuilder()
 
-        if (!parameters.isEmpty()) {
-            builder.append('?')
-
-            parameters.keySet().each { name ->
-                def values = parameters.get(name)
-
-                values.each { value ->
-                    try {
-                        builder.append(URLEncoder.encode(name, UTF_8))
-                        builder.append('=')
-                        builder.append(URLEncoder.encode(value, UTF_8))
-                    } catch (UnsupportedEncodingException uee) {
-                        LOG.error("invalid encoding for parameter = $name=$value", uee)
-                    }
-
-                    builder.append('&')
+        builder.append('?')
+
+        // values are grouped by parameter name
+        for (name in parameters.keySet()) {
+            for (value in parameters.get(name)) {
+                try {
+                    builder.append(URLEncoder.encode(name, UTF_8))
+                    builder.append('=')
+                    builder.append(URLEncoder.encode(value, UTF_8))
+                } catch (UnsupportedEncodingException uee) {
+                    LOG.error("invalid encoding for parameter = $name=$value", uee)
                 }
-            }
 
-            builder.deleteCharAt(builder.length() - 1)
-        }
-
-        builder.toString()
-    }
-
-    private String buildSelectors() {
-        def builder = new StringBuilder()
-
-        if (!isExternal) {
-            selectors.each { selector ->
-                builder.append('.')
-                builder.append(selector)
+                builder.append('&')
             }
         }
 
+        builder.deleteCharAt(builder.length() - 1)
+
         builder.toString()
     }
 }
@@ -31,7 +31,7 @@ abstract class AbstractNode {
             @Override
             Link apply(String path) {
                 def resourceResolver = resourceInternal.resourceResolver
-                def mappedPath = mapped ? resourceResolver.map(path) : path
+                def mappedPath = mapped ? PathUtils.getMappedPath(path, resourceResolver) : path
 
                 def builder = LinkBuilderFactory.forPath(mappedPath)
 
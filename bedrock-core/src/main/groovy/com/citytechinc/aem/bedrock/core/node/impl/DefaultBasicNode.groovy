@@ -1,5 +1,6 @@
 package com.citytechinc.aem.bedrock.core.node.impl
 
+import com.citytechinc.aem.bedrock.api.ImageDimensions
 import com.citytechinc.aem.bedrock.api.link.Link
 import com.citytechinc.aem.bedrock.api.link.builders.LinkBuilder
 import com.citytechinc.aem.bedrock.api.node.BasicNode
@@ -7,6 +8,9 @@ import com.citytechinc.aem.bedrock.api.page.PageDecorator
 import com.citytechinc.aem.bedrock.core.link.builders.factory.LinkBuilderFactory
 import com.citytechinc.aem.bedrock.core.node.predicates.ResourcePathPredicate
 import com.citytechinc.aem.bedrock.core.node.predicates.ResourceTypePredicate
+import com.citytechinc.aem.bedrock.core.services.OptionalServiceTracker
+import com.citytechinc.aem.bedrock.core.services.ImageWidthService
+import com.citytechinc.aem.bedrock.core.utils.ImageUtils
 import com.day.cq.commons.DownloadResource
 import com.day.cq.commons.jcr.JcrConstants
 import com.day.cq.dam.api.Asset
@@ -17,6 +21,8 @@ import com.google.common.base.Objects
 import com.google.common.base.Optional
 import com.google.common.base.Predicate
 import com.google.common.base.Predicates
+import com.google.common.base.Supplier
+import com.google.common.base.Suppliers
 import com.google.common.collect.Iterables
 import com.google.common.collect.Maps
 import groovy.util.logging.Slf4j
@@ -43,12 +49,21 @@ final class DefaultBasicNode extends AbstractNode implements BasicNode {
 
     private static final String IMAGE_SELECTOR = "img"
 
-    private final ValueMap properties
+    private static final OptionalServiceTracker<ImageWidthService> IMAGE_WIDTH_SERVICE =
+        new OptionalServiceTracker<ImageWidthService>(ImageWidthService)
+
+    /** value map is only read from the resource when a property is first accessed */
+    private final Supplier<ValueMap> properties
 
     DefaultBasicNode(Resource resource) {
         super(resource)
 
-        properties = resource.valueMap
+        properties = Suppliers.memoize(new Supplier<ValueMap>() {
+            @Override
+            ValueMap get() {
+                resource.valueMap
+            }
+        })
     }
 
     @Override
@@ -63,22 +78,22 @@ final class DefaultBasicNode extends AbstractNode implements BasicNode {
 
     @Override
     ValueMap asMap() {
-        properties
+        properties.get()
     }
 
     @Override
     <T> T get(String propertyName, T defaultValue) {
-        properties.get(checkNotNull(propertyName), defaultValue)
+        asMap().get(checkNotNull(propertyName), defaultValue)
     }
 
     @Override
     <T> Optional<T> get(String propertyName, Class<T> type) {
-        Optional.fromNullable(properties.get(propertyName, type))
+        Optional.fromNullable(asMap().get(propertyName, type))
     }
 
     @Override
     <AdapterType> Optional<AdapterType> getAsType(String propertyName, Class<AdapterType> type) {
-        getAsTypeOptional(properties.get(checkNotNull(propertyName), ""), type)
+        getAsTypeOptional(asMap().get(checkNotNull(propertyName), ""), type)
     }
 
     @Override
@@ -113,12 +128,12 @@ final class DefaultBasicNode extends AbstractNode implements BasicNode {
 
     @Override
     <T> List<T> getAsList(String propertyName, Class<T> type) {
-        properties.get(checkNotNull(propertyName), Array.newInstance(type, 0)) as List
+        asMap().get(checkNotNull(propertyName), Array.newInstance(type, 0)) as List
     }
 
     @Override
     Optional<PageDecorator> getAsPage(String propertyName) {
-        getPageOptional(properties.get(checkNotNull(propertyName), ""))
+        getPageOptional(asMap().get(checkNotNull(propertyName), ""))
     }
 
     @Override
@@ -160,7 +175,7 @@ final class DefaultBasicNode extends AbstractNode implements BasicNode {
 
     @Override
     Optional<String> getImageReference(String name) {
-        Optional.fromNullable(properties.get(checkNotNull(name) + "/" + DownloadResource.PN_REFERENCE, String))
+        Optional.fromNullable(asMap().get(checkNotNull(name) + "/" + DownloadResource.PN_REFERENCE, String))
     }
 
     @Override
@@ -213,6 +228,13 @@ final class DefaultBasicNode extends AbstractNode implements BasicNode {
         }
 
         if (isHasImage(name)) {
+            def imageWidthService = IMAGE_WIDTH_SERVICE.service
+
+            // snap the requested width to the width ladder to bound the number of distinct renditions
+            if (width > -1 && imageWidthService?.enabled) {
+                width = imageWidthService.getWidth(width)
+            }
+
             def builder = new StringBuilder()
 
             if (JcrConstants.JCR_CONTENT == resource.name) {
@@ -244,6 +266,91 @@ final class DefaultBasicNode extends AbstractNode implements BasicNode {
         optionalImageSource
     }
 
+    @Override
+    Optional<String> getImageSrcset() {
+        getImageSrcset(null)
+    }
+
+    @Override
+    Optional<String> getImageSrcset(String name) {
+        def imageWidthService = IMAGE_WIDTH_SERVICE.service
+
+        if (!name && !isHasImage(null)) {
+            name = DEFAULT_IMAGE_NAME
+        }
+
+        def candidates = []
+
+        if (imageWidthService && isHasImage(name)) {
+            def dimensions = getImageDimensions(name)
+
+            // without the image width, candidates could describe widths that the image is never resized to
+            if (dimensions.present) {
+                def fullWidth = dimensions.get().width
+                def previousWidth = 0
+
+                // images are resized before they are cropped and rotated, so each descriptor is the rendered width
+                imageWidthService.widths.each { width ->
+                    def renderedDimensions = getImageDimensions(name, width)
+
+                    if (renderedDimensions.present) {
+                        def renderedWidth = renderedDimensions.get().width
+
+                        if (renderedWidth > previousWidth && renderedWidth < fullWidth) {
+                            candidates.add(getImageSource(name, width).get() + " " + renderedWidth + "w")
+
+                            previousWidth = renderedWidth
+                        }
+                    }
+                }
+
+                candidates.add(getImageSource(name).get() + " " + fullWidth + "w")
+            }
+        }
+
+        candidates ? Optional.of(candidates.join(", ")) : Optional.absent()
+    }
+
+    @Override
+    Optional<ImageDimensions> getImageDimensions() {
+        getImageDimensions(null)
+    }
+
+    @Override
+    Optional<ImageDimensions> getImageDimensions(int width) {
+        getImageDimensions(null, width)
+    }
+
+    @Override
+    Optional<ImageDimensions> getImageDimensions(String name) {
+        getImageDimensions(name, -1)
+    }
+
+    @Override
+    Optional<ImageDimensions> getImageDimensions(String name, int width) {
+        def optionalImageDimensions
+
+        if (!name && !isHasImage(null)) {
+            name = DEFAULT_IMAGE_NAME
+        }
+
+        if (isHasImage(name)) {
+            def image = name ? new Image(resource, name) : new Image(resource)
+
+            try {
+                optionalImageDimensions = ImageUtils.getDimensions(image, width)
+            } catch (RepositoryException e) {
+                LOG.error("error getting image dimensions for node = $path", e)
+
+                optionalImageDimensions = Optional.absent()
+            }
+        } else {
+            optionalImageDimensions = Optional.absent()
+        }
+
+        optionalImageDimensions
+    }
+
     @Override
     int getIndex() {
         getIndexForPredicate(ALL)
@@ -8,15 +8,18 @@ import com.citytechinc.aem.bedrock.api.page.PageManagerDecorator
 import com.citytechinc.aem.bedrock.core.node.predicates.ComponentNodePropertyExistsPredicate
 import com.citytechinc.aem.bedrock.core.node.predicates.ComponentNodePropertyValuePredicate
 import com.citytechinc.aem.bedrock.core.node.predicates.ComponentNodeResourceTypePredicate
+import com.citytechinc.aem.bedrock.core.page.impl.AncestorChain
+import com.citytechinc.aem.bedrock.core.services.OptionalServiceTracker
+import com.citytechinc.aem.bedrock.core.services.cache.InheritedValueCacheService
 import com.day.cq.commons.DownloadResource
-import com.day.cq.commons.inherit.HierarchyNodeInheritanceValueMap
-import com.day.cq.commons.inherit.InheritanceValueMap
-import com.day.cq.commons.jcr.JcrConstants
 import com.day.cq.wcm.api.designer.Designer
 import com.google.common.base.Function
 import com.google.common.base.Objects
 import com.google.common.base.Optional
 import com.google.common.base.Predicate
+import com.google.common.base.Predicates
+import com.google.common.base.Supplier
+import com.google.common.base.Suppliers
 import com.google.common.collect.FluentIterable
 import com.google.common.collect.Maps
 import groovy.util.logging.Slf4j
@@ -25,9 +28,11 @@ import org.apache.commons.lang3.builder.HashCodeBuilder
 import org.apache.sling.api.resource.Resource
 
 import java.lang.reflect.Array
+import java.util.concurrent.Callable
 
 import static com.citytechinc.aem.bedrock.core.constants.ComponentConstants.DEFAULT_IMAGE_NAME
 import static com.citytechinc.aem.bedrock.core.link.impl.LinkFunctions.LINK_TO_HREF
+import static com.citytechinc.aem.bedrock.core.node.impl.NodeFunctions.COMPONENT_NODE_TO_CHILDREN
 import static com.citytechinc.aem.bedrock.core.node.impl.NodeFunctions.RESOURCE_TO_BASIC_NODE
 import static com.citytechinc.aem.bedrock.core.node.impl.NodeFunctions.RESOURCE_TO_COMPONENT_NODE
 import static com.google.common.base.Preconditions.checkNotNull
@@ -35,16 +40,25 @@ import static com.google.common.base.Preconditions.checkNotNull
 @Slf4j("LOG")
 final class DefaultComponentNode extends AbstractNode implements ComponentNode {
 
+    private static final OptionalServiceTracker<InheritedValueCacheService> INHERITED_VALUE_CACHE_SERVICE =
+        new OptionalServiceTracker<InheritedValueCacheService>(InheritedValueCacheService)
+
     @Delegate
     private final BasicNode basicNode
 
-    private final InheritanceValueMap properties
+    /** containing page is only resolved when an inherited value or ancestor is first requested */
+    private final Supplier<PageDecorator> containingPage
 
     DefaultComponentNode(Resource resource) {
         super(resource)
 
         basicNode = new DefaultBasicNode(resource)
-        properties = new HierarchyNodeInheritanceValueMap(resource)
+        containingPage = Suppliers.memoize(new Supplier<PageDecorator>() {
+            @Override
+            PageDecorator get() {
+                resource.resourceResolver.adaptTo(PageManagerDecorator).getContainingPage(resource)
+            }
+        })
     }
 
     @Override
@@ -64,17 +78,29 @@ final class DefaultComponentNode extends AbstractNode implements ComponentNode {
 
     @Override
     List<ComponentNode> findDescendants(Predicate<ComponentNode> predicate) {
-        def descendantNodes = []
+        FluentIterable.from(iterateDescendants(predicate)).toList()
+    }
 
-        componentNodes.each { componentNode ->
-            if (predicate.apply(componentNode)) {
-                descendantNodes.add(componentNode)
-            }
+    @Override
+    List<ComponentNode> findDescendants(Predicate<ComponentNode> predicate, int limit) {
+        FluentIterable.from(iterateDescendants(predicate)).limit(limit).toList()
+    }
 
-            descendantNodes.addAll(componentNode.findDescendants(predicate))
-        }
+    @Override
+    Optional<ComponentNode> findFirstDescendant(Predicate<ComponentNode> predicate) {
+        FluentIterable.from(iterateDescendants(predicate)).first()
+    }
+
+    @Override
+    Iterable<ComponentNode> iterateDescendants(Predicate<ComponentNode> predicate) {
+        iterateDescendants(predicate, Predicates.<ComponentNode> alwaysTrue(), -1)
+    }
 
-        descendantNodes
+    @Override
+    Iterable<ComponentNode> iterateDescendants(Predicate<ComponentNode> predicate,
+        Predicate<ComponentNode> traversalPredicate, int maxDepth) {
+        new DescendantIterable<ComponentNode>(this, COMPONENT_NODE_TO_CHILDREN, predicate, traversalPredicate,
+            maxDepth)
     }
 
     @Override
@@ -119,17 +145,17 @@ final class DefaultComponentNode extends AbstractNode implements ComponentNode {
 
     @Override
     <T> List<T> getAsListInherited(String propertyName, Class<T> type) {
-        properties.getInherited(checkNotNull(propertyName), Array.newInstance(type, 0)) as List
+        getInherited(checkNotNull(propertyName), Array.newInstance(type, 0)) as List
     }
 
     @Override
     Optional<PageDecorator> getAsPageInherited(String propertyName) {
-        getPageOptional(properties.getInherited(checkNotNull(propertyName), ""))
+        getPageOptional(getInherited(checkNotNull(propertyName), ""))
     }
 
     @Override
     <AdapterType> Optional<AdapterType> getAsTypeInherited(String propertyName, Class<AdapterType> type) {
-        getAsTypeOptional(properties.getInherited(checkNotNull(propertyName), ""), type)
+        getAsTypeOptional(getInherited(checkNotNull(propertyName), ""), type)
     }
 
     @Override
@@ -189,7 +215,7 @@ final class DefaultComponentNode extends AbstractNode implements ComponentNode {
 
     @Override
     Optional<String> getImageReferenceInherited(String name) {
-        Optional.fromNullable(properties.getInherited("$name/${DownloadResource.PN_REFERENCE}", String))
+        getInherited("$name/${DownloadResource.PN_REFERENCE}".toString(), String)
     }
 
     @Override
@@ -230,12 +256,14 @@ final class DefaultComponentNode extends AbstractNode implements ComponentNode {
 
     @Override
     <T> T getInherited(String propertyName, T defaultValue) {
-        properties.getInherited(propertyName, defaultValue)
+        def value = getInheritedValue(propertyName, defaultValue == null ? Object : defaultValue.getClass())
+
+        value == null ? defaultValue : value as T
     }
 
     @Override
     <T> Optional<T> getInherited(String propertyName, Class<T> type) {
-        Optional.fromNullable(properties.getInherited(propertyName, type))
+        Optional.fromNullable(getInheritedValue(propertyName, type))
     }
 
     @Override
@@ -270,14 +298,95 @@ final class DefaultComponentNode extends AbstractNode implements ComponentNode {
 
     // internals
 
-    private Optional<ComponentNode> findAncestorForPredicate(Predicate<ComponentNode> predicate) {
-        def pageManager = resource.resourceResolver.adaptTo(PageManagerDecorator)
-        def containingPage = pageManager.getContainingPage(resource)
+    /**
+     * Get an inherited property value, using the cross-request inherited value cache if it is enabled.  The cache is
+     * bypassed while the resource resolver has pending changes.
+     */
+    private <T> T getInheritedValue(String propertyName, Class<T> type) {
+        checkNotNull(propertyName)
+
+        def resourceResolver = resource.resourceResolver
+        def cacheService = INHERITED_VALUE_CACHE_SERVICE.service
+
+        def value
+
+        if (cacheService?.enabled && !resourceResolver.hasChanges()) {
+            value = cacheService.getInherited(path, propertyName, type, {
+                Optional.fromNullable(resolveInheritedValue(propertyName, type))
+            } as Callable<Optional<T>>).orNull()
+        } else {
+            value = resolveInheritedValue(propertyName, type)
+        }
+
+        value
+    }
+
+    /**
+     * Get a property value from this node or, if it does not exist, from the node at the same path relative to the
+     * content node of the nearest ancestor page that has a value.
+     */
+    private <T> T resolveInheritedValue(String propertyName, Class<T> type) {
+        def value = asMap().get(propertyName, type)
+
+        def page = containingPage.get()
+
+        def relativePathOptional = page ? getRelativePath(page) : Optional.<String>absent()
+
+        if (value == null && relativePathOptional.present) {
+            def relativePath = relativePathOptional.get()
+            def pages = AncestorChain.forPage(page).pages
+
+            // containing page content is this node, which has already been checked
+            for (ancestorPage in pages.subList(1, pages.size())) {
+                def ancestorResource = relativePath ? ancestorPage.getContentResource(relativePath) :
+                    ancestorPage.contentResource
+
+                value = ancestorResource?.valueMap?.get(propertyName, type)
+
+                if (value != null) {
+                    break
+                }
+            }
+        }
+
+        value
+    }
+
+    /**
+     * @return path of this node relative to the content node of the containing page, empty for the content node, or
+     * absent if the page has no content node or this node is not contained in it (e.g. the page node itself)
+     */
+    private Optional<String> getRelativePath(PageDecorator page) {
+        def contentResource = page.contentResource
+
+        if (!contentResource) {
+            return Optional.absent()
+        }
 
         def path = resource.path
+        def contentPath = contentResource.path
+
+        def relativePath = null
+
+        if (path == contentPath) {
+            relativePath = ""
+        } else if (path.startsWith(contentPath + "/")) {
+            relativePath = path.substring(contentPath.length() + 1)
+        }
 
-        def relativePath = resource.name.equals(JcrConstants.JCR_CONTENT) ? "" : path.substring(
-            containingPage.contentResource.path.length() + 1)
+        Optional.fromNullable(relativePath)
+    }
+
+    private Optional<ComponentNode> findAncestorForPredicate(Predicate<ComponentNode> predicate) {
+        def currentPage = containingPage.get()
+
+        def relativePathOptional = getRelativePath(currentPage)
+
+        if (!relativePathOptional.present) {
+            return Optional.absent()
+        }
+
+        def relativePath = relativePathOptional.get()
 
         LOG.debug("relative path = {}", relativePath)
 
@@ -297,7 +406,7 @@ final class DefaultComponentNode extends AbstractNode implements ComponentNode {
             }
         }
 
-        containingPage.findAncestor(pagePredicate).transform(new Function<PageDecorator, ComponentNode>() {
+        currentPage.findAncestor(pagePredicate).transform(new Function<PageDecorator, ComponentNode>() {
             @Override
             ComponentNode apply(PageDecorator page) {
                 componentNodeFunction.apply(page).get()
@@ -306,21 +415,18 @@ final class DefaultComponentNode extends AbstractNode implements ComponentNode {
     }
 
     private Optional<Resource> findChildResourceInherited(String relativePath) {
-        def pageManager = resource.resourceResolver.adaptTo(PageManagerDecorator)
-        def containingPage = pageManager.getContainingPage(resource)
+        def currentPage = containingPage.get()
 
-        def builder = new StringBuilder()
+        def nodeRelativePathOptional = getRelativePath(currentPage)
 
-        if (resource.name == JcrConstants.JCR_CONTENT) {
-            builder.append(relativePath)
-        } else {
-            builder.append(resource.path.substring(containingPage.contentResource.path.length() + 1))
-            builder.append('/')
-            builder.append(relativePath)
+        if (!nodeRelativePathOptional.present) {
+            return Optional.absent()
         }
 
+        def nodeRelativePath = nodeRelativePathOptional.get()
+
         // path relative to jcr:content
-        def resourcePath = builder.toString()
+        def resourcePath = nodeRelativePath ? "$nodeRelativePath/$relativePath".toString() : relativePath
 
         LOG.debug("child resource relative path = {}", resourcePath)
 
@@ -331,7 +437,7 @@ final class DefaultComponentNode extends AbstractNode implements ComponentNode {
             }
         }
 
-        containingPage.findAncestor(predicate).transform(new Function<PageDecorator, Resource>() {
+        currentPage.findAncestor(predicate).transform(new Function<PageDecorator, Resource>() {
             @Override
             Resource apply(PageDecorator page) {
                 page.getContentResource(resourcePath)
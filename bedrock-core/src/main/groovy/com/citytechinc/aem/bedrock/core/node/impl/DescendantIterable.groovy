@@ -0,0 +1,101 @@
+package com.citytechinc.aem.bedrock.core.node.impl
+
+import com.google.common.base.Function
+import com.google.common.base.Predicate
+import com.google.common.collect.AbstractIterator
+
+import static com.google.common.base.Preconditions.checkArgument
+import static com.google.common.base.Preconditions.checkNotNull
+
+/**
+ * Lazy depth-first iterable over the descendants of a node or page.  Children are only listed when the traversal
+ * reaches their parent, so callers that stop iterating early do not visit the remainder of the tree.
+ *
+ * @param <T> type of traversable resource
+ */
+final class DescendantIterable<T> implements Iterable<T> {
+
+    private final T root
+
+    private final Function<T, Iterator<T>> childrenFunction
+
+    private final Predicate<T> predicate
+
+    private final Predicate<T> traversalPredicate
+
+    private final int maxDepth
+
+    /**
+     * @param root traversal root, not included in the results
+     * @param childrenFunction function returning an iterator over the children of a resource
+     * @param predicate predicate to match descendants against
+     * @param traversalPredicate descendants that do not match are skipped along with all of their descendants
+     * @param maxDepth maximum depth relative to the root, or -1 for no limit
+     */
+    DescendantIterable(T root, Function<T, Iterator<T>> childrenFunction, Predicate<T> predicate,
+        Predicate<T> traversalPredicate, int maxDepth) {
+        checkArgument(maxDepth == -1 || maxDepth > 0, "max depth must be -1 or greater than 0 = %s", maxDepth)
+
+        this.root = checkNotNull(root)
+        this.childrenFunction = checkNotNull(childrenFunction)
+        this.predicate = checkNotNull(predicate)
+        this.traversalPredicate = checkNotNull(traversalPredicate)
+        this.maxDepth = maxDepth
+    }
+
+    @Override
+    Iterator<T> iterator() {
+        new DescendantIterator<T>(root, childrenFunction, predicate, traversalPredicate, maxDepth)
+    }
+
+    private static final class DescendantIterator<T> extends AbstractIterator<T> {
+
+        /** child iterators of the resources on the current path, the size of which is the current depth */
+        private final Deque<Iterator<T>> stack = new ArrayDeque<Iterator<T>>()
+
+        private final Function<T, Iterator<T>> childrenFunction
+
+        private final Predicate<T> predicate
+
+        private final Predicate<T> traversalPredicate
+
+        private final int maxDepth
+
+        DescendantIterator(T root, Function<T, Iterator<T>> childrenFunction, Predicate<T> predicate,
+            Predicate<T> traversalPredicate, int maxDepth) {
+            this.childrenFunction = childrenFunction
+            this.predicate = predicate
+            this.traversalPredicate = traversalPredicate
+            this.maxDepth = maxDepth
+
+            stack.push(childrenFunction.apply(root))
+        }
+
+        @Override
+        protected T computeNext() {
+            T next = null
+
+            while (next == null && !stack.empty) {
+                def children = stack.peek()
+
+                if (children.hasNext()) {
+                    T child = children.next()
+
+                    if (traversalPredicate.apply(child)) {
+                        if (maxDepth == -1 || stack.size() < maxDepth) {
+                            stack.push(childrenFunction.apply(child))
+                        }
+
+                        if (predicate.apply(child)) {
+                            next = child
+                        }
+                    }
+                } else {
+                    stack.pop()
+                }
+            }
+
+            next == null ? endOfData() : next
+        }
+    }
+}
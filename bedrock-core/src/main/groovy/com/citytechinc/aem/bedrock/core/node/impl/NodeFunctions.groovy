@@ -3,6 +3,7 @@ package com.citytechinc.aem.bedrock.core.node.impl
 import com.citytechinc.aem.bedrock.api.node.BasicNode
 import com.citytechinc.aem.bedrock.api.node.ComponentNode
 import com.google.common.base.Function
+import com.google.common.collect.Iterators
 import org.apache.sling.api.resource.Resource
 
 final class NodeFunctions {
@@ -21,6 +22,13 @@ final class NodeFunctions {
         }
     }
 
+    static final def COMPONENT_NODE_TO_CHILDREN = new Function<ComponentNode, Iterator<ComponentNode>>() {
+        @Override
+        Iterator<ComponentNode> apply(ComponentNode componentNode) {
+            Iterators.transform(componentNode.resource.listChildren(), RESOURCE_TO_COMPONENT_NODE)
+        }
+    }
+
     private NodeFunctions() {
 
     }
@@ -0,0 +1,65 @@
+package com.citytechinc.aem.bedrock.core.page.impl
+
+import com.citytechinc.aem.bedrock.api.page.PageDecorator
+import com.citytechinc.aem.bedrock.core.adapter.DecoratorCache
+import com.google.common.base.Optional
+import com.google.common.base.Predicate
+import com.google.common.collect.ImmutableList
+import org.apache.sling.api.resource.Resource
+
+import static com.google.common.base.Preconditions.checkNotNull
+
+/**
+ * Immutable list of a page and its ancestors, nearest first.  Chains are computed once and cached with the decorators
+ * of the page's resource resolver, so inherited property and node lookups for every component on a page share a
+ * single walk up the content hierarchy.
+ */
+final class AncestorChain {
+
+    private final List<PageDecorator> pages
+
+    /**
+     * Get the ancestor chain for the given page, starting with the page itself.
+     *
+     * @param page page
+     * @return cached ancestor chain
+     */
+    static AncestorChain forPage(PageDecorator page) {
+        checkNotNull(page)
+
+        def resourceResolver = page.adaptTo(Resource)?.resourceResolver
+
+        DecoratorCache.get(resourceResolver, AncestorChain, page.path, { new AncestorChain(page) })
+    }
+
+    private AncestorChain(PageDecorator page) {
+        def builder = ImmutableList.<PageDecorator> builder()
+
+        def current = page
+
+        while (current) {
+            builder.add(current)
+
+            current = current.parent
+        }
+
+        pages = builder.build()
+    }
+
+    /**
+     * Find the nearest page in this chain matching the predicate.
+     *
+     * @param predicate page predicate
+     * @return first matching page or absent if none match
+     */
+    Optional<PageDecorator> find(Predicate<PageDecorator> predicate) {
+        Optional.fromNullable(pages.find { page -> predicate.apply(page) })
+    }
+
+    /**
+     * @return page and its ancestors, nearest first
+     */
+    List<PageDecorator> getPages() {
+        pages
+    }
+}
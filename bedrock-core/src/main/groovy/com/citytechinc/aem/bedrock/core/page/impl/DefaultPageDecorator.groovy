@@ -1,5 +1,6 @@
 package com.citytechinc.aem.bedrock.core.page.impl
 
+import com.citytechinc.aem.bedrock.api.ImageDimensions
 import com.citytechinc.aem.bedrock.api.link.ImageLink
 import com.citytechinc.aem.bedrock.api.link.Link
 import com.citytechinc.aem.bedrock.api.link.NavigationLink
@@ -10,27 +11,39 @@ import com.citytechinc.aem.bedrock.api.page.PageDecorator
 import com.citytechinc.aem.bedrock.api.page.PageManagerDecorator
 import com.citytechinc.aem.bedrock.api.page.enums.TitleType
 import com.citytechinc.aem.bedrock.core.link.builders.factory.LinkBuilderFactory
+import com.citytechinc.aem.bedrock.core.node.impl.DescendantIterable
 import com.citytechinc.aem.bedrock.core.node.predicates.ComponentNodePropertyExistsPredicate
 import com.citytechinc.aem.bedrock.core.node.predicates.ComponentNodePropertyValuePredicate
+import com.citytechinc.aem.bedrock.core.services.OptionalServiceTracker
+import com.citytechinc.aem.bedrock.core.services.cache.NavigationCacheService
 import com.day.cq.commons.Filter
 import com.day.cq.wcm.api.NameConstants
 import com.day.cq.wcm.api.Page
+import com.google.common.base.Function
 import com.google.common.base.Objects
 import com.google.common.base.Optional
 import com.google.common.base.Predicate
 import com.google.common.base.Predicates
+import com.google.common.collect.FluentIterable
+import com.google.common.collect.Iterators
 import org.apache.commons.lang3.builder.EqualsBuilder
 import org.apache.commons.lang3.builder.HashCodeBuilder
 import org.apache.sling.api.resource.Resource
 import org.apache.sling.api.resource.ValueMap
 
+import java.util.concurrent.Callable
+
 import static com.citytechinc.aem.bedrock.core.node.impl.NodeFunctions.RESOURCE_TO_COMPONENT_NODE
+import static com.google.common.base.Preconditions.checkArgument
 import static com.google.common.base.Preconditions.checkNotNull
 
 final class DefaultPageDecorator implements PageDecorator {
 
     private static final Predicate<PageDecorator> ALL = Predicates.alwaysTrue()
 
+    private static final OptionalServiceTracker<NavigationCacheService> NAVIGATION_CACHE_SERVICE =
+        new OptionalServiceTracker<NavigationCacheService>(NavigationCacheService)
+
     private static final def ALL_PAGES = new Filter<Page>() {
         @Override
         boolean includes(Page page) {
@@ -190,6 +203,36 @@ final class DefaultPageDecorator implements PageDecorator {
         getInternal({ componentNode -> componentNode.getImageSource(name, width) }, Optional.absent())
     }
 
+    @Override
+    Optional<String> getImageSrcset() {
+        getInternal({ componentNode -> componentNode.imageSrcset }, Optional.absent())
+    }
+
+    @Override
+    Optional<String> getImageSrcset(String name) {
+        getInternal({ componentNode -> componentNode.getImageSrcset(name) }, Optional.absent())
+    }
+
+    @Override
+    Optional<ImageDimensions> getImageDimensions() {
+        getInternal({ componentNode -> componentNode.imageDimensions }, Optional.absent())
+    }
+
+    @Override
+    Optional<ImageDimensions> getImageDimensions(int width) {
+        getInternal({ componentNode -> componentNode.getImageDimensions(width) }, Optional.absent())
+    }
+
+    @Override
+    Optional<ImageDimensions> getImageDimensions(String name) {
+        getInternal({ componentNode -> componentNode.getImageDimensions(name) }, Optional.absent())
+    }
+
+    @Override
+    Optional<ImageDimensions> getImageDimensions(String name, int width) {
+        getInternal({ componentNode -> componentNode.getImageDimensions(name, width) }, Optional.absent())
+    }
+
     @Override
     <T> T getInherited(String propertyName, T defaultValue) {
         getInternal({ componentNode -> componentNode.getInherited(propertyName, defaultValue) }, defaultValue)
@@ -277,19 +320,7 @@ final class DefaultPageDecorator implements PageDecorator {
 
     @Override
     Optional<PageDecorator> findAncestor(Predicate<PageDecorator> predicate) {
-        PageDecorator page = this
-        PageDecorator ancestorPage = null
-
-        while (page) {
-            if (predicate.apply(page)) {
-                ancestorPage = page
-                break
-            } else {
-                page = page.parent
-            }
-        }
-
-        Optional.fromNullable(ancestorPage)
+        AncestorChain.forPage(this).find(predicate)
     }
 
     @Override
@@ -304,18 +335,44 @@ final class DefaultPageDecorator implements PageDecorator {
 
     @Override
     List<PageDecorator> findDescendants(Predicate<PageDecorator> predicate) {
-        def pages = []
-        def pageManager = this.pageManager
+        FluentIterable.from(iterateDescendants(predicate)).toList()
+    }
 
-        delegate.listChildren(ALL_PAGES, true).each { child ->
-            PageDecorator page = pageManager.getPage(child)
+    @Override
+    List<PageDecorator> findDescendants(Predicate<PageDecorator> predicate, int limit) {
+        FluentIterable.from(iterateDescendants(predicate)).limit(limit).toList()
+    }
 
-            if (predicate.apply(page)) {
-                pages.add(page)
+    @Override
+    Optional<PageDecorator> findFirstDescendant(Predicate<PageDecorator> predicate) {
+        FluentIterable.from(iterateDescendants(predicate)).first()
+    }
+
+    @Override
+    Iterable<PageDecorator> iterateDescendants(Predicate<PageDecorator> predicate) {
+        iterateDescendants(predicate, ALL, -1)
+    }
+
+    @Override
+    Iterable<PageDecorator> iterateDescendants(Predicate<PageDecorator> predicate,
+        Predicate<PageDecorator> traversalPredicate, int maxDepth) {
+        def pageManager = this.pageManager
+
+        def childrenFunction = new Function<PageDecorator, Iterator<PageDecorator>>() {
+            @Override
+            Iterator<PageDecorator> apply(PageDecorator page) {
+                def children = Iterators.transform(page.listChildren(ALL_PAGES), new Function<Page, PageDecorator>() {
+                    @Override
+                    PageDecorator apply(Page child) {
+                        pageManager.getPage(child)
+                    }
+                })
+
+                Iterators.filter(children, Predicates.notNull())
             }
         }
 
-        pages
+        new DescendantIterable<PageDecorator>(this, childrenFunction, predicate, traversalPredicate, maxDepth)
     }
 
     @Override
@@ -423,6 +480,42 @@ final class DefaultPageDecorator implements PageDecorator {
         LinkBuilderFactory.forPage(this, mapped, TitleType.NAVIGATION_TITLE).setActive(isActive).buildNavigationLink()
     }
 
+    @Override
+    NavigationLink getNavigationTree(int depth) {
+        getNavigationTree(depth, null, false)
+    }
+
+    @Override
+    NavigationLink getNavigationTree(int depth, Page currentPage) {
+        getNavigationTree(depth, currentPage, false)
+    }
+
+    @Override
+    NavigationLink getNavigationTree(int depth, Page currentPage, boolean mapped) {
+        checkArgument(depth >= 0, "depth must be non-negative = %s", depth)
+
+        def resourceResolver = delegate.adaptTo(Resource).resourceResolver
+        def pageManager = resourceResolver.adaptTo(PageManagerDecorator)
+        def cacheService = NAVIGATION_CACHE_SERVICE.service
+
+        def navigationTree
+
+        if (cacheService?.enabled && !resourceResolver.hasChanges()) {
+            def loader = {
+                def node = cacheService.getNavigationNode(resourceResolver, path, depth)
+
+                node.present ? NavigationTree.build(node.get(), resourceResolver, depth, mapped) :
+                    NavigationTree.build(this, pageManager, depth, mapped)
+            } as Callable<NavigationTree>
+
+            navigationTree = cacheService.getNavigationTree(resourceResolver, path, depth, mapped, loader)
+        } else {
+            navigationTree = NavigationTree.build(this, pageManager, depth, mapped)
+        }
+
+        navigationTree.getNavigationLink(currentPage?.path)
+    }
+
     // overrides
 
     @Override
@@ -467,21 +560,14 @@ final class DefaultPageDecorator implements PageDecorator {
     }
 
     private Optional<PageDecorator> findAncestorForPredicate(Predicate<ComponentNode> predicate) {
-        PageDecorator page = this
-        PageDecorator ancestorPage = null
+        findAncestor(new Predicate<PageDecorator>() {
+            @Override
+            boolean apply(PageDecorator page) {
+                def componentNodeOptional = page.componentNode
 
-        while (page) {
-            Optional<ComponentNode> optionalComponentNode = page.componentNode
-
-            if (optionalComponentNode.present && predicate.apply(optionalComponentNode.get())) {
-                ancestorPage = page
-                break
-            } else {
-                page = page.parent
+                componentNodeOptional.present && predicate.apply(componentNodeOptional.get())
             }
-        }
-
-        Optional.fromNullable(ancestorPage)
+        })
     }
 
     private List<PageDecorator> filterChildren(Predicate<PageDecorator> predicate, boolean deep) {
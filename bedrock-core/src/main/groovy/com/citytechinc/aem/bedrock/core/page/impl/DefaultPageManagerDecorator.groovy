@@ -2,29 +2,41 @@ package com.citytechinc.aem.bedrock.core.page.impl
 
 import com.citytechinc.aem.bedrock.api.page.PageDecorator
 import com.citytechinc.aem.bedrock.api.page.PageManagerDecorator
+import com.citytechinc.aem.bedrock.core.adapter.DecoratorCache
+import com.citytechinc.aem.bedrock.core.constants.PropertyConstants
 import com.citytechinc.aem.bedrock.core.page.predicates.TemplatePredicate
-import com.citytechinc.aem.bedrock.core.utils.PathUtils
+import com.citytechinc.aem.bedrock.core.services.OptionalServiceTracker
+import com.citytechinc.aem.bedrock.core.services.cache.TagIndexService
 import com.day.cq.commons.jcr.JcrConstants
 import com.day.cq.tagging.TagManager
+import com.day.cq.wcm.api.NameConstants
 import com.day.cq.wcm.api.Page
 import com.day.cq.wcm.api.PageManager
 import com.day.cq.wcm.api.WCMException
+import com.google.common.base.Optional
 import com.google.common.base.Predicate
 import com.google.common.base.Stopwatch
+import com.google.common.collect.FluentIterable
+import com.google.common.collect.Iterators
+import com.google.common.collect.Lists
 import groovy.util.logging.Slf4j
 import org.apache.sling.api.resource.Resource
 import org.apache.sling.api.resource.ResourceResolver
 
 import javax.jcr.RepositoryException
+import javax.jcr.Session
 import javax.jcr.query.Query
-import javax.jcr.query.Row
 
+import static com.google.common.base.Preconditions.checkArgument
 import static com.google.common.base.Preconditions.checkNotNull
 import static java.util.concurrent.TimeUnit.MILLISECONDS
 
 @Slf4j("LOG")
 class DefaultPageManagerDecorator implements PageManagerDecorator {
 
+    private static final OptionalServiceTracker<TagIndexService> TAG_INDEX_SERVICE =
+        new OptionalServiceTracker<TagIndexService>(TagIndexService)
+
     private final ResourceResolver resourceResolver
 
     @Delegate
@@ -45,18 +57,32 @@ class DefaultPageManagerDecorator implements PageManagerDecorator {
 
         def stopwatch = Stopwatch.createStarted()
 
-        def iterator = resourceResolver.adaptTo(TagManager).find(rootPath, tagIds as String[], matchOne)
+        def tagManager = resourceResolver.adaptTo(TagManager)
+        def pagePaths = findIndexedPagePaths(tagManager, rootPath, tagIds, matchOne)
 
         def pages = []
 
-        iterator*.each { resource ->
-            if (JcrConstants.JCR_CONTENT.equals(resource.name)) {
-                def page = getPage(resource.parent.path)
+        if (pagePaths.present) {
+            pagePaths.get().each { pagePath ->
+                // pages the current user cannot read do not resolve
+                def page = getPage(pagePath)
 
                 if (page) {
                     pages.add(page)
                 }
             }
+        } else {
+            def iterator = tagManager.find(rootPath, tagIds as String[], matchOne)
+
+            iterator*.each { resource ->
+                if (JcrConstants.JCR_CONTENT.equals(resource.name)) {
+                    def page = getPage(resource.parent.path)
+
+                    if (page) {
+                        pages.add(page)
+                    }
+                }
+            }
         }
 
         LOG.debug("found {} result(s) in {}ms", pages.size(), stopwatch.elapsed(MILLISECONDS))
@@ -71,66 +97,117 @@ class DefaultPageManagerDecorator implements PageManagerDecorator {
 
     @Override
     List<PageDecorator> search(Query query, int limit) {
+        def pages
+
+        if (limit == -1) {
+            pages = searchAll(query)
+        } else if (limit < 0) {
+            // negative limits other than -1 have always returned no results
+            pages = []
+        } else {
+            pages = search(query, 0, limit)
+        }
+
+        pages
+    }
+
+    @Override
+    List<PageDecorator> search(Query query, int offset, int limit) {
         checkNotNull(query)
+        checkArgument(offset >= 0, "offset must be non-negative = %s", offset)
+        checkArgument(limit >= 0, "limit must be non-negative = %s", limit)
 
-        LOG.debug("query statement = {}", query.statement)
+        LOG.debug("query statement = {}, offset = {}, limit = {}", query.statement, offset, limit)
 
         def stopwatch = Stopwatch.createStarted()
 
         def pages = []
 
-        int count = 0
+        if (limit > 0) {
+            try {
+                def limitedQuery = copyQuery(query)
 
-        try {
-            def rows = query.execute().rows
-            def paths = [] as Set
+                if (limitedQuery) {
+                    def rowLimit = (offset as long) + limit
+                    def complete = false
 
-            rows.each { Row row ->
-                if (limit == -1 || count < limit) {
-                    def path = row.path
+                    while (!complete) {
+                        limitedQuery.limit = rowLimit
 
-                    LOG.debug("result path = {}", path)
+                        def iterator = new SearchResultIterator(this, limitedQuery.execute().rows)
 
-                    def pagePath = PathUtils.getPagePath(path)
+                        pages = getWindow(iterator, offset, limit)
 
-                    // ensure no duplicate pages are added
-                    if (!paths.contains(pagePath)) {
-                        paths.add(pagePath)
+                        // rows fewer than the limit means the result is exhausted, otherwise duplicates filled the window
+                        complete = pages.size() == limit || iterator.rowCount < rowLimit
 
-                        def page = getPageDecorator(path)
+                        if (!complete) {
+                            LOG.debug("duplicate rows left page window unfilled, increasing row limit = {}",
+                                rowLimit * 2)
 
-                        if (page) {
-                            pages.add(page)
-                            count++
-                        } else {
-                            LOG.error("result is null for path = {}", path)
+                            rowLimit *= 2
                         }
                     }
+                } else {
+                    // bound values cannot be copied, so the caller's query is executed without a row limit
+                    pages = getWindow(new SearchResultIterator(this, query.execute().rows), offset, limit)
                 }
+            } catch (RepositoryException re) {
+                LOG.error("error finding pages for query = ${query.statement}", re)
             }
+        }
 
-            stopwatch.stop()
+        stopwatch.stop()
 
-            LOG.debug("found {} result(s) in {}ms", pages.size(), stopwatch.elapsed(MILLISECONDS))
-        } catch (RepositoryException re) {
-            LOG.error("error finding pages for query = ${query.statement}", re)
-        }
+        LOG.debug("found {} result(s) in {}ms", pages.size(), stopwatch.elapsed(MILLISECONDS))
 
         pages
     }
 
+    @Override
+    Iterable<PageDecorator> iterateSearch(Query query) {
+        checkNotNull(query)
+
+        FluentIterable.from({ getSearchResultIterator(query) } as Iterable<PageDecorator>)
+    }
+
     @Override
     List<PageDecorator> findPages(String rootPath, String template) {
         findPages(rootPath, new TemplatePredicate(template))
     }
 
+    @Override
+    Iterable<PageDecorator> findPagesWithPropertyValue(String rootPath, String propertyName, String propertyValue) {
+        def root = getPage(checkNotNull(rootPath))
+
+        LOG.debug("path = {}, property name = {}, property value = {}", rootPath, propertyName, propertyValue)
+
+        root ? new PagePropertyQuery(this, resourceResolver.adaptTo(Session), root, propertyName,
+            propertyValue) : Collections.emptyList()
+    }
+
+    @Override
+    Iterable<PageDecorator> findPagesWithResourceType(String rootPath, String resourceType) {
+        findPagesWithPropertyValue(rootPath, PropertyConstants.RESOURCE_TYPE, resourceType)
+    }
+
+    @Override
+    Iterable<PageDecorator> findPagesWithTemplate(String rootPath, String templatePath) {
+        findPagesWithPropertyValue(rootPath, NameConstants.NN_TEMPLATE, templatePath)
+    }
+
     @Override
     List<PageDecorator> findPages(String rootPath, Predicate<PageDecorator> predicate) {
+        findPages(rootPath, predicate, Integer.MAX_VALUE)
+    }
+
+    @Override
+    List<PageDecorator> findPages(String rootPath, Predicate<PageDecorator> predicate, int limit) {
         def page = getPage(checkNotNull(rootPath))
 
         def stopwatch = Stopwatch.createStarted()
 
-        def result = page ? page.findDescendants(predicate) : Collections.emptyList()
+        def result = page ? page.findDescendants(checkNotNull(predicate), limit) : Collections.emptyList()
 
         stopwatch.stop()
 
@@ -142,40 +219,76 @@ class DefaultPageManagerDecorator implements PageManagerDecorator {
     @Override
     PageDecorator copy(Page page, String destination, String beforeName, boolean shallow,
         boolean resolveConflict) throws WCMException {
+        DecoratorCache.invalidate(resourceResolver)
+
         decorate(pageManager.copy(page, destination, beforeName, shallow, resolveConflict))
     }
 
     @Override
     PageDecorator copy(Page page, String destination, String beforeName, boolean shallow,
         boolean resolveConflict, boolean autoSave) throws WCMException {
+        DecoratorCache.invalidate(resourceResolver)
+
         decorate(pageManager.copy(page, destination, beforeName, shallow, resolveConflict, autoSave))
     }
 
     @Override
     PageDecorator create(String parentPath, String pageName, String template,
         String title) throws WCMException {
+        DecoratorCache.invalidate(resourceResolver)
+
         decorate(pageManager.create(parentPath, pageName, template, title))
     }
 
     @Override
     PageDecorator create(String parentPath, String pageName, String template,
         String title, boolean autoSave) throws WCMException {
+        DecoratorCache.invalidate(resourceResolver)
+
         decorate(pageManager.create(parentPath, pageName, template, title, autoSave))
     }
 
+    @Override
+    void delete(Page page, boolean shallow) throws WCMException {
+        DecoratorCache.invalidate(resourceResolver)
+
+        pageManager.delete(page, shallow)
+    }
+
+    @Override
+    void delete(Page page, boolean shallow, boolean autoSave) throws WCMException {
+        DecoratorCache.invalidate(resourceResolver)
+
+        pageManager.delete(page, shallow, autoSave)
+    }
+
+    @Override
+    void delete(Resource resource, boolean shallow) throws WCMException {
+        DecoratorCache.invalidate(resourceResolver)
+
+        pageManager.delete(resource, shallow)
+    }
+
+    @Override
+    void delete(Resource resource, boolean shallow, boolean autoSave) throws WCMException {
+        DecoratorCache.invalidate(resourceResolver)
+
+        pageManager.delete(resource, shallow, autoSave)
+    }
+
     @Override
     PageDecorator getContainingPage(Resource resource) {
-        decorate(pageManager.getContainingPage(resource))
+        getPage(pageManager.getContainingPage(resource))
     }
 
     @Override
     PageDecorator getContainingPage(String path) {
-        decorate(pageManager.getContainingPage(path))
+        getPage(pageManager.getContainingPage(path))
     }
 
     @Override
     PageDecorator getPage(Page page) {
-        decorate(page)
+        page ? DecoratorCache.get(resourceResolver, PageDecorator, page.path, { decorate(page) }) : null
     }
 
     @Override
@@ -186,23 +299,97 @@ class DefaultPageManagerDecorator implements PageManagerDecorator {
     @Override
     PageDecorator move(Page page, String destination, String beforeName, boolean shallow,
         boolean resolveConflict, String[] adjustRefs) throws WCMException {
+        DecoratorCache.invalidate(resourceResolver)
+
         decorate(pageManager.move(page, destination, beforeName, shallow, resolveConflict, adjustRefs))
     }
 
     @Override
     PageDecorator restore(String path, String revisionId) throws WCMException {
+        DecoratorCache.invalidate(resourceResolver)
+
         decorate(pageManager.restore(path, revisionId))
     }
 
     @Override
     PageDecorator restoreTree(String path, Calendar date) throws WCMException {
+        DecoratorCache.invalidate(resourceResolver)
+
         decorate(pageManager.restoreTree(path, date))
     }
 
     // internals
 
+    private Optional<List<String>> findIndexedPagePaths(TagManager tagManager, String rootPath,
+        Collection<String> tagIds, boolean matchOne) {
+        def tagIndexService = TAG_INDEX_SERVICE.service
+
+        def pagePaths
+
+        // the index reflects persisted content only
+        if (tagIndexService?.enabled && !resourceResolver.hasChanges()) {
+            def canonicalTagIds = tagIds.collect { tagId -> tagManager?.resolve(tagId)?.tagID ?: tagId }
+
+            pagePaths = tagIndexService.findPagePaths(rootPath, canonicalTagIds, matchOne)
+        } else {
+            pagePaths = Optional.absent()
+        }
+
+        pagePaths
+    }
+
+    private Iterator<PageDecorator> getSearchResultIterator(Query query) {
+        LOG.debug("query statement = {}", query.statement)
+
+        def iterator
+
+        try {
+            iterator = new SearchResultIterator(this, query.execute().rows)
+        } catch (RepositoryException re) {
+            LOG.error("error finding pages for query = ${query.statement}", re)
+
+            iterator = Collections.emptyIterator()
+        }
+
+        iterator
+    }
+
+    /**
+     * Copy a query so that its row limit can be set without modifying the caller's query.
+     *
+     * @return query copy or null if the query has bind variables, the values of which cannot be read
+     */
+    private Query copyQuery(Query query) {
+        def copy = null
+
+        if (!query.bindVariableNames) {
+            copy = resourceResolver.adaptTo(Session).workspace.queryManager.createQuery(query.statement,
+                query.language)
+        }
+
+        copy
+    }
+
+    private static List<PageDecorator> getWindow(Iterator<PageDecorator> iterator, int offset, int limit) {
+        Iterators.advance(iterator, offset)
+
+        Lists.newArrayList(Iterators.limit(iterator, limit))
+    }
+
+    private List<PageDecorator> searchAll(Query query) {
+        def stopwatch = Stopwatch.createStarted()
+
+        def pages = iterateSearch(query).toList()
+
+        stopwatch.stop()
+
+        LOG.debug("found {} result(s) in {}ms", pages.size(), stopwatch.elapsed(MILLISECONDS))
+
+        pages
+    }
+
     private PageDecorator getPageDecorator(String path) {
-        decorate(pageManager.getPage(path))
+        DecoratorCache.get(resourceResolver, PageDecorator, path, { decorate(pageManager.getPage(path)) })
     }
 
     private static PageDecorator decorate(Page page) {
@@ -0,0 +1,110 @@
+package com.citytechinc.aem.bedrock.core.page.impl
+
+import com.citytechinc.aem.bedrock.api.link.Link
+import com.citytechinc.aem.bedrock.api.link.NavigationLink
+import com.citytechinc.aem.bedrock.api.page.PageDecorator
+import com.citytechinc.aem.bedrock.api.page.PageManagerDecorator
+import com.citytechinc.aem.bedrock.api.page.enums.TitleType
+import com.citytechinc.aem.bedrock.core.link.builders.factory.LinkBuilderFactory
+import com.citytechinc.aem.bedrock.core.link.impl.DefaultNavigationLink
+import com.citytechinc.aem.bedrock.core.services.cache.NavigationNode
+import com.citytechinc.aem.bedrock.core.utils.PathUtils
+import org.apache.sling.api.resource.ResourceResolver
+
+/**
+ * Navigation hierarchy of the displayable descendants of a root page, built in a single pass.  Links are built without
+ * active state so that a tree can be cached and shared across requests.  The active trail for a current page is
+ * applied by copying only the links on the trail, and all other links are shared with the cached tree.
+ */
+final class NavigationTree {
+
+    private final String pagePath
+
+    private final Link link
+
+    private final List<NavigationTree> children
+
+    /** inactive link for this page and its descendants */
+    private final NavigationLink navigationLink
+
+    /**
+     * Build the navigation tree for a root page.
+     *
+     * @param page root page
+     * @param pageManager page manager used to decorate descendant pages
+     * @param depth number of descendant levels to include
+     * @param mapped if true, link paths are mapped through the resource resolver
+     * @return navigation tree
+     */
+    static NavigationTree build(PageDecorator page, PageManagerDecorator pageManager, int depth, boolean mapped) {
+        def children = []
+
+        if (depth > 0) {
+            page.listChildren().each { child ->
+                def childPage = pageManager.getPage(child)
+
+                if (childPage && childPage.contentResource && !childPage.hideInNav) {
+                    children.add(build(childPage, pageManager, depth - 1, mapped))
+                }
+            }
+        }
+
+        new NavigationTree(page.path, LinkBuilderFactory.forPage(page, mapped, TitleType.NAVIGATION_TITLE).build(),
+            children)
+    }
+
+    /**
+     * Build the navigation tree for a root page from an in-memory navigation structure, without repository access
+     * other than mapping link paths.
+     *
+     * @param node navigation node of the root page
+     * @param resourceResolver resource resolver used to map link paths
+     * @param depth number of descendant levels to include
+     * @param mapped if true, link paths are mapped through the resource resolver
+     * @return navigation tree
+     */
+    static NavigationTree build(NavigationNode node, ResourceResolver resourceResolver, int depth, boolean mapped) {
+        def children = []
+
+        if (depth > 0) {
+            node.children.each { child ->
+                if (!child.hideInNav) {
+                    children.add(build(child, resourceResolver, depth - 1, mapped))
+                }
+            }
+        }
+
+        def path = node.redirectTarget ?: node.path
+
+        new NavigationTree(node.path, LinkBuilderFactory.forPath(mapped ? PathUtils.getMappedPath(path,
+            resourceResolver) : path).setTitle(node.navigationTitle).build(), children)
+    }
+
+    private NavigationTree(String pagePath, Link link, List<NavigationTree> children) {
+        this.pagePath = pagePath
+        this.link = link
+        this.children = children
+
+        navigationLink = new DefaultNavigationLink(link, false, children*.navigationLink)
+    }
+
+    /**
+     * Get the navigation link for this tree with the active trail for the given page.
+     *
+     * @param currentPath path of the current page, or null if no links should be active
+     * @return navigation link with nested child links
+     */
+    NavigationLink getNavigationLink(String currentPath) {
+        def result
+
+        if (currentPath && (currentPath == pagePath || currentPath.startsWith(pagePath + "/"))) {
+            result = new DefaultNavigationLink(link, true, children.collect { child ->
+                child.getNavigationLink(currentPath)
+            })
+        } else {
+            result = navigationLink
+        }
+
+        result
+    }
+}
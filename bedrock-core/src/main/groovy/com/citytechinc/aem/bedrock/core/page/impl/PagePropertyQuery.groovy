@@ -0,0 +1,166 @@
+package com.citytechinc.aem.bedrock.core.page.impl
+
+import com.citytechinc.aem.bedrock.api.page.PageDecorator
+import com.citytechinc.aem.bedrock.api.page.PageManagerDecorator
+import com.citytechinc.aem.bedrock.core.utils.PathUtils
+import com.google.common.base.Function
+import com.google.common.base.Predicate
+import com.google.common.base.Predicates
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.collect.Iterators
+import groovy.util.logging.Slf4j
+
+import javax.jcr.RepositoryException
+import javax.jcr.Session
+import javax.jcr.query.Query
+import javax.jcr.query.QueryManager
+import javax.jcr.query.Row
+import java.util.regex.Pattern
+
+import static com.google.common.base.Preconditions.checkNotNull
+import static java.util.concurrent.TimeUnit.MINUTES
+
+/**
+ * Lazy iterable over the descendant pages of a root page where the page content node has a property value.  Each
+ * iteration executes a JCR-SQL2 query if the repository's query plan uses an index, or traverses the page tree if the
+ * plan would traverse the repository, the query cannot be executed, or the root path or property name cannot be
+ * quoted in the statement.  Query plans are explained once per property name and cached.
+ */
+@Slf4j("LOG")
+final class PagePropertyQuery implements Iterable<PageDecorator> {
+
+    private static final String BIND_VARIABLE = "value"
+
+    /** marker for traversal plans in Oak query explanations */
+    private static final String TRAVERSE = "/* traverse"
+
+    /** bracket quoted names and paths are terminated by "]", which is an illegal JCR name character */
+    private static final Pattern QUOTABLE = Pattern.compile("[^\\[\\]|*]+")
+
+    /** plans only change when index definitions change, so whether a property is indexed is rechecked periodically */
+    private static final Cache<String, Boolean> INDEXED_PROPERTY_NAMES = CacheBuilder.newBuilder()
+        .maximumSize(100)
+        .expireAfterWrite(10, MINUTES)
+        .build()
+
+    private final PageManagerDecorator pageManager
+
+    private final Session session
+
+    private final PageDecorator root
+
+    private final String propertyName
+
+    private final String propertyValue
+
+    PagePropertyQuery(PageManagerDecorator pageManager, Session session, PageDecorator root, String propertyName,
+        String propertyValue) {
+        this.pageManager = pageManager
+        this.session = session
+        this.root = checkNotNull(root)
+        this.propertyName = checkNotNull(propertyName)
+        this.propertyValue = checkNotNull(propertyValue)
+    }
+
+    @Override
+    Iterator<PageDecorator> iterator() {
+        def pageManager = this.pageManager
+        def rootPath = root.path
+        def propertyName = this.propertyName
+        def propertyValue = this.propertyValue
+
+        def iterator = null
+
+        if (session && isQuotable(rootPath) && isQuotable(propertyName)) {
+            def statement = new StringBuilder("SELECT * FROM [cq:PageContent] AS content WHERE ISDESCENDANTNODE(")
+                .append("content, [").append(rootPath).append("]) AND content.[").append(propertyName)
+                .append("] = \$").append(BIND_VARIABLE).toString()
+
+            try {
+                def queryManager = session.workspace.queryManager
+
+                if (isIndexed(queryManager, propertyName, statement)) {
+                    LOG.debug("executing query statement = {}", statement)
+
+                    def rows = createQuery(queryManager, statement).execute().rows as Iterator<Row>
+
+                    iterator = Iterators.filter(Iterators.transform(rows, new Function<Row, PageDecorator>() {
+                        @Override
+                        PageDecorator apply(Row row) {
+                            def pagePath = PathUtils.getPagePath(row.path)
+
+                            pagePath == rootPath ? null : pageManager.getPage(pagePath)
+                        }
+                    }), Predicates.notNull())
+                } else {
+                    LOG.debug("no index applies for statement = {}, traversing page tree", statement)
+                }
+            } catch (RepositoryException e) {
+                LOG.warn("error executing query statement = $statement, traversing page tree", e)
+            }
+        }
+
+        if (iterator == null) {
+            iterator = root.iterateDescendants(new Predicate<PageDecorator>() {
+                @Override
+                boolean apply(PageDecorator page) {
+                    page.get(propertyName, "") == propertyValue
+                }
+            }).iterator()
+        }
+
+        iterator
+    }
+
+    private boolean isIndexed(QueryManager queryManager, String propertyName, String statement) {
+        def indexed = INDEXED_PROPERTY_NAMES.getIfPresent(propertyName)
+
+        if (indexed == null) {
+            indexed = explain(queryManager, statement)
+
+            INDEXED_PROPERTY_NAMES.put(propertyName, indexed)
+        }
+
+        indexed
+    }
+
+    private boolean explain(QueryManager queryManager, String statement) {
+        def indexed = true
+
+        try {
+            def rows = createQuery(queryManager, "EXPLAIN " + statement).execute().rows
+
+            if (rows.hasNext()) {
+                def plan = rows.nextRow().getValue("plan").string
+
+                LOG.debug("query plan = {}", plan)
+
+                indexed = !plan.contains(TRAVERSE)
+            }
+        } catch (RepositoryException e) {
+            // repositories without query explanation support (e.g. Jackrabbit 2) index all properties
+            LOG.debug("query explanation is not supported, assuming statement is indexed")
+        }
+
+        indexed
+    }
+
+    private static boolean isQuotable(String name) {
+        def quotable = QUOTABLE.matcher(name).matches()
+
+        if (!quotable) {
+            LOG.debug("name = {} cannot be quoted in query statement, traversing page tree", name)
+        }
+
+        quotable
+    }
+
+    private Query createQuery(QueryManager queryManager, String statement) {
+        def query = queryManager.createQuery(statement, Query.JCR_SQL2)
+
+        query.bindValue(BIND_VARIABLE, session.valueFactory.createValue(propertyValue))
+
+        query
+    }
+}
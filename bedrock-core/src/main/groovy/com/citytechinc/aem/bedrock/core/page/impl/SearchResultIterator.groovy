@@ -0,0 +1,63 @@
+package com.citytechinc.aem.bedrock.core.page.impl
+
+import com.citytechinc.aem.bedrock.api.page.PageDecorator
+import com.citytechinc.aem.bedrock.api.page.PageManagerDecorator
+import com.citytechinc.aem.bedrock.core.utils.PathUtils
+import com.google.common.collect.AbstractIterator
+import groovy.util.logging.Slf4j
+
+import javax.jcr.query.RowIterator
+
+/**
+ * Lazy iterator over the pages of a query result.  Rows are only read as pages are consumed, and rows for pages that
+ * have already been returned are skipped.
+ */
+@Slf4j("LOG")
+final class SearchResultIterator extends AbstractIterator<PageDecorator> {
+
+    private final PageManagerDecorator pageManager
+
+    private final RowIterator rows
+
+    private final Set<String> pagePaths = new HashSet<String>()
+
+    private long rowCount
+
+    SearchResultIterator(PageManagerDecorator pageManager, RowIterator rows) {
+        this.pageManager = pageManager
+        this.rows = rows
+    }
+
+    /**
+     * @return number of rows read from the query result so far
+     */
+    long getRowCount() {
+        rowCount
+    }
+
+    @Override
+    protected PageDecorator computeNext() {
+        PageDecorator next = null
+
+        while (next == null && rows.hasNext()) {
+            def path = rows.nextRow().path
+
+            rowCount++
+
+            LOG.debug("result path = {}", path)
+
+            def pagePath = PathUtils.getPagePath(path)
+
+            // ensure no duplicate pages are returned
+            if (pagePaths.add(pagePath)) {
+                next = pageManager.getPage(pagePath)
+
+                if (!next) {
+                    LOG.error("result is null for path = {}", path)
+                }
+            }
+        }
+
+        next == null ? endOfData() : next
+    }
+}
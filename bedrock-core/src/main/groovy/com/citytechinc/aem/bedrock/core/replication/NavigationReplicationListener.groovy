@@ -0,0 +1,53 @@
+package com.citytechinc.aem.bedrock.core.replication
+
+import com.citytechinc.aem.bedrock.core.services.cache.NavigationCacheService
+import com.citytechinc.aem.bedrock.core.utils.PathUtils
+import com.day.cq.replication.ReplicationAction
+import org.apache.felix.scr.annotations.Component
+import org.apache.felix.scr.annotations.Property
+import org.apache.felix.scr.annotations.Reference
+import org.apache.felix.scr.annotations.Service
+import org.osgi.service.event.EventConstants
+import org.osgi.service.event.EventHandler
+
+/**
+ * Replication listener that refreshes the navigation structure for activated pages and removes deactivated and deleted
+ * pages, discarding cached navigation trees containing the page.  Deleting the content node of a page refreshes the
+ * page.
+ */
+@Component(immediate = true, label = "Bedrock Navigation Replication Listener")
+@Service(EventHandler)
+@Property(name = EventConstants.EVENT_TOPIC, value = ReplicationAction.EVENT_TOPIC, propertyPrivate = true)
+class NavigationReplicationListener extends AbstractReplicationListener {
+
+    @Reference
+    NavigationCacheService navigationCacheService
+
+    @Override
+    protected void handleActivate(String path) {
+        refresh(path)
+    }
+
+    @Override
+    protected void handleDeactivate(String path) {
+        if (navigationCacheService.enabled) {
+            navigationCacheService.remove(PathUtils.getPagePath(path))
+        }
+    }
+
+    @Override
+    protected void handleDelete(String path) {
+        // deleting the content node of a page hides the page rather than removing it
+        if (PathUtils.getPagePath(path) == path) {
+            handleDeactivate(path)
+        } else {
+            refresh(path)
+        }
+    }
+
+    private void refresh(String path) {
+        if (navigationCacheService.enabled) {
+            navigationCacheService.refresh(PathUtils.getPagePath(path))
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.citytechinc.aem.bedrock.core.services.cache
+
+import com.google.common.cache.RemovalCause
+import com.google.common.cache.RemovalListener
+import com.google.common.cache.RemovalNotification
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentSkipListMap
+
+/**
+ * Index of cache keys by content path, so that the keys for a path and its descendants or ancestors can be found
+ * without scanning every key in a cache.  Keys are added when a value is cached and are removed by registering the
+ * index as the removal listener of the cache, so the index follows evictions, expirations, and invalidations.  Updates
+ * are synchronized and lookups are not.
+ *
+ * @param <K> cache key type
+ */
+final class PathKeyIndex<K> implements RemovalListener<K, Object> {
+
+    private static final String MAX_DESCENDANT_SUFFIX = "/" + Character.MAX_VALUE
+
+    private final ConcurrentSkipListMap<String, Set<K>> keysByPath = new ConcurrentSkipListMap<>()
+
+    /** indexed paths of each key, guarded by this */
+    private final Map<K, Collection<String>> pathsByKey = [:]
+
+    private final Closure<String> pathFunction
+
+    /**
+     * Create an index for keys that are added with their paths.
+     */
+    PathKeyIndex() {
+        this(null)
+    }
+
+    /**
+     * @param pathFunction returns the content path for a cache key
+     */
+    PathKeyIndex(Closure<String> pathFunction) {
+        this.pathFunction = pathFunction
+    }
+
+    /**
+     * Add a cached key to the index with the path returned by the path function.
+     *
+     * @param key cache key
+     */
+    void add(K key) {
+        add(key, [pathFunction.call(key)])
+    }
+
+    /**
+     * Add a cached key to the index with the given paths, replacing any paths that were previously indexed for the key.
+     *
+     * @param key cache key
+     * @param paths content paths of the cached value
+     */
+    synchronized void add(K key, Collection<String> paths) {
+        remove(key)
+
+        def indexedPaths = new ArrayList<String>(paths)
+
+        pathsByKey.put(key, indexedPaths)
+
+        indexedPaths.each { path ->
+            def keys = keysByPath.get(path)
+
+            if (keys == null) {
+                keys = Collections.newSetFromMap(new ConcurrentHashMap<K, Boolean>())
+
+                keysByPath.put(path, keys)
+            }
+
+            keys.add(key)
+        }
+    }
+
+    /**
+     * Remove a key from the index.
+     *
+     * @param key cache key
+     */
+    synchronized void remove(K key) {
+        pathsByKey.remove(key)?.each { path ->
+            def keys = keysByPath.get(path)
+
+            if (keys != null) {
+                keys.remove(key)
+
+                if (keys.empty) {
+                    keysByPath.remove(path)
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the keys for the given path and its descendants.
+     *
+     * @param path content path
+     * @return indexed keys
+     */
+    Set<K> getDescendantsOrEqual(String path) {
+        def result = new HashSet<K>(keysByPath.get(path) ?: [])
+
+        keysByPath.subMap(path + "/", path + MAX_DESCENDANT_SUFFIX).values().each { keys ->
+            result.addAll(keys)
+        }
+
+        result
+    }
+
+    /**
+     * Get the keys for the given path and its ancestors.
+     *
+     * @param path content path
+     * @return indexed keys
+     */
+    Set<K> getAncestorsOrEqual(String path) {
+        def result = new HashSet<K>()
+        def ancestorPath = path
+
+        while (ancestorPath) {
+            result.addAll(keysByPath.get(ancestorPath) ?: [])
+
+            ancestorPath = ancestorPath.substring(0, ancestorPath.lastIndexOf('/'))
+        }
+
+        result
+    }
+
+    /**
+     * Get the keys for the given path, its ancestors, and its descendants, i.e. the keys of all values that depend on
+     * a change at the given path.
+     *
+     * @param path content path
+     * @return indexed keys
+     */
+    Set<K> getRelated(String path) {
+        def result = getDescendantsOrEqual(path)
+
+        result.addAll(getAncestorsOrEqual(path))
+
+        result
+    }
+
+    @Override
+    void onRemoval(RemovalNotification<K, Object> notification) {
+        // replaced values keep their key
+        if (notification.cause != RemovalCause.REPLACED && notification.key != null) {
+            remove(notification.key)
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.services.AbstractObservationService
+import com.citytechinc.aem.bedrock.core.services.ContainerComponentService
+import com.day.cq.wcm.api.NameConstants
+import com.google.common.collect.ImmutableSet
+import groovy.util.logging.Slf4j
+import org.apache.felix.scr.annotations.Activate
+import org.apache.felix.scr.annotations.Component
+import org.apache.felix.scr.annotations.Deactivate
+import org.apache.felix.scr.annotations.Service
+import org.osgi.service.component.ComponentContext
+
+import javax.jcr.RepositoryException
+import javax.jcr.observation.Event
+import javax.jcr.observation.EventIterator
+import javax.jcr.observation.EventListener
+import javax.jcr.query.Query
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Container component registry that queries <code>/libs</code> and <code>/apps</code> with the administrative session,
+ * so the registry includes container components that the requesting user cannot read.  Observation events for
+ * component nodes or the <code>cq:isContainer</code> property discard the registry, which is recomputed on next use.
+ */
+@Component(immediate = true)
+@Service(ContainerComponentService)
+@Slf4j("LOG")
+class DefaultContainerComponentService extends AbstractObservationService implements ContainerComponentService {
+
+    private static final List<String> SEARCH_PATHS = ["/libs/", "/apps/"]
+
+    private static final String XPATH_QUERY = "/jcr:root%s/element(*,cq:Component)[@cq:isContainer='true']"
+
+    private volatile Set<String> containerResourceTypes
+
+    /** incremented for each invalidation, so that a registry loaded concurrently with an invalidation is not kept */
+    private final AtomicLong generation = new AtomicLong()
+
+    @Override
+    Set<String> getContainerResourceTypes() {
+        def resourceTypes = containerResourceTypes
+
+        if (resourceTypes == null) {
+            resourceTypes = loadContainerResourceTypes()
+        }
+
+        resourceTypes
+    }
+
+    @Override
+    boolean isContainer(String resourceType) {
+        def relativeResourceType = resourceType
+
+        if (resourceType) {
+            def searchPath = SEARCH_PATHS.find { resourceType.startsWith(it) }
+
+            if (searchPath) {
+                relativeResourceType = resourceType.substring(searchPath.length())
+            }
+        }
+
+        relativeResourceType ? getContainerResourceTypes().contains(relativeResourceType) : false
+    }
+
+    /**
+     * Discard the registry so that it is recomputed on next use.
+     */
+    void invalidate() {
+        LOG.debug("invalidating container resource types")
+
+        generation.incrementAndGet()
+        containerResourceTypes = null
+    }
+
+    @Activate
+    @Override
+    protected void activate(ComponentContext componentContext, Map<String, Object> properties) {
+        try {
+            SEARCH_PATHS.each { searchPath ->
+                addEventListener(new ContainerComponentEventListener(this), CONTENT_EVENT_TYPES, searchPath[0..-2])
+            }
+        } catch (RepositoryException e) {
+            LOG.error("error registering container component event listener", e)
+        }
+    }
+
+    @Deactivate
+    @Override
+    protected void deactivate(ComponentContext componentContext, Map<String, Object> properties) {
+        removeEventListeners()
+
+        containerResourceTypes = null
+    }
+
+    private synchronized Set<String> loadContainerResourceTypes() {
+        def resourceTypes = containerResourceTypes
+
+        if (resourceTypes == null) {
+            def loadGeneration = generation.get()
+            def builder = ImmutableSet.<String> builder()
+
+            try {
+                def adminSession = administrativeSession
+
+                adminSession.refresh(true)
+
+                def queryManager = adminSession.workspace.queryManager
+
+                SEARCH_PATHS.each { searchPath ->
+                    def statement = String.format(XPATH_QUERY, searchPath)
+                    def nodes = queryManager.createQuery(statement, Query.XPATH).execute().nodes
+
+                    while (nodes.hasNext()) {
+                        def path = nodes.nextNode().path
+
+                        LOG.debug("adding {} as a container resource type", path)
+
+                        builder.add(path.startsWith(searchPath) ? path.substring(searchPath.length()) : path)
+                    }
+                }
+
+                resourceTypes = builder.build()
+
+                // returned to this caller but not cached if the registry was invalidated while querying
+                if (generation.get() == loadGeneration) {
+                    containerResourceTypes = resourceTypes
+                }
+            } catch (RepositoryException e) {
+                LOG.error("error querying container components", e)
+
+                // not cached, so the next call will retry
+                resourceTypes = builder.build()
+            }
+        }
+
+        resourceTypes
+    }
+
+    /**
+     * Invalidates the registry when a node is added or removed, or when a container flag changes.  Node events include
+     * package installations and component moves, which may affect any number of component definitions.
+     */
+    static class ContainerComponentEventListener implements EventListener {
+
+        private final DefaultContainerComponentService containerComponentService
+
+        ContainerComponentEventListener(DefaultContainerComponentService containerComponentService) {
+            this.containerComponentService = containerComponentService
+        }
+
+        @Override
+        void onEvent(EventIterator events) {
+            def invalidate = false
+
+            while (!invalidate && events.hasNext()) {
+                def event = events.nextEvent()
+
+                invalidate = event.type == Event.NODE_ADDED || event.type == Event.NODE_REMOVED ||
+                    event.path.endsWith("/" + NameConstants.PN_IS_CONTAINER)
+            }
+
+            if (invalidate) {
+                containerComponentService.invalidate()
+            }
+        }
+    }
+}
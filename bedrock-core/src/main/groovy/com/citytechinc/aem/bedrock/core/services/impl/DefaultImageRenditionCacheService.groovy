@@ -0,0 +1,284 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.services.AbstractObservationService
+import com.citytechinc.aem.bedrock.core.services.cache.CacheService
+import com.citytechinc.aem.bedrock.core.services.cache.CacheServiceTrait
+import com.citytechinc.aem.bedrock.core.services.cache.ImageRendition
+import com.citytechinc.aem.bedrock.core.services.cache.ImageRenditionCacheService
+import com.citytechinc.aem.bedrock.core.services.cache.PathKeyIndex
+import com.google.common.base.Optional
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.Weigher
+import groovy.util.logging.Slf4j
+import org.apache.felix.scr.annotations.Activate
+import org.apache.felix.scr.annotations.Component
+import org.apache.felix.scr.annotations.Deactivate
+import org.apache.felix.scr.annotations.Property
+import org.apache.felix.scr.annotations.PropertyUnbounded
+import org.apache.felix.scr.annotations.Service
+import org.osgi.service.component.ComponentContext
+import org.slf4j.Logger
+
+import javax.jcr.RepositoryException
+import javax.jcr.observation.EventIterator
+import javax.jcr.observation.EventListener
+import java.util.concurrent.atomic.AtomicLong
+
+import static com.citytechinc.aem.bedrock.core.constants.PathConstants.PATH_CONTENT
+import static com.google.common.base.Preconditions.checkNotNull
+
+/**
+ * Rendition cache with an in-memory LRU tier and a local disk tier.  Renditions are written to both tiers, and
+ * renditions that were evicted from memory are read back from disk and promoted.  Observation is registered for the
+ * configured root paths only while the cache is enabled, and any change at or below a rendition's image or asset path
+ * discards the rendition from both tiers.  Both tiers index their keys by rendition path, so events for paths that no
+ * cached rendition depends on are discarded without scanning the cached renditions.
+ */
+@Component(immediate = true, metatype = true, label = "Bedrock Image Rendition Cache Service",
+    description = "Memory and disk cache for resized, cropped, and rotated image renditions.")
+@Service([ImageRenditionCacheService, CacheService])
+@Slf4j("LOG")
+class DefaultImageRenditionCacheService extends AbstractObservationService implements ImageRenditionCacheService,
+    CacheServiceTrait {
+
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024L
+
+    private static final long DEFAULT_MAXIMUM_MEMORY_SIZE = 64L
+
+    private static final long DEFAULT_MAXIMUM_DISK_SIZE = 512L
+
+    private static final String DEFAULT_DISK_DIRECTORY = "renditions"
+
+    /** subdirectory of a configured disk cache path, so that the cache only manages files in its own directory */
+    private static final String DISK_CACHE_DIRECTORY = "bedrock-renditions"
+
+    @Property(label = "Enabled?", description = "Enable caching of image renditions.", boolValue = false)
+    static final String ENABLED = "enabled"
+
+    @Property(label = "Maximum Memory Size", description = "Maximum size in MB of renditions cached in memory.",
+        longValue = 64L)
+    static final String MAXIMUM_MEMORY_SIZE = "maximumMemorySize"
+
+    @Property(label = "Maximum Disk Size",
+        description = "Maximum size in MB of renditions cached on disk, 0 to disable the disk cache.", longValue = 512L)
+    static final String MAXIMUM_DISK_SIZE = "maximumDiskSize"
+
+    @Property(label = "Disk Cache Path",
+        description = "Directory in which a bedrock-renditions directory is created for renditions cached on disk.  " +
+            "Defaults to the bundle data directory.", value = "")
+    static final String DISK_CACHE_PATH = "diskCachePath"
+
+    @Property(label = "Root Paths", description = "Content root paths observed for image and asset changes.",
+        value = PATH_CONTENT, unbounded = PropertyUnbounded.ARRAY)
+    static final String ROOT_PATHS = "rootPaths"
+
+    /** in-memory tier, weighed by rendition size in bytes */
+    private volatile Cache<String, ImageRendition> renditions = CacheBuilder.newBuilder().maximumSize(0).build()
+
+    /** keys of the in-memory tier by image and asset path */
+    private volatile PathKeyIndex<String> keyIndex = new PathKeyIndex<String>()
+
+    private volatile ImageRenditionDiskCache diskCache
+
+    private volatile boolean enabled
+
+    /** incremented for each invalidation, so that a rendition rendered concurrently with an invalidation is not cached */
+    private final AtomicLong generation = new AtomicLong()
+
+    @Override
+    boolean isEnabled() {
+        enabled
+    }
+
+    @Override
+    long getGeneration() {
+        generation.get()
+    }
+
+    @Override
+    Optional<ImageRendition> getRendition(String key) {
+        checkNotNull(key)
+
+        def rendition = null
+
+        if (enabled) {
+            rendition = renditions.getIfPresent(key)
+
+            if (!rendition && diskCache) {
+                def readGeneration = generation.get()
+
+                rendition = diskCache.get(key)
+
+                if (rendition && generation.get() == readGeneration) {
+                    LOG.debug("promoting rendition from disk cache for key = {}", key)
+
+                    putMemory(key, rendition, readGeneration)
+                }
+            }
+        }
+
+        Optional.fromNullable(rendition)
+    }
+
+    @Override
+    void putRendition(String key, ImageRendition rendition, long renditionGeneration) {
+        checkNotNull(key)
+        checkNotNull(rendition)
+
+        // not cached if the content may have changed while rendering
+        if (enabled && generation.get() == renditionGeneration) {
+            diskCache?.put(key, rendition)
+
+            putMemory(key, rendition, renditionGeneration)
+        }
+    }
+
+    @Override
+    void invalidate(String path) {
+        invalidate([checkNotNull(path)])
+    }
+
+    /**
+     * Discard all cached renditions that depend on the content at any of the given paths.
+     *
+     * @param paths changed content paths
+     */
+    void invalidate(Collection<String> paths) {
+        generation.incrementAndGet()
+
+        def index = keyIndex
+        def keys = new HashSet<String>()
+
+        paths.each { path ->
+            keys.addAll(index.getRelated(path))
+        }
+
+        def diskCount = diskCache ? diskCache.invalidate(paths) : 0
+
+        if (keys || diskCount) {
+            LOG.debug("invalidating {} memory and {} disk rendition(s) for {} path(s)", keys.size(), diskCount,
+                paths.size())
+
+            renditions.invalidateAll(keys)
+        }
+    }
+
+    @Override
+    boolean clearAllCaches() {
+        generation.incrementAndGet()
+
+        diskCache?.clear()
+
+        CacheServiceTrait.super.clearAllCaches()
+    }
+
+    @Override
+    Logger getLogger() {
+        LOG
+    }
+
+    @Activate
+    @Override
+    protected void activate(ComponentContext componentContext, Map<String, Object> properties) {
+        def configuration = getConfiguration(properties)
+
+        def index = new PathKeyIndex<String>()
+
+        renditions = CacheBuilder.newBuilder()
+            .maximumWeight(configuration.getAsLong(MAXIMUM_MEMORY_SIZE, DEFAULT_MAXIMUM_MEMORY_SIZE) *
+                BYTES_PER_MEGABYTE)
+            .weigher(new Weigher<String, ImageRendition>() {
+                @Override
+                int weigh(String key, ImageRendition rendition) {
+                    rendition.length
+                }
+            })
+            .removalListener(index)
+            .recordStats()
+            .build()
+
+        keyIndex = index
+
+        enabled = configuration.getAsBoolean(ENABLED, false)
+
+        if (enabled) {
+            def maximumDiskSize = configuration.getAsLong(MAXIMUM_DISK_SIZE, DEFAULT_MAXIMUM_DISK_SIZE)
+            def diskCachePath = configuration.getAsString(DISK_CACHE_PATH, "")
+            def directory = diskCachePath ? new File(diskCachePath, DISK_CACHE_DIRECTORY) :
+                componentContext?.bundleContext?.getDataFile(DEFAULT_DISK_DIRECTORY)
+
+            if (maximumDiskSize > 0 && directory) {
+                LOG.info("caching renditions on disk in directory = {}", directory.absolutePath)
+
+                diskCache = new ImageRenditionDiskCache(directory, maximumDiskSize * BYTES_PER_MEGABYTE)
+            }
+
+            try {
+                configuration.getAsList(ROOT_PATHS, [PATH_CONTENT]).findAll().each { rootPath ->
+                    addEventListener(new ImageRenditionEventListener(this), CONTENT_EVENT_TYPES, rootPath)
+                }
+            } catch (RepositoryException e) {
+                LOG.error("error registering image rendition event listeners, caching is disabled", e)
+
+                enabled = false
+            }
+        }
+    }
+
+    @Deactivate
+    @Override
+    protected void deactivate(ComponentContext componentContext, Map<String, Object> properties) {
+        enabled = false
+
+        removeEventListeners()
+
+        renditions.invalidateAll()
+        diskCache?.clear()
+        diskCache = null
+    }
+
+    /**
+     * Cache a rendition in memory, and discard it again from both tiers if an invalidation started before its key was
+     * indexed, since the invalidation may have missed it.
+     */
+    private void putMemory(String key, ImageRendition rendition, long renditionGeneration) {
+        renditions.put(key, rendition)
+        keyIndex.add(key, rendition.paths)
+
+        if (generation.get() != renditionGeneration) {
+            invalidate(rendition.paths)
+        }
+    }
+
+    /**
+     * Invalidates renditions once for each batch of events, for the distinct paths of the added, changed, or removed
+     * nodes and properties.  Paths that no cached rendition depends on are discarded by the key indexes.
+     */
+    @Slf4j("LOG")
+    static class ImageRenditionEventListener implements EventListener {
+
+        private final DefaultImageRenditionCacheService cacheService
+
+        ImageRenditionEventListener(DefaultImageRenditionCacheService cacheService) {
+            this.cacheService = cacheService
+        }
+
+        @Override
+        void onEvent(EventIterator events) {
+            def paths = [] as Set<String>
+
+            while (events.hasNext()) {
+                try {
+                    paths.add(events.nextEvent().path)
+                } catch (RepositoryException e) {
+                    LOG.error("error processing image rendition event", e)
+                }
+            }
+
+            if (paths) {
+                cacheService.invalidate(paths)
+            }
+        }
+    }
+}
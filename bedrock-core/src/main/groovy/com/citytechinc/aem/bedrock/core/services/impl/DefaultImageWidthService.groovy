@@ -0,0 +1,82 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.services.ImageWidthService
+import com.citytechinc.aem.bedrock.core.services.OsgiConfiguration
+import groovy.util.logging.Slf4j
+import org.apache.commons.lang3.math.NumberUtils
+import org.apache.felix.scr.annotations.Activate
+import org.apache.felix.scr.annotations.Component
+import org.apache.felix.scr.annotations.Modified
+import org.apache.felix.scr.annotations.Property
+import org.apache.felix.scr.annotations.PropertyUnbounded
+import org.apache.felix.scr.annotations.Service
+
+@Component(immediate = true, metatype = true, label = "Bedrock Image Width Service",
+    description = "Ladder of image widths for image sources and srcset attributes.")
+@Service(ImageWidthService)
+@Slf4j("LOG")
+class DefaultImageWidthService implements ImageWidthService {
+
+    private static final List<String> DEFAULT_WIDTHS = ["160", "320", "480", "640", "800", "1024", "1280", "1600",
+        "1920", "2560"]
+
+    @Property(label = "Enabled?",
+        description = "Snap image source widths to the ladder and redirect or reject off-ladder image requests.",
+        boolValue = false)
+    static final String ENABLED = "enabled"
+
+    @Property(label = "Widths", description = "Ladder widths in pixels.",
+        value = ["160", "320", "480", "640", "800", "1024", "1280", "1600", "1920", "2560"],
+        unbounded = PropertyUnbounded.ARRAY)
+    static final String WIDTHS = "widths"
+
+    @Property(label = "Redirect?",
+        description = "Redirect off-ladder image requests to the snapped width instead of rejecting them.",
+        boolValue = true)
+    static final String REDIRECT = "redirect"
+
+    private volatile boolean enabled
+
+    private volatile boolean redirect = true
+
+    private volatile List<Integer> widths = toWidths(DEFAULT_WIDTHS)
+
+    @Override
+    boolean isEnabled() {
+        enabled
+    }
+
+    @Override
+    boolean isRedirect() {
+        redirect
+    }
+
+    @Override
+    List<Integer> getWidths() {
+        widths
+    }
+
+    @Override
+    int getWidth(int width) {
+        def ladderWidths = widths
+
+        width < 0 ? -1 : (ladderWidths.find { ladderWidth -> ladderWidth >= width } ?: ladderWidths.last())
+    }
+
+    @Activate
+    @Modified
+    void activate(Map<String, Object> properties) {
+        def configuration = new OsgiConfiguration(properties)
+
+        enabled = configuration.getAsBoolean(ENABLED, false)
+        redirect = configuration.getAsBoolean(REDIRECT, true)
+        widths = toWidths(configuration.getAsList(WIDTHS, DEFAULT_WIDTHS)) ?: toWidths(DEFAULT_WIDTHS)
+
+        LOG.info("activated image width service with enabled = {}, widths = {}", enabled, widths)
+    }
+
+    private static List<Integer> toWidths(List<String> values) {
+        values.collect { value -> NumberUtils.toInt(value?.trim(), 0) }.findAll { width -> width > 0 }
+            .unique().sort().asImmutable()
+    }
+}
@@ -0,0 +1,211 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.services.AbstractObservationService
+import com.citytechinc.aem.bedrock.core.services.cache.CacheService
+import com.citytechinc.aem.bedrock.core.services.cache.CacheServiceTrait
+import com.citytechinc.aem.bedrock.core.services.cache.InheritedValueCacheService
+import com.citytechinc.aem.bedrock.core.services.cache.PathKeyIndex
+import com.citytechinc.aem.bedrock.core.utils.PathUtils
+import com.google.common.base.Optional
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import groovy.util.logging.Slf4j
+import org.apache.felix.scr.annotations.Activate
+import org.apache.felix.scr.annotations.Component
+import org.apache.felix.scr.annotations.Deactivate
+import org.apache.felix.scr.annotations.Property
+import org.apache.felix.scr.annotations.Service
+import org.osgi.service.component.ComponentContext
+import org.slf4j.Logger
+
+import javax.jcr.RepositoryException
+import javax.jcr.observation.Event
+import javax.jcr.observation.EventIterator
+import javax.jcr.observation.EventListener
+import java.util.concurrent.Callable
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+import static com.citytechinc.aem.bedrock.core.constants.PathConstants.PATH_CONTENT
+import static com.citytechinc.aem.bedrock.core.constants.PathConstants.PATH_JCR_CONTENT
+import static com.google.common.base.Preconditions.checkNotNull
+
+/**
+ * Inherited value cache that is invalidated by JCR observation events for page content.  Observation is registered
+ * only while the cache is enabled.
+ */
+@Component(immediate = true, metatype = true, label = "Bedrock Inherited Value Cache Service",
+    description = "Cross-request cache for inherited component property values, shared by all users.")
+@Service([InheritedValueCacheService, CacheService])
+@Slf4j("LOG")
+class DefaultInheritedValueCacheService extends AbstractObservationService implements InheritedValueCacheService,
+    CacheServiceTrait {
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 10000L
+
+    private static final long DEFAULT_EXPIRE_AFTER_WRITE = 60L
+
+    @Property(label = "Enabled?", description = "Enable caching of inherited values.", boolValue = false)
+    static final String ENABLED = "enabled"
+
+    @Property(label = "Maximum Size", description = "Maximum number of cached values.", longValue = 10000L)
+    static final String MAXIMUM_SIZE = "maximumSize"
+
+    @Property(label = "Expire After Write",
+        description = "Minutes until a cached value expires regardless of content changes, 0 to disable.",
+        longValue = 60L)
+    static final String EXPIRE_AFTER_WRITE = "expireAfterWrite"
+
+    /** keyed by component node path, property name, and type name */
+    private volatile Cache<String, Optional<Object>> inheritedValues = CacheBuilder.newBuilder().maximumSize(0).build()
+
+    /** cached keys by page path of the component node */
+    private volatile PathKeyIndex<String> keyIndex = createKeyIndex()
+
+    private volatile boolean enabled
+
+    /** incremented for each invalidation, so that a value loaded concurrently with an invalidation is not cached */
+    private final AtomicLong generation = new AtomicLong()
+
+    @Override
+    boolean isEnabled() {
+        enabled
+    }
+
+    @Override
+    <T> Optional<T> getInherited(String path, String propertyName, Class<T> type, Callable<Optional<T>> loader) {
+        def result
+
+        if (enabled) {
+            def key = new StringBuilder(checkNotNull(path)).append('|').append(checkNotNull(propertyName))
+                .append('|').append(checkNotNull(type).name).toString()
+
+            def cache = inheritedValues
+
+            result = cache.getIfPresent(key) as Optional<T>
+
+            if (result == null) {
+                def loadGeneration = generation.get()
+
+                result = loader.call()
+
+                // returned to this caller but not cached if a page was invalidated while loading
+                if (result != null && generation.get() == loadGeneration) {
+                    cache.put(key, result as Optional<Object>)
+                    keyIndex.add(key)
+
+                    // an invalidation that started before the key was indexed may have missed it
+                    if (generation.get() != loadGeneration) {
+                        cache.invalidate(key)
+                    }
+                }
+            }
+        } else {
+            result = loader.call()
+        }
+
+        result
+    }
+
+    @Override
+    void invalidate(String pagePath) {
+        generation.incrementAndGet()
+
+        def keys = keyIndex.getDescendantsOrEqual(checkNotNull(pagePath))
+
+        LOG.debug("invalidating {} inherited values for page path = {}", keys.size(), pagePath)
+
+        inheritedValues.invalidateAll(keys)
+    }
+
+    @Override
+    Logger getLogger() {
+        LOG
+    }
+
+    @Activate
+    @Override
+    protected void activate(ComponentContext componentContext, Map<String, Object> properties) {
+        def configuration = getConfiguration(properties)
+
+        def index = createKeyIndex()
+
+        def builder = CacheBuilder.newBuilder()
+            .maximumSize(configuration.getAsLong(MAXIMUM_SIZE, DEFAULT_MAXIMUM_SIZE))
+            .removalListener(index)
+            .recordStats()
+
+        def expireAfterWrite = configuration.getAsLong(EXPIRE_AFTER_WRITE, DEFAULT_EXPIRE_AFTER_WRITE)
+
+        if (expireAfterWrite > 0) {
+            builder.expireAfterWrite(expireAfterWrite, TimeUnit.MINUTES)
+        }
+
+        inheritedValues = builder.build()
+        keyIndex = index
+        enabled = configuration.getAsBoolean(ENABLED, false)
+
+        if (enabled) {
+            try {
+                addEventListener(new InheritedValueEventListener(this), CONTENT_EVENT_TYPES, PATH_CONTENT)
+            } catch (RepositoryException e) {
+                LOG.error("error registering inherited value event listener, caching is disabled", e)
+
+                enabled = false
+            }
+        }
+    }
+
+    @Deactivate
+    @Override
+    protected void deactivate(ComponentContext componentContext, Map<String, Object> properties) {
+        enabled = false
+
+        removeEventListeners()
+
+        inheritedValues.invalidateAll()
+    }
+
+    private static PathKeyIndex<String> createKeyIndex() {
+        new PathKeyIndex<String>({ String key -> PathUtils.getPagePath(key.substring(0, key.indexOf('|'))) })
+    }
+
+    /**
+     * Invalidates cached values for a page subtree when any node or property of the page content is added, changed, or
+     * removed, or when the page itself is added or removed, once per page for each batch of events.
+     */
+    @Slf4j("LOG")
+    static class InheritedValueEventListener implements EventListener {
+
+        private final InheritedValueCacheService cacheService
+
+        InheritedValueEventListener(InheritedValueCacheService cacheService) {
+            this.cacheService = cacheService
+        }
+
+        @Override
+        void onEvent(EventIterator events) {
+            def pagePaths = [] as Set
+
+            while (events.hasNext()) {
+                try {
+                    def event = events.nextEvent()
+                    def path = event.path
+
+                    if (path.contains(PATH_JCR_CONTENT)) {
+                        pagePaths.add(PathUtils.getPagePath(path))
+                    } else if (event.type == Event.NODE_ADDED || event.type == Event.NODE_REMOVED) {
+                        // added, moved, or removed page subtree
+                        pagePaths.add(path)
+                    }
+                } catch (RepositoryException e) {
+                    LOG.error("error getting event path", e)
+                }
+            }
+
+            pagePaths.each { pagePath ->
+                cacheService.invalidate(pagePath)
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.services.AbstractObservationService
+import com.citytechinc.aem.bedrock.core.services.cache.CacheService
+import com.citytechinc.aem.bedrock.core.services.cache.CacheServiceTrait
+import com.citytechinc.aem.bedrock.core.services.cache.MappingCacheService
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import groovy.util.logging.Slf4j
+import org.apache.felix.scr.annotations.Activate
+import org.apache.felix.scr.annotations.Component
+import org.apache.felix.scr.annotations.Deactivate
+import org.apache.felix.scr.annotations.Property
+import org.apache.felix.scr.annotations.Service
+import org.apache.sling.api.resource.ResourceResolver
+import org.osgi.service.cm.ConfigurationEvent
+import org.osgi.service.cm.ConfigurationListener
+import org.osgi.service.component.ComponentContext
+import org.slf4j.Logger
+
+import javax.jcr.RepositoryException
+import javax.jcr.observation.EventIterator
+import javax.jcr.observation.EventListener
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+import static com.citytechinc.aem.bedrock.core.constants.PathConstants.PATH_CONTENT
+import static com.google.common.base.Preconditions.checkNotNull
+
+/**
+ * Mapped path cache that is invalidated by JCR observation events for the mapping configuration and by configuration
+ * events for the resource resolver factory.  Each invalidation starts a new mapping generation that is part of the
+ * cache key, so a path mapped before an invalidation is not cached under the new generation.  Sling reloads its own
+ * mapping entries asynchronously after the same events, so a path mapped shortly after an invalidation may still
+ * reflect the previous configuration.  Mapped paths are therefore invalidated again after a configurable refresh delay,
+ * and expire after a configurable time as a final bound on staleness.
+ */
+@Component(immediate = true, metatype = true, label = "Bedrock Mapping Cache Service",
+    description = "Cross-request cache for paths mapped by the resource resolver, shared by all requests.")
+@Service([MappingCacheService, CacheService, ConfigurationListener])
+@Slf4j("LOG")
+class DefaultMappingCacheService extends AbstractObservationService implements MappingCacheService, CacheServiceTrait,
+    ConfigurationListener {
+
+    /** resource resolver factory PIDs for current and earlier Sling versions */
+    private static final List<String> RESOURCE_RESOLVER_FACTORY_PIDS = [
+        "org.apache.sling.resourceresolver.impl.ResourceResolverFactoryActivator",
+        "org.apache.sling.jcr.resource.internal.JcrResourceResolverFactoryImpl"
+    ]
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 10000L
+
+    private static final long DEFAULT_EXPIRE_AFTER_WRITE = 10L
+
+    private static final long DEFAULT_REFRESH_DELAY = 5L
+
+    @Property(label = "Enabled?", description = "Enable caching of mapped paths.", boolValue = false)
+    static final String ENABLED = "enabled"
+
+    @Property(label = "Maximum Size", description = "Maximum number of cached mapped paths.", longValue = 10000L)
+    static final String MAXIMUM_SIZE = "maximumSize"
+
+    @Property(label = "Expire After Write",
+        description = "Minutes until a mapped path expires regardless of mapping changes, 0 to disable.",
+        longValue = 10L)
+    static final String EXPIRE_AFTER_WRITE = "expireAfterWrite"
+
+    @Property(label = "Refresh Delay",
+        description = "Seconds after a mapping change until mapped paths are invalidated again, allowing for the " +
+            "asynchronous reload of the Sling mapping entries, 0 to disable.", longValue = 5L)
+    static final String REFRESH_DELAY = "refreshDelay"
+
+    /** keyed by mapping generation, resolver user ID, and path */
+    private volatile Cache<String, String> mappedPaths = CacheBuilder.newBuilder().maximumSize(0).build()
+
+    private final AtomicLong generation = new AtomicLong()
+
+    private volatile boolean enabled
+
+    private volatile long refreshDelay
+
+    private ScheduledExecutorService executorService
+
+    /** pending delayed invalidation, guarded by this */
+    private ScheduledFuture<?> refresh
+
+    @Override
+    boolean isEnabled() {
+        enabled
+    }
+
+    @Override
+    String map(ResourceResolver resourceResolver, String path) {
+        checkNotNull(resourceResolver)
+        checkNotNull(path)
+
+        def mappedPath
+
+        if (enabled) {
+            def key = new StringBuilder().append(generation.get()).append('|')
+                .append(resourceResolver.userID ?: "").append('|').append(path).toString()
+
+            mappedPath = mappedPaths.getIfPresent(key)
+
+            if (mappedPath == null) {
+                mappedPath = resourceResolver.map(path)
+
+                mappedPaths.put(key, mappedPath)
+            }
+        } else {
+            mappedPath = resourceResolver.map(path)
+        }
+
+        mappedPath
+    }
+
+    @Override
+    void invalidate() {
+        invalidateAll()
+
+        if (enabled && refreshDelay > 0) {
+            scheduleRefresh()
+        }
+    }
+
+    @Override
+    void configurationEvent(ConfigurationEvent event) {
+        if (RESOURCE_RESOLVER_FACTORY_PIDS.contains(event.pid) ||
+            RESOURCE_RESOLVER_FACTORY_PIDS.contains(event.factoryPid)) {
+            LOG.info("resource resolver factory configuration changed for PID = {}", event.pid)
+
+            invalidate()
+        }
+    }
+
+    @Override
+    Logger getLogger() {
+        LOG
+    }
+
+    @Activate
+    @Override
+    protected void activate(ComponentContext componentContext, Map<String, Object> properties) {
+        def configuration = getConfiguration(properties)
+
+        def builder = CacheBuilder.newBuilder()
+            .maximumSize(configuration.getAsLong(MAXIMUM_SIZE, DEFAULT_MAXIMUM_SIZE))
+            .recordStats()
+
+        def expireAfterWrite = configuration.getAsLong(EXPIRE_AFTER_WRITE, DEFAULT_EXPIRE_AFTER_WRITE)
+
+        if (expireAfterWrite > 0) {
+            builder.expireAfterWrite(expireAfterWrite, TimeUnit.MINUTES)
+        }
+
+        mappedPaths = builder.build()
+        refreshDelay = configuration.getAsLong(REFRESH_DELAY, DEFAULT_REFRESH_DELAY)
+        enabled = configuration.getAsBoolean(ENABLED, false)
+
+        if (enabled) {
+            executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("bedrock-mapping-cache-%d")
+                .setDaemon(true)
+                .build())
+
+            try {
+                addEventListener(new MappingEventListener(this, []), CONTENT_EVENT_TYPES, PATH_MAP)
+                addEventListener(new MappingEventListener(this, MAPPING_PROPERTY_NAMES), PROPERTY_EVENT_TYPES,
+                    PATH_CONTENT)
+            } catch (RepositoryException e) {
+                LOG.error("error registering mapping event listeners, caching is disabled", e)
+
+                enabled = false
+            }
+        }
+    }
+
+    @Deactivate
+    @Override
+    protected void deactivate(ComponentContext componentContext, Map<String, Object> properties) {
+        enabled = false
+
+        removeEventListeners()
+
+        executorService?.shutdownNow()
+
+        mappedPaths.invalidateAll()
+    }
+
+    private void invalidateAll() {
+        generation.incrementAndGet()
+
+        LOG.debug("invalidating {} mapped path(s)", mappedPaths.size())
+
+        mappedPaths.invalidateAll()
+    }
+
+    /**
+     * Schedule a second invalidation after the refresh delay, replacing any pending invalidation so that the delay is
+     * measured from the last change.
+     */
+    private synchronized void scheduleRefresh() {
+        refresh?.cancel(false)
+
+        try {
+            refresh = executorService.schedule({
+                LOG.debug("invalidating mapped paths after refresh delay")
+
+                invalidateAll()
+            } as Runnable, refreshDelay, TimeUnit.SECONDS)
+        } catch (RejectedExecutionException e) {
+            LOG.debug("mapping cache service is deactivated, delayed invalidation is skipped")
+        }
+    }
+
+    /**
+     * Invalidates all mapped paths once per batch of events if any event affects the mapping configuration.
+     */
+    @Slf4j("LOG")
+    static class MappingEventListener implements EventListener {
+
+        private final MappingCacheService cacheService
+
+        /** names of properties that affect mapping, or empty if all events affect mapping */
+        private final List<String> propertyNames
+
+        MappingEventListener(MappingCacheService cacheService, List<String> propertyNames) {
+            this.cacheService = cacheService
+            this.propertyNames = propertyNames
+        }
+
+        @Override
+        void onEvent(EventIterator events) {
+            def invalidate = false
+
+            while (events.hasNext() && !invalidate) {
+                try {
+                    def path = events.nextEvent().path
+
+                    invalidate = !propertyNames || propertyNames.contains(path.substring(path.lastIndexOf('/') + 1))
+                } catch (RepositoryException e) {
+                    LOG.error("error processing mapping event", e)
+                }
+            }
+
+            if (invalidate) {
+                cacheService.invalidate()
+            }
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.services.AbstractSlingService
+import com.citytechinc.aem.bedrock.core.services.cache.CacheService
+import com.citytechinc.aem.bedrock.core.services.cache.CacheServiceTrait
+import com.citytechinc.aem.bedrock.core.services.cache.NavigationCacheService
+import com.citytechinc.aem.bedrock.core.services.cache.NavigationNode
+import com.citytechinc.aem.bedrock.core.services.cache.PathKeyIndex
+import com.day.cq.wcm.api.NameConstants
+import com.day.cq.wcm.api.Page
+import com.day.cq.wcm.api.PageManager
+import com.google.common.base.Optional
+import com.google.common.base.Throwables
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import com.google.common.util.concurrent.UncheckedExecutionException
+import groovy.util.logging.Slf4j
+import org.apache.felix.scr.annotations.Activate
+import org.apache.felix.scr.annotations.Component
+import org.apache.felix.scr.annotations.Deactivate
+import org.apache.felix.scr.annotations.Property
+import org.apache.felix.scr.annotations.PropertyUnbounded
+import org.apache.felix.scr.annotations.Service
+import org.apache.sling.api.resource.LoginException
+import org.apache.sling.api.resource.ResourceResolver
+import org.apache.sling.api.resource.ValueMap
+import org.osgi.service.component.ComponentContext
+import org.slf4j.Logger
+
+import javax.jcr.Session
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+
+import static com.citytechinc.aem.bedrock.core.constants.PropertyConstants.REDIRECT_TARGET
+import static com.google.common.base.Preconditions.checkNotNull
+
+/**
+ * Navigation tree cache that is invalidated by the navigation replication listener.  The navigation structure for each
+ * site root is read with the administrative resource resolver in the background, starting on activation, and is
+ * replaced copy-on-write for each update, so readers never observe a partially updated structure.  Loads and updates
+ * for replicated pages run one at a time on a single background thread, so neither requests nor the replication
+ * listener wait for a structure to load, and the structure is filtered to the pages readable by the requesting
+ * resource resolver before it is returned.
+ */
+@Component(immediate = true, metatype = true, label = "Bedrock Navigation Cache Service",
+    description = "Cross-request cache for page navigation trees, invalidated by replication events.")
+@Service([NavigationCacheService, CacheService])
+@Slf4j("LOG")
+class DefaultNavigationCacheService extends AbstractSlingService implements NavigationCacheService,
+    CacheServiceTrait {
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 1000L
+
+    private static final long DEFAULT_EXPIRE_AFTER_WRITE = 60L
+
+    private static final Closure<String> ROOT_PATH_FUNCTION = { String key -> key.substring(0, key.indexOf('|')) }
+
+    @Property(label = "Enabled?", description = "Enable caching of navigation trees.", boolValue = false)
+    static final String ENABLED = "enabled"
+
+    @Property(label = "Maximum Size", description = "Maximum number of cached navigation trees.", longValue = 1000L)
+    static final String MAXIMUM_SIZE = "maximumSize"
+
+    @Property(label = "Expire After Write",
+        description = "Minutes until a cached tree expires regardless of replication events, 0 to disable.",
+        longValue = 60L)
+    static final String EXPIRE_AFTER_WRITE = "expireAfterWrite"
+
+    @Property(label = "Site Root Paths",
+        description = "Root page paths of site navigation structures to keep in memory, none if empty.", value = "",
+        unbounded = PropertyUnbounded.ARRAY)
+    static final String ROOT_PATHS = "rootPaths"
+
+    /** keyed by root page path, depth, mapping, and resolver user ID */
+    private volatile Cache<String, Object> navigationTrees = CacheBuilder.newBuilder().maximumSize(0).build()
+
+    /** keys of cached navigation trees by root page path */
+    private volatile PathKeyIndex<String> keyIndex = new PathKeyIndex<String>(ROOT_PATH_FUNCTION)
+
+    /** navigation structures keyed by site root path */
+    private final ConcurrentMap<String, NavigationNode> navigationNodes = new ConcurrentHashMap<>()
+
+    /** site root paths with a pending background load */
+    private final Set<String> loadingRootPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>())
+
+    private volatile List<String> rootPaths = []
+
+    private volatile ExecutorService executorService
+
+    private volatile boolean enabled
+
+    @Override
+    boolean isEnabled() {
+        enabled
+    }
+
+    @Override
+    <T> T getNavigationTree(ResourceResolver resourceResolver, String rootPath, int depth, boolean mapped,
+        Callable<T> loader) {
+        def result
+
+        if (enabled) {
+            def key = new StringBuilder(checkNotNull(rootPath)).append('|').append(depth).append('|').append(mapped)
+                .append('|').append(checkNotNull(resourceResolver).userID ?: "").toString()
+
+            def index = keyIndex
+
+            try {
+                result = navigationTrees.get(key, {
+                    def tree = loader.call()
+
+                    index.add(key)
+
+                    tree
+                } as Callable<Object>) as T
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                throw Throwables.propagate(e.cause)
+            }
+        } else {
+            result = loader.call()
+        }
+
+        result
+    }
+
+    @Override
+    Optional<NavigationNode> getNavigationNode(ResourceResolver resourceResolver, String pagePath, int depth) {
+        checkNotNull(resourceResolver)
+        checkNotNull(pagePath)
+
+        def rootPath = enabled ? getRootPath(pagePath) : null
+        def node = null
+
+        if (rootPath) {
+            node = navigationNodes.get(rootPath)
+
+            if (!node) {
+                scheduleLoad(rootPath)
+            }
+
+            while (node && node.path != pagePath) {
+                node = node.children.find { child -> isDescendantOrEqual(pagePath, child.path) }
+            }
+        }
+
+        node ? filter(resourceResolver, node, depth) : Optional.absent()
+    }
+
+    @Override
+    void invalidate(String pagePath) {
+        checkNotNull(pagePath)
+
+        def keys = keyIndex.getRelated(pagePath)
+
+        if (keys) {
+            LOG.debug("invalidating {} navigation tree(s) for page path = {}", keys.size(), pagePath)
+
+            navigationTrees.invalidateAll(keys)
+        }
+    }
+
+    @Override
+    void refresh(String pagePath) {
+        checkNotNull(pagePath)
+
+        invalidate(pagePath)
+
+        def rootPath = enabled ? getRootPath(pagePath) : null
+
+        if (rootPath) {
+            scheduleUpdate(pagePath) {
+                try {
+                    refreshPage(rootPath, pagePath)
+                } catch (LoginException e) {
+                    LOG.error("error refreshing navigation structure for page path = $pagePath", e)
+
+                    navigationNodes.remove(rootPath)
+                }
+            }
+        }
+    }
+
+    @Override
+    void remove(String pagePath) {
+        checkNotNull(pagePath)
+
+        invalidate(pagePath)
+
+        if (enabled) {
+            scheduleUpdate(pagePath) {
+                removePage(pagePath)
+            }
+        }
+    }
+
+    @Override
+    Logger getLogger() {
+        LOG
+    }
+
+    @Activate
+    @Override
+    protected void activate(ComponentContext componentContext, Map<String, Object> properties) {
+        def configuration = getConfiguration(properties)
+
+        def index = new PathKeyIndex<String>(ROOT_PATH_FUNCTION)
+
+        def builder = CacheBuilder.newBuilder()
+            .maximumSize(configuration.getAsLong(MAXIMUM_SIZE, DEFAULT_MAXIMUM_SIZE))
+            .removalListener(index)
+            .recordStats()
+
+        def expireAfterWrite = configuration.getAsLong(EXPIRE_AFTER_WRITE, DEFAULT_EXPIRE_AFTER_WRITE)
+
+        if (expireAfterWrite > 0) {
+            builder.expireAfterWrite(expireAfterWrite, TimeUnit.MINUTES)
+        }
+
+        navigationTrees = builder.build()
+        keyIndex = index
+        rootPaths = configuration.getAsList(ROOT_PATHS, []).findAll()
+        enabled = configuration.getAsBoolean(ENABLED, false)
+
+        if (enabled) {
+            executorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("bedrock-navigation-cache-%d")
+                .setDaemon(true)
+                .build())
+
+            rootPaths.each { rootPath -> scheduleLoad(rootPath) }
+        }
+    }
+
+    @Deactivate
+    @Override
+    protected void deactivate(ComponentContext componentContext, Map<String, Object> properties) {
+        enabled = false
+
+        executorService?.shutdownNow()
+
+        closeResourceResolver()
+
+        navigationNodes.clear()
+        navigationTrees.invalidateAll()
+    }
+
+    /**
+     * Load the structure for a site root in the background, unless a load is already pending.
+     */
+    private void scheduleLoad(String rootPath) {
+        if (loadingRootPaths.add(rootPath)) {
+            try {
+                executorService.execute({
+                    try {
+                        loadRoot(rootPath)
+                    } catch (LoginException | RuntimeException e) {
+                        LOG.error("error loading navigation structure for root path = $rootPath", e)
+                    } finally {
+                        loadingRootPaths.remove(rootPath)
+                    }
+                } as Runnable)
+            } catch (RejectedExecutionException e) {
+                loadingRootPaths.remove(rootPath)
+
+                LOG.debug("navigation cache service is deactivated, loading root path = {} is skipped", rootPath)
+            }
+        }
+    }
+
+    /**
+     * Update the structure for a replicated page in the background, after any pending loads and updates.
+     */
+    private void scheduleUpdate(String pagePath, Closure update) {
+        try {
+            executorService.execute({
+                try {
+                    update.call()
+                } catch (RuntimeException e) {
+                    LOG.error("error updating navigation structure for page path = $pagePath", e)
+                }
+            } as Runnable)
+        } catch (RejectedExecutionException e) {
+            LOG.debug("navigation cache service is deactivated, updating page path = {} is skipped", pagePath)
+        }
+    }
+
+    /**
+     * Structures are only loaded and updated on the background thread, so a structure is read outside of any lock
+     * and published when it is complete.
+     */
+    private NavigationNode loadRoot(String rootPath) {
+        def root = navigationNodes.get(rootPath)
+
+        if (!root) {
+            administrativeResourceResolver.refresh()
+
+            def page = administrativeResourceResolver.adaptTo(PageManager).getPage(rootPath)
+
+            if (page) {
+                root = load(page)
+
+                navigationNodes.put(rootPath, root)
+
+                LOG.debug("loaded navigation structure for root path = {}", rootPath)
+            }
+        }
+
+        root
+    }
+
+    private void refreshPage(String rootPath, String pagePath) {
+        def root = navigationNodes.get(rootPath)
+
+        if (root) {
+            administrativeResourceResolver.refresh()
+
+            def pageManager = administrativeResourceResolver.adaptTo(PageManager)
+            def page = pageManager.getPage(pagePath)
+
+            if (!page) {
+                removePage(pagePath)
+            } else if (pagePath == rootPath) {
+                navigationNodes.put(rootPath, load(page, root.children))
+            } else {
+                def parentPath = pagePath.substring(0, pagePath.lastIndexOf('/'))
+                def parentPage = pageManager.getPage(parentPath)
+
+                if (parentPage) {
+                    navigationNodes.put(rootPath, update(root, parentPath) { NavigationNode parent ->
+                        // rebuild the parent's children in repository order to pick up added and reordered pages
+                        def children = parentPage.listChildren().collect { Page child ->
+                            def existing = parent.children.find { it.path == child.path }
+
+                            if (child.path == pagePath) {
+                                existing ? load(child, existing.children) : load(child)
+                            } else {
+                                existing ?: load(child)
+                            }
+                        }
+
+                        parent.withChildren(children)
+                    })
+
+                    LOG.debug("refreshed navigation structure for page path = {}", pagePath)
+                }
+            }
+        }
+    }
+
+    private void removePage(String pagePath) {
+        rootPaths.findAll { rootPath -> isDescendantOrEqual(rootPath, pagePath) }.each { rootPath ->
+            navigationNodes.remove(rootPath)
+        }
+
+        def rootPath = getRootPath(pagePath)
+        def root = rootPath ? navigationNodes.get(rootPath) : null
+
+        if (root && rootPath != pagePath) {
+            def parentPath = pagePath.substring(0, pagePath.lastIndexOf('/'))
+
+            navigationNodes.put(rootPath, update(root, parentPath) { NavigationNode parent ->
+                parent.withChildren(parent.children.findAll { it.path != pagePath })
+            })
+
+            LOG.debug("removed page path = {} from navigation structure", pagePath)
+        }
+    }
+
+    private String getRootPath(String pagePath) {
+        rootPaths.find { rootPath -> isDescendantOrEqual(pagePath, rootPath) }
+    }
+
+    /**
+     * Copy the nodes from the given node to the node at the given path, replacing the node at the path with the
+     * result of the closure.  The structure is returned unchanged if the path is not in the structure.
+     */
+    private static NavigationNode update(NavigationNode node, String path, Closure<NavigationNode> closure) {
+        def result = node
+
+        if (node.path == path) {
+            result = closure.call(node)
+        } else {
+            def child = node.children.find { isDescendantOrEqual(path, it.path) }
+
+            if (child) {
+                def updatedChild = update(child, path, closure)
+
+                if (!updatedChild.is(child)) {
+                    result = node.withChildren(node.children.collect { it.is(child) ? updatedChild : it })
+                }
+            }
+        }
+
+        result
+    }
+
+    /**
+     * Copy the given structure to the given depth without the pages that are not readable by the resource resolver.
+     * The paths in the copied levels are collected first and checked in a single pass with the session of the
+     * resource resolver.  Nodes are shared with the given structure wherever nothing is removed.
+     */
+    private static Optional<NavigationNode> filter(ResourceResolver resourceResolver, NavigationNode node, int depth) {
+        def paths = []
+
+        collectPaths(node, depth, paths)
+
+        def readablePaths = getReadablePaths(resourceResolver, paths)
+
+        readablePaths.contains(node.path) ? Optional.of(copy(node, depth, readablePaths)) : Optional.absent()
+    }
+
+    private static void collectPaths(NavigationNode node, int depth, List<String> paths) {
+        paths.add(node.path)
+
+        if (depth > 0) {
+            node.children.each { child -> collectPaths(child, depth - 1, paths) }
+        }
+    }
+
+    private static Set<String> getReadablePaths(ResourceResolver resourceResolver, List<String> paths) {
+        def session = resourceResolver.adaptTo(Session)
+
+        def readablePaths = session ? paths.findAll { path -> session.nodeExists(path) } :
+            paths.findAll { path -> resourceResolver.getResource(path) }
+
+        readablePaths as Set<String>
+    }
+
+    private static NavigationNode copy(NavigationNode node, int depth, Set<String> readablePaths) {
+        def children = []
+
+        if (depth > 0) {
+            node.children.findAll { child -> readablePaths.contains(child.path) }.each { child ->
+                children.add(copy(child, depth - 1, readablePaths))
+            }
+        }
+
+        def unchanged = children.size() == node.children.size() && children.indices.every { i ->
+            children[i].is(node.children[i])
+        }
+
+        unchanged ? node : node.withChildren(children)
+    }
+
+    private static NavigationNode load(Page page) {
+        load(page, page.listChildren().collect { Page child -> load(child) })
+    }
+
+    private static NavigationNode load(Page page, List<NavigationNode> children) {
+        def properties = page.contentResource ? page.properties : ValueMap.EMPTY
+
+        new NavigationNode(page.path, properties.get(NameConstants.PN_TITLE, ""),
+            properties.get(NameConstants.PN_NAV_TITLE, String), properties.get(REDIRECT_TARGET, ""),
+            !page.contentResource || page.hideInNav, children)
+    }
+
+    private static boolean isDescendantOrEqual(String path, String ancestorPath) {
+        path == ancestorPath || path.startsWith(ancestorPath + "/")
+    }
+}
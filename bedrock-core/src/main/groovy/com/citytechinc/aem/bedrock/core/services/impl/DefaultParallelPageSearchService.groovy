@@ -0,0 +1,252 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.api.page.PageDecorator
+import com.citytechinc.aem.bedrock.api.page.PageManagerDecorator
+import com.citytechinc.aem.bedrock.core.adapter.DecoratorCache
+import com.citytechinc.aem.bedrock.core.services.OsgiConfiguration
+import com.citytechinc.aem.bedrock.core.services.ParallelPageSearchService
+import com.google.common.base.Predicate
+import com.google.common.base.Stopwatch
+import com.google.common.base.Throwables
+import groovy.transform.Immutable
+import groovy.util.logging.Slf4j
+import org.apache.felix.scr.annotations.Activate
+import org.apache.felix.scr.annotations.Component
+import org.apache.felix.scr.annotations.Deactivate
+import org.apache.felix.scr.annotations.Property
+import org.apache.felix.scr.annotations.Service
+import org.apache.sling.api.resource.LoginException
+import org.apache.sling.api.resource.ResourceResolver
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+import static com.google.common.base.Preconditions.checkNotNull
+import static java.util.concurrent.TimeUnit.MILLISECONDS
+
+@Component(immediate = true, metatype = true, label = "Bedrock Parallel Page Search Service",
+    description = "Searches page subtrees in parallel using a bounded fork-join pool.")
+@Service(ParallelPageSearchService)
+@Slf4j("LOG")
+class DefaultParallelPageSearchService implements ParallelPageSearchService {
+
+    private static final int DEFAULT_POOL_SIZE = 4
+
+    /** subtrees are split until there are at least this many segments per worker or the split depth is reached */
+    private static final int SEGMENTS_PER_WORKER = 4
+
+    private static final int MAX_SPLIT_DEPTH = 4
+
+    @Property(label = "Pool Size", description = "Maximum number of concurrent search workers.", intValue = 4)
+    static final String POOL_SIZE = "poolSize"
+
+    private volatile ForkJoinPool pool
+
+    @Override
+    List<PageDecorator> findPages(ResourceResolver resourceResolver, String rootPath,
+        Predicate<PageDecorator> predicate) {
+        checkNotNull(resourceResolver)
+        checkNotNull(predicate)
+
+        def pageManager = resourceResolver.adaptTo(PageManagerDecorator)
+        def root = pageManager.getPage(checkNotNull(rootPath))
+
+        def stopwatch = Stopwatch.createStarted()
+
+        def pages = []
+
+        if (root) {
+            def segments = split(pageManager, root)
+            def workerResourceResolvers = cloneResourceResolvers(resourceResolver,
+                Math.min(pool.parallelism, segments.size()))
+
+            if (workerResourceResolvers == null) {
+                LOG.warn("unable to clone resource resolver, searching root path = {} sequentially", rootPath)
+
+                pages = pageManager.findPages(rootPath, predicate)
+            } else {
+                LOG.debug("searching {} segment(s) with {} worker(s) under root path = {}", segments.size(),
+                    workerResourceResolvers.size(), rootPath)
+
+                def nextSegment = new AtomicInteger()
+                def results = new AtomicReferenceArray<List<String>>(segments.size())
+
+                def tasks = workerResourceResolvers.collect { workerResourceResolver ->
+                    new SegmentSearch(workerResourceResolver, segments, nextSegment, results, predicate)
+                }
+
+                try {
+                    pool.invokeAll(tasks).each { future -> future.get() }
+                } catch (ExecutionException e) {
+                    throw Throwables.propagate(e.cause)
+                } finally {
+                    workerResourceResolvers.each { workerResourceResolver ->
+                        DecoratorCache.invalidate(workerResourceResolver)
+
+                        workerResourceResolver.close()
+                    }
+                }
+
+                // segment results are in document order
+                segments.size().times { i ->
+                    results.get(i).each { path ->
+                        def page = pageManager.getPage(path)
+
+                        if (page) {
+                            pages.add(page)
+                        }
+                    }
+                }
+            }
+        }
+
+        stopwatch.stop()
+
+        LOG.debug("found {} result(s) in {}ms", pages.size(), stopwatch.elapsed(MILLISECONDS))
+
+        pages
+    }
+
+    @Activate
+    void activate(Map<String, Object> properties) {
+        def poolSize = new OsgiConfiguration(properties).getAsInteger(POOL_SIZE, DEFAULT_POOL_SIZE)
+
+        pool = new ForkJoinPool(Math.max(poolSize, 1))
+    }
+
+    @Deactivate
+    void deactivate() {
+        pool?.shutdownNow()
+    }
+
+    /**
+     * Clone the resource resolver for each worker on the calling thread, since resolvers may not be cloned or used
+     * concurrently.
+     *
+     * @return cloned resolvers or null if the resolver cannot be cloned
+     */
+    private static List<ResourceResolver> cloneResourceResolvers(ResourceResolver resourceResolver, int count) {
+        def workerResourceResolvers = []
+
+        try {
+            count.times {
+                workerResourceResolvers.add(resourceResolver.clone(null))
+            }
+        } catch (LoginException | UnsupportedOperationException e) {
+            LOG.debug("error cloning resource resolver", e)
+
+            workerResourceResolvers.each { workerResourceResolver -> workerResourceResolver.close() }
+            workerResourceResolvers = null
+        }
+
+        workerResourceResolvers
+    }
+
+    /**
+     * Split the descendants of the root page into segments in document order.  Deep segments are replaced by the
+     * segment page itself followed by a deep segment for each child page until there are enough segments to keep the
+     * pool busy, so narrow trees (e.g. a site root with a single language page) are still searched in parallel.
+     */
+    private List<Segment> split(PageManagerDecorator pageManager, PageDecorator root) {
+        def target = pool.parallelism * SEGMENTS_PER_WORKER
+
+        List<Segment> segments = root.listChildren().collect { child -> new Segment(child.path, true) }
+
+        def depth = 1
+
+        while (segments.size() < target && depth < MAX_SPLIT_DEPTH && segments.any { segment -> segment.deep }) {
+            segments = segments.collectMany { segment ->
+                def expanded = [segment]
+
+                if (segment.deep) {
+                    def page = pageManager.getPage(segment.path)
+
+                    expanded = [new Segment(segment.path, false)]
+
+                    page?.listChildren()?.each { child ->
+                        expanded.add(new Segment(child.path, true))
+                    }
+                }
+
+                expanded
+            }
+
+            depth++
+        }
+
+        segments
+    }
+
+    /**
+     * Page to search, including all of its descendants if the segment is deep.
+     */
+    @Immutable
+    private static class Segment {
+
+        String path
+
+        boolean deep
+    }
+
+    /**
+     * Search segments with the cloned resource resolver of a single worker, taking the next unsearched segment until
+     * all segments are searched and storing the paths of matching pages by segment index.
+     */
+    private static class SegmentSearch implements Callable<Void> {
+
+        private final ResourceResolver workerResourceResolver
+
+        private final List<Segment> segments
+
+        private final AtomicInteger nextSegment
+
+        private final AtomicReferenceArray<List<String>> results
+
+        private final Predicate<PageDecorator> predicate
+
+        SegmentSearch(ResourceResolver workerResourceResolver, List<Segment> segments, AtomicInteger nextSegment,
+            AtomicReferenceArray<List<String>> results, Predicate<PageDecorator> predicate) {
+            this.workerResourceResolver = workerResourceResolver
+            this.segments = segments
+            this.nextSegment = nextSegment
+            this.results = results
+            this.predicate = predicate
+        }
+
+        @Override
+        Void call() {
+            def pageManager = workerResourceResolver.adaptTo(PageManagerDecorator)
+            def index = nextSegment.getAndIncrement()
+
+            while (index < segments.size()) {
+                results.set(index, search(pageManager, segments[index]))
+
+                index = nextSegment.getAndIncrement()
+            }
+
+            null
+        }
+
+        private List<String> search(PageManagerDecorator pageManager, Segment segment) {
+            def paths = []
+            def page = pageManager.getPage(segment.path)
+
+            if (page) {
+                if (predicate.apply(page)) {
+                    paths.add(page.path)
+                }
+
+                if (segment.deep) {
+                    page.iterateDescendants(predicate).each { descendant ->
+                        paths.add(descendant.path)
+                    }
+                }
+            }
+
+            paths
+        }
+    }
+}
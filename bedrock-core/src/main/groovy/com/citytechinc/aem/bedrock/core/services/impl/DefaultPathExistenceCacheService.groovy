@@ -0,0 +1,260 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.services.AbstractObservationService
+import com.citytechinc.aem.bedrock.core.services.cache.CacheService
+import com.citytechinc.aem.bedrock.core.services.cache.CacheServiceTrait
+import com.citytechinc.aem.bedrock.core.services.cache.PathExistenceCacheService
+import com.citytechinc.aem.bedrock.core.services.cache.PathKeyIndex
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import groovy.util.logging.Slf4j
+import org.apache.felix.scr.annotations.Activate
+import org.apache.felix.scr.annotations.Component
+import org.apache.felix.scr.annotations.Deactivate
+import org.apache.felix.scr.annotations.Property
+import org.apache.felix.scr.annotations.PropertyUnbounded
+import org.apache.felix.scr.annotations.Service
+import org.apache.sling.api.resource.ResourceResolver
+import org.osgi.service.component.ComponentContext
+import org.slf4j.Logger
+
+import javax.jcr.RepositoryException
+import javax.jcr.observation.Event
+import javax.jcr.observation.EventIterator
+import javax.jcr.observation.EventListener
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+import static com.citytechinc.aem.bedrock.core.constants.PathConstants.PATH_CONTENT
+import static com.google.common.base.Preconditions.checkNotNull
+import static org.apache.sling.api.resource.Resource.RESOURCE_TYPE_NON_EXISTING
+
+/**
+ * Path existence cache that is invalidated by JCR observation events for the configured root paths.  Observation is
+ * registered only while the cache is enabled.  Cached results are indexed by both the requested path and the path it
+ * resolved to, with and without selectors and extension, so that adding or removing a node invalidates the results
+ * for mapped paths that resolve to it, without scanning every cached path.
+ */
+@Component(immediate = true, metatype = true, label = "Bedrock Path Existence Cache Service",
+    description = "Cross-request cache for the existence of resources referenced by strict links.")
+@Service([PathExistenceCacheService, CacheService])
+@Slf4j("LOG")
+class DefaultPathExistenceCacheService extends AbstractObservationService implements PathExistenceCacheService,
+    CacheServiceTrait {
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 10000L
+
+    private static final long DEFAULT_EXPIRE_AFTER_WRITE = 60L
+
+    @Property(label = "Enabled?", description = "Enable caching of path existence.", boolValue = false)
+    static final String ENABLED = "enabled"
+
+    @Property(label = "Maximum Size", description = "Maximum number of cached paths.", longValue = 10000L)
+    static final String MAXIMUM_SIZE = "maximumSize"
+
+    @Property(label = "Expire After Write",
+        description = "Minutes until a cached path expires regardless of content changes, 0 to disable.",
+        longValue = 60L)
+    static final String EXPIRE_AFTER_WRITE = "expireAfterWrite"
+
+    @Property(label = "Root Paths", description = "Root paths observed for added and removed nodes.",
+        value = [PATH_CONTENT, "/etc"], unbounded = PropertyUnbounded.ARRAY)
+    static final String ROOT_PATHS = "rootPaths"
+
+    /** keyed by path and resolver user ID */
+    private volatile Cache<String, Boolean> existingPaths = CacheBuilder.newBuilder().maximumSize(0).build()
+
+    /** cached keys by requested and resolved path */
+    private volatile PathKeyIndex<String> keyIndex = new PathKeyIndex<String>()
+
+    private volatile boolean enabled
+
+    /** incremented for each invalidation, so that a path resolved concurrently with an invalidation is not cached */
+    private final AtomicLong generation = new AtomicLong()
+
+    @Override
+    boolean isEnabled() {
+        enabled
+    }
+
+    @Override
+    boolean exists(ResourceResolver resourceResolver, String path) {
+        checkNotNull(resourceResolver)
+        checkNotNull(path)
+
+        def exists
+
+        if (enabled) {
+            def key = new StringBuilder(path).append('|').append(resourceResolver.userID ?: "").toString()
+
+            def cache = existingPaths
+
+            exists = cache.getIfPresent(key)
+
+            if (exists == null) {
+                def loadGeneration = generation.get()
+                def resource = resourceResolver.resolve(path)
+
+                exists = RESOURCE_TYPE_NON_EXISTING != resource.resourceType
+
+                // returned to this caller but not cached if a node was added or removed while resolving
+                if (generation.get() == loadGeneration) {
+                    cache.put(key, exists)
+                    keyIndex.add(key, getIndexedPaths(path, resource.path))
+
+                    // an invalidation that started before the key was indexed may have missed it
+                    if (generation.get() != loadGeneration) {
+                        cache.invalidate(key)
+                    }
+                }
+            }
+        } else {
+            exists = RESOURCE_TYPE_NON_EXISTING != resourceResolver.resolve(path).resourceType
+        }
+
+        exists
+    }
+
+    @Override
+    void invalidate(String path) {
+        invalidate([checkNotNull(path)])
+    }
+
+    /**
+     * Discard cached results for the given paths and their descendants.
+     *
+     * @param paths added or removed node paths
+     */
+    void invalidate(Collection<String> paths) {
+        generation.incrementAndGet()
+
+        def index = keyIndex
+        def keys = new HashSet<String>()
+
+        paths.each { path ->
+            keys.addAll(index.getDescendantsOrEqual(path))
+        }
+
+        if (keys) {
+            LOG.debug("invalidating {} cached path(s) for {} path(s)", keys.size(), paths.size())
+
+            existingPaths.invalidateAll(keys)
+        }
+    }
+
+    @Override
+    boolean clearAllCaches() {
+        generation.incrementAndGet()
+
+        CacheServiceTrait.super.clearAllCaches()
+    }
+
+    @Override
+    Logger getLogger() {
+        LOG
+    }
+
+    @Activate
+    @Override
+    protected void activate(ComponentContext componentContext, Map<String, Object> properties) {
+        def configuration = getConfiguration(properties)
+
+        def index = new PathKeyIndex<String>()
+
+        def builder = CacheBuilder.newBuilder()
+            .maximumSize(configuration.getAsLong(MAXIMUM_SIZE, DEFAULT_MAXIMUM_SIZE))
+            .removalListener(index)
+            .recordStats()
+
+        def expireAfterWrite = configuration.getAsLong(EXPIRE_AFTER_WRITE, DEFAULT_EXPIRE_AFTER_WRITE)
+
+        if (expireAfterWrite > 0) {
+            builder.expireAfterWrite(expireAfterWrite, TimeUnit.MINUTES)
+        }
+
+        existingPaths = builder.build()
+        keyIndex = index
+        enabled = configuration.getAsBoolean(ENABLED, false)
+
+        if (enabled) {
+            try {
+                configuration.getAsList(ROOT_PATHS, [PATH_CONTENT, "/etc"]).findAll().each { rootPath ->
+                    addEventListener(new PathExistenceEventListener(this), CONTENT_EVENT_TYPES, rootPath)
+                }
+            } catch (RepositoryException e) {
+                LOG.error("error registering path existence event listeners, caching is disabled", e)
+
+                enabled = false
+            }
+        }
+    }
+
+    @Deactivate
+    @Override
+    protected void deactivate(ComponentContext componentContext, Map<String, Object> properties) {
+        enabled = false
+
+        removeEventListeners()
+
+        existingPaths.invalidateAll()
+    }
+
+    /**
+     * Get the paths that a cached result depends on, i.e. the requested and resolved paths with and without the
+     * selectors and extension of their last segment.  The resolved path of a non-existing resource is the path it
+     * would have after mapping.
+     */
+    private static Set<String> getIndexedPaths(String path, String resolvedPath) {
+        [path, resolvedPath].findAll().collectMany { indexedPath ->
+            def dot = indexedPath.indexOf('.', indexedPath.lastIndexOf('/') + 1)
+
+            dot > indexedPath.lastIndexOf('/') + 1 ? [indexedPath, indexedPath.substring(0, dot)] : [indexedPath]
+        } as Set
+    }
+
+    /**
+     * Invalidates cached paths once for each batch of events, for the distinct paths of the added and removed nodes,
+     * and all cached paths if the mapping configuration or a mapping property changes.  Other property changes do not
+     * affect existence and are ignored.
+     */
+    @Slf4j("LOG")
+    static class PathExistenceEventListener implements EventListener {
+
+        private final DefaultPathExistenceCacheService cacheService
+
+        PathExistenceEventListener(DefaultPathExistenceCacheService cacheService) {
+            this.cacheService = cacheService
+        }
+
+        @Override
+        void onEvent(EventIterator events) {
+            def paths = [] as Set<String>
+            def invalidateAll = false
+
+            while (events.hasNext() && !invalidateAll) {
+                try {
+                    def event = events.nextEvent()
+                    def path = event.path
+
+                    if (AbstractObservationService.isMappingPath(path)) {
+                        invalidateAll = true
+                    } else if (event.type == Event.NODE_ADDED || event.type == Event.NODE_REMOVED) {
+                        paths.add(path)
+                    } else {
+                        invalidateAll = AbstractObservationService.isMappingProperty(path)
+                    }
+                } catch (RepositoryException e) {
+                    LOG.error("error processing path existence event", e)
+                }
+            }
+
+            if (invalidateAll) {
+                LOG.debug("mapping changed, invalidating all cached paths")
+
+                cacheService.clearAllCaches()
+            } else if (paths) {
+                cacheService.invalidate(paths)
+            }
+        }
+    }
+}
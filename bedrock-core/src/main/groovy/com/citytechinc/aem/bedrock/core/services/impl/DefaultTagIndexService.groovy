@@ -0,0 +1,500 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.services.AbstractObservationService
+import com.citytechinc.aem.bedrock.core.services.cache.CacheService
+import com.citytechinc.aem.bedrock.core.services.cache.CacheServiceTrait
+import com.citytechinc.aem.bedrock.core.services.cache.TagIndexService
+import com.day.cq.commons.jcr.JcrConstants
+import com.day.cq.tagging.TagConstants
+import com.day.cq.tagging.TagManager
+import com.day.cq.wcm.api.Page
+import com.google.common.base.Optional
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import groovy.util.logging.Slf4j
+import org.apache.felix.scr.annotations.Activate
+import org.apache.felix.scr.annotations.Component
+import org.apache.felix.scr.annotations.Deactivate
+import org.apache.felix.scr.annotations.Property
+import org.apache.felix.scr.annotations.PropertyUnbounded
+import org.apache.felix.scr.annotations.Service
+import org.apache.sling.api.resource.LoginException
+import org.apache.sling.api.resource.Resource
+import org.apache.sling.api.resource.ResourceResolver
+import org.osgi.service.component.ComponentContext
+import org.slf4j.Logger
+
+import javax.jcr.RepositoryException
+import javax.jcr.observation.Event
+import javax.jcr.observation.EventIterator
+import javax.jcr.observation.EventListener
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentNavigableMap
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+import static com.citytechinc.aem.bedrock.core.constants.PathConstants.PATH_CONTENT
+import static com.citytechinc.aem.bedrock.core.constants.PathConstants.PATH_JCR_CONTENT
+import static com.google.common.base.Preconditions.checkNotNull
+
+/**
+ * Tag index that is built with an administrative resource resolver in a background thread when the service is
+ * activated.  The build walks the resource tree of each root path, including folders, and indexes every page it
+ * finds.  The built index replaces the current one in a single step, and queries for a root path are not answered
+ * from the index until that root path has been walked.  Changes to the <code>cq:tags</code> property of a page content
+ * node update the tags of a single page, while added and removed nodes (including moves) re-index or discard the
+ * affected subtree.  Changes observed while the index is built are re-applied once it is published.  Query snapshots
+ * are rebuilt from the current page tags on the first query after a change.
+ */
+@Component(immediate = true, metatype = true, label = "Bedrock Tag Index Service",
+    description = "In-memory index of page tags used to find tagged pages without querying the repository.")
+@Service([TagIndexService, CacheService])
+@Slf4j("LOG")
+class DefaultTagIndexService extends AbstractObservationService implements TagIndexService, CacheServiceTrait {
+
+    private static final String PATH_TAGS = PATH_JCR_CONTENT + "/" + TagConstants.PN_TAGS
+
+    private static final int STRUCTURE_EVENT_TYPES = Event.NODE_ADDED | Event.NODE_REMOVED
+
+    @Property(label = "Enabled?", description = "Enable indexing of page tags.", boolValue = false)
+    static final String ENABLED = "enabled"
+
+    @Property(label = "Root Paths", description = "Content root paths to index.", value = PATH_CONTENT,
+        unbounded = PropertyUnbounded.ARRAY)
+    static final String ROOT_PATHS = "rootPaths"
+
+    /** canonical tag IDs of tagged pages, keyed by page path, replaced when the index is built */
+    private volatile ConcurrentNavigableMap<String, Set<String>> pageTags = new ConcurrentSkipListMap<>()
+
+    /** query snapshots keyed by root path */
+    private final Cache<String, TagIndex> tagIndexes = CacheBuilder.newBuilder().recordStats().build()
+
+    private final AtomicLong modificationCount = new AtomicLong()
+
+    private volatile boolean enabled
+
+    /** root paths that have been walked, the index only answers queries below these paths */
+    private volatile Set<String> indexedRootPaths = []
+
+    /** paths changed while the index is built, guarded by this, null if no build is in progress */
+    private Set<String> changedPaths
+
+    private volatile List<String> rootPaths = []
+
+    private ExecutorService executor
+
+    private Future<?> indexing
+
+    @Override
+    boolean isEnabled() {
+        enabled
+    }
+
+    @Override
+    Optional<List<String>> findPagePaths(String rootPath, Collection<String> tagIds, boolean matchOne) {
+        checkNotNull(rootPath)
+        checkNotNull(tagIds)
+
+        def indexedRootPath = enabled ? getIndexedRootPath(rootPath) : null
+
+        def result
+
+        if (indexedRootPath) {
+            def tagIndex = getTagIndex(indexedRootPath)
+
+            result = Optional.of(tagIndex.find(rootPath, tagIds, matchOne))
+        } else {
+            result = Optional.absent()
+        }
+
+        result
+    }
+
+    @Override
+    Logger getLogger() {
+        LOG
+    }
+
+    @Activate
+    @Override
+    protected void activate(ComponentContext componentContext, Map<String, Object> properties) {
+        def configuration = getConfiguration(properties)
+
+        rootPaths = configuration.getAsList(ROOT_PATHS, [PATH_CONTENT]).findAll()
+        enabled = configuration.getAsBoolean(ENABLED, false)
+
+        if (enabled) {
+            try {
+                // changes made while the index is built are applied after the build by the synchronized updates
+                registerListeners()
+
+                executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("bedrock-tag-index-%d")
+                    .setDaemon(true)
+                    .build())
+
+                indexing = executor.submit({ buildIndex() } as Runnable)
+            } catch (RepositoryException e) {
+                LOG.error("error registering tag index event listeners, indexing is disabled", e)
+
+                enabled = false
+            }
+        }
+    }
+
+    @Deactivate
+    @Override
+    protected void deactivate(ComponentContext componentContext, Map<String, Object> properties) {
+        enabled = false
+        indexedRootPaths = []
+
+        if (executor) {
+            // the build stops at the next page once the service is disabled
+            executor.shutdown()
+
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS)
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt()
+            }
+
+            executor = null
+            indexing = null
+        }
+
+        removeEventListeners()
+        closeResourceResolver()
+
+        pageTags.clear()
+        tagIndexes.invalidateAll()
+    }
+
+    /**
+     * Update the indexed tags for a single page.
+     *
+     * @param pagePath page path
+     */
+    synchronized void indexPage(String pagePath) {
+        recordChange(pagePath)
+
+        administrativeResourceResolver.refresh()
+
+        def page = administrativeResourceResolver.getResource(pagePath)?.adaptTo(Page)
+
+        if (page) {
+            updatePage(page, administrativeResourceResolver.adaptTo(TagManager))
+        } else {
+            removePage(pagePath)
+        }
+    }
+
+    /**
+     * Index the pages at or below a path, e.g. after a page or folder is created or moved.
+     *
+     * @param path subtree root path
+     */
+    synchronized void indexSubtree(String path) {
+        recordChange(path)
+
+        administrativeResourceResolver.refresh()
+
+        def resource = administrativeResourceResolver.getResource(path)
+
+        if (resource) {
+            def tagManager = administrativeResourceResolver.adaptTo(TagManager)
+
+            eachPage(resource) { Page page ->
+                updatePage(page, tagManager)
+            }
+
+            LOG.debug("indexed subtree for path = {}, index size = {}", path, pageTags.size())
+        }
+    }
+
+    /**
+     * Discard the indexed tags for a page, e.g. after its content node is removed.
+     *
+     * @param pagePath page path
+     */
+    synchronized void removePage(String pagePath) {
+        recordChange(pagePath)
+
+        if (pageTags.remove(pagePath) != null) {
+            invalidateRootPath(pagePath)
+        }
+    }
+
+    /**
+     * Discard the indexed tags for a page and all of its descendants, e.g. after a page is deleted or moved.
+     *
+     * @param path subtree root path
+     */
+    synchronized void removeSubtree(String path) {
+        recordChange(path)
+
+        def currentPageTags = pageTags
+        def prefix = path + "/"
+        def paths = currentPageTags.subMap(path, true, prefix + Character.MAX_VALUE, false).keySet().findAll {
+            pagePath -> pagePath == path || pagePath.startsWith(prefix)
+        }
+
+        if (paths) {
+            LOG.debug("removing {} indexed page(s) for path = {}", paths.size(), path)
+
+            currentPageTags.keySet().removeAll(paths)
+
+            invalidateRootPath(path)
+        }
+    }
+
+    /**
+     * Build the index into a new map with a separate resolver, without holding the monitor that observation updates
+     * are applied under, and publish it once every root path has been walked.
+     */
+    private void buildIndex() {
+        ResourceResolver buildResourceResolver = null
+
+        try {
+            synchronized (this) {
+                changedPaths = new LinkedHashSet<String>()
+            }
+
+            buildResourceResolver = resourceResolverFactory.getAdministrativeResourceResolver(null)
+
+            def tagManager = buildResourceResolver.adaptTo(TagManager)
+            def builtPageTags = new ConcurrentSkipListMap<String, Set<String>>()
+            def walkedRootPaths = [] as Set<String>
+
+            rootPaths.each { rootPath ->
+                def root = buildResourceResolver.getResource(rootPath)
+
+                if (root) {
+                    eachPage(root) { Page page ->
+                        def tagIds = getTagIds(page, tagManager)
+
+                        if (tagIds) {
+                            builtPageTags.put(page.path, tagIds)
+                        }
+                    }
+
+                    walkedRootPaths.add(rootPath)
+                } else {
+                    LOG.warn("tag index root path = {} does not exist and is not indexed", rootPath)
+                }
+            }
+
+            if (enabled) {
+                publish(builtPageTags, walkedRootPaths)
+            }
+        } catch (LoginException | RuntimeException e) {
+            LOG.error("error building tag index, indexing is disabled", e)
+
+            enabled = false
+        } finally {
+            synchronized (this) {
+                changedPaths = null
+            }
+
+            buildResourceResolver?.close()
+        }
+    }
+
+    /**
+     * Replace the current index with a built index and re-apply the changes that were observed during the build.
+     */
+    private synchronized void publish(ConcurrentNavigableMap<String, Set<String>> builtPageTags,
+        Set<String> walkedRootPaths) {
+        def paths = changedPaths
+
+        changedPaths = null
+        pageTags = builtPageTags
+
+        paths.each { path ->
+            // the current state of the subtree is re-read, so the order of the changes does not matter
+            removeSubtree(path)
+            indexSubtree(path)
+        }
+
+        modificationCount.incrementAndGet()
+        tagIndexes.invalidateAll()
+
+        indexedRootPaths = walkedRootPaths
+
+        LOG.info("indexed root paths = {}, re-applied {} change(s), index size = {}", walkedRootPaths, paths.size(),
+            builtPageTags.size())
+    }
+
+    private void recordChange(String path) {
+        changedPaths?.add(path)
+    }
+
+    /**
+     * Call the closure for each page at or below the given resource, descending through folders and other non-page
+     * resources but not into page content.  The walk stops if the service is disabled.
+     */
+    private void eachPage(Resource resource, Closure closure) {
+        def resources = new ArrayDeque<Resource>()
+
+        resources.push(resource)
+
+        while (enabled && !resources.empty) {
+            def current = resources.pop()
+            def page = current.adaptTo(Page)
+
+            if (page) {
+                closure.call(page)
+            }
+
+            current.listChildren().each { child ->
+                if (child.name != JcrConstants.JCR_CONTENT) {
+                    resources.push(child)
+                }
+            }
+        }
+    }
+
+    private void updatePage(Page page, TagManager tagManager) {
+        def tagIds = getTagIds(page, tagManager)
+
+        def changed
+
+        if (tagIds) {
+            changed = pageTags.put(page.path, tagIds) != tagIds
+        } else {
+            changed = pageTags.remove(page.path) != null
+        }
+
+        if (changed) {
+            invalidateRootPath(page.path)
+        }
+    }
+
+    private static Set<String> getTagIds(Page page, TagManager tagManager) {
+        page.properties.get(TagConstants.PN_TAGS, new String[0]).collect { tagId ->
+            tagManager?.resolve(tagId)?.tagID ?: tagId
+        } as Set<String>
+    }
+
+    private String getIndexedRootPath(String path) {
+        indexedRootPaths.find { rootPath -> path == rootPath || path.startsWith(rootPath + "/") }
+    }
+
+    private void invalidateRootPath(String path) {
+        modificationCount.incrementAndGet()
+
+        rootPaths.findAll { rootPath -> path == rootPath || path.startsWith(rootPath + "/") }.each { rootPath ->
+            tagIndexes.invalidate(rootPath)
+        }
+    }
+
+    private TagIndex getTagIndex(String rootPath) {
+        def tagIndex = tagIndexes.get(rootPath, { createTagIndex(rootPath) } as Callable<TagIndex>)
+
+        // a snapshot created concurrently with an update may have been cached after the update invalidated it
+        if (tagIndex.modificationCount != modificationCount.get()) {
+            tagIndexes.invalidate(rootPath)
+
+            tagIndex = tagIndexes.get(rootPath, { createTagIndex(rootPath) } as Callable<TagIndex>)
+        }
+
+        tagIndex
+    }
+
+    private TagIndex createTagIndex(String rootPath) {
+        def count = modificationCount.get()
+        def currentPageTags = pageTags
+        def tagIndex = new TagIndex(currentPageTags.subMap(rootPath, true, rootPath + "/" + Character.MAX_VALUE, false),
+            count)
+
+        LOG.debug("created tag index for root path = {} with {} page(s)", rootPath, tagIndex.size)
+
+        tagIndex
+    }
+
+    private void registerListeners() {
+        rootPaths.each { rootPath ->
+            addEventListener(new TagIndexTagEventListener(this), PROPERTY_EVENT_TYPES, rootPath)
+            addEventListener(new TagIndexStructureEventListener(this), STRUCTURE_EVENT_TYPES, rootPath)
+        }
+    }
+
+    /**
+     * Re-indexes the tags of a page when the <code>cq:tags</code> property of its content node is added, changed, or
+     * removed, once per page for each batch of events.  Pages are handled regardless of template.
+     */
+    @Slf4j("LOG")
+    static class TagIndexTagEventListener implements EventListener {
+
+        private final DefaultTagIndexService tagIndexService
+
+        TagIndexTagEventListener(DefaultTagIndexService tagIndexService) {
+            this.tagIndexService = tagIndexService
+        }
+
+        @Override
+        void onEvent(EventIterator events) {
+            def pagePaths = [] as LinkedHashSet<String>
+
+            while (events.hasNext()) {
+                try {
+                    def path = events.nextEvent().path
+
+                    if (path.endsWith(PATH_TAGS)) {
+                        pagePaths.add(path.substring(0, path.length() - PATH_TAGS.length()))
+                    }
+                } catch (RepositoryException e) {
+                    LOG.error("error getting tag event path", e)
+                }
+            }
+
+            pagePaths.each { pagePath ->
+                tagIndexService.indexPage(pagePath)
+            }
+        }
+    }
+
+    /**
+     * Re-indexes or discards page subtrees when page nodes are added or removed.  Moves are reported as a removal of
+     * the source path and an addition of the destination path.
+     */
+    @Slf4j("LOG")
+    static class TagIndexStructureEventListener implements EventListener {
+
+        private final DefaultTagIndexService tagIndexService
+
+        TagIndexStructureEventListener(DefaultTagIndexService tagIndexService) {
+            this.tagIndexService = tagIndexService
+        }
+
+        @Override
+        void onEvent(EventIterator events) {
+            while (events.hasNext()) {
+                def event = events.nextEvent()
+
+                try {
+                    def path = event.path
+
+                    if (path.endsWith(PATH_JCR_CONTENT)) {
+                        // tags of added content nodes are reported as property events
+                        if (event.type == Event.NODE_REMOVED) {
+                            tagIndexService.removePage(path.substring(0, path.length() - PATH_JCR_CONTENT.length()))
+                        }
+                    } else if (!path.contains(PATH_JCR_CONTENT + "/")) {
+                        if (event.type == Event.NODE_REMOVED) {
+                            tagIndexService.removeSubtree(path)
+                        } else {
+                            tagIndexService.indexSubtree(path)
+                        }
+                    }
+                } catch (RepositoryException e) {
+                    LOG.error("error processing tag index event", e)
+                }
+            }
+        }
+    }
+}
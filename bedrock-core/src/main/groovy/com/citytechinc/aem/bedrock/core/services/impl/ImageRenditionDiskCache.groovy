@@ -0,0 +1,256 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.services.cache.ImageRendition
+import com.citytechinc.aem.bedrock.core.services.cache.PathKeyIndex
+import com.google.common.hash.Hashing
+import com.google.common.io.Files
+import groovy.util.logging.Slf4j
+
+import java.nio.charset.StandardCharsets
+import java.util.regex.Pattern
+
+/**
+ * Size-bounded LRU cache of encoded renditions in a local directory.  The index of cached files is only kept in
+ * memory, so the rendition files left in the directory by a previous instance are deleted when the cache is created.
+ * Other files in the directory are left alone.  Keys are also indexed by rendition path, so that invalidation does not
+ * scan every cached rendition.
+ */
+@Slf4j("LOG")
+final class ImageRenditionDiskCache {
+
+    /** rendition files are named by the SHA-1 hash of their key, temporary files add a number and extension */
+    private static final Pattern RENDITION_FILE_NAME = ~/[0-9a-f]{40}(-?[0-9]+\.tmp)?/
+
+    private final File directory
+
+    private final long maximumSize
+
+    /** in access order, guarded by this */
+    private final LinkedHashMap<String, DiskEntry> entries = new LinkedHashMap<>(16, 0.75f, true)
+
+    /** rendition keys by image and asset path, updated while holding this */
+    private final PathKeyIndex<String> keyIndex = new PathKeyIndex<String>()
+
+    /** total size of cached files, guarded by this */
+    private long size
+
+    /**
+     * @param directory cache directory
+     * @param maximumSize maximum total size of cached files in bytes
+     */
+    ImageRenditionDiskCache(File directory, long maximumSize) {
+        this.directory = directory
+        this.maximumSize = maximumSize
+
+        directory.mkdirs()
+        directory.listFiles()?.each { file ->
+            if (file.file && RENDITION_FILE_NAME.matcher(file.name).matches()) {
+                file.delete()
+            }
+        }
+    }
+
+    /**
+     * @param key rendition key
+     * @return cached rendition or null if the rendition is not cached
+     */
+    ImageRendition get(String key) {
+        def entry
+
+        synchronized (this) {
+            entry = entries.get(key)
+        }
+
+        def rendition = null
+
+        if (entry) {
+            try {
+                rendition = new ImageRendition(entry.mimeType, Files.toByteArray(entry.file), entry.paths)
+            } catch (IOException e) {
+                LOG.warn("error reading cached rendition file = {}, discarding rendition", entry.file.path)
+
+                def removed
+
+                synchronized (this) {
+                    // the rendition may have been replaced while reading
+                    removed = entries.get(key).is(entry) && remove(key)
+                }
+
+                if (removed) {
+                    entry.file.delete()
+                }
+            }
+        }
+
+        rendition
+    }
+
+    /**
+     * Write a rendition to the cache directory, evicting the least recently used renditions if the maximum size is
+     * exceeded.  Renditions larger than the maximum size are not cached.
+     *
+     * @param key rendition key
+     * @param rendition encoded rendition
+     */
+    void put(String key, ImageRendition rendition) {
+        if (rendition.length <= maximumSize) {
+            def file = new File(directory, Hashing.sha1().hashBytes(key.getBytes(StandardCharsets.UTF_8)).toString())
+            def temporaryFile = null
+
+            try {
+                temporaryFile = File.createTempFile(file.name, ".tmp", directory)
+
+                temporaryFile.withOutputStream { outputStream ->
+                    rendition.writeTo(outputStream)
+                }
+
+                def evicted = []
+
+                synchronized (this) {
+                    if (!temporaryFile.renameTo(file)) {
+                        throw new IOException("unable to rename temporary file to $file.path")
+                    }
+
+                    def previous = entries.put(key, new DiskEntry(file, rendition))
+
+                    size += rendition.length - (previous ? previous.length : 0)
+
+                    keyIndex.add(key, rendition.paths)
+
+                    def iterator = entries.entrySet().iterator()
+
+                    while (size > maximumSize && iterator.hasNext()) {
+                        def entry = iterator.next()
+
+                        iterator.remove()
+                        keyIndex.remove(entry.key)
+                        size -= entry.value.length
+                        evicted.add(entry.value.file)
+                    }
+                }
+
+                evicted.each { evictedFile ->
+                    evictedFile.delete()
+                }
+            } catch (IOException e) {
+                LOG.warn("error writing rendition to disk cache for key = {}", key, e)
+
+                temporaryFile?.delete()
+            }
+        }
+    }
+
+    /**
+     * Discard all renditions that depend on the content at the given path.
+     *
+     * @param path changed content path
+     * @return number of discarded renditions
+     */
+    int invalidate(String path) {
+        invalidate([path])
+    }
+
+    /**
+     * Discard all renditions that depend on the content at any of the given paths.
+     *
+     * @param paths changed content paths
+     * @return number of discarded renditions
+     */
+    int invalidate(Collection<String> paths) {
+        def removed = []
+
+        synchronized (this) {
+            def keys = new HashSet<String>()
+
+            paths.each { path ->
+                keys.addAll(keyIndex.getRelated(path))
+            }
+
+            keys.each { key ->
+                def entry = remove(key)
+
+                if (entry) {
+                    removed.add(entry.file)
+                }
+            }
+        }
+
+        removed.each { file ->
+            file.delete()
+        }
+
+        removed.size()
+    }
+
+    /**
+     * Discard all renditions.
+     */
+    void clear() {
+        def removed
+
+        synchronized (this) {
+            removed = entries.values()*.file
+
+            entries.keySet().collect().each { key ->
+                keyIndex.remove(key)
+            }
+
+            entries.clear()
+            size = 0
+        }
+
+        removed.each { file ->
+            file.delete()
+        }
+    }
+
+    /**
+     * @return number of cached renditions
+     */
+    synchronized int getCount() {
+        entries.size()
+    }
+
+    /**
+     * @return total size of cached renditions in bytes
+     */
+    synchronized long getSize() {
+        size
+    }
+
+    /**
+     * Remove an entry from the index while holding this.
+     */
+    private DiskEntry remove(String key) {
+        def entry = entries.remove(key)
+
+        if (entry) {
+            keyIndex.remove(key)
+            size -= entry.length
+        }
+
+        entry
+    }
+
+    /**
+     * Index entry for a cached rendition file.
+     */
+    private static class DiskEntry {
+
+        final File file
+
+        final int length
+
+        final String mimeType
+
+        final Set<String> paths
+
+        DiskEntry(File file, ImageRendition rendition) {
+            this.file = file
+
+            length = rendition.length
+            mimeType = rendition.mimeType
+            paths = rendition.paths
+        }
+    }
+}
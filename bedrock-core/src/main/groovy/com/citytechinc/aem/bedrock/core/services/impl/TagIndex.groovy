@@ -0,0 +1,164 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.google.common.primitives.Ints
+
+/**
+ * Immutable snapshot of the tag index for a content root.  Page paths are sorted and identified by their position, so
+ * each tag maps to a sorted array of path IDs and tag queries reduce to merges of primitive arrays.
+ */
+final class TagIndex {
+
+    private static final int[] EMPTY = new int[0]
+
+    private final String[] paths
+
+    /** sorted by tag ID so that descendant tags are a contiguous range */
+    private final NavigableMap<String, int[]> postings
+
+    private final long modificationCount
+
+    /**
+     * Create an index snapshot.
+     *
+     * @param pageTags canonical tag IDs keyed by page path, in path order
+     * @param modificationCount number of index modifications reflected in this snapshot
+     */
+    TagIndex(SortedMap<String, Set<String>> pageTags, long modificationCount) {
+        this.modificationCount = modificationCount
+
+        paths = pageTags.keySet() as String[]
+
+        def builders = new HashMap<String, List<Integer>>()
+
+        paths.eachWithIndex { path, id ->
+            pageTags[path].each { tagId ->
+                def ids = builders[tagId]
+
+                if (ids == null) {
+                    ids = []
+                    builders[tagId] = ids
+                }
+
+                ids.add(id)
+            }
+        }
+
+        postings = new TreeMap<String, int[]>()
+
+        builders.each { tagId, ids ->
+            postings[tagId] = Ints.toArray(ids)
+        }
+    }
+
+    /**
+     * Find page paths at or below the given root path that are tagged with the given tags or their descendant tags.
+     *
+     * @param rootPath root path
+     * @param tagIds canonical tag IDs
+     * @param matchOne if true, union the matches for each tag, otherwise intersect them
+     * @return sorted page paths
+     */
+    List<String> find(String rootPath, Collection<String> tagIds, boolean matchOne) {
+        int[] ids = null
+
+        for (tagId in tagIds) {
+            def matches = getMatchingIds(tagId)
+
+            ids = ids == null ? matches : (matchOne ? union(ids, matches) : intersect(ids, matches))
+
+            if (!matchOne && !ids.length) {
+                break
+            }
+        }
+
+        def prefix = rootPath + "/"
+        def result = []
+
+        ids?.each { id ->
+            def path = paths[id]
+
+            if (path == rootPath || path.startsWith(prefix)) {
+                result.add(path)
+            }
+        }
+
+        result
+    }
+
+    /**
+     * @return number of indexed pages
+     */
+    int getSize() {
+        paths.length
+    }
+
+    /**
+     * @return number of index modifications reflected in this snapshot
+     */
+    long getModificationCount() {
+        modificationCount
+    }
+
+    private int[] getMatchingIds(String tagId) {
+        // child tags of a namespace ("ns:") are "ns:tag", child tags of a tag ("ns:tag") are "ns:tag/child"
+        def prefix = tagId.endsWith(":") ? tagId : tagId + "/"
+
+        def ids = postings[tagId] ?: EMPTY
+
+        postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values().each { descendantIds ->
+            ids = union(ids, descendantIds)
+        }
+
+        ids
+    }
+
+    static int[] union(int[] first, int[] second) {
+        def result = new int[first.length + second.length]
+
+        int i = 0
+        int j = 0
+        int size = 0
+
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                result[size++] = first[i++]
+            } else if (first[i] > second[j]) {
+                result[size++] = second[j++]
+            } else {
+                result[size++] = first[i++]
+                j++
+            }
+        }
+
+        while (i < first.length) {
+            result[size++] = first[i++]
+        }
+
+        while (j < second.length) {
+            result[size++] = second[j++]
+        }
+
+        Arrays.copyOf(result, size)
+    }
+
+    static int[] intersect(int[] first, int[] second) {
+        def result = new int[Math.min(first.length, second.length)]
+
+        int i = 0
+        int j = 0
+        int size = 0
+
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++
+            } else if (first[i] > second[j]) {
+                j++
+            } else {
+                result[size++] = first[i++]
+                j++
+            }
+        }
+
+        Arrays.copyOf(result, size)
+    }
+}
@@ -10,6 +10,11 @@ public final class PropertyConstants {
      */
     public static final String REDIRECT_TARGET = "redirectTarget";
 
+    /**
+     * Resource type property name.
+     */
+    public static final String RESOURCE_TYPE = "sling:resourceType";
+
     private PropertyConstants() {
 
     }
@@ -0,0 +1,40 @@
+package com.citytechinc.aem.bedrock.core.jmx;
+
+import com.adobe.granite.jmx.annotation.Description;
+
+import javax.management.openmbean.TabularDataSupport;
+
+@Description("Paragraph Render Metrics")
+public interface ParagraphRenderMetricsMBean {
+
+    /**
+     * Lists render time statistics for paragraphs rendered in parallel by the paragraph JSON servlet.
+     *
+     * @return render count, average and maximum render time, and timeout count for each resource type
+     */
+    @Description("Lists render time statistics for paragraphs rendered in parallel, by resource type")
+    TabularDataSupport getRenderMetrics();
+
+    /**
+     * Reset all render metrics.
+     */
+    @Description("Reset all render metrics")
+    void resetRenderMetrics();
+
+    /**
+     * Record the render time of a paragraph.
+     *
+     * @param resourceType paragraph resource type
+     * @param durationNanos render time in nanoseconds
+     */
+    @Description("Record the render time of a paragraph")
+    void recordRender(String resourceType, long durationNanos);
+
+    /**
+     * Record a paragraph that was not rendered within the timeout.
+     *
+     * @param resourceType paragraph resource type
+     */
+    @Description("Record a paragraph that was not rendered within the timeout")
+    void recordTimeout(String resourceType);
+}
@@ -4,6 +4,7 @@ import com.citytechinc.aem.bedrock.api.link.Link;
 import com.citytechinc.aem.bedrock.api.link.builders.LinkBuilder;
 import com.citytechinc.aem.bedrock.api.page.enums.TitleType;
 import com.citytechinc.aem.bedrock.core.link.builders.impl.DefaultLinkBuilder;
+import com.citytechinc.aem.bedrock.core.utils.PathUtils;
 import com.day.cq.wcm.api.Page;
 import org.apache.sling.api.resource.Resource;
 
@@ -108,7 +109,7 @@ public final class LinkBuilderFactory {
         checkNotNull(resource);
 
         final String path = resource.getPath();
-        final String mappedPath = mapped ? resource.getResourceResolver().map(path) : path;
+        final String mappedPath = mapped ? PathUtils.getMappedPath(path, resource.getResourceResolver()) : path;
 
         return new DefaultLinkBuilder(mappedPath);
     }
@@ -120,7 +121,7 @@ public final class LinkBuilderFactory {
         final String result;
 
         if (mapped) {
-            result = page.adaptTo(Resource.class).getResourceResolver().map(path);
+            result = PathUtils.getMappedPath(path, page.adaptTo(Resource.class).getResourceResolver());
         } else {
             result = path;
         }
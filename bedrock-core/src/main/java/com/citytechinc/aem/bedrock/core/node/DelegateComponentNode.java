@@ -1,5 +1,6 @@
 package com.citytechinc.aem.bedrock.core.node;
 
+import com.citytechinc.aem.bedrock.api.ImageDimensions;
 import com.citytechinc.aem.bedrock.api.link.Link;
 import com.citytechinc.aem.bedrock.api.link.builders.LinkBuilder;
 import com.citytechinc.aem.bedrock.api.node.BasicNode;
@@ -57,6 +58,27 @@ public abstract class DelegateComponentNode implements ComponentNode {
         return componentNode.findDescendants(predicate);
     }
 
+    @Override
+    public final List<ComponentNode> findDescendants(final Predicate<ComponentNode> predicate, final int limit) {
+        return componentNode.findDescendants(predicate, limit);
+    }
+
+    @Override
+    public final Optional<ComponentNode> findFirstDescendant(final Predicate<ComponentNode> predicate) {
+        return componentNode.findFirstDescendant(predicate);
+    }
+
+    @Override
+    public final Iterable<ComponentNode> iterateDescendants(final Predicate<ComponentNode> predicate) {
+        return componentNode.iterateDescendants(predicate);
+    }
+
+    @Override
+    public final Iterable<ComponentNode> iterateDescendants(final Predicate<ComponentNode> predicate,
+        final Predicate<ComponentNode> traversalPredicate, final int maxDepth) {
+        return componentNode.iterateDescendants(predicate, traversalPredicate, maxDepth);
+    }
+
     @Override
     public final <T> T get(final String propertyName, final T defaultValue) {
         return componentNode.get(propertyName, defaultValue);
@@ -262,6 +284,36 @@ public abstract class DelegateComponentNode implements ComponentNode {
         return componentNode.getImageSource(name, width);
     }
 
+    @Override
+    public final Optional<String> getImageSrcset() {
+        return componentNode.getImageSrcset();
+    }
+
+    @Override
+    public final Optional<String> getImageSrcset(final String name) {
+        return componentNode.getImageSrcset(name);
+    }
+
+    @Override
+    public final Optional<ImageDimensions> getImageDimensions() {
+        return componentNode.getImageDimensions();
+    }
+
+    @Override
+    public final Optional<ImageDimensions> getImageDimensions(final int width) {
+        return componentNode.getImageDimensions(width);
+    }
+
+    @Override
+    public final Optional<ImageDimensions> getImageDimensions(final String name) {
+        return componentNode.getImageDimensions(name);
+    }
+
+    @Override
+    public final Optional<ImageDimensions> getImageDimensions(final String name, final int width) {
+        return componentNode.getImageDimensions(name, width);
+    }
+
     @Override
     public final Optional<String> getImageSourceInherited() {
         return componentNode.getImageSourceInherited();
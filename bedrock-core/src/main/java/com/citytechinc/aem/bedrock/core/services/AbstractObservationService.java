@@ -0,0 +1,101 @@
+package com.citytechinc.aem.bedrock.core.services;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.felix.scr.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Base class for services that observe repository changes with JCR event listeners registered through the
+ * administrative session.  Extending classes register listeners with <code>addEventListener()</code> in their
+ * <code>@Activate</code> method and call <code>removeEventListeners()</code> in their <code>@Deactivate</code> method.
+ */
+@Component(componentAbstract = true)
+public abstract class AbstractObservationService extends AbstractSlingService {
+
+    /**
+     * Node and property changes.
+     */
+    protected static final int CONTENT_EVENT_TYPES = Event.NODE_ADDED | Event.NODE_REMOVED | Event.PROPERTY_ADDED |
+        Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED;
+
+    /**
+     * Property changes.
+     */
+    protected static final int PROPERTY_EVENT_TYPES = Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED |
+        Event.PROPERTY_REMOVED;
+
+    /**
+     * Root path of the Sling mapping configuration.
+     */
+    protected static final String PATH_MAP = "/etc/map";
+
+    /**
+     * Content properties that affect mapped and resolved paths.
+     */
+    protected static final List<String> MAPPING_PROPERTY_NAMES = ImmutableList.of("sling:alias", "sling:vanityPath");
+
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractObservationService.class);
+
+    private final List<EventListener> listeners = new CopyOnWriteArrayList<EventListener>();
+
+    /**
+     * Check if the given path is in the Sling mapping configuration.
+     *
+     * @param path repository path
+     * @return true if the path is <code>/etc/map</code> or a descendant
+     */
+    protected static boolean isMappingPath(final String path) {
+        return PATH_MAP.equals(path) || path.startsWith(PATH_MAP + "/");
+    }
+
+    /**
+     * Check if the given path is a property that affects mapped and resolved paths.
+     *
+     * @param path repository path
+     * @return true if the path is a <code>sling:alias</code> or <code>sling:vanityPath</code> property
+     */
+    protected static boolean isMappingProperty(final String path) {
+        return MAPPING_PROPERTY_NAMES.contains(path.substring(path.lastIndexOf('/') + 1));
+    }
+
+    /**
+     * Register an event listener for the given event types at and below the given path.  Events caused by the
+     * administrative session are delivered, since the session is only used for observation.
+     *
+     * @param listener event listener
+     * @param eventTypes combination of JCR event types
+     * @param absPath observed path
+     * @throws RepositoryException if an error occurs registering the listener
+     */
+    protected final void addEventListener(final EventListener listener, final int eventTypes, final String absPath)
+        throws RepositoryException {
+        getAdministrativeSession().getWorkspace().getObservationManager().addEventListener(listener, eventTypes,
+            absPath, true, null, null, false);
+
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove all registered event listeners and close the administrative session.
+     */
+    protected final void removeEventListeners() {
+        for (final EventListener listener : listeners) {
+            try {
+                session.getWorkspace().getObservationManager().removeEventListener(listener);
+            } catch (RepositoryException e) {
+                LOG.error("error removing event listener = " + listener, e);
+            }
+        }
+
+        listeners.clear();
+
+        closeSession();
+    }
+}
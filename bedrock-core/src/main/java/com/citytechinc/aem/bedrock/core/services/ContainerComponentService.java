@@ -0,0 +1,26 @@
+package com.citytechinc.aem.bedrock.core.services;
+
+import java.util.Set;
+
+/**
+ * Registry of container component resource types, i.e. components under <code>/apps</code> or <code>/libs</code> with
+ * the <code>cq:isContainer</code> property set to true.  The registry is computed once and recomputed only after
+ * component definitions are added, changed, or removed.  Components are found with the administrative session, so the
+ * registry does not depend on the access rights of the requesting user.
+ */
+public interface ContainerComponentService {
+
+    /**
+     * @return resource types of all container components, relative to the search path (e.g.
+     * "foundation/components/parsys")
+     */
+    Set<String> getContainerResourceTypes();
+
+    /**
+     * Determine if the given resource type is a container component.
+     *
+     * @param resourceType relative or absolute resource type
+     * @return true if the resource type is a container component
+     */
+    boolean isContainer(String resourceType);
+}
@@ -0,0 +1,36 @@
+package com.citytechinc.aem.bedrock.core.services;
+
+import java.util.List;
+
+/**
+ * Ladder of image widths for image sources and <code>srcset</code> attributes.  When the ladder is enforced, requested
+ * widths are snapped to the smallest ladder width that is not less than the requested width, and the image servlet
+ * redirects or rejects requests for widths that are not on the ladder, so that the number of distinct renditions (and
+ * dispatcher and CDN cache entries) for an image is bounded by the number of ladder widths.
+ */
+public interface ImageWidthService {
+
+    /**
+     * @return true if image source widths are snapped to the ladder and off-ladder requests are redirected or rejected
+     */
+    boolean isEnabled();
+
+    /**
+     * @return true if off-ladder requests are redirected to the snapped width, false if they are rejected
+     */
+    boolean isRedirect();
+
+    /**
+     * @return ladder widths in ascending order
+     */
+    List<Integer> getWidths();
+
+    /**
+     * Snap a requested width to the ladder.
+     *
+     * @param width requested width or -1 for the full width
+     * @return smallest ladder width not less than the requested width, the largest ladder width if the requested
+     * width exceeds the ladder, or -1 if the full width was requested
+     */
+    int getWidth(int width);
+}
@@ -0,0 +1,91 @@
+package com.citytechinc.aem.bedrock.core.services;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.util.tracker.ServiceTracker;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Tracks an optional Bedrock service for classes that are not OSGi components, such as decorators and static
+ * utilities.  The service is looked up once, when the tracker is first used, and is tracked afterwards, so callers
+ * only read the tracked reference.  The tracker is reopened if the bundle is restarted.  Outside of an OSGi framework,
+ * e.g. in unit tests, the service is never available.
+ *
+ * @param <T> service type
+ */
+public final class OptionalServiceTracker<T> {
+
+    private final Class<T> type;
+
+    private final Bundle bundle;
+
+    private volatile BundleServiceTracker tracker;
+
+    /**
+     * @param type service type, which must be loaded from the bundle registering the service
+     */
+    public OptionalServiceTracker(final Class<T> type) {
+        this.type = checkNotNull(type);
+
+        bundle = FrameworkUtil.getBundle(type);
+    }
+
+    /**
+     * Get the tracked service.
+     *
+     * @return service or null if the service is not registered
+     */
+    public T getService() {
+        final BundleServiceTracker serviceTracker = getTracker();
+
+        return serviceTracker == null ? null : type.cast(serviceTracker.getService());
+    }
+
+    private BundleServiceTracker getTracker() {
+        final BundleContext bundleContext = bundle == null ? null : bundle.getBundleContext();
+
+        BundleServiceTracker serviceTracker = tracker;
+
+        if (bundleContext == null) {
+            serviceTracker = null;
+        } else if (serviceTracker == null || serviceTracker.getBundleContext() != bundleContext) {
+            serviceTracker = openTracker(bundleContext);
+        }
+
+        return serviceTracker;
+    }
+
+    private synchronized BundleServiceTracker openTracker(final BundleContext bundleContext) {
+        BundleServiceTracker serviceTracker = tracker;
+
+        if (serviceTracker == null || serviceTracker.getBundleContext() != bundleContext) {
+            if (serviceTracker != null) {
+                try {
+                    serviceTracker.close();
+                } catch (IllegalStateException e) {
+                    // context of the previous bundle activation is no longer valid
+                }
+            }
+
+            serviceTracker = new BundleServiceTracker(bundleContext, type.getName());
+            serviceTracker.open();
+
+            tracker = serviceTracker;
+        }
+
+        return serviceTracker;
+    }
+
+    private static final class BundleServiceTracker extends ServiceTracker {
+
+        BundleServiceTracker(final BundleContext context, final String className) {
+            super(context, className, null);
+        }
+
+        BundleContext getBundleContext() {
+            return context;
+        }
+    }
+}
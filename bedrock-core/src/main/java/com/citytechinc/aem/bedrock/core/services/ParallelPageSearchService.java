@@ -0,0 +1,27 @@
+package com.citytechinc.aem.bedrock.core.services;
+
+import com.citytechinc.aem.bedrock.api.page.PageDecorator;
+import com.google.common.base.Predicate;
+import org.apache.sling.api.resource.ResourceResolver;
+
+import java.util.List;
+
+/**
+ * Parallel alternative to <code>PageManagerDecorator.findPages(rootPath, predicate)</code> for large subtrees with
+ * expensive predicates.  The subtree is split by child page and searched by a bounded pool of workers, each using a
+ * clone of the given resource resolver.  Predicates must therefore be thread-safe and must not depend on unsaved
+ * changes in the given resolver.
+ */
+public interface ParallelPageSearchService {
+
+    /**
+     * Find all descendant pages of the given path that match the predicate.
+     *
+     * @param resourceResolver resource resolver for the returned pages
+     * @param rootPath root path
+     * @param predicate thread-safe predicate to determine if a page should be included in the result list
+     * @return pages matching filter criteria in document order, bound to the given resource resolver
+     */
+    List<PageDecorator> findPages(ResourceResolver resourceResolver, String rootPath,
+        Predicate<PageDecorator> predicate);
+}
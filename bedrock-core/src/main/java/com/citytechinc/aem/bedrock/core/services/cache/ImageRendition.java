@@ -0,0 +1,65 @@
+package com.citytechinc.aem.bedrock.core.services.cache;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Encoded image rendition and the content paths it was rendered from.
+ */
+public final class ImageRendition {
+
+    private final String mimeType;
+
+    private final byte[] data;
+
+    private final Set<String> paths;
+
+    /**
+     * @param mimeType rendition MIME type
+     * @param data encoded rendition, must not be modified after the rendition is created
+     * @param paths paths of the image resource and any referenced asset, used to invalidate the rendition when the
+     * content at or below these paths changes
+     */
+    public ImageRendition(final String mimeType, final byte[] data, final Collection<String> paths) {
+        this.mimeType = checkNotNull(mimeType);
+        this.data = checkNotNull(data);
+        this.paths = ImmutableSet.copyOf(paths);
+    }
+
+    /**
+     * @return rendition MIME type
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * @return rendition size in bytes
+     */
+    public int getLength() {
+        return data.length;
+    }
+
+    /**
+     * @return paths of the image resource and any referenced asset
+     */
+    public Set<String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * Write the encoded rendition.
+     *
+     * @param outputStream output stream
+     * @throws IOException if an error occurs writing to the stream
+     */
+    public void writeTo(final OutputStream outputStream) throws IOException {
+        outputStream.write(data);
+    }
+}
@@ -0,0 +1,51 @@
+package com.citytechinc.aem.bedrock.core.services.cache;
+
+import com.google.common.base.Optional;
+
+/**
+ * Two-tier cache for resized, cropped, and rotated image renditions.  Renditions are kept in a size-bounded in-memory
+ * LRU cache backed by a size-bounded local disk cache, so that each rendition is decoded and encoded once rather than
+ * on every request.  Renditions are invalidated when the content of the image resource or its referenced asset
+ * changes.
+ */
+public interface ImageRenditionCacheService extends CacheService {
+
+    /**
+     * @return true if renditions should be cached
+     */
+    boolean isEnabled();
+
+    /**
+     * Get a cached rendition from memory, or from disk if it was evicted from memory.
+     *
+     * @param key rendition key, including the image path, transform parameters, and source binary modification time
+     * @return cached rendition or absent if the rendition is not cached or the service is disabled
+     */
+    Optional<ImageRendition> getRendition(String key);
+
+    /**
+     * Get the invalidation generation, which changes whenever cached renditions are invalidated.  Callers read the
+     * generation before rendering and pass it to <code>putRendition</code>.
+     *
+     * @return current generation
+     */
+    long getGeneration();
+
+    /**
+     * Cache a rendition in memory and on disk.  The rendition is not cached if renditions were invalidated since the
+     * given generation was read, since it may have been rendered from content that has since changed.  This method has
+     * no effect if the service is disabled.
+     *
+     * @param key rendition key
+     * @param rendition encoded rendition
+     * @param generation generation read before the rendition was rendered
+     */
+    void putRendition(String key, ImageRendition rendition, long generation);
+
+    /**
+     * Discard all cached renditions that depend on the content at the given path.
+     *
+     * @param path changed content path
+     */
+    void invalidate(String path);
+}
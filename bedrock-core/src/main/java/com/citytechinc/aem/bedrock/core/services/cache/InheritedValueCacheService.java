@@ -0,0 +1,39 @@
+package com.citytechinc.aem.bedrock.core.services.cache;
+
+import com.google.common.base.Optional;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Cross-request cache for inherited component property values.  Values are keyed by component node path, property
+ * name, and requested type, and are invalidated for a page and all of its descendants when the page's content changes.
+ * Since cached values are shared across requests regardless of the requesting user's access rights, this service is
+ * intended for publish instances and is disabled by default.
+ */
+public interface InheritedValueCacheService extends CacheService {
+
+    /**
+     * @return true if inherited values should be cached
+     */
+    boolean isEnabled();
+
+    /**
+     * Get the cached inherited value for a component node property, loading and caching the value if it does not exist.
+     * The loader is called directly if this service is disabled.
+     *
+     * @param path component node path
+     * @param propertyName property name
+     * @param type property type
+     * @param loader resolves the inherited value, must not return null
+     * @param <T> property type
+     * @return cached inherited value or absent if the property does not exist in the content hierarchy
+     */
+    <T> Optional<T> getInherited(String path, String propertyName, Class<T> type, Callable<Optional<T>> loader);
+
+    /**
+     * Discard cached values for all component nodes in the given page and its descendants.
+     *
+     * @param pagePath page path
+     */
+    void invalidate(String pagePath);
+}
@@ -0,0 +1,32 @@
+package com.citytechinc.aem.bedrock.core.services.cache;
+
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Cross-request cache for paths mapped through <code>ResourceResolver.map()</code>.  Mapped paths are keyed by path and
+ * resolver user ID, since aliases are only applied for resources that the user can read, and all mapped paths are
+ * discarded when the <code>/etc/map</code> configuration, a <code>sling:alias</code> or <code>sling:vanityPath</code>
+ * property, or the resource resolver factory configuration changes.  This service is disabled by default.
+ */
+public interface MappingCacheService extends CacheService {
+
+    /**
+     * @return true if mapped paths should be cached
+     */
+    boolean isEnabled();
+
+    /**
+     * Get the cached mapped path for the given path, mapping and caching the path if it does not exist.  The path is
+     * mapped directly if this service is disabled.
+     *
+     * @param resourceResolver resource resolver used to map the path
+     * @param path path to map
+     * @return mapped path
+     */
+    String map(ResourceResolver resourceResolver, String path);
+
+    /**
+     * Discard all mapped paths.
+     */
+    void invalidate();
+}
@@ -0,0 +1,73 @@
+package com.citytechinc.aem.bedrock.core.services.cache;
+
+import com.google.common.base.Optional;
+import org.apache.sling.api.resource.ResourceResolver;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Cross-request cache for navigation trees returned by <code>PageDecorator.getNavigationTree()</code>.  Trees are keyed
+ * by root page path, depth, mapping, and resolver user ID, and are discarded when a page in or above the tree is
+ * activated, deactivated, or deleted.  The navigation properties of the pages below each configured site root are also
+ * kept in memory as an immutable <code>NavigationNode</code> structure, which is loaded in the background and updated
+ * for each replicated page, so that trees are built without reading page content.  Since updates are driven by
+ * replication events, this service is intended for publish instances and is disabled by default.
+ */
+public interface NavigationCacheService extends CacheService {
+
+    /**
+     * @return true if navigation trees should be cached
+     */
+    boolean isEnabled();
+
+    /**
+     * Get the cached navigation tree for a root page, loading and caching the tree if it does not exist.  The loader is
+     * called directly if this service is disabled.
+     *
+     * @param resourceResolver resource resolver used to build the tree
+     * @param rootPath root page path
+     * @param depth number of descendant levels in the tree
+     * @param mapped true if link paths in the tree are mapped
+     * @param loader builds the navigation tree, must not return null
+     * @param <T> navigation tree type
+     * @return cached navigation tree
+     */
+    <T> T getNavigationTree(ResourceResolver resourceResolver, String rootPath, int depth, boolean mapped,
+        Callable<T> loader);
+
+    /**
+     * Get the navigation structure for a page below one of the configured site roots, limited to the pages that are
+     * readable by the given resource resolver.  This method does not wait for the structure of a site root to load;
+     * the structure is absent until a background load has completed.
+     *
+     * @param resourceResolver resource resolver of the current request
+     * @param pagePath page path
+     * @param depth number of descendant levels to include
+     * @return navigation node for the page and its readable descendants, or absent if this service is disabled, the
+     * page is not below a site root, the structure is not loaded, or the page does not exist or is not readable
+     */
+    Optional<NavigationNode> getNavigationNode(ResourceResolver resourceResolver, String pagePath, int depth);
+
+    /**
+     * Discard cached navigation trees that contain the given page, or that are rooted at a descendant of the page.
+     *
+     * @param pagePath replicated page path
+     */
+    void invalidate(String pagePath);
+
+    /**
+     * Reload the navigation properties of an added or changed page into the navigation structure, and discard cached
+     * navigation trees containing the page.  The descendants of an existing page are not reloaded.
+     *
+     * @param pagePath activated page path
+     */
+    void refresh(String pagePath);
+
+    /**
+     * Remove a page and its descendants from the navigation structure, and discard cached navigation trees containing
+     * the page.
+     *
+     * @param pagePath deactivated or deleted page path
+     */
+    void remove(String pagePath);
+}
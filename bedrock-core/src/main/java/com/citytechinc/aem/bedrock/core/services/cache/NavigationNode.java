@@ -0,0 +1,107 @@
+package com.citytechinc.aem.bedrock.core.services.cache;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable snapshot of the navigation properties of a page and its descendants.  Pages without a content node are
+ * hidden in navigation.
+ */
+public final class NavigationNode {
+
+    private final String path;
+
+    private final String title;
+
+    private final String navigationTitle;
+
+    private final String redirectTarget;
+
+    private final boolean hideInNav;
+
+    private final List<NavigationNode> children;
+
+    /**
+     * @param path page path
+     * @param title page title or empty string
+     * @param navigationTitle navigation title or null if the page has no navigation title
+     * @param redirectTarget redirect target or empty string
+     * @param hideInNav true if the page is hidden in navigation or has no content node
+     * @param children child pages in document order
+     */
+    public NavigationNode(final String path, final String title, final String navigationTitle,
+        final String redirectTarget, final boolean hideInNav, final List<NavigationNode> children) {
+        this.path = checkNotNull(path);
+        this.title = checkNotNull(title);
+        this.navigationTitle = navigationTitle;
+        this.redirectTarget = checkNotNull(redirectTarget);
+        this.hideInNav = hideInNav;
+        this.children = ImmutableList.copyOf(children);
+    }
+
+    /**
+     * @return page path
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return page title or empty string
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return navigation title, defaulting to the page title if the page has no navigation title
+     */
+    public String getNavigationTitle() {
+        return navigationTitle == null ? title : navigationTitle;
+    }
+
+    /**
+     * @return redirect target or empty string
+     */
+    public String getRedirectTarget() {
+        return redirectTarget;
+    }
+
+    /**
+     * @return true if the page is hidden in navigation or has no content node
+     */
+    public boolean isHideInNav() {
+        return hideInNav;
+    }
+
+    /**
+     * @return child pages in document order, including hidden pages
+     */
+    public List<NavigationNode> getChildren() {
+        return children;
+    }
+
+    /**
+     * Get a copy of this node with different children.
+     *
+     * @param children child pages in document order
+     * @return node copy
+     */
+    public NavigationNode withChildren(final List<NavigationNode> children) {
+        return new NavigationNode(path, title, navigationTitle, redirectTarget, hideInNav, children);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+            .add("path", path)
+            .add("title", getNavigationTitle())
+            .add("hideInNav", hideInNav)
+            .add("children", children.size())
+            .toString();
+    }
+}
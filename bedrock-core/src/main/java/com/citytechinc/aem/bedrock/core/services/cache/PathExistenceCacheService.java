@@ -0,0 +1,36 @@
+package com.citytechinc.aem.bedrock.core.services.cache;
+
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Cross-request cache of whether paths resolve to existing resources, used to determine if strict links are external.
+ * Results are keyed by path and resolver user ID, and are invalidated when a node at or below the requested path, or at
+ * or below the path that it resolves to, is added or removed.  All results are discarded when the
+ * <code>/etc/map</code> configuration or a <code>sling:alias</code> or <code>sling:vanityPath</code> property changes.
+ * This service is disabled by default.
+ */
+public interface PathExistenceCacheService extends CacheService {
+
+    /**
+     * @return true if path existence should be cached
+     */
+    boolean isEnabled();
+
+    /**
+     * Determine if the given path resolves to an existing resource, resolving the path and caching the result if it is
+     * not cached.  The path is resolved directly if this service is disabled.
+     *
+     * @param resourceResolver resource resolver used to resolve the path
+     * @param path path to resolve
+     * @return true if the path does not resolve to a non-existing resource
+     */
+    boolean exists(ResourceResolver resourceResolver, String path);
+
+    /**
+     * Discard cached results for the given path and its descendants, including paths with selectors and extensions and
+     * mapped paths that resolve to them.
+     *
+     * @param path added or removed node path
+     */
+    void invalidate(String path);
+}
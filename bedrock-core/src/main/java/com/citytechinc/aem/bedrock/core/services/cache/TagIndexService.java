@@ -0,0 +1,31 @@
+package com.citytechinc.aem.bedrock.core.services.cache;
+
+import com.google.common.base.Optional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * In-memory inverted index of page tags for configured content roots.  The index is built from the
+ * <code>cq:tags</code> property of each page's content node and is updated incrementally as pages are added, changed,
+ * moved, or removed.  Since the index is shared across requests regardless of the requesting user's access rights,
+ * callers must resolve the returned paths with their own resource resolver.
+ */
+public interface TagIndexService extends CacheService {
+
+    /**
+     * @return true if page tags are indexed
+     */
+    boolean isEnabled();
+
+    /**
+     * Find the paths of pages at or below the given root path that are tagged with the given tags or any of their
+     * descendant tags.
+     *
+     * @param rootPath root path
+     * @param tagIds canonical tag IDs (e.g. "namespace:tag/child")
+     * @param matchOne if true, pages matching any of the tags are returned, otherwise pages must match all tags
+     * @return sorted page paths or absent if the service is disabled or the root path is not indexed
+     */
+    Optional<List<String>> findPagePaths(String rootPath, Collection<String> tagIds, boolean matchOne);
+}
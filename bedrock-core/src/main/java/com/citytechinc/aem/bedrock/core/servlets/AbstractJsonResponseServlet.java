@@ -84,11 +84,8 @@ public abstract class AbstractJsonResponseServlet extends SlingAllMethodsServlet
      */
     protected void writeJsonResponse(final SlingHttpServletResponse response, final ObjectMapper mapper,
         final Object object) throws IOException {
-        response.setContentType(CONTENT_TYPE);
-        response.setCharacterEncoding(ENCODING);
-
         try {
-            final JsonGenerator generator = FACTORY.createGenerator(response.getWriter());
+            final JsonGenerator generator = createJsonGenerator(response);
 
             mapper.writeValue(generator, object);
         } catch (IOException e) {
@@ -97,4 +94,20 @@ public abstract class AbstractJsonResponseServlet extends SlingAllMethodsServlet
             throw e;
         }
     }
+
+    /**
+     * Create a generator for writing JSON directly to the response, e.g. for streaming large responses.  The response
+     * content type and character encoding are set before the response writer is acquired.  Closing the generator does
+     * not close the response writer.
+     *
+     * @param response Sling response
+     * @return JSON generator for the response writer
+     * @throws IOException if error occurs getting the response writer
+     */
+    protected final JsonGenerator createJsonGenerator(final SlingHttpServletResponse response) throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        response.setCharacterEncoding(ENCODING);
+
+        return FACTORY.createGenerator(response.getWriter());
+    }
 }
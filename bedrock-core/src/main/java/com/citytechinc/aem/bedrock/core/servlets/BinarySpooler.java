@@ -0,0 +1,238 @@
+package com.citytechinc.aem.bedrock.core.servlets;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Copies binary content, or byte ranges of binary content, to a response output stream.  Streams are copied through a
+ * per-thread buffer that is much larger than the default 8KB copy buffer, and lengths are never truncated to
+ * <code>int</code>.  Repository binaries are never file streams (Oak returns its own segment and blob streams), so
+ * range offsets are reached by skipping, which Oak blob streams implement without reading the skipped bytes.
+ */
+final class BinarySpooler {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /** requests for more ranges than this are served in full rather than as a multipart response */
+    static final int MAXIMUM_RANGES = 16;
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private static final Comparator<ByteRange> FIRST_POSITION_ORDER = new Comparator<ByteRange>() {
+        @Override
+        public int compare(final ByteRange range, final ByteRange otherRange) {
+            return Long.compare(range.getFirst(), otherRange.getFirst());
+        }
+    };
+
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
+    private BinarySpooler() {
+
+    }
+
+    /**
+     * Copy a byte range of the input stream to the output stream.  The input stream is not closed.
+     *
+     * @param inputStream input stream positioned at the start of the binary
+     * @param outputStream output stream
+     * @param offset position of the first byte to copy
+     * @param count number of bytes to copy
+     * @throws IOException if an error occurs copying or the stream ends before the range is copied
+     */
+    static void copy(final InputStream inputStream, final OutputStream outputStream, final long offset,
+        final long count) throws IOException {
+        final byte[] buffer = BUFFERS.get();
+
+        ByteStreams.skipFully(inputStream, offset);
+
+        long remaining = count;
+
+        while (remaining > 0) {
+            final int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+
+            if (read == -1) {
+                throw new EOFException("binary ended with " + remaining + " byte(s) remaining");
+            }
+
+            outputStream.write(buffer, 0, read);
+
+            remaining -= read;
+        }
+    }
+
+    /**
+     * Parse a <code>Range</code> header value for a binary of the given length.  Overlapping and adjacent ranges are
+     * coalesced (RFC 7233 section 6.1), so a response never sends the same bytes more than once.
+     *
+     * @param header range header value
+     * @param length binary length
+     * @return satisfiable ranges, coalesced and in position order, an empty list if no range is satisfiable, or null if
+     * the header is invalid or requests too many ranges and should be ignored
+     */
+    static List<ByteRange> parseRanges(final String header, final long length) {
+        if (!header.startsWith(BYTES_UNIT)) {
+            return null;
+        }
+
+        final String[] specs = header.substring(BYTES_UNIT.length()).split(",");
+
+        if (specs.length > MAXIMUM_RANGES) {
+            return null;
+        }
+
+        final List<ByteRange> ranges = Lists.newArrayListWithCapacity(specs.length);
+
+        for (final String spec : specs) {
+            final String trimmedSpec = spec.trim();
+            final int dash = trimmedSpec.indexOf('-');
+
+            if (dash == -1) {
+                return null;
+            }
+
+            final long first;
+            final long last;
+
+            if (dash == 0) {
+                // suffix range, e.g. "-500" for the last 500 bytes
+                final long suffixLength = parsePosition(trimmedSpec.substring(1));
+
+                if (suffixLength == -1) {
+                    return null;
+                }
+
+                if (suffixLength == 0) {
+                    continue;
+                }
+
+                first = Math.max(0, length - suffixLength);
+                last = length - 1;
+            } else {
+                first = parsePosition(trimmedSpec.substring(0, dash));
+
+                if (first == -1) {
+                    return null;
+                }
+
+                if (dash == trimmedSpec.length() - 1) {
+                    // open range, e.g. "500-" for all bytes from position 500
+                    last = length - 1;
+                } else {
+                    final long requestedLast = parsePosition(trimmedSpec.substring(dash + 1));
+
+                    // last position before first position is a syntax error
+                    if (requestedLast == -1 || requestedLast < first) {
+                        return null;
+                    }
+
+                    last = Math.min(length - 1, requestedLast);
+                }
+            }
+
+            if (first < length && first <= last) {
+                ranges.add(new ByteRange(first, last));
+            }
+        }
+
+        return coalesce(ranges);
+    }
+
+    /**
+     * @param value byte position or suffix length
+     * @return position, or -1 if the value is not an unsigned decimal number
+     */
+    private static long parsePosition(final String value) {
+        if (value.isEmpty()) {
+            return -1;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static List<ByteRange> coalesce(final List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+
+        Collections.sort(ranges, FIRST_POSITION_ORDER);
+
+        final List<ByteRange> coalescedRanges = Lists.newArrayListWithCapacity(ranges.size());
+
+        ByteRange current = ranges.get(0);
+
+        for (final ByteRange range : ranges.subList(1, ranges.size())) {
+            if (range.getFirst() <= current.getLast() + 1) {
+                current = new ByteRange(current.getFirst(), Math.max(current.getLast(), range.getLast()));
+            } else {
+                coalescedRanges.add(current);
+
+                current = range;
+            }
+        }
+
+        coalescedRanges.add(current);
+
+        return coalescedRanges;
+    }
+
+    /**
+     * Inclusive byte range.
+     */
+    static final class ByteRange {
+
+        private final long first;
+
+        private final long last;
+
+        ByteRange(final long first, final long last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        long getFirst() {
+            return first;
+        }
+
+        long getLast() {
+            return last;
+        }
+
+        long getLength() {
+            return last - first + 1;
+        }
+
+        /**
+         * @param length binary length
+         * @return content range header value, e.g. "bytes 0-499/1234"
+         */
+        String toContentRange(final long length) {
+            return "bytes " + first + "-" + last + "/" + length;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.citytechinc.aem.bedrock.core.servlets;
+
+import com.citytechinc.aem.bedrock.api.ImageDimensions;
+import com.citytechinc.aem.bedrock.core.utils.ImageUtils;
+import com.day.cq.wcm.foundation.Image;
+import com.day.image.Layer;
+import com.google.common.base.Optional;
+import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.jcr.Binary;
+import javax.jcr.Property;
+import javax.jcr.RepositoryException;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes images for resizing within a budget of decode memory.  Images that are resized to a smaller width are read
+ * with source subsampling at the largest power-of-two scale that keeps at least twice the requested width, so the
+ * final resize is a single quality pass over a small raster rather than a pass over the full-resolution raster.  Each
+ * decode reserves its estimated raster size from the budget until the decoded image is closed, and waits for memory to
+ * be released by other decodes if the budget is exhausted.  Images with dimensions that cannot be read from the binary
+ * reserve the whole budget, so they are never decoded concurrently with other images.
+ */
+final class ImageDecoder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImageDecoder.class);
+
+    /** ARGB raster */
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+
+    /** decoded width is kept at no less than this multiple of the requested width to limit subsampling artifacts */
+    private static final int QUALITY_FACTOR = 2;
+
+    private final Semaphore decodeMemory;
+
+    private final int maximumDecodeSize;
+
+    private final long timeout;
+
+    /**
+     * @param maximumDecodeSize maximum estimated size in MB of all concurrently decoded images
+     * @param timeout maximum time in milliseconds to wait for decode memory
+     */
+    ImageDecoder(final int maximumDecodeSize, final long timeout) {
+        this.maximumDecodeSize = Math.max(1, maximumDecodeSize);
+        this.timeout = timeout;
+
+        decodeMemory = new Semaphore(this.maximumDecodeSize, true);
+    }
+
+    /**
+     * Decode the image for rendering at the given width.
+     *
+     * @param image image
+     * @param width requested width or -1 for the full width
+     * @return decoded image, which must be closed to release its decode memory, or null if decode memory was not
+     * available within the timeout
+     * @throws RepositoryException if an error occurs reading the image binary
+     * @throws IOException if an error occurs decoding the image
+     */
+    DecodedImage decode(final Image image, final int width) throws RepositoryException, IOException {
+        final Optional<ImageDimensions> sourceDimensions = ImageUtils.getSourceDimensions(image);
+
+        int subsampling = 1;
+
+        // unrecognized formats are decoded in full, but their decode size is unknown, so they reserve the whole budget
+        int fullPermits = maximumDecodeSize;
+        int subsampledPermits = maximumDecodeSize;
+
+        if (sourceDimensions.isPresent()) {
+            final int sourceWidth = sourceDimensions.get().getWidth();
+            final int sourceHeight = sourceDimensions.get().getHeight();
+
+            subsampling = getSubsampling(sourceWidth, width);
+            fullPermits = getPermits(sourceWidth, sourceHeight);
+            subsampledPermits = getPermits(divide(sourceWidth, subsampling), divide(sourceHeight, subsampling));
+        }
+
+        DecodedImage decodedImage = null;
+        Layer layer = null;
+        boolean available = true;
+
+        if (subsampling > 1) {
+            available = acquire(subsampledPermits);
+
+            if (available) {
+                try {
+                    layer = read(image.getData(), subsampling);
+                } finally {
+                    if (layer == null) {
+                        decodeMemory.release(subsampledPermits);
+                    }
+                }
+
+                if (layer != null) {
+                    decodedImage = new DecodedImage(layer, sourceDimensions, subsampledPermits);
+                }
+            }
+        }
+
+        // decode the full image if subsampling is not needed or the image format is not readable with subsampling
+        if (available && layer == null) {
+            available = acquire(fullPermits);
+
+            if (available) {
+                try {
+                    layer = image.getLayer(false, false, false);
+                } finally {
+                    if (layer == null) {
+                        decodeMemory.release(fullPermits);
+                    }
+                }
+
+                decodedImage = new DecodedImage(layer, sourceDimensions, layer == null ? 0 : fullPermits);
+            }
+        }
+
+        if (!available) {
+            LOG.warn("decode memory not available within {}ms for image = {}, {}MB budget", timeout, image.getPath(),
+                maximumDecodeSize);
+        }
+
+        return decodedImage;
+    }
+
+    /**
+     * @return estimated size in MB of images currently decoded
+     */
+    int getDecodeSize() {
+        return maximumDecodeSize - decodeMemory.availablePermits();
+    }
+
+    /**
+     * Get the largest power-of-two subsampling that reads at least twice the requested width.
+     *
+     * @param sourceWidth original width
+     * @param width requested width or -1 for the full width
+     * @return subsampling, 1 to read every pixel
+     */
+    static int getSubsampling(final int sourceWidth, final int width) {
+        int subsampling = 1;
+
+        if (width > 0) {
+            while (divide(sourceWidth, subsampling * 2) >= width * QUALITY_FACTOR) {
+                subsampling *= 2;
+            }
+        }
+
+        return subsampling;
+    }
+
+    /**
+     * @param width decoded width
+     * @param height decoded height
+     * @return estimated raster size in MB, limited to the budget so that any single image can be decoded
+     */
+    int getPermits(final int width, final int height) {
+        final long bytes = (long) width * height * BYTES_PER_PIXEL;
+
+        return (int) Math.min(maximumDecodeSize, Math.max(1, (bytes + BYTES_PER_MEGABYTE - 1) / BYTES_PER_MEGABYTE));
+    }
+
+    private boolean acquire(final int permits) {
+        boolean acquired;
+
+        try {
+            acquired = decodeMemory.tryAcquire(permits, timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            acquired = false;
+        }
+
+        return acquired;
+    }
+
+    /**
+     * Read a subsampled image.
+     *
+     * @param data image binary property
+     * @param subsampling source subsampling in both dimensions
+     * @return subsampled layer or null if no image reader is available for the image format
+     * @throws RepositoryException if an error occurs reading the image binary
+     */
+    private static Layer read(final Property data, final int subsampling) throws RepositoryException {
+        final Binary binary = data.getBinary();
+
+        Layer layer = null;
+
+        try {
+            final InputStream stream = binary.getStream();
+
+            try {
+                layer = read(stream, subsampling);
+            } finally {
+                Closeables.close(stream, true);
+            }
+        } catch (IOException e) {
+            // e.g. CMYK JPEG images, which are decoded by the layer instead
+            LOG.debug("unable to read subsampled image for binary = {}, decoding full image", data.getPath(), e);
+        } finally {
+            binary.dispose();
+        }
+
+        return layer;
+    }
+
+    /**
+     * Read a subsampled image with the first image reader for the image format.
+     *
+     * @param stream image input stream
+     * @param subsampling source subsampling in both dimensions
+     * @return subsampled layer or null if no image reader is available for the image format
+     * @throws IOException if an error occurs reading the image
+     */
+    static Layer read(final InputStream stream, final int subsampling) throws IOException {
+        final ImageInputStream imageInputStream = ImageIO.createImageInputStream(stream);
+
+        Layer layer = null;
+
+        try {
+            final Iterator<ImageReader> readers = imageInputStream == null ? null :
+                ImageIO.getImageReaders(imageInputStream);
+
+            if (readers != null && readers.hasNext()) {
+                final ImageReader reader = readers.next();
+
+                try {
+                    reader.setInput(imageInputStream, true, true);
+
+                    final ImageReadParam param = reader.getDefaultReadParam();
+
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                    final BufferedImage bufferedImage = reader.read(0, param);
+
+                    layer = new Layer(bufferedImage);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } finally {
+            if (imageInputStream != null) {
+                imageInputStream.close();
+            }
+        }
+
+        return layer;
+    }
+
+    private static int divide(final int size, final int subsampling) {
+        return (size + subsampling - 1) / subsampling;
+    }
+
+    /**
+     * Decoded image layer holding decode memory until closed.
+     */
+    final class DecodedImage implements Closeable {
+
+        private final Layer layer;
+
+        private final Optional<ImageDimensions> sourceDimensions;
+
+        private int permits;
+
+        private DecodedImage(final Layer layer, final Optional<ImageDimensions> sourceDimensions, final int permits) {
+            this.layer = layer;
+            this.sourceDimensions = sourceDimensions;
+            this.permits = permits;
+        }
+
+        /**
+         * @return decoded layer, which may be subsampled, or null if the image has no content
+         */
+        Layer getLayer() {
+            return layer;
+        }
+
+        /**
+         * @return width of the original image
+         */
+        int getSourceWidth() {
+            return sourceDimensions.isPresent() ? sourceDimensions.get().getWidth() : layer.getWidth();
+        }
+
+        /**
+         * @return height of the original image
+         */
+        int getSourceHeight() {
+            return sourceDimensions.isPresent() ? sourceDimensions.get().getHeight() : layer.getHeight();
+        }
+
+        @Override
+        public void close() {
+            decodeMemory.release(permits);
+
+            permits = 0;
+        }
+    }
+}
@@ -1,6 +1,14 @@
 package com.citytechinc.aem.bedrock.core.servlets;
 
+import com.citytechinc.aem.bedrock.api.ImageDimensions;
 import com.citytechinc.aem.bedrock.core.constants.ComponentConstants;
+import com.citytechinc.aem.bedrock.core.services.cache.ImageRendition;
+import com.citytechinc.aem.bedrock.core.services.ImageWidthService;
+import com.citytechinc.aem.bedrock.core.services.OsgiConfiguration;
+import com.citytechinc.aem.bedrock.core.services.cache.ImageRenditionCacheService;
+import com.citytechinc.aem.bedrock.core.servlets.ImageDecoder.DecodedImage;
+import com.citytechinc.aem.bedrock.core.servlets.BinarySpooler.ByteRange;
+import com.citytechinc.aem.bedrock.core.utils.ImageUtils;
 import com.day.cq.commons.ImageHelper;
 import com.day.cq.commons.jcr.JcrConstants;
 import com.day.cq.wcm.api.NameConstants;
@@ -8,13 +16,24 @@ import com.day.cq.wcm.api.WCMMode;
 import com.day.cq.wcm.commons.AbstractImageServlet;
 import com.day.cq.wcm.foundation.Image;
 import com.day.image.Layer;
-import com.google.common.io.ByteStreams;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Closeables;
 import com.google.common.net.HttpHeaders;
 import com.google.common.net.MediaType;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.sling.SlingServlet;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.request.RequestPathInfo;
 import org.apache.sling.api.resource.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,15 +43,28 @@ import javax.jcr.Node;
 import javax.jcr.Property;
 import javax.jcr.RepositoryException;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import static org.apache.commons.lang3.StringUtils.isNumeric;
 
 /**
- * Image rendering servlet.
+ * Image rendering servlet.  Responses are validated with an entity tag derived from the image binary and transform
+ * parameters and with the image modification time, so conditional requests for unchanged images are answered with a
+ * 304 response before the image is decoded.  If the image rendition cache service is enabled, resized, cropped, and
+ * rotated renditions are cached and served without decoding the original image.  Images that do not need to be
+ * transformed, including images requested at a width greater than or equal to their original width, are spooled
+ * directly from the binary without decoding, with support for single and multiple byte range requests.
  */
-@SlingServlet(methods = "GET", selectors = "img", resourceTypes = "sling/servlet/default")
+@SlingServlet(methods = "GET", selectors = "img", resourceTypes = "sling/servlet/default", metatype = true,
+    label = "Bedrock Image Servlet")
 public final class ImageServlet extends AbstractImageServlet {
 
     private static final Logger LOG = LoggerFactory.getLogger(ImageServlet.class);
@@ -41,6 +73,48 @@ public final class ImageServlet extends AbstractImageServlet {
 
     private static final long serialVersionUID = 1L;
 
+    private static final String CRLF = "\r\n";
+
+    private static final int DEFAULT_MAXIMUM_DECODE_SIZE = 256;
+
+    private static final long DEFAULT_DECODE_TIMEOUT = 10000;
+
+    /** seconds */
+    private static final String RETRY_AFTER = "1";
+
+    private static final String[] RENDITION_KEY_PROPERTIES = { Image.PN_IMAGE_CROP, Image.PN_IMAGE_ROTATE,
+        Image.PN_WIDTH, Image.PN_HEIGHT, Image.PN_MIN_WIDTH, Image.PN_MIN_HEIGHT, Image.PN_MAX_WIDTH,
+        Image.PN_MAX_HEIGHT };
+
+    @org.apache.felix.scr.annotations.Property(label = "Maximum Decode Size",
+        description = "Maximum estimated size in MB of all images decoded concurrently by this instance.",
+        intValue = DEFAULT_MAXIMUM_DECODE_SIZE)
+    private static final String MAXIMUM_DECODE_SIZE = "maximumDecodeSize";
+
+    @org.apache.felix.scr.annotations.Property(label = "Decode Timeout",
+        description = "Maximum time in milliseconds to wait for decode memory before returning a 503 response.",
+        longValue = DEFAULT_DECODE_TIMEOUT)
+    private static final String DECODE_TIMEOUT = "decodeTimeout";
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC,
+        bind = "bindRenditionCacheService", unbind = "unbindRenditionCacheService")
+    private volatile ImageRenditionCacheService renditionCacheService;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC,
+        bind = "bindImageWidthService", unbind = "unbindImageWidthService")
+    private volatile ImageWidthService imageWidthService;
+
+    private volatile ImageDecoder decoder = new ImageDecoder(DEFAULT_MAXIMUM_DECODE_SIZE, DEFAULT_DECODE_TIMEOUT);
+
+    @Activate
+    @Modified
+    protected void activate(final Map<String, Object> properties) {
+        final OsgiConfiguration configuration = new OsgiConfiguration(properties);
+
+        decoder = new ImageDecoder(configuration.getAsInteger(MAXIMUM_DECODE_SIZE, DEFAULT_MAXIMUM_DECODE_SIZE),
+            configuration.getAsLong(DECODE_TIMEOUT, DEFAULT_DECODE_TIMEOUT));
+    }
+
     @Override
     protected Layer createLayer(final ImageContext context) throws RepositoryException, IOException {
         return null;
@@ -51,6 +125,10 @@ public final class ImageServlet extends AbstractImageServlet {
         final ImageContext context, final Layer layer) throws RepositoryException, IOException {
         final ImageWrapper wrapper = new ImageWrapper(request);
 
+        if (!isLadderWidth(request, response, wrapper)) {
+            return;
+        }
+
         final Image image = wrapper.getImage();
 
         if (!image.hasContent()) {
@@ -61,14 +139,98 @@ public final class ImageServlet extends AbstractImageServlet {
         // get style and set constraints
         image.loadStyleData(context.style);
 
-        // get pure layer
-        final Layer imageLayer = image.getLayer(false, false, false);
+        final String renditionKey = getRenditionKey(request, wrapper, image);
+
+        setCacheControlHeaders(request, response);
+
+        String entityTag = null;
+        long lastModified = -1;
+
+        // version diffs are rendered from the diff info rather than the image, so they are never validated or cached
+        if (context.diffInfo == null) {
+            entityTag = getEntityTag(renditionKey, image.getData());
+            lastModified = getLastModified(image);
+
+            response.setHeader(HttpHeaders.ETAG, entityTag);
+
+            if (lastModified > 0) {
+                response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+            }
+
+            if (isNotModified(request, entityTag, lastModified)) {
+                LOG.debug("image not modified for entity tag = {}", entityTag);
+
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+                return;
+            }
+        }
+
+        // spool the original binary without decoding if the requested rendition would not change the image
+        if (context.diffInfo == null && !isTransformRequired(wrapper, image)) {
+            LOG.debug("spooling original image for path = {}", image.getPath());
+
+            spoolBinary(request, response, image, entityTag, lastModified);
+
+            response.flushBuffer();
+
+            return;
+        }
+
+        final ImageRenditionCacheService cacheService = renditionCacheService;
+        final boolean cacheable = cacheService != null && cacheService.isEnabled() && context.diffInfo == null;
+
+        // read before rendering, so that a rendition rendered from content that changes meanwhile is not cached
+        final long renditionGeneration = cacheable ? cacheService.getGeneration() : 0;
+
+        if (cacheable) {
+            final Optional<ImageRendition> rendition = cacheService.getRendition(renditionKey);
+
+            if (rendition.isPresent()) {
+                LOG.debug("writing cached rendition for key = {}", renditionKey);
+
+                writeRendition(response, rendition.get());
+
+                response.flushBuffer();
+
+                return;
+            }
+        }
+
+        // get pure layer, subsampled if the image is resized to a smaller width
+        final DecodedImage decodedImage = decoder.decode(image, wrapper.getWidth());
+
+        if (decodedImage == null) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
+            return;
+        }
+
+        try {
+            writeDecodedImage(request, response, context, wrapper, image, decodedImage,
+                cacheable ? cacheService : null, renditionKey, renditionGeneration, entityTag, lastModified);
+        } finally {
+            decodedImage.close();
+        }
+
+        response.flushBuffer();
+    }
+
+    /**
+     * Transform and write the decoded image, or spool the original binary if the image was not modified.
+     */
+    private void writeDecodedImage(final SlingHttpServletRequest request, final SlingHttpServletResponse response,
+        final ImageContext context, final ImageWrapper wrapper, final Image image, final DecodedImage decodedImage,
+        final ImageRenditionCacheService cacheService, final String renditionKey, final long renditionGeneration,
+        final String entityTag, final long lastModified) throws RepositoryException, IOException {
+        final Layer imageLayer = decodedImage.getLayer();
 
         boolean modified = false;
 
         if (imageLayer != null) {
             // check for selector-based resizing
-            modified = resizeLayer(wrapper, imageLayer);
+            modified = resizeLayer(wrapper, decodedImage);
 
             // crop
             modified |= image.crop(imageLayer) != null;
@@ -83,14 +245,6 @@ public final class ImageServlet extends AbstractImageServlet {
             modified |= applyDiff(imageLayer, context);
         }
 
-        // don't cache images on authoring instances
-        // Cache-Control: no-cache allows caching (e.g. in the browser cache) but will force revalidation using
-        // If-Modified-Since or If-None-Match every time, avoiding aggressive browser caching
-        if (!WCMMode.DISABLED.equals(WCMMode.fromRequest(request))) {
-            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate");
-            response.setHeader(HttpHeaders.EXPIRES, "0");
-        }
-
         if (modified) {
             String mimeType = image.getMimeType();
 
@@ -99,40 +253,456 @@ public final class ImageServlet extends AbstractImageServlet {
                 mimeType = MediaType.PNG.toString();
             }
 
-            response.setContentType(mimeType);
+            final double quality = mimeType.equals(MediaType.GIF.toString()) ? GIF_QUALITY : 1.0;
+
+            if (cacheService != null) {
+                final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+                imageLayer.write(mimeType, quality, outputStream);
 
-            imageLayer.write(mimeType, mimeType.equals(MediaType.GIF.toString()) ? GIF_QUALITY : 1.0,
-                response.getOutputStream());
+                final ImageRendition rendition = new ImageRendition(mimeType, outputStream.toByteArray(),
+                    getRenditionPaths(image));
+
+                cacheService.putRendition(renditionKey, rendition, renditionGeneration);
+
+                writeRendition(response, rendition);
+            } else {
+                response.setContentType(mimeType);
+
+                imageLayer.write(mimeType, quality, response.getOutputStream());
+            }
         } else {
             // do not re-encode layer, just spool
-            final Property data = image.getData();
+            spoolBinary(request, response, image, entityTag, lastModified);
+        }
+    }
+
+    protected void bindRenditionCacheService(final ImageRenditionCacheService renditionCacheService) {
+        this.renditionCacheService = renditionCacheService;
+    }
+
+    protected void unbindRenditionCacheService(final ImageRenditionCacheService renditionCacheService) {
+        if (this.renditionCacheService == renditionCacheService) {
+            this.renditionCacheService = null;
+        }
+    }
+
+    protected void bindImageWidthService(final ImageWidthService imageWidthService) {
+        this.imageWidthService = imageWidthService;
+    }
+
+    protected void unbindImageWidthService(final ImageWidthService imageWidthService) {
+        if (this.imageWidthService == imageWidthService) {
+            this.imageWidthService = null;
+        }
+    }
+
+    /**
+     * Check the requested width against the width ladder, if the ladder is enforced.  Requests for off-ladder widths
+     * are either redirected to the snapped width or rejected with a 404 response.  The redirect is temporary, since
+     * the snapped width changes when the ladder is reconfigured and a permanent redirect would be cached by browsers
+     * and CDNs indefinitely.
+     *
+     * @param request image request
+     * @param response image response
+     * @param wrapper image wrapper
+     * @return true if the request should be processed, false if a redirect or error was sent
+     * @throws IOException if an error occurs sending the error response
+     */
+    private boolean isLadderWidth(final SlingHttpServletRequest request, final SlingHttpServletResponse response,
+        final ImageWrapper wrapper) throws IOException {
+        final ImageWidthService widthService = imageWidthService;
+        final int width = wrapper.getWidth();
+
+        boolean ladderWidth = true;
+
+        if (width > -1 && widthService != null && widthService.isEnabled() &&
+            !widthService.getWidths().contains(width)) {
+            ladderWidth = false;
+
+            if (widthService.isRedirect()) {
+                final String location = request.getResourceResolver().map(request, getLadderPath(request,
+                    widthService.getWidth(width)));
+
+                LOG.debug("redirecting off-ladder width = {} to location = {}", width, location);
+
+                response.setStatus(HttpServletResponse.SC_FOUND);
+                response.setHeader(HttpHeaders.LOCATION, location);
+            } else {
+                LOG.debug("rejecting off-ladder width = {}", width);
+
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        }
+
+        return ladderWidth;
+    }
 
-            final Binary binary = data.getBinary();
-            final InputStream stream = binary.getStream();
+    /**
+     * @param request image request
+     * @param width ladder width
+     * @return request path with the width selector replaced by the ladder width
+     */
+    static String getLadderPath(final SlingHttpServletRequest request, final int width) {
+        final RequestPathInfo pathInfo = request.getRequestPathInfo();
+        final String[] selectors = pathInfo.getSelectors().clone();
+
+        // the width selector follows the image selector and the optional image name selector
+        selectors[isNumeric(selectors[1]) ? 1 : 2] = String.valueOf(width);
+
+        final StringBuilder path = new StringBuilder(pathInfo.getResourcePath())
+            .append('.').append(StringUtils.join(selectors, '.'));
+
+        if (pathInfo.getExtension() != null) {
+            path.append('.').append(pathInfo.getExtension());
+        }
+
+        return path.append(StringUtils.defaultString(pathInfo.getSuffix())).toString();
+    }
+
+    /**
+     * Build the cache key for the requested rendition from the image path, the requested width and extension, the
+     * transform properties of the image (including style constraints), and the modification time of the image binary.
+     *
+     * @param request image request
+     * @param wrapper image wrapper
+     * @param image image with style data loaded
+     * @return rendition key
+     */
+    private static String getRenditionKey(final SlingHttpServletRequest request, final ImageWrapper wrapper,
+        final Image image) {
+        final Calendar lastModified = image.getLastModified();
+
+        final StringBuilder key = new StringBuilder(image.getPath())
+            .append('|').append(wrapper.getWidth())
+            .append('|').append(request.getRequestPathInfo().getExtension())
+            .append('|').append(lastModified == null ? 0 : lastModified.getTimeInMillis())
+            .append('|').append(StringUtils.defaultString(image.getFileReference()));
+
+        for (final String propertyName : RENDITION_KEY_PROPERTIES) {
+            key.append('|').append(StringUtils.defaultString(image.get(propertyName)));
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Build a strong entity tag from the rendition key and the identity of the image binary (path, length, and the
+     * modification time of its resource node), so that the tag changes when either the source image or any of the
+     * transform parameters change, including a replaced binary of the same length.
+     *
+     * @param renditionKey rendition key
+     * @param data image binary property, may be null
+     * @return quoted entity tag
+     * @throws RepositoryException if an error occurs reading the binary property
+     */
+    private static String getEntityTag(final String renditionKey, final Property data) throws RepositoryException {
+        final Hasher hasher = Hashing.murmur3_128().newHasher()
+            .putBytes(renditionKey.getBytes(StandardCharsets.UTF_8));
+
+        if (data != null) {
+            hasher.putBytes(data.getPath().getBytes(StandardCharsets.UTF_8))
+                .putLong(data.getLength())
+                .putLong(ImageUtils.getBinaryLastModified(data));
+        }
+
+        return "\"" + hasher.hash().toString() + "\"";
+    }
+
+    /**
+     * @param image image
+     * @return image modification time in milliseconds, truncated to seconds to match HTTP date precision, or -1 if
+     * the modification time is unknown
+     */
+    private static long getLastModified(final Image image) {
+        final Calendar lastModified = image.getLastModified();
+
+        return lastModified == null ? -1 : lastModified.getTimeInMillis() / 1000 * 1000;
+    }
+
+    /**
+     * Evaluate the request preconditions.  As required by RFC 7232, <code>If-Modified-Since</code> is only evaluated
+     * if the request does not contain <code>If-None-Match</code>.
+     *
+     * @param request image request
+     * @param entityTag current entity tag
+     * @param lastModified current modification time in milliseconds or -1 if unknown
+     * @return true if the client's representation is current and a 304 response should be sent
+     */
+    static boolean isNotModified(final SlingHttpServletRequest request, final String entityTag,
+        final long lastModified) {
+        final String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+
+        boolean notModified = false;
+
+        if (ifNoneMatch != null) {
+            for (final String tag : ifNoneMatch.split(",")) {
+                final String trimmedTag = tag.trim();
+
+                // weak comparison, since the response is not a range
+                if ("*".equals(trimmedTag) || StringUtils.removeStart(trimmedTag, "W/").equals(entityTag)) {
+                    notModified = true;
+                    break;
+                }
+            }
+        } else if (lastModified > 0) {
+            long ifModifiedSince;
 
             try {
-                response.setContentLength((int) data.getLength());
-                response.setContentType(image.getMimeType());
+                ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            } catch (IllegalArgumentException e) {
+                LOG.debug("ignoring invalid if-modified-since header = {}", request.getHeader(
+                    HttpHeaders.IF_MODIFIED_SINCE));
 
-                ByteStreams.copy(stream, response.getOutputStream());
-            } finally {
-                Closeables.close(stream, true);
-                binary.dispose();
+                ifModifiedSince = -1;
             }
+
+            notModified = ifModifiedSince >= lastModified;
         }
 
-        response.flushBuffer();
+        return notModified;
     }
 
-    private boolean resizeLayer(final ImageWrapper wrapper, final Layer layer) {
-        final int ratioW = layer.getWidth();
-        final int ratioH = layer.getHeight();
+    /**
+     * @param image image
+     * @return paths of the image resource and the referenced asset, if any
+     */
+    private static List<String> getRenditionPaths(final Image image) {
+        final List<String> paths = Lists.newArrayList(image.getPath());
+        final String fileReference = image.getFileReference();
+
+        if (StringUtils.isNotEmpty(fileReference)) {
+            paths.add(fileReference);
+        }
+
+        return paths;
+    }
+
+    /**
+     * Determine if the image must be decoded to render the requested rendition.  Images that are not cropped, rotated,
+     * or sized by their properties, and that satisfy the minimum and maximum size constraints, are only decoded if the
+     * requested width is less than the original width.  The original dimensions are read from the image header.
+     *
+     * @param wrapper image wrapper
+     * @param image image with style data loaded
+     * @return true if the image must be decoded, false if the binary can be spooled unmodified
+     * @throws RepositoryException if an error occurs reading the image binary
+     */
+    private static boolean isTransformRequired(final ImageWrapper wrapper, final Image image)
+        throws RepositoryException {
+        final int width = wrapper.getWidth();
+
+        boolean transformRequired = StringUtils.isNotEmpty(image.get(Image.PN_IMAGE_CROP)) ||
+            NumberUtils.toInt(image.get(Image.PN_IMAGE_ROTATE), 0) % 360 != 0 ||
+            StringUtils.isNotEmpty(image.get(Image.PN_WIDTH)) || StringUtils.isNotEmpty(image.get(Image.PN_HEIGHT));
+
+        if (!transformRequired && (width > -1 || hasSizeConstraints(image))) {
+            final Optional<ImageDimensions> dimensions = ImageUtils.getSourceDimensions(image);
+
+            transformRequired = !dimensions.isPresent() || width > -1 && width < dimensions.get().getWidth() ||
+                !isWithinConstraints(image, dimensions.get().getWidth(), Image.PN_MIN_WIDTH, Image.PN_MAX_WIDTH) ||
+                !isWithinConstraints(image, dimensions.get().getHeight(), Image.PN_MIN_HEIGHT, Image.PN_MAX_HEIGHT);
+        }
+
+        return transformRequired;
+    }
+
+    private static boolean hasSizeConstraints(final Image image) {
+        return NumberUtils.toInt(image.get(Image.PN_MIN_WIDTH), 0) > 0 ||
+            NumberUtils.toInt(image.get(Image.PN_MAX_WIDTH), 0) > 0 ||
+            NumberUtils.toInt(image.get(Image.PN_MIN_HEIGHT), 0) > 0 ||
+            NumberUtils.toInt(image.get(Image.PN_MAX_HEIGHT), 0) > 0;
+    }
+
+    private static boolean isWithinConstraints(final Image image, final int size, final String minimumPropertyName,
+        final String maximumPropertyName) {
+        final int minimum = NumberUtils.toInt(image.get(minimumPropertyName), 0);
+        final int maximum = NumberUtils.toInt(image.get(maximumPropertyName), 0);
+
+        return (minimum <= 0 || size >= minimum) && (maximum <= 0 || size <= maximum);
+    }
+
+    /**
+     * Spool the unmodified image binary, or the byte ranges of the binary requested with a <code>Range</code> header.
+     * Ranges are ignored if an <code>If-Range</code> validator does not match the current entity tag or modification
+     * time, in which case the full binary is sent.
+     *
+     * @param request image request
+     * @param response image response
+     * @param image image
+     * @param entityTag current entity tag or null if the image is not validated
+     * @param lastModified current modification time in milliseconds or -1 if unknown
+     * @throws RepositoryException if an error occurs reading the binary
+     * @throws IOException if an error occurs writing the response
+     */
+    private static void spoolBinary(final SlingHttpServletRequest request, final SlingHttpServletResponse response,
+        final Image image, final String entityTag, final long lastModified) throws RepositoryException, IOException {
+        final Property data = image.getData();
+        final long length = data.getLength();
+        final String mimeType = image.getMimeType();
+        final String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+
+        final List<ByteRange> ranges = rangeHeader != null && isRangeCurrent(request, entityTag, lastModified) ?
+            BinarySpooler.parseRanges(rangeHeader, length) : null;
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (ranges != null && ranges.isEmpty()) {
+            LOG.debug("range not satisfiable for range = {}, length = {}", rangeHeader, length);
+
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+
+            return;
+        }
+
+        final Binary binary = data.getBinary();
+
+        try {
+            final OutputStream outputStream = response.getOutputStream();
+
+            if (ranges == null) {
+                response.setContentType(mimeType);
+                setContentLength(response, length);
+
+                spoolRange(binary, outputStream, 0, length);
+            } else if (ranges.size() == 1) {
+                final ByteRange range = ranges.get(0);
+
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setContentType(mimeType);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, range.toContentRange(length));
+                setContentLength(response, range.getLength());
+
+                spoolRange(binary, outputStream, range.getFirst(), range.getLength());
+            } else {
+                final String boundary = UUID.randomUUID().toString();
+
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setContentType("multipart/byteranges; boundary=" + boundary);
+
+                for (final ByteRange range : ranges) {
+                    final String partHeaders = new StringBuilder(CRLF).append("--").append(boundary).append(CRLF)
+                        .append(HttpHeaders.CONTENT_TYPE).append(": ").append(mimeType).append(CRLF)
+                        .append(HttpHeaders.CONTENT_RANGE).append(": ").append(range.toContentRange(length))
+                        .append(CRLF).append(CRLF).toString();
+
+                    outputStream.write(partHeaders.getBytes(StandardCharsets.US_ASCII));
+
+                    spoolRange(binary, outputStream, range.getFirst(), range.getLength());
+                }
+
+                outputStream.write((CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII));
+            }
+        } finally {
+            binary.dispose();
+        }
+    }
+
+    private static void spoolRange(final Binary binary, final OutputStream outputStream, final long offset,
+        final long count) throws RepositoryException, IOException {
+        final InputStream stream = binary.getStream();
+
+        try {
+            BinarySpooler.copy(stream, outputStream, offset, count);
+        } finally {
+            Closeables.close(stream, true);
+        }
+    }
+
+    /**
+     * Evaluate the <code>If-Range</code> precondition.  An entity tag validator must match the current entity tag
+     * using the strong comparison, and a date validator must exactly match the current modification time.
+     *
+     * @param request image request
+     * @param entityTag current entity tag or null if the image is not validated
+     * @param lastModified current modification time in milliseconds or -1 if unknown
+     * @return true if the request does not contain <code>If-Range</code> or the validator is current
+     */
+    static boolean isRangeCurrent(final SlingHttpServletRequest request, final String entityTag,
+        final long lastModified) {
+        final String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        boolean current = true;
+
+        if (ifRange != null) {
+            final String trimmedIfRange = ifRange.trim();
+
+            if (trimmedIfRange.startsWith("\"") || trimmedIfRange.startsWith("W/")) {
+                current = entityTag != null && trimmedIfRange.equals(entityTag);
+            } else {
+                long ifRangeDate;
+
+                try {
+                    ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+                } catch (IllegalArgumentException e) {
+                    LOG.debug("ignoring invalid if-range header = {}", ifRange);
+
+                    ifRangeDate = -1;
+                }
+
+                current = lastModified > 0 && ifRangeDate == lastModified;
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Set the content length without truncating lengths greater than <code>Integer.MAX_VALUE</code>, since the servlet
+     * 2.5 API only accepts <code>int</code> content lengths.
+     *
+     * @param response image response
+     * @param length content length in bytes
+     */
+    private static void setContentLength(final SlingHttpServletResponse response, final long length) {
+        if (length <= Integer.MAX_VALUE) {
+            response.setContentLength((int) length);
+        } else {
+            response.setHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(length));
+        }
+    }
+
+    private static void writeRendition(final SlingHttpServletResponse response, final ImageRendition rendition)
+        throws IOException {
+        response.setContentType(rendition.getMimeType());
+        response.setContentLength(rendition.getLength());
+
+        rendition.writeTo(response.getOutputStream());
+    }
+
+    /**
+     * Don't cache images on authoring instances without revalidation.  Cache-Control: no-cache allows caching (e.g. in
+     * the browser cache) but will force revalidation using If-Modified-Since or If-None-Match every time, which costs
+     * a 304 response rather than the full image when the image is unchanged.
+     *
+     * @param request image request
+     * @param response image response
+     */
+    private static void setCacheControlHeaders(final SlingHttpServletRequest request,
+        final SlingHttpServletResponse response) {
+        if (!WCMMode.DISABLED.equals(WCMMode.fromRequest(request))) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            response.setHeader(HttpHeaders.EXPIRES, "0");
+        }
+    }
+
+    /**
+     * Resize the decoded layer to the requested width.  The aspect ratio is taken from the original image dimensions,
+     * since a subsampled layer may be rounded up by a pixel in either dimension.
+     */
+    private boolean resizeLayer(final ImageWrapper wrapper, final DecodedImage decodedImage) {
+        final Layer layer = decodedImage.getLayer();
+
+        final int ratioW = decodedImage.getSourceWidth();
+        final int ratioH = decodedImage.getSourceHeight();
 
         boolean resized = false;
 
         final int width = wrapper.getWidth();
 
-        if (width > -1 && ratioW != 0 && ratioH != 0) {
+        // images are not resized to widths greater than their original width
+        if (width > -1 && width < ratioW && ratioH != 0) {
             final int height = (width * ratioH) / ratioW;
 
             LOG.debug("resizing to width = {}, height = {}", width, height);
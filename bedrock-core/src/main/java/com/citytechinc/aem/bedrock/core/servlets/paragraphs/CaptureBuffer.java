@@ -0,0 +1,216 @@
+package com.citytechinc.aem.bedrock.core.servlets.paragraphs;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import javax.servlet.ServletOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Pooled buffer for capturing the output of an included component.  Output written to the stream is kept as bytes and
+ * decoded with the response charset, while output written to the writer is kept as characters, so that the captured
+ * HTML can be written to a JSON generator without creating an intermediate string.  Buffers are not thread-safe and
+ * must be released after use.
+ */
+final class CaptureBuffer {
+
+    private static final int INITIAL_CAPACITY = 8192;
+
+    /**
+     * Buffers that grew beyond this size for a large component are discarded rather than pooled, so the pool retains at
+     * most 32 * (64KB of bytes + 64K chars), about 6MB.
+     */
+    private static final int MAXIMUM_POOLED_CAPACITY = 64 * 1024;
+
+    private static final int MAXIMUM_POOL_SIZE = 32;
+
+    private static final Queue<CaptureBuffer> POOL = new ConcurrentLinkedQueue<CaptureBuffer>();
+
+    private static final AtomicInteger POOL_SIZE = new AtomicInteger();
+
+    private final Bytes bytes = new Bytes();
+
+    private final Chars chars = new Chars();
+
+    private final PrintWriter writer = new PrintWriter(chars);
+
+    private final ServletOutputStream outputStream = new ServletOutputStream() {
+        @Override
+        public void write(final int b) {
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            bytes.write(b, off, len);
+        }
+    };
+
+    private CharsetDecoder decoder;
+
+    /**
+     * Get a buffer from the pool, or create a new buffer if the pool is empty.
+     *
+     * @param charset charset for decoding output written to the stream
+     * @return empty buffer
+     */
+    static CaptureBuffer acquire(final Charset charset) {
+        CaptureBuffer buffer = POOL.poll();
+
+        if (buffer == null) {
+            buffer = new CaptureBuffer();
+        } else {
+            POOL_SIZE.decrementAndGet();
+        }
+
+        buffer.setCharset(checkNotNull(charset));
+
+        return buffer;
+    }
+
+    private CaptureBuffer() {
+
+    }
+
+    /**
+     * @return stream for byte output
+     */
+    ServletOutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * @return writer for character output
+     */
+    PrintWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Discard captured output.
+     */
+    void clear() {
+        writer.flush();
+        bytes.reset();
+        chars.reset();
+    }
+
+    /**
+     * Write the captured output to the generator as a JSON string value.
+     *
+     * @param generator JSON generator
+     * @throws IOException if an error occurs writing to the generator
+     */
+    void writeTo(final JsonGenerator generator) throws IOException {
+        writer.flush();
+        chars.decodeBytes();
+
+        generator.writeString(chars.array(), 0, chars.size());
+    }
+
+    /**
+     * Clear this buffer and return it to the pool.  The buffer must not be used after it is released.
+     */
+    void release() {
+        clear();
+
+        if (bytes.capacity() <= MAXIMUM_POOLED_CAPACITY && chars.capacity() <= MAXIMUM_POOLED_CAPACITY) {
+            if (POOL_SIZE.incrementAndGet() <= MAXIMUM_POOL_SIZE) {
+                POOL.offer(this);
+            } else {
+                POOL_SIZE.decrementAndGet();
+            }
+        }
+    }
+
+    private void setCharset(final Charset charset) {
+        if (decoder == null || !decoder.charset().equals(charset)) {
+            decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+    }
+
+    /**
+     * Byte output exposing its backing array.
+     */
+    private static final class Bytes extends ByteArrayOutputStream {
+
+        Bytes() {
+            super(INITIAL_CAPACITY);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+
+    /**
+     * Character output exposing its backing array.  Pending byte output is decoded before each write so that mixed
+     * stream and writer output keeps its order.
+     */
+    private final class Chars extends CharArrayWriter {
+
+        Chars() {
+            super(INITIAL_CAPACITY);
+        }
+
+        @Override
+        public void write(final int c) {
+            decodeBytes();
+            super.write(c);
+        }
+
+        @Override
+        public void write(final char[] c, final int off, final int len) {
+            decodeBytes();
+            super.write(c, off, len);
+        }
+
+        @Override
+        public void write(final String str, final int off, final int len) {
+            decodeBytes();
+            super.write(str, off, len);
+        }
+
+        char[] array() {
+            return buf;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        void decodeBytes() {
+            if (bytes.size() > 0) {
+                try {
+                    final CharBuffer decoded = decoder.reset().decode(ByteBuffer.wrap(bytes.array(), 0, bytes.size()));
+
+                    super.write(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining());
+                } catch (CharacterCodingException e) {
+                    // not thrown when malformed and unmappable input is replaced
+                    throw new IllegalStateException(e);
+                }
+
+                bytes.reset();
+            }
+        }
+    }
+}
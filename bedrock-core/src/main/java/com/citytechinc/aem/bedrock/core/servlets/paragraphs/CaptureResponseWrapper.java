@@ -0,0 +1,42 @@
+package com.citytechinc.aem.bedrock.core.servlets.paragraphs;
+
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.wrappers.SlingHttpServletResponseWrapper;
+
+import javax.servlet.ServletOutputStream;
+import java.io.PrintWriter;
+
+/**
+ * Response wrapper that captures the output of an included component in a <code>CaptureBuffer</code>.  Flushing the
+ * wrapper does not commit the wrapped response.
+ */
+final class CaptureResponseWrapper extends SlingHttpServletResponseWrapper {
+
+    private final CaptureBuffer buffer;
+
+    CaptureResponseWrapper(final SlingHttpServletResponse response, final CaptureBuffer buffer) {
+        super(response);
+
+        this.buffer = buffer;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return buffer.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        return buffer.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() {
+        buffer.getWriter().flush();
+    }
+
+    @Override
+    public void resetBuffer() {
+        buffer.clear();
+    }
+}
@@ -2,22 +2,32 @@ package com.citytechinc.aem.bedrock.core.servlets.paragraphs;
 
 import com.citytechinc.aem.bedrock.api.page.PageDecorator;
 import com.citytechinc.aem.bedrock.api.request.ComponentServletRequest;
+import com.citytechinc.aem.bedrock.core.jmx.ParagraphRenderMetricsMBean;
+import com.citytechinc.aem.bedrock.core.services.ContainerComponentService;
+import com.citytechinc.aem.bedrock.core.services.OsgiConfiguration;
 import com.citytechinc.aem.bedrock.core.servlets.AbstractComponentServlet;
 import com.day.cq.wcm.api.NameConstants;
 import com.day.cq.wcm.api.WCMMode;
-import com.google.common.collect.ImmutableMap;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.PropertyOption;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.sling.SlingServlet;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.Resource;
-import org.apache.sling.api.wrappers.SlingHttpServletResponseWrapper;
+import org.apache.sling.engine.SlingRequestProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -26,14 +36,17 @@ import javax.jcr.query.QueryManager;
 import javax.jcr.query.QueryResult;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
-import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 import static com.citytechinc.aem.bedrock.core.constants.PathConstants.EXTENSION_HTML;
 import static com.citytechinc.aem.bedrock.core.constants.PathConstants.EXTENSION_JSON;
@@ -47,22 +60,141 @@ import static com.citytechinc.aem.bedrock.core.constants.PathConstants.EXTENSION
  * <p>
  * This Servlet is suitable for overriding the OOB behavior of xtypes such as paragraphreference, causing it to pull all
  * components on a page as opposed to the top level components.
+ * <p>
+ * Containers are found either by a single depth-first walk of the page content tree or by a query for container
+ * resource types.  By default, the tree is walked unless the page content exceeds the configured node limit.  Only the
+ * tree walk guarantees document order.  In streaming mode, each paragraph is written to the response as soon as it is
+ * rendered.  In parallel mode, paragraphs are rendered concurrently by a bounded pool of workers and written in the
+ * order they were collected.
  */
 @SlingServlet(resourceTypes = { NameConstants.NT_PAGE }, selectors = { "ctparagraphs" },
-    extensions = { EXTENSION_JSON }, methods = { "GET" })
+    extensions = { EXTENSION_JSON }, methods = { "GET" }, metatype = true, label = "Bedrock Paragraph JSON Servlet")
 public final class ParagraphJsonServlet extends AbstractComponentServlet {
 
     private static final long serialVersionUID = 1L;
 
-    private static final String CONTAINER_COMPONENTS_FROM_LIBS_XPATH_QUERY = "/jcr:root/libs//element(*,cq:Component)[@cq:isContainer='true']";
+    private static final Logger LOG = LoggerFactory.getLogger(ParagraphJsonServlet.class);
 
-    private static final String CONTAINER_COMPONENTS_FROM_APPS_XPATH_QUERY = "/jcr:root/apps//element(*,cq:Component)[@cq:isContainer='true']";
+    private static final String MODE_AUTO = "auto";
 
-    private static final String LIBS_PATH_STRING = "/libs/";
+    private static final String MODE_TREE = "tree";
 
-    private static final String APPS_PATH_STRING = "/apps/";
+    private static final String MODE_QUERY = "query";
 
-    private static final Logger LOG = LoggerFactory.getLogger(ParagraphJsonServlet.class);
+    private static final int DEFAULT_TREE_WALK_NODE_LIMIT = 1000;
+
+    private static final int DEFAULT_STREAMING_FLUSH_INTERVAL = 10;
+
+    private static final int DEFAULT_PARALLEL_POOL_SIZE = 4;
+
+    private static final long DEFAULT_PARALLEL_TIMEOUT = 10000;
+
+    @Property(label = "Collection Mode",
+        description = "Find containers by walking the page content tree, by query, or by walking small pages only.",
+        value = MODE_AUTO, options = {
+        @PropertyOption(name = MODE_AUTO, value = "Tree walk for small pages, otherwise query"),
+        @PropertyOption(name = MODE_TREE, value = "Tree walk"),
+        @PropertyOption(name = MODE_QUERY, value = "Query")
+    })
+    private static final String COLLECTION_MODE = "collectionMode";
+
+    @Property(label = "Tree Walk Node Limit",
+        description = "Maximum number of page content nodes to walk before falling back to a query in auto mode.",
+        intValue = DEFAULT_TREE_WALK_NODE_LIMIT)
+    private static final String TREE_WALK_NODE_LIMIT = "treeWalkNodeLimit";
+
+    @Property(label = "Streaming?",
+        description = "Write each paragraph to the response as soon as it is rendered instead of rendering all first.",
+        boolValue = false)
+    private static final String STREAMING = "streaming";
+
+    @Property(label = "Streaming Flush Interval",
+        description = "Number of paragraphs written between flushes of the response in streaming mode.",
+        intValue = DEFAULT_STREAMING_FLUSH_INTERVAL)
+    private static final String STREAMING_FLUSH_INTERVAL = "streamingFlushInterval";
+
+    @Property(label = "Parallel?",
+        description = "Render paragraphs concurrently on a bounded pool of workers instead of one at a time.",
+        boolValue = false)
+    private static final String PARALLEL = "parallel";
+
+    @Property(label = "Parallel Pool Size", description = "Maximum number of paragraphs rendered concurrently.",
+        intValue = DEFAULT_PARALLEL_POOL_SIZE)
+    private static final String PARALLEL_POOL_SIZE = "parallelPoolSize";
+
+    @Property(label = "Parallel Timeout",
+        description = "Milliseconds from the start of rendering after which remaining paragraphs return empty HTML.",
+        longValue = DEFAULT_PARALLEL_TIMEOUT)
+    private static final String PARALLEL_TIMEOUT = "parallelTimeout";
+
+    @Reference
+    private ContainerComponentService containerComponentService;
+
+    @Reference
+    private SlingRequestProcessor requestProcessor;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC,
+        bind = "bindMetrics", unbind = "unbindMetrics")
+    private volatile ParagraphRenderMetricsMBean metrics;
+
+    private volatile String collectionMode = MODE_AUTO;
+
+    private volatile int treeWalkNodeLimit = DEFAULT_TREE_WALK_NODE_LIMIT;
+
+    private volatile boolean streaming;
+
+    private volatile int streamingFlushInterval = DEFAULT_STREAMING_FLUSH_INTERVAL;
+
+    private volatile ParallelParagraphRenderer parallelRenderer;
+
+    @Activate
+    protected void activate(final Map<String, Object> properties) {
+        modified(properties);
+    }
+
+    @Modified
+    protected synchronized void modified(final Map<String, Object> properties) {
+        final OsgiConfiguration configuration = new OsgiConfiguration(properties);
+
+        collectionMode = configuration.getAsString(COLLECTION_MODE, MODE_AUTO);
+        treeWalkNodeLimit = configuration.getAsInteger(TREE_WALK_NODE_LIMIT, DEFAULT_TREE_WALK_NODE_LIMIT);
+        streaming = configuration.getAsBoolean(STREAMING, false);
+        streamingFlushInterval = Math.max(1, configuration.getAsInteger(STREAMING_FLUSH_INTERVAL,
+            DEFAULT_STREAMING_FLUSH_INTERVAL));
+
+        final ParallelParagraphRenderer previousRenderer = parallelRenderer;
+
+        // requests in progress keep the previous renderer until its submitted paragraphs complete
+        if (configuration.getAsBoolean(PARALLEL, false)) {
+            final int poolSize = Math.max(1, configuration.getAsInteger(PARALLEL_POOL_SIZE,
+                DEFAULT_PARALLEL_POOL_SIZE));
+            final long timeout = Math.max(1, configuration.getAsLong(PARALLEL_TIMEOUT, DEFAULT_PARALLEL_TIMEOUT));
+
+            parallelRenderer = new ParallelParagraphRenderer(requestProcessor, poolSize, timeout);
+
+            LOG.info("rendering paragraphs in parallel with pool size = {}, timeout = {}ms", poolSize, timeout);
+        } else {
+            parallelRenderer = null;
+        }
+
+        if (previousRenderer != null) {
+            previousRenderer.shutdown();
+        }
+
+        final ParagraphRenderMetricsMBean currentMetrics = metrics;
+
+        if (currentMetrics != null) {
+            currentMetrics.resetRenderMetrics();
+        }
+    }
+
+    @Deactivate
+    protected synchronized void deactivate() {
+        if (parallelRenderer != null) {
+            parallelRenderer.shutdown();
+            parallelRenderer = null;
+        }
+    }
 
     @Override
     public void processGet(final ComponentServletRequest request) throws ServletException, IOException {
@@ -72,12 +204,22 @@ public final class ParagraphJsonServlet extends AbstractComponentServlet {
         WCMMode.DISABLED.toRequest(slingRequest);
 
         try {
-            final List<Paragraph> paragraphs = getParagraphs(request);
+            final List<Resource> resources = getParagraphResources(request);
+
+            if (resources != null) {
+                LOG.debug("{} paragraphs found on page", resources.size());
 
-            if (paragraphs != null) {
-                LOG.debug("{} paragraphs found on page", paragraphs.size());
+                final ParagraphSource paragraphs = getParagraphSource(request, resources);
 
-                writeJsonResponse(slingResponse, ImmutableMap.of("paragraphs", paragraphs));
+                try {
+                    if (streaming) {
+                        streamParagraphs(slingResponse, paragraphs);
+                    } else {
+                        writeParagraphs(slingResponse, renderParagraphs(paragraphs));
+                    }
+                } finally {
+                    paragraphs.close();
+                }
             } else {
                 LOG.info("null returned, indicating a lack of page or a lack of content");
 
@@ -97,14 +239,11 @@ public final class ParagraphJsonServlet extends AbstractComponentServlet {
 
     /**
      * @param request component servlet request
-     * @return A List of Paragraphs representing all components which exist within containers under a given Page
+     * @return A List of all components which exist within containers under a given Page, in document order if the
+     * containers were found by walking the tree
      * @throws RepositoryException
-     * @throws ServletException
-     * @throws IOException
      */
-    @SuppressWarnings("deprecation")
-    private List<Paragraph> getParagraphs(final ComponentServletRequest request)
-        throws RepositoryException, ServletException, IOException {
+    private List<Resource> getParagraphResources(final ComponentServletRequest request) throws RepositoryException {
         // Request the current page
         final PageDecorator currentPage = request.getCurrentPage();
 
@@ -123,22 +262,117 @@ public final class ParagraphJsonServlet extends AbstractComponentServlet {
             return null;
         }
 
+        // Find all container components which are children of the requested resources content node
+        final Set<String> containerComponentResourceTypes = containerComponentService.getContainerResourceTypes();
+
+        final List<Resource> resources = Lists.newArrayList();
+
+        if (containerComponentResourceTypes.isEmpty()) {
+            LOG.info("no container components found");
+
+            return resources;
+        }
+
+        final List<Resource> containers = getContainers(request, pageContentResource,
+            containerComponentResourceTypes);
+
+        // Go through the direct children of each container resource, adding the non-container children
+        for (final Resource container : containers) {
+            for (final Resource resource : container.getChildren()) {
+                if (!containerComponentResourceTypes.contains(resource.getResourceType())) {
+                    resources.add(resource);
+                }
+            }
+        }
+
+        return resources;
+    }
+
+    /**
+     * @param request component servlet request
+     * @param pageContentResource page content resource
+     * @param containerResourceTypes container component resource types
+     * @return container resources under the page content resource, in document order if found by walking the tree
+     * and in query result order otherwise
+     * @throws RepositoryException
+     */
+    private List<Resource> getContainers(final ComponentServletRequest request, final Resource pageContentResource,
+        final Set<String> containerResourceTypes) throws RepositoryException {
+        List<Resource> containers = null;
+
+        if (!MODE_QUERY.equals(collectionMode)) {
+            final int nodeLimit = MODE_TREE.equals(collectionMode) ? Integer.MAX_VALUE : treeWalkNodeLimit;
+
+            containers = getContainersFromTree(pageContentResource, containerResourceTypes, nodeLimit);
+
+            if (containers == null) {
+                LOG.debug("page content exceeds tree walk node limit = {}, using query", nodeLimit);
+            }
+        }
+
+        if (containers == null) {
+            containers = getContainersFromQuery(request, pageContentResource, containerResourceTypes);
+        }
+
+        return containers;
+    }
+
+    /**
+     * Find containers with a single depth-first walk of the page content resource.
+     *
+     * @param pageContentResource page content resource
+     * @param containerResourceTypes container component resource types
+     * @param nodeLimit maximum number of resources to visit
+     * @return container resources in document order or null if the node limit was exceeded
+     */
+    static List<Resource> getContainersFromTree(final Resource pageContentResource,
+        final Set<String> containerResourceTypes, final int nodeLimit) {
+        final List<Resource> containers = Lists.newArrayList();
+        final Deque<Iterator<Resource>> stack = new ArrayDeque<>();
+
+        stack.push(pageContentResource.listChildren());
+
+        int count = 0;
+
+        while (!stack.isEmpty()) {
+            final Iterator<Resource> children = stack.peek();
+
+            if (children.hasNext()) {
+                if (++count > nodeLimit) {
+                    return null;
+                }
+
+                final Resource resource = children.next();
+
+                if (containerResourceTypes.contains(resource.getResourceType())) {
+                    containers.add(resource);
+                }
+
+                stack.push(resource.listChildren());
+            } else {
+                stack.pop();
+            }
+        }
+
+        return containers;
+    }
+
+    @SuppressWarnings("deprecation")
+    private List<Resource> getContainersFromQuery(final ComponentServletRequest request,
+        final Resource pageContentResource, final Set<String> containerResourceTypes) throws RepositoryException {
         // Get a handle to the query manager
         final Session session = request.getResourceResolver().adaptTo(Session.class);
 
         final QueryManager queryManager = session.getWorkspace().getQueryManager();
 
-        // Find all container components which are children of the requested resources content node
-        final Set<String> containerComponentResourceTypes = getContainerComponents(queryManager);
-
         /*
          * Construct a query which will request all resources under the current page's content
          * node which are of a type indicated to be a container via the cq:isContainer property.
          */
         final List<String> resourceTypeAttributeQueryStrings = Lists.newArrayListWithExpectedSize(
-            containerComponentResourceTypes.size());
+            containerResourceTypes.size());
 
-        for (final String curContainerResourceType : containerComponentResourceTypes) {
+        for (final String curContainerResourceType : containerResourceTypes) {
             resourceTypeAttributeQueryStrings.add("@sling:resourceType='" + curContainerResourceType + "'");
         }
 
@@ -155,126 +389,227 @@ public final class ParagraphJsonServlet extends AbstractComponentServlet {
         final QueryResult resourceQueryResult = resourceQuery.execute();
         final NodeIterator resourceQueryResultIterator = resourceQueryResult.getNodes();
 
-        final List<Paragraph> paragraphs = Lists.newArrayList();
+        final List<Resource> containers = Lists.newArrayList();
 
-        /*
-         * Go through the direct children of each container resource, adding them to the
-         * final list of Paragraphs
-         */
         while (resourceQueryResultIterator.hasNext()) {
-            paragraphs.addAll(getChildParagraphs(request, resourceQueryResultIterator.nextNode().getPath(),
-                containerComponentResourceTypes));
+            final Resource container = request.getResourceResolver().getResource(
+                resourceQueryResultIterator.nextNode().getPath());
+
+            if (container != null) {
+                containers.add(container);
+            }
+        }
+
+        return containers;
+    }
+
+    /**
+     * @param request component servlet request
+     * @param resources paragraph resources
+     * @return paragraphs rendered concurrently if parallel rendering is enabled, otherwise rendered one at a time
+     */
+    private ParagraphSource getParagraphSource(final ComponentServletRequest request, final List<Resource> resources) {
+        final ParallelParagraphRenderer renderer = parallelRenderer;
+
+        ParagraphSource paragraphs = null;
+
+        if (renderer != null) {
+            try {
+                paragraphs = renderer.render(request.getSlingRequest(), request.getSlingResponse(), resources,
+                    getCharset(request.getSlingResponse()), metrics);
+            } catch (RejectedExecutionException e) {
+                LOG.debug("parallel renderer was replaced by a configuration change, rendering sequentially");
+            } catch (LoginException e) {
+                LOG.warn("unable to clone resource resolver, rendering sequentially", e);
+            }
+        }
+
+        if (paragraphs == null) {
+            paragraphs = new SequentialParagraphSource(request.getSlingRequest(), request.getSlingResponse(),
+                resources);
         }
 
-        // Return the list of paragraphs
         return paragraphs;
     }
 
     /**
-     * @param request
-     * @param parentPath
-     * @param containerResourceTypes
-     * @return A list of Paragraphs representing the non-container resources which are direct children of the resource
-     *         indicated by the parentPath
+     * Render all paragraphs before writing the response, so that rendering errors can still be sent as an error
+     * response.
+     *
+     * @param source paragraph source
+     * @return rendered paragraphs, to be released by the caller
      * @throws ServletException
      * @throws IOException
      */
-    private List<Paragraph> getChildParagraphs(final ComponentServletRequest request, final String parentPath,
-        final Set<String> containerResourceTypes) throws ServletException, IOException {
-        final List<Paragraph> paragraphs = Lists.newArrayList();
+    private List<RenderedParagraph> renderParagraphs(final ParagraphSource source) throws ServletException,
+        IOException {
+        final List<RenderedParagraph> paragraphs = Lists.newArrayList();
 
-        final Resource parentResource = request.getResourceResolver().getResource(parentPath);
-
-        if (parentResource != null) {
-            for (final Resource resource : parentResource.getChildren()) {
-                if (!containerResourceTypes.contains(resource.getResourceType())) {
-                    paragraphs.add(new Paragraph(resource.getPath(), renderResourceHtml(resource,
-                        request.getSlingRequest(), request.getSlingResponse())));
-                }
+        try {
+            while (source.hasNext()) {
+                paragraphs.add(source.next());
             }
+        } catch (ServletException | IOException | RuntimeException e) {
+            releaseParagraphs(paragraphs);
+
+            throw e;
         }
 
         return paragraphs;
     }
 
-    @SuppressWarnings("deprecation")
-    private Set<String> getContainerComponents(final QueryManager queryManager) throws RepositoryException {
-        final Set<String> containerComponentSet = Sets.newHashSet();
+    /**
+     * Write each paragraph to the response as soon as it is rendered, so that at most one rendered paragraph is held
+     * in memory.  Rendering errors after the response is committed result in a truncated response.
+     *
+     * @param response Sling response
+     * @param source paragraph source
+     * @throws ServletException
+     * @throws IOException
+     */
+    private void streamParagraphs(final SlingHttpServletResponse response, final ParagraphSource source)
+        throws ServletException, IOException {
+        final JsonGenerator generator = createJsonGenerator(response);
 
-        final Query containerComponentsFromLibsQuery = queryManager.createQuery(
-            CONTAINER_COMPONENTS_FROM_LIBS_XPATH_QUERY, Query.XPATH);
-        final Query containerComponentsFromAppsQuery = queryManager.createQuery(
-            CONTAINER_COMPONENTS_FROM_APPS_XPATH_QUERY, Query.XPATH);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("paragraphs");
 
-        final QueryResult containerComponentsFromLibsQueryResult = containerComponentsFromLibsQuery.execute();
-        final QueryResult containerComponentsFromAppsQueryResult = containerComponentsFromAppsQuery.execute();
+        int count = 0;
 
-        final NodeIterator containerComponentsFromLibsQueryResultIterator = containerComponentsFromLibsQueryResult
-            .getNodes();
-        final NodeIterator containerComponentsFromAppsQueryResultIterator = containerComponentsFromAppsQueryResult
-            .getNodes();
+        while (source.hasNext()) {
+            source.next().writeTo(generator);
 
-        LOG.debug("query execution complete");
+            if (++count % streamingFlushInterval == 0) {
+                generator.flush();
+            }
+        }
 
-        while (containerComponentsFromLibsQueryResultIterator.hasNext()) {
-            final Node curContainerComponentNode = containerComponentsFromLibsQueryResultIterator.nextNode();
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+    }
 
-            final String curNodePath = curContainerComponentNode.getPath();
+    private void writeParagraphs(final SlingHttpServletResponse response, final List<RenderedParagraph> paragraphs)
+        throws IOException {
+        try {
+            final JsonGenerator generator = createJsonGenerator(response);
 
-            LOG.debug("adding {} from libs as a container resource type", curNodePath);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("paragraphs");
 
-            if (curNodePath.startsWith(LIBS_PATH_STRING)) {
-                containerComponentSet.add(curNodePath.substring(LIBS_PATH_STRING.length()));
-            } else {
-                containerComponentSet.add(curContainerComponentNode.getPath());
+            for (final RenderedParagraph paragraph : paragraphs) {
+                paragraph.writeTo(generator);
             }
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.close();
+        } finally {
+            releaseParagraphs(paragraphs);
         }
+    }
 
-        while (containerComponentsFromAppsQueryResultIterator.hasNext()) {
-            final Node curContainerComponentNode = containerComponentsFromAppsQueryResultIterator.nextNode();
+    private static void releaseParagraphs(final List<RenderedParagraph> paragraphs) {
+        for (final RenderedParagraph paragraph : paragraphs) {
+            paragraph.release();
+        }
+    }
 
-            final String curNodePath = curContainerComponentNode.getPath();
+    /**
+     * Render a resource into a pooled capture buffer by including it through the current request.
+     *
+     * @param resource resource to render
+     * @param request Sling request
+     * @param response Sling response
+     * @return buffer containing the rendered HTML, to be released by the caller
+     * @throws ServletException
+     * @throws IOException
+     */
+    static CaptureBuffer renderResourceHtml(final Resource resource, final SlingHttpServletRequest request,
+        final SlingHttpServletResponse response) throws ServletException, IOException {
+        final CaptureBuffer buffer = CaptureBuffer.acquire(getCharset(response));
 
-            LOG.debug("adding {} from apps as a container resource type", curNodePath);
+        boolean rendered = false;
 
-            if (curNodePath.startsWith(APPS_PATH_STRING)) {
-                containerComponentSet.add(curNodePath.substring(APPS_PATH_STRING.length()));
-            } else {
-                containerComponentSet.add(curContainerComponentNode.getPath());
+        try {
+            final RequestDispatcher requestDispatcher = request.getRequestDispatcher(
+                resource.getPath() + "." + EXTENSION_HTML);
+
+            requestDispatcher.include(request, new CaptureResponseWrapper(response, buffer));
+
+            rendered = true;
+        } finally {
+            if (!rendered) {
+                buffer.release();
             }
         }
 
-        return containerComponentSet;
+        return buffer;
     }
 
-    private String renderResourceHtml(final Resource resource, final SlingHttpServletRequest request,
-        final SlingHttpServletResponse response) throws ServletException, IOException {
-        final Writer outputBuffer = new StringWriter();
+    protected void bindMetrics(final ParagraphRenderMetricsMBean metrics) {
+        this.metrics = metrics;
+    }
 
-        final ServletOutputStream outputStream = new ServletOutputStream() {
-            @Override
-            public void write(final int b) throws IOException {
-                outputBuffer.append((char) b);
-            }
-        };
+    protected void unbindMetrics(final ParagraphRenderMetricsMBean metrics) {
+        if (this.metrics == metrics) {
+            this.metrics = null;
+        }
+    }
 
-        final SlingHttpServletResponseWrapper responseWrapper = new SlingHttpServletResponseWrapper(response) {
-            @Override
-            public ServletOutputStream getOutputStream() {
-                return outputStream;
-            }
+    /**
+     * @param response Sling response
+     * @return charset used by included components writing to the response output stream
+     */
+    private static Charset getCharset(final SlingHttpServletResponse response) {
+        final String encoding = response.getCharacterEncoding();
 
-            @Override
-            public PrintWriter getWriter() throws IOException {
-                return new PrintWriter(outputBuffer);
-            }
-        };
+        Charset charset;
+
+        try {
+            charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("unsupported response character encoding = {}, using UTF-8", encoding);
+
+            charset = StandardCharsets.UTF_8;
+        }
+
+        return charset;
+    }
+
+    /**
+     * Renders each paragraph on the request thread when it is requested.
+     */
+    private static final class SequentialParagraphSource implements ParagraphSource {
 
-        final RequestDispatcher requestDispatcher = request.getRequestDispatcher(
-            resource.getPath() + "." + EXTENSION_HTML);
+        private final SlingHttpServletRequest request;
 
-        requestDispatcher.include(request, responseWrapper);
+        private final SlingHttpServletResponse response;
 
-        return outputBuffer.toString();
+        private final Iterator<Resource> resources;
+
+        SequentialParagraphSource(final SlingHttpServletRequest request, final SlingHttpServletResponse response,
+            final List<Resource> resources) {
+            this.request = request;
+            this.response = response;
+            this.resources = resources.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return resources.hasNext();
+        }
+
+        @Override
+        public RenderedParagraph next() throws ServletException, IOException {
+            final Resource resource = resources.next();
+
+            return new RenderedParagraph(resource.getPath(), renderResourceHtml(resource, request, response));
+        }
+
+        @Override
+        public void close() {
+            // paragraphs are only rendered when requested
+        }
     }
 }
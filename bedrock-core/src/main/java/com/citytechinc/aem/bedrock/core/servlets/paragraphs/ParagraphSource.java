@@ -0,0 +1,32 @@
+package com.citytechinc.aem.bedrock.core.servlets.paragraphs;
+
+import javax.servlet.ServletException;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Rendered paragraphs in document order.  Each paragraph returned by <code>next()</code> must be released by the
+ * caller, and the source must be closed to release paragraphs that were rendered but not consumed.
+ */
+interface ParagraphSource extends Closeable {
+
+    /**
+     * @return true if there are more paragraphs
+     */
+    boolean hasNext();
+
+    /**
+     * Get the next paragraph, rendering it if necessary.
+     *
+     * @return rendered paragraph
+     * @throws ServletException if an error occurs rendering the paragraph
+     * @throws IOException if an error occurs rendering the paragraph
+     */
+    RenderedParagraph next() throws ServletException, IOException;
+
+    /**
+     * Release all paragraphs that were not consumed.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,948 @@
+package com.citytechinc.aem.bedrock.core.servlets.paragraphs;
+
+import com.citytechinc.aem.bedrock.core.adapter.DecoratorCache;
+import com.citytechinc.aem.bedrock.core.jmx.ParagraphRenderMetricsMBean;
+import com.day.cq.wcm.api.WCMMode;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.engine.SlingRequestProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.citytechinc.aem.bedrock.core.constants.PathConstants.EXTENSION_HTML;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Renders paragraphs concurrently on a bounded pool of worker threads.  Sling requests are not thread-safe, so
+ * paragraphs are not included through the current request.  Instead, each paragraph is rendered as a separate request
+ * by the Sling request processor, using a snapshot of the current request, a response that captures into its own
+ * buffer, and a clone of the current resource resolver.  Workers never read from the current request or response, which
+ * may be recycled by the container before a timed out paragraph completes.  Paragraphs that call a request or response
+ * method that cannot be answered from the snapshot are rendered again by including them through the current request on
+ * the request thread.  Rendered paragraphs are returned in the order they were submitted.
+ */
+final class ParallelParagraphRenderer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelParagraphRenderer.class);
+
+    private static final String PARAMETER_WCM_MODE = "wcmmode";
+
+    /** paragraphs queued beyond this many per worker are rendered on the request thread */
+    private static final int QUEUE_CAPACITY_PER_WORKER = 4;
+
+    /** conditional and partial request headers are not forwarded, so that every paragraph is rendered in full */
+    private static final Set<String> EXCLUDED_HEADERS = ImmutableSet.of(HttpHeaders.IF_MATCH,
+        HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_RANGE,
+        HttpHeaders.IF_UNMODIFIED_SINCE, HttpHeaders.RANGE);
+
+    /** request and response methods that cannot be answered from the snapshot fail rather than reach the container */
+    private static final HttpServletRequest UNSUPPORTED_REQUEST = createUnsupported(HttpServletRequest.class);
+
+    private static final HttpServletResponse UNSUPPORTED_RESPONSE = createUnsupported(HttpServletResponse.class);
+
+    /**
+     * Runs paragraphs on the request thread when the queue is full.  Unlike <code>CallerRunsPolicy</code>, paragraphs
+     * submitted after shutdown are rejected rather than silently discarded.
+     */
+    private static final RejectedExecutionHandler CALLER_RUNS = new RejectedExecutionHandler() {
+        @Override
+        public void rejectedExecution(final Runnable task, final ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("paragraph renderer is shut down");
+            }
+
+            task.run();
+        }
+    };
+
+    private final SlingRequestProcessor requestProcessor;
+
+    private final ThreadPoolExecutor executor;
+
+    private final long timeout;
+
+    /**
+     * @param requestProcessor processor for rendering paragraph requests
+     * @param poolSize maximum number of concurrently rendered paragraphs
+     * @param timeout maximum time in milliseconds from the start of rendering to wait for paragraphs
+     */
+    ParallelParagraphRenderer(final SlingRequestProcessor requestProcessor, final int poolSize, final long timeout) {
+        this.requestProcessor = requestProcessor;
+        this.timeout = timeout;
+
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(poolSize * QUEUE_CAPACITY_PER_WORKER), new ThreadFactoryBuilder()
+            .setNameFormat("bedrock-paragraph-render-%d")
+            .setDaemon(true)
+            .build(), CALLER_RUNS);
+    }
+
+    /**
+     * Submit all paragraphs for rendering.  The resource resolver of the current request is cloned for each paragraph
+     * on the request thread.
+     *
+     * @param request current request
+     * @param response current response, only used to render paragraphs that cannot be rendered in parallel
+     * @param resources paragraph resources
+     * @param charset charset for decoding output written to the response output stream
+     * @param metrics render time metrics, or null if metrics are not recorded
+     * @return rendered paragraphs in the order of the resources
+     * @throws LoginException if the resource resolver cannot be cloned
+     * @throws RejectedExecutionException if the renderer was shut down
+     */
+    ParagraphSource render(final SlingHttpServletRequest request, final SlingHttpServletResponse response,
+        final List<Resource> resources, final Charset charset, final ParagraphRenderMetricsMBean metrics)
+        throws LoginException {
+        final long deadline = System.nanoTime() + MILLISECONDS.toNanos(timeout);
+        final RequestState state = new RequestState(request);
+        final ParallelParagraphSource source = new ParallelParagraphSource(request, response, resources, charset,
+            deadline, metrics);
+
+        for (final Resource resource : resources) {
+            // read on the request thread, workers only use the cloned resolver
+            final String path = resource.getPath();
+            final String resourceType = resource.getResourceType();
+
+            final RenderTask task;
+
+            try {
+                task = new RenderTask(request.getResourceResolver().clone(null), state, path, resourceType, charset,
+                    metrics);
+            } catch (LoginException e) {
+                source.close();
+
+                throw e;
+            }
+
+            try {
+                source.add(task, executor.submit(task), path, resourceType);
+            } catch (RejectedExecutionException e) {
+                task.discard();
+                source.close();
+
+                throw e;
+            }
+        }
+
+        return source;
+    }
+
+    /**
+     * Stop accepting paragraphs.  Paragraphs that were already submitted are still rendered, and the worker threads
+     * exit once they complete.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for each paragraph in order.  The timeout is measured from the start of rendering, so the total wait is
+     * bounded by the timeout regardless of the number of paragraphs.  Paragraphs that are not rendered by then are
+     * returned with empty HTML.  Queued paragraphs are cancelled, and running paragraphs are left to complete on their
+     * worker with their result discarded, since interrupting a render can leave the cloned resource resolver or
+     * repository session in an inconsistent state.
+     */
+    private final class ParallelParagraphSource implements ParagraphSource {
+
+        private final SlingHttpServletRequest request;
+
+        private final SlingHttpServletResponse response;
+
+        private final List<Resource> resources;
+
+        private final List<RenderTask> tasks;
+
+        private final List<Future<RenderedParagraph>> futures;
+
+        private final List<String> paths;
+
+        private final List<String> resourceTypes;
+
+        private final Charset charset;
+
+        private final long deadline;
+
+        private final ParagraphRenderMetricsMBean metrics;
+
+        private int index;
+
+        ParallelParagraphSource(final SlingHttpServletRequest request, final SlingHttpServletResponse response,
+            final List<Resource> resources, final Charset charset, final long deadline,
+            final ParagraphRenderMetricsMBean metrics) {
+            this.request = request;
+            this.response = response;
+            this.resources = resources;
+            this.charset = charset;
+            this.deadline = deadline;
+            this.metrics = metrics;
+
+            tasks = Lists.newArrayListWithCapacity(resources.size());
+            futures = Lists.newArrayListWithCapacity(resources.size());
+            paths = Lists.newArrayListWithCapacity(resources.size());
+            resourceTypes = Lists.newArrayListWithCapacity(resources.size());
+        }
+
+        void add(final RenderTask task, final Future<RenderedParagraph> future, final String path,
+            final String resourceType) {
+            tasks.add(task);
+            futures.add(future);
+            paths.add(path);
+            resourceTypes.add(resourceType);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < futures.size();
+        }
+
+        @Override
+        public RenderedParagraph next() throws ServletException, IOException {
+            final int current = index++;
+            final Future<RenderedParagraph> future = futures.get(current);
+
+            RenderedParagraph paragraph;
+
+            try {
+                paragraph = future.get(Math.max(0, deadline - System.nanoTime()), NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(false);
+                tasks.get(current).discard();
+
+                if (metrics != null) {
+                    metrics.recordTimeout(resourceTypes.get(current));
+                }
+
+                LOG.warn("paragraph not rendered within {}ms, returning empty HTML for path = {}", timeout,
+                    paths.get(current));
+
+                paragraph = new RenderedParagraph(paths.get(current), CaptureBuffer.acquire(charset));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new InterruptedIOException("interrupted waiting for paragraph = " + paths.get(current));
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof UnsupportedOperationException)) {
+                    Throwables.propagateIfPossible(e.getCause(), ServletException.class, IOException.class);
+
+                    throw new ServletException(e.getCause());
+                }
+
+                LOG.debug("paragraph = {} cannot be rendered in parallel, including it through the current request",
+                    paths.get(current), e.getCause());
+
+                paragraph = new RenderedParagraph(paths.get(current),
+                    ParagraphJsonServlet.renderResourceHtml(resources.get(current), request, response));
+            }
+
+            return paragraph;
+        }
+
+        @Override
+        public void close() {
+            for (int i = index; i < futures.size(); i++) {
+                final Future<RenderedParagraph> future = futures.get(i);
+
+                // running paragraphs are left to complete without waiting, their buffers are not returned to the pool
+                if (!future.cancel(false) && future.isDone()) {
+                    try {
+                        future.get().release();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException | CancellationException e) {
+                        // nothing to release
+                    }
+                }
+
+                tasks.get(i).discard();
+            }
+
+            index = futures.size();
+        }
+    }
+
+    /**
+     * Renders a single paragraph with a resource resolver cloned for the paragraph on the request thread.  The resolver
+     * is closed by the task, or by <code>discard</code> if the task is cancelled before it starts.
+     */
+    private final class RenderTask implements Callable<RenderedParagraph> {
+
+        private final ResourceResolver workerResourceResolver;
+
+        private final RequestState state;
+
+        private final String path;
+
+        private final String resourceType;
+
+        private final Charset charset;
+
+        private final ParagraphRenderMetricsMBean metrics;
+
+        /** set by whichever of the task or <code>discard</code> runs first, which then owns the resolver */
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        RenderTask(final ResourceResolver workerResourceResolver, final RequestState state, final String path,
+            final String resourceType, final Charset charset, final ParagraphRenderMetricsMBean metrics) {
+            this.workerResourceResolver = workerResourceResolver;
+            this.state = state;
+            this.path = path;
+            this.resourceType = resourceType;
+            this.charset = charset;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public RenderedParagraph call() throws Exception {
+            if (!started.compareAndSet(false, true)) {
+                throw new CancellationException("paragraph = " + path + " was discarded");
+            }
+
+            final long start = System.nanoTime();
+            final CaptureBuffer buffer = CaptureBuffer.acquire(charset);
+
+            boolean rendered = false;
+
+            try {
+                requestProcessor.processRequest(new RenderRequest(state, path + "." + EXTENSION_HTML),
+                    new RenderResponse(state, buffer, charset), workerResourceResolver);
+
+                rendered = true;
+            } finally {
+                if (!rendered) {
+                    buffer.release();
+                }
+
+                DecoratorCache.invalidate(workerResourceResolver);
+
+                workerResourceResolver.close();
+            }
+
+            final long duration = System.nanoTime() - start;
+
+            if (metrics != null) {
+                metrics.recordRender(resourceType, duration);
+            }
+
+            LOG.debug("rendered paragraph = {} in {}ms", path, NANOSECONDS.toMillis(duration));
+
+            return new RenderedParagraph(path, buffer);
+        }
+
+        /**
+         * Close the cloned resolver if the task has not started, e.g. after it was cancelled.
+         */
+        void discard() {
+            if (started.compareAndSet(false, true)) {
+                workerResourceResolver.close();
+            }
+        }
+    }
+
+    /**
+     * Create an instance of the given interface whose methods throw <code>UnsupportedOperationException</code>.
+     */
+    private static <T> T createUnsupported(final Class<T> type) {
+        final ClassLoader classLoader = ParallelParagraphRenderer.class.getClassLoader();
+
+        return type.cast(Proxy.newProxyInstance(classLoader, new Class<?>[]{ type }, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getDeclaringClass() == Object.class) {
+                    if ("equals".equals(method.getName())) {
+                        return proxy == args[0];
+                    }
+
+                    return "hashCode".equals(method.getName()) ? System.identityHashCode(proxy) :
+                        "unsupported " + type.getSimpleName();
+                }
+
+                throw new UnsupportedOperationException(method.getName() +
+                    " is not supported when rendering paragraphs in parallel");
+            }
+        }));
+    }
+
+    /**
+     * Immutable copy of the current request, taken on the request thread so that workers never read from the
+     * current request, which may be recycled by the container before a timed out paragraph completes.
+     */
+    private static final class RequestState {
+
+        private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        private final Map<String, String[]> parameters = new LinkedHashMap<>();
+
+        private final String queryString;
+
+        private final List<Locale> locales;
+
+        private final Cookie[] cookies;
+
+        private final String scheme;
+
+        private final String serverName;
+
+        private final int serverPort;
+
+        private final boolean secure;
+
+        private final String contextPath;
+
+        private final String remoteAddr;
+
+        private final String remoteHost;
+
+        private final String remoteUser;
+
+        private final String authType;
+
+        private final Principal userPrincipal;
+
+        private final String characterEncoding;
+
+        private final String protocol;
+
+        private final String localName;
+
+        private final String localAddr;
+
+        private final int localPort;
+
+        private final int remotePort;
+
+        private final String requestedSessionId;
+
+        @SuppressWarnings("unchecked")
+        RequestState(final SlingHttpServletRequest request) {
+            final Enumeration<String> headerNames = request.getHeaderNames();
+
+            while (headerNames != null && headerNames.hasMoreElements()) {
+                final String headerName = headerNames.nextElement();
+
+                if (!EXCLUDED_HEADERS.contains(headerName)) {
+                    headers.put(headerName, Collections.list((Enumeration<String>) request.getHeaders(headerName)));
+                }
+            }
+
+            // paragraph requests pass through the WCM request filter again, which reads the mode from the parameter
+            final String wcmMode = WCMMode.fromRequest(request).name().toLowerCase(Locale.ENGLISH);
+
+            parameters.putAll((Map<String, String[]>) request.getParameterMap());
+            parameters.put(PARAMETER_WCM_MODE, new String[]{ wcmMode });
+
+            final String requestQueryString = request.getQueryString();
+            final String wcmModeParameter = PARAMETER_WCM_MODE + "=" + wcmMode;
+
+            queryString = requestQueryString == null ? wcmModeParameter : requestQueryString + "&" + wcmModeParameter;
+            locales = Collections.list((Enumeration<Locale>) request.getLocales());
+            cookies = request.getCookies();
+            scheme = request.getScheme();
+            serverName = request.getServerName();
+            serverPort = request.getServerPort();
+            secure = request.isSecure();
+            contextPath = request.getContextPath();
+            remoteAddr = request.getRemoteAddr();
+            remoteHost = request.getRemoteHost();
+            remoteUser = request.getRemoteUser();
+            authType = request.getAuthType();
+            userPrincipal = request.getUserPrincipal();
+            characterEncoding = request.getCharacterEncoding();
+            protocol = request.getProtocol();
+            localName = request.getLocalName();
+            localAddr = request.getLocalAddr();
+            localPort = request.getLocalPort();
+            remotePort = request.getRemotePort();
+            requestedSessionId = request.getRequestedSessionId();
+        }
+    }
+
+    /**
+     * Request for rendering a single paragraph.  Attributes are local to the paragraph, and all other request data is
+     * read from the request snapshot.  The request has no body or session, and methods that would require the current
+     * request (e.g. <code>isUserInRole</code>) throw <code>UnsupportedOperationException</code>.
+     */
+    private static final class RenderRequest extends HttpServletRequestWrapper {
+
+        private final RequestState state;
+
+        private final String pathInfo;
+
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        RenderRequest(final RequestState state, final String pathInfo) {
+            super(UNSUPPORTED_REQUEST);
+
+            this.state = state;
+            this.pathInfo = pathInfo;
+        }
+
+        @Override
+        public String getMethod() {
+            return "GET";
+        }
+
+        @Override
+        public String getPathInfo() {
+            return pathInfo;
+        }
+
+        @Override
+        public String getPathTranslated() {
+            return null;
+        }
+
+        @Override
+        public String getServletPath() {
+            return "";
+        }
+
+        @Override
+        public String getContextPath() {
+            return state.contextPath;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return state.contextPath + pathInfo;
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            final StringBuffer url = new StringBuffer(state.scheme).append("://").append(state.serverName);
+
+            if (!("http".equals(state.scheme) && state.serverPort == 80) && !("https".equals(state.scheme) &&
+                state.serverPort == 443)) {
+                url.append(':').append(state.serverPort);
+            }
+
+            return url.append(getRequestURI());
+        }
+
+        @Override
+        public String getQueryString() {
+            return state.queryString;
+        }
+
+        @Override
+        public String getParameter(final String name) {
+            final String[] values = state.parameters.get(name);
+
+            return values == null || values.length == 0 ? null : values[0];
+        }
+
+        @Override
+        public Map getParameterMap() {
+            return Collections.unmodifiableMap(state.parameters);
+        }
+
+        @Override
+        public Enumeration getParameterNames() {
+            return Collections.enumeration(state.parameters.keySet());
+        }
+
+        @Override
+        public String[] getParameterValues(final String name) {
+            final String[] values = state.parameters.get(name);
+
+            return values == null ? null : values.clone();
+        }
+
+        @Override
+        public String getHeader(final String name) {
+            final List<String> values = state.headers.get(name);
+
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+
+        @Override
+        public Enumeration getHeaders(final String name) {
+            final List<String> values = state.headers.get(name);
+
+            return Collections.enumeration(values == null ? Collections.<String>emptyList() : values);
+        }
+
+        @Override
+        public Enumeration getHeaderNames() {
+            return Collections.enumeration(state.headers.keySet());
+        }
+
+        @Override
+        public int getIntHeader(final String name) {
+            final String value = getHeader(name);
+
+            return value == null ? -1 : Integer.parseInt(value);
+        }
+
+        @Override
+        public long getDateHeader(final String name) {
+            // the only date headers that affect rendering are conditional headers, which are not forwarded
+            return -1;
+        }
+
+        @Override
+        public Object getAttribute(final String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public Enumeration getAttributeNames() {
+            return Collections.enumeration(Lists.newArrayList(attributes.keySet()));
+        }
+
+        @Override
+        public void setAttribute(final String name, final Object value) {
+            if (value == null) {
+                attributes.remove(name);
+            } else {
+                attributes.put(name, value);
+            }
+        }
+
+        @Override
+        public void removeAttribute(final String name) {
+            attributes.remove(name);
+        }
+
+        @Override
+        public Locale getLocale() {
+            return state.locales.isEmpty() ? Locale.getDefault() : state.locales.get(0);
+        }
+
+        @Override
+        public Enumeration getLocales() {
+            return Collections.enumeration(state.locales);
+        }
+
+        @Override
+        public Cookie[] getCookies() {
+            return state.cookies;
+        }
+
+        @Override
+        public String getScheme() {
+            return state.scheme;
+        }
+
+        @Override
+        public String getServerName() {
+            return state.serverName;
+        }
+
+        @Override
+        public int getServerPort() {
+            return state.serverPort;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return state.secure;
+        }
+
+        @Override
+        public String getRemoteAddr() {
+            return state.remoteAddr;
+        }
+
+        @Override
+        public String getRemoteHost() {
+            return state.remoteHost;
+        }
+
+        @Override
+        public String getRemoteUser() {
+            return state.remoteUser;
+        }
+
+        @Override
+        public String getAuthType() {
+            return state.authType;
+        }
+
+        @Override
+        public Principal getUserPrincipal() {
+            return state.userPrincipal;
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return state.characterEncoding;
+        }
+
+        @Override
+        public void setCharacterEncoding(final String encoding) {
+            // parameters are already decoded
+        }
+
+        @Override
+        public String getProtocol() {
+            return state.protocol;
+        }
+
+        @Override
+        public String getContentType() {
+            // GET requests have no body
+            return null;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public String getLocalName() {
+            return state.localName;
+        }
+
+        @Override
+        public String getLocalAddr() {
+            return state.localAddr;
+        }
+
+        @Override
+        public int getLocalPort() {
+            return state.localPort;
+        }
+
+        @Override
+        public int getRemotePort() {
+            return state.remotePort;
+        }
+
+        @Override
+        public String getRequestedSessionId() {
+            return state.requestedSessionId;
+        }
+    }
+
+    /**
+     * Response for rendering a single paragraph.  Output is captured in the paragraph buffer, and status and header
+     * changes are ignored.  The response does not wrap the current response, so paragraphs cannot modify it.
+     */
+    private static final class RenderResponse extends HttpServletResponseWrapper {
+
+        private final RequestState state;
+
+        private final CaptureBuffer buffer;
+
+        private final Charset charset;
+
+        private String contentType;
+
+        RenderResponse(final RequestState state, final CaptureBuffer buffer, final Charset charset) {
+            super(UNSUPPORTED_RESPONSE);
+
+            this.state = state;
+            this.buffer = buffer;
+            this.charset = charset;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return buffer.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            return buffer.getWriter();
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return charset.name();
+        }
+
+        @Override
+        public void setCharacterEncoding(final String encoding) {
+            // output stream content is always decoded with the buffer charset
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public void setContentType(final String contentType) {
+            this.contentType = contentType;
+        }
+
+        @Override
+        public void setContentLength(final int length) {
+            // ignored
+        }
+
+        @Override
+        public Locale getLocale() {
+            return state.locales.isEmpty() ? Locale.getDefault() : state.locales.get(0);
+        }
+
+        @Override
+        public void setLocale(final Locale locale) {
+            // ignored
+        }
+
+        @Override
+        public int getBufferSize() {
+            return 0;
+        }
+
+        @Override
+        public void setBufferSize(final int size) {
+            // ignored
+        }
+
+        @Override
+        public void flushBuffer() {
+            buffer.getWriter().flush();
+        }
+
+        @Override
+        public void resetBuffer() {
+            buffer.clear();
+        }
+
+        @Override
+        public void reset() {
+            buffer.clear();
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return false;
+        }
+
+        @Override
+        public void setStatus(final int status) {
+            // ignored
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void setStatus(final int status, final String message) {
+            // ignored
+        }
+
+        @Override
+        public void sendError(final int status) {
+            LOG.debug("paragraph sent error status = {}", status);
+        }
+
+        @Override
+        public void sendError(final int status, final String message) {
+            LOG.debug("paragraph sent error status = {}, message = {}", status, message);
+        }
+
+        @Override
+        public void sendRedirect(final String location) {
+            LOG.debug("paragraph sent redirect to location = {}", location);
+        }
+
+        @Override
+        public boolean containsHeader(final String name) {
+            return false;
+        }
+
+        @Override
+        public void setHeader(final String name, final String value) {
+            // ignored
+        }
+
+        @Override
+        public void addHeader(final String name, final String value) {
+            // ignored
+        }
+
+        @Override
+        public void setDateHeader(final String name, final long date) {
+            // ignored
+        }
+
+        @Override
+        public void addDateHeader(final String name, final long date) {
+            // ignored
+        }
+
+        @Override
+        public void setIntHeader(final String name, final int value) {
+            // ignored
+        }
+
+        @Override
+        public void addIntHeader(final String name, final int value) {
+            // ignored
+        }
+
+        @Override
+        public void addCookie(final Cookie cookie) {
+            // ignored
+        }
+
+        @Override
+        public String encodeURL(final String url) {
+            // paragraph requests have no session to encode
+            return url;
+        }
+
+        @Override
+        public String encodeRedirectURL(final String url) {
+            return url;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public String encodeUrl(final String url) {
+            return url;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public String encodeRedirectUrl(final String url) {
+            return url;
+        }
+    }
+}
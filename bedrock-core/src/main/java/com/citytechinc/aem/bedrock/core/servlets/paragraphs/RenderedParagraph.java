@@ -0,0 +1,54 @@
+package com.citytechinc.aem.bedrock.core.servlets.paragraphs;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Component path and captured HTML for a paragraph rendered by the servlet.  The HTML buffer is released when the
+ * paragraph is written, so instances are only used within a single request.
+ */
+final class RenderedParagraph {
+
+    private final String path;
+
+    private final CaptureBuffer html;
+
+    private boolean released;
+
+    RenderedParagraph(final String path, final CaptureBuffer html) {
+        this.path = path;
+        this.html = html;
+    }
+
+    /**
+     * Write this paragraph to the generator as a JSON object and release the HTML buffer.
+     *
+     * @param generator JSON generator
+     * @throws IOException if an error occurs writing to the generator
+     */
+    void writeTo(final JsonGenerator generator) throws IOException {
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("path", path);
+            generator.writeFieldName("html");
+
+            html.writeTo(generator);
+
+            generator.writeEndObject();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Release the HTML buffer without writing this paragraph.  Releasing a paragraph more than once has no effect.
+     */
+    void release() {
+        if (!released) {
+            released = true;
+
+            html.release();
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.citytechinc.aem.bedrock.core.utils;
+
+import com.citytechinc.aem.bedrock.api.ImageDimensions;
+import com.day.cq.commons.ImageHelper;
+import com.day.cq.commons.jcr.JcrConstants;
+import com.day.cq.wcm.foundation.Image;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.RepositoryException;
+import java.awt.Rectangle;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Image utilities.  Image dimensions are read from the PNG, JPEG, GIF, or WebP file header rather than by decoding the
+ * image, and the dimensions of each image binary are cached.
+ */
+public final class ImageUtils {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImageUtils.class);
+
+    /** PNG signature, GIF and WebP headers, and the dimensions of all three fit in the first 30 bytes */
+    private static final int HEADER_LENGTH = 30;
+
+    private static final long MAXIMUM_CACHE_SIZE = 10000;
+
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    /**
+     * Source dimensions keyed by binary path, length, and binary modification time, so that a changed binary is probed
+     * again rather than invalidated.
+     */
+    private static final Cache<String, Optional<ImageDimensions>> SOURCE_DIMENSIONS = CacheBuilder.newBuilder()
+        .maximumSize(MAXIMUM_CACHE_SIZE)
+        .build();
+
+    /**
+     * Deny outside instantiation.
+     */
+    private ImageUtils() {
+
+    }
+
+    /**
+     * Get the modification time of an image binary from the <code>jcr:lastModified</code> property of the resource
+     * node containing the binary property, e.g. the <code>jcr:content</code> node of an <code>nt:file</code>.  Unlike
+     * the modification time of the image resource, this changes when the binary of a referenced asset is replaced.
+     *
+     * @param data image binary property
+     * @return modification time in milliseconds or 0 if the resource node has no modification time
+     * @throws RepositoryException if an error occurs reading the resource node
+     */
+    public static long getBinaryLastModified(final Property data) throws RepositoryException {
+        final Node resource = checkNotNull(data).getParent();
+
+        return resource.hasProperty(JcrConstants.JCR_LASTMODIFIED) ? resource.getProperty(
+            JcrConstants.JCR_LASTMODIFIED).getDate().getTimeInMillis() : 0;
+    }
+
+    /**
+     * Get the dimensions of the image binary, i.e. the original image before cropping, rotation, or resizing.
+     *
+     * @param image image
+     * @return dimensions or absent if the image has no binary or the image format is not recognized
+     * @throws RepositoryException if an error occurs reading the image binary
+     */
+    public static Optional<ImageDimensions> getSourceDimensions(final Image image) throws RepositoryException {
+        final Property data = checkNotNull(image).getData();
+
+        Optional<ImageDimensions> dimensions;
+
+        if (data == null) {
+            dimensions = Optional.absent();
+        } else {
+            final String key = data.getPath() + '|' + data.getLength() + '|' + getBinaryLastModified(data);
+
+            dimensions = SOURCE_DIMENSIONS.getIfPresent(key);
+
+            if (dimensions == null) {
+                dimensions = probeDimensions(data);
+
+                SOURCE_DIMENSIONS.put(key, dimensions);
+            }
+        }
+
+        return dimensions;
+    }
+
+    /**
+     * Get the dimensions of the image as rendered by the image servlet for the given width.  The source dimensions are
+     * resized to the width, then cropped and rotated.  Images are not resized to widths greater than their original
+     * width.  Images with a configured size (<code>width</code> or <code>height</code>) or size constraints
+     * (<code>minWidth</code>, <code>maxWidth</code>, <code>minHeight</code>, or <code>maxHeight</code>) are resized
+     * again by the image servlet after cropping and rotation, so their dimensions are not computed.
+     *
+     * @param image image
+     * @param width requested width or -1 for the full width
+     * @return dimensions or absent if the image has no binary, the image format is not recognized, the image has a
+     * configured size or size constraints, or the image is rotated by an angle that is not a multiple of 90 degrees
+     * @throws RepositoryException if an error occurs reading the image binary
+     */
+    public static Optional<ImageDimensions> getDimensions(final Image image, final int width)
+        throws RepositoryException {
+        final Optional<ImageDimensions> sourceDimensions = hasSizeProperties(checkNotNull(image)) ?
+            Optional.<ImageDimensions>absent() : getSourceDimensions(image);
+
+        Optional<ImageDimensions> dimensions = Optional.absent();
+
+        if (sourceDimensions.isPresent()) {
+            int renderedWidth = sourceDimensions.get().getWidth();
+            int renderedHeight = sourceDimensions.get().getHeight();
+
+            if (width > -1 && width < renderedWidth) {
+                renderedHeight = (width * renderedHeight) / renderedWidth;
+                renderedWidth = width;
+            }
+
+            final String cropData = image.get(Image.PN_IMAGE_CROP);
+
+            if (StringUtils.isNotEmpty(cropData)) {
+                final Rectangle rectangle = ImageHelper.getCropRect(cropData, image.getPath());
+
+                if (rectangle != null) {
+                    // the crop rectangle is clipped to the bounds of the image
+                    renderedWidth = Math.min(rectangle.x + rectangle.width, renderedWidth) - Math.max(rectangle.x, 0);
+                    renderedHeight = Math.min(rectangle.y + rectangle.height, renderedHeight) -
+                        Math.max(rectangle.y, 0);
+                }
+            }
+
+            final int rotation = NumberUtils.toInt(image.get(Image.PN_IMAGE_ROTATE), 0) % 360;
+
+            if (rotation % 90 == 0) {
+                dimensions = rotation % 180 == 0 ? createDimensions(renderedWidth, renderedHeight) :
+                    createDimensions(renderedHeight, renderedWidth);
+            }
+        }
+
+        return dimensions;
+    }
+
+    /**
+     * Read image dimensions from the header of a PNG, JPEG, GIF, or WebP image.  Only the header is read, and for JPEG
+     * images, the segments preceding the frame header.  The input stream is not closed.
+     *
+     * @param inputStream image input stream
+     * @return dimensions or absent if the image format is not recognized
+     * @throws IOException if an error occurs reading the stream
+     */
+    public static Optional<ImageDimensions> probeDimensions(final InputStream inputStream) throws IOException {
+        final BufferedInputStream bufferedInputStream = new BufferedInputStream(checkNotNull(inputStream),
+            HEADER_LENGTH);
+        final byte[] header = new byte[HEADER_LENGTH];
+
+        bufferedInputStream.mark(HEADER_LENGTH);
+
+        final int length = ByteStreams.read(bufferedInputStream, header, 0, HEADER_LENGTH);
+
+        Optional<ImageDimensions> dimensions = Optional.absent();
+
+        if (length >= 24 && startsWith(header, PNG_SIGNATURE) && startsWith(header, 12, "IHDR")) {
+            dimensions = createDimensions(readInt(header, 16), readInt(header, 20));
+        } else if (length >= 10 && startsWith(header, 0, "GIF8")) {
+            dimensions = createDimensions(readLittleEndian(header, 6, 2), readLittleEndian(header, 8, 2));
+        } else if (length >= HEADER_LENGTH && startsWith(header, 0, "RIFF") && startsWith(header, 8, "WEBP")) {
+            dimensions = probeWebpDimensions(header);
+        } else if (length >= 2 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8) {
+            bufferedInputStream.reset();
+
+            dimensions = probeJpegDimensions(new DataInputStream(bufferedInputStream));
+        }
+
+        return dimensions;
+    }
+
+    /**
+     * Check if the image has any of the size properties that are applied by <code>Image.resize()</code>.
+     */
+    private static boolean hasSizeProperties(final Image image) {
+        return StringUtils.isNotEmpty(image.get(Image.PN_WIDTH)) ||
+            StringUtils.isNotEmpty(image.get(Image.PN_HEIGHT)) ||
+            NumberUtils.toInt(image.get(Image.PN_MIN_WIDTH), 0) > 0 ||
+            NumberUtils.toInt(image.get(Image.PN_MAX_WIDTH), 0) > 0 ||
+            NumberUtils.toInt(image.get(Image.PN_MIN_HEIGHT), 0) > 0 ||
+            NumberUtils.toInt(image.get(Image.PN_MAX_HEIGHT), 0) > 0;
+    }
+
+    private static Optional<ImageDimensions> probeDimensions(final Property data) throws RepositoryException {
+        final Binary binary = data.getBinary();
+
+        Optional<ImageDimensions> dimensions;
+
+        try {
+            final InputStream stream = binary.getStream();
+
+            try {
+                dimensions = probeDimensions(stream);
+            } finally {
+                Closeables.close(stream, true);
+            }
+        } catch (IOException e) {
+            LOG.warn("error reading image header for binary = {}", data.getPath(), e);
+
+            dimensions = Optional.absent();
+        } finally {
+            binary.dispose();
+        }
+
+        if (!dimensions.isPresent()) {
+            LOG.debug("image format not recognized for binary = {}", data.getPath());
+        }
+
+        return dimensions;
+    }
+
+    private static Optional<ImageDimensions> probeWebpDimensions(final byte[] header) {
+        Optional<ImageDimensions> dimensions = Optional.absent();
+
+        if (startsWith(header, 12, "VP8X")) {
+            // extended format, canvas dimensions minus one
+            dimensions = createDimensions(readLittleEndian(header, 24, 3) + 1, readLittleEndian(header, 27, 3) + 1);
+        } else if (startsWith(header, 12, "VP8L") && header[20] == 0x2F) {
+            // lossless format, 14 bit dimensions minus one following the signature byte
+            final int bits = readLittleEndian(header, 21, 4);
+
+            dimensions = createDimensions((bits & 0x3FFF) + 1, ((bits >> 14) & 0x3FFF) + 1);
+        } else if (startsWith(header, 12, "VP8 ") && (header[23] & 0xFF) == 0x9D && header[24] == 0x01 &&
+            header[25] == 0x2A) {
+            // lossy format, 14 bit dimensions following the key frame start code
+            dimensions = createDimensions(readLittleEndian(header, 26, 2) & 0x3FFF,
+                readLittleEndian(header, 28, 2) & 0x3FFF);
+        }
+
+        return dimensions;
+    }
+
+    /**
+     * Read segments up to the first start of frame segment, which contains the image dimensions.
+     */
+    private static Optional<ImageDimensions> probeJpegDimensions(final DataInputStream input) throws IOException {
+        // start of image
+        ByteStreams.skipFully(input, 2);
+
+        Optional<ImageDimensions> dimensions = null;
+
+        while (dimensions == null) {
+            if (input.readUnsignedByte() != 0xFF) {
+                dimensions = Optional.absent();
+            } else {
+                int marker = input.readUnsignedByte();
+
+                // skip fill bytes
+                while (marker == 0xFF) {
+                    marker = input.readUnsignedByte();
+                }
+
+                if (marker == 0xD9 || marker == 0xDA) {
+                    // end of image or start of scan before a frame header
+                    dimensions = Optional.absent();
+                } else if (marker != 0x01 && (marker < 0xD0 || marker > 0xD7)) {
+                    // all other markers except standalone markers are followed by a segment
+                    final int length = input.readUnsignedShort();
+
+                    if (length < 2) {
+                        dimensions = Optional.absent();
+                    } else if (isStartOfFrame(marker)) {
+                        // sample precision
+                        input.readUnsignedByte();
+
+                        final int height = input.readUnsignedShort();
+                        final int width = input.readUnsignedShort();
+
+                        dimensions = createDimensions(width, height);
+                    } else {
+                        ByteStreams.skipFully(input, length - 2);
+                    }
+                }
+            }
+        }
+
+        return dimensions;
+    }
+
+    private static boolean isStartOfFrame(final int marker) {
+        // 0xC4, 0xC8, and 0xCC are huffman table, reserved, and arithmetic coding markers
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static Optional<ImageDimensions> createDimensions(final int width, final int height) {
+        return width > 0 && height > 0 ? Optional.<ImageDimensions>of(new Dimensions(width, height)) :
+            Optional.<ImageDimensions>absent();
+    }
+
+    private static boolean startsWith(final byte[] header, final byte[] prefix) {
+        boolean startsWith = true;
+
+        for (int i = 0; i < prefix.length && startsWith; i++) {
+            startsWith = header[i] == prefix[i];
+        }
+
+        return startsWith;
+    }
+
+    private static boolean startsWith(final byte[] header, final int offset, final String prefix) {
+        boolean startsWith = true;
+
+        for (int i = 0; i < prefix.length() && startsWith; i++) {
+            startsWith = header[offset + i] == prefix.charAt(i);
+        }
+
+        return startsWith;
+    }
+
+    private static int readInt(final byte[] header, final int offset) {
+        return (header[offset] & 0xFF) << 24 | (header[offset + 1] & 0xFF) << 16 | (header[offset + 2] & 0xFF) << 8 |
+            (header[offset + 3] & 0xFF);
+    }
+
+    private static int readLittleEndian(final byte[] header, final int offset, final int length) {
+        int value = 0;
+
+        for (int i = length - 1; i >= 0; i--) {
+            value = value << 8 | (header[offset + i] & 0xFF);
+        }
+
+        return value;
+    }
+
+    private static final class Dimensions implements ImageDimensions {
+
+        private final int width;
+
+        private final int height;
+
+        Dimensions(final int width, final int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof ImageDimensions && width == ((ImageDimensions) other).getWidth() &&
+                height == ((ImageDimensions) other).getHeight();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(width, height);
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).add("width", width).add("height", height).toString();
+        }
+    }
+}
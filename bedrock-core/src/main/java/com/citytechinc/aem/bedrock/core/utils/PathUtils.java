@@ -1,9 +1,14 @@
 package com.citytechinc.aem.bedrock.core.utils;
 
+import com.citytechinc.aem.bedrock.core.adapter.DecoratorCache;
 import com.citytechinc.aem.bedrock.core.constants.PathConstants;
+import com.citytechinc.aem.bedrock.core.services.OptionalServiceTracker;
+import com.citytechinc.aem.bedrock.core.services.cache.MappingCacheService;
+import com.citytechinc.aem.bedrock.core.services.cache.PathExistenceCacheService;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.ResourceResolver;
 
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 
 import static com.citytechinc.aem.bedrock.core.constants.PathConstants.PATH_JCR_CONTENT;
@@ -15,6 +20,15 @@ import static org.apache.sling.api.resource.Resource.RESOURCE_TYPE_NON_EXISTING;
  */
 public final class PathUtils {
 
+    /** URI scheme (e.g. "http:", "mailto:", "tel:") or network-path reference */
+    private static final Pattern EXTERNAL_PREFIX = Pattern.compile("^(//|[a-zA-Z][a-zA-Z0-9+.-]*:)");
+
+    private static final OptionalServiceTracker<PathExistenceCacheService> PATH_EXISTENCE_CACHE_SERVICE =
+        new OptionalServiceTracker<PathExistenceCacheService>(PathExistenceCacheService.class);
+
+    private static final OptionalServiceTracker<MappingCacheService> MAPPING_CACHE_SERVICE =
+        new OptionalServiceTracker<MappingCacheService>(MappingCacheService.class);
+
     /**
      * Deny outside instantiation.
      */
@@ -43,15 +57,69 @@ public final class PathUtils {
     }
 
     /**
-     * Determine if the given path is external by verifying that it corresponds to an existing Sling resource.
+     * Determine if the given path is external by verifying that it corresponds to an existing Sling resource.  Values
+     * with a URI scheme (e.g. "http:", "mailto:", or "tel:") or starting with "//" are external without resolving.
+     * Other results are cached for the lifetime of the resource resolver, and across requests if the path existence
+     * cache service is enabled.
      *
      * @param path JCR path or external URL
      * @param resourceResolver Sling resource resolver
-     * @return true if path resolves to a valid Sling resource
+     * @return true if path does not resolve to a valid Sling resource
      */
     public static boolean isExternal(final String path, final ResourceResolver resourceResolver) {
-        return RESOURCE_TYPE_NON_EXISTING.equals(checkNotNull(resourceResolver).resolve(checkNotNull(path))
-            .getResourceType());
+        checkNotNull(path);
+        checkNotNull(resourceResolver);
+
+        final boolean external;
+
+        if (EXTERNAL_PREFIX.matcher(path).find()) {
+            external = true;
+        } else {
+            external = !DecoratorCache.get(resourceResolver, Boolean.class, path, new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    final PathExistenceCacheService cacheService = PATH_EXISTENCE_CACHE_SERVICE.getService();
+
+                    final boolean exists;
+
+                    if (cacheService != null && cacheService.isEnabled() && !resourceResolver.hasChanges()) {
+                        exists = cacheService.exists(resourceResolver, path);
+                    } else {
+                        exists = !RESOURCE_TYPE_NON_EXISTING.equals(resourceResolver.resolve(path).getResourceType());
+                    }
+
+                    return exists;
+                }
+            });
+        }
+
+        return external;
+    }
+
+    /**
+     * Map the given path through the resource resolver.  The mapped path is cached across requests if the mapping
+     * cache service is enabled and the resource resolver has no pending changes.
+     *
+     * @param path JCR path
+     * @param resourceResolver Sling resource resolver
+     * @return mapped path
+     */
+    public static String getMappedPath(final String path, final ResourceResolver resourceResolver) {
+        checkNotNull(path);
+
+        checkNotNull(resourceResolver);
+
+        final MappingCacheService cacheService = MAPPING_CACHE_SERVICE.getService();
+
+        final String mappedPath;
+
+        if (cacheService != null && cacheService.isEnabled() && !resourceResolver.hasChanges()) {
+            mappedPath = cacheService.map(resourceResolver, path);
+        } else {
+            mappedPath = resourceResolver.map(path);
+        }
+
+        return mappedPath;
     }
 
     /**
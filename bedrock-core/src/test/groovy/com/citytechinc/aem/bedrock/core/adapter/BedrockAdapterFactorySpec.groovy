@@ -8,6 +8,9 @@ import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
 import spock.lang.Shared
 import spock.lang.Unroll
 
+import javax.jcr.observation.Event
+import javax.jcr.observation.EventIterator
+
 @Unroll
 class BedrockAdapterFactorySpec extends BedrockSpec {
 
@@ -62,6 +65,87 @@ class BedrockAdapterFactorySpec extends BedrockSpec {
         !adapterFactory.getAdapter(resourceResolver, String)
     }
 
+    def "repeated resource adapt returns cached decorator"() {
+        setup:
+        pageBuilder.content {
+            cached()
+        }
+
+        def resource = resourceResolver.getResource("/content/cached")
+
+        expect:
+        adapterFactory.getAdapter(resource, type).is(adapterFactory.getAdapter(resource, type))
+
+        where:
+        type << [PageDecorator, ComponentNode]
+    }
+
+    def "repeated resource resolver adapt returns cached page manager"() {
+        expect:
+        adapterFactory.getAdapter(resourceResolver, PageManagerDecorator).is(
+            adapterFactory.getAdapter(resourceResolver, PageManagerDecorator))
+    }
+
+    def "resource resolver with pending changes does not return cached decorator"() {
+        setup:
+        pageBuilder.content {
+            pending()
+        }
+
+        def resource = resourceResolver.getResource("/content/pending")
+        def page = adapterFactory.getAdapter(resource, PageDecorator)
+
+        resourceResolver.create(resource, "child", [:])
+
+        expect:
+        !page.is(adapterFactory.getAdapter(resource, PageDecorator))
+
+        cleanup:
+        resourceResolver.revert()
+    }
+
+    def "invalidate discards cached decorators"() {
+        setup:
+        pageBuilder.content {
+            invalidated()
+        }
+
+        def resource = resourceResolver.getResource("/content/invalidated")
+        def page = adapterFactory.getAdapter(resource, PageDecorator)
+
+        DecoratorCache.invalidate(resourceResolver)
+
+        expect:
+        !page.is(adapterFactory.getAdapter(resource, PageDecorator))
+    }
+
+    def "content change event discards cached decorators for changed path"() {
+        setup:
+        pageBuilder.content {
+            changed()
+            unchanged()
+        }
+
+        def resource = resourceResolver.getResource("/content/changed")
+        def unchangedResource = resourceResolver.getResource("/content/unchanged")
+        def page = adapterFactory.getAdapter(resource, PageDecorator)
+        def unchangedPage = adapterFactory.getAdapter(unchangedResource, PageDecorator)
+
+        def events = [Mock(Event) {
+            getPath() >> "/content/changed/jcr:content/jcr:title"
+            getType() >> Event.PROPERTY_CHANGED
+        }].iterator()
+
+        new DecoratorCacheEventListener.InvalidatingEventListener().onEvent([
+            hasNext: { events.hasNext() },
+            nextEvent: { events.next() }
+        ] as EventIterator)
+
+        expect:
+        !page.is(adapterFactory.getAdapter(resource, PageDecorator))
+        unchangedPage.is(adapterFactory.getAdapter(unchangedResource, PageDecorator))
+    }
+
     def "get invalid adapter returns null"() {
         expect:
         !adapterFactory.getAdapter("", String)
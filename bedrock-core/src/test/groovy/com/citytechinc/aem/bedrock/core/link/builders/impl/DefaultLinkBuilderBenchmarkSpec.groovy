@@ -0,0 +1,146 @@
+package com.citytechinc.aem.bedrock.core.link.builders.impl
+
+import com.citytechinc.aem.bedrock.api.link.Link
+import com.citytechinc.aem.bedrock.api.link.NavigationLink
+import com.citytechinc.aem.bedrock.api.link.enums.LinkTarget
+import com.citytechinc.aem.bedrock.api.page.PageManagerDecorator
+import com.citytechinc.aem.bedrock.core.link.builders.factory.LinkBuilderFactory
+import com.citytechinc.aem.bedrock.core.link.impl.DefaultLink
+import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
+import com.citytechinc.aem.bedrock.core.specs.BenchmarkTrait
+import com.citytechinc.aem.bedrock.core.utils.PathUtils
+import com.google.common.collect.LinkedHashMultimap
+import com.google.common.collect.SetMultimap
+import spock.lang.Requires
+
+@Requires({ System.getProperty("benchmark") })
+class DefaultLinkBuilderBenchmarkSpec extends BedrockSpec implements BenchmarkTrait {
+
+    static final int LINK_COUNT = 1000
+
+    def setupSpec() {
+        pageBuilder.content {
+            global("Global") {
+                "jcr:content"(navTitle: "Global Navigation")
+            }
+        }
+    }
+
+    def "bare path links allocate less than eager builder baseline"() {
+        expect:
+        measureAllocation("forPath() bare path") {
+            LINK_COUNT.times { LinkBuilderFactory.forPath("/content/global").build() }
+        } < measureAllocation("forPath() bare path, eager baseline") {
+            LINK_COUNT.times { buildEagerBaseline("/content/global", [], [:]) }
+        }
+    }
+
+    def "links with selectors and parameters allocate less than eager builder baseline"() {
+        expect:
+        measureAllocation("forPath() with selectors and parameters") {
+            LINK_COUNT.times {
+                LinkBuilderFactory.forPath("/content/global").addSelector("a").addParameter("b", "c").build()
+            }
+        } < measureAllocation("forPath() with selectors and parameters, eager baseline") {
+            LINK_COUNT.times { buildEagerBaseline("/content/global", ["a"], [b: "c"]) }
+        }
+    }
+
+    def "build links for page"() {
+        setup:
+        def page = resourceResolver.adaptTo(PageManagerDecorator).getPage("/content/global")
+
+        when:
+        measureAllocation("forPage() unmapped") {
+            LINK_COUNT.times { LinkBuilderFactory.forPage(page).build() }
+        }
+
+        measureTime("forPage() mapped") {
+            LINK_COUNT.times { LinkBuilderFactory.forPage(page, true).build() }
+        }
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "build links for resource"() {
+        setup:
+        def resource = getResource("/content/global/jcr:content")
+
+        when:
+        measureAllocation("forResource() unmapped") {
+            LINK_COUNT.times { LinkBuilderFactory.forResource(resource).build() }
+        }
+
+        measureTime("forResource() mapped") {
+            LINK_COUNT.times { LinkBuilderFactory.forResource(resource, true).build() }
+        }
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "build navigation links"() {
+        when:
+        measureAllocation("forPath() navigation link") {
+            LINK_COUNT.times { LinkBuilderFactory.forPath("/content/global").setActive(true).buildNavigationLink() }
+        }
+
+        then:
+        noExceptionThrown()
+    }
+
+    /**
+     * Allocations of the builder before lazy collections and single-pass href building: every builder created its
+     * parameter, property, selector, and child collections, and the href was concatenated from separately built host,
+     * selector, and query strings.
+     */
+    private static Link buildEagerBaseline(String path, List<String> addedSelectors,
+        Map<String, String> addedParameters) {
+        SetMultimap<String, String> parameters = LinkedHashMultimap.create()
+        Map<String, String> properties = [:]
+        List<String> selectors = []
+        List<NavigationLink> children = []
+
+        def external = PathUtils.isExternal(path)
+
+        selectors.addAll(addedSelectors)
+        addedParameters.each { name, value -> parameters.put(name, value) }
+
+        def builder = new StringBuilder()
+
+        builder.append(new StringBuilder().toString())
+        builder.append(path)
+
+        def selectorBuilder = new StringBuilder()
+
+        selectors.each { selector -> selectorBuilder.append('.').append(selector) }
+
+        builder.append(selectorBuilder.toString())
+        builder.append('.').append("html")
+
+        def queryBuilder = new StringBuilder()
+
+        if (!parameters.empty) {
+            queryBuilder.append('?')
+
+            parameters.keySet().each { name ->
+                parameters.get(name).each { value ->
+                    queryBuilder.append(URLEncoder.encode(name, "UTF-8")).append('=')
+                        .append(URLEncoder.encode(value, "UTF-8")).append('&')
+                }
+            }
+
+            queryBuilder.deleteCharAt(queryBuilder.length() - 1)
+        }
+
+        def queryString = queryBuilder.toString()
+
+        builder.append(queryString)
+
+        assert children.empty
+
+        new DefaultLink(path, "html", "", builder.toString(), selectors, queryString, external,
+            LinkTarget.SELF.target, "", properties)
+    }
+}
@@ -241,6 +241,26 @@ class DefaultLinkBuilderSpec extends BedrockSpec {
         link.queryString == "?a=1&a=2&a=3"
     }
 
+    def "build link for path with interleaved parameters groups values by name"() {
+        setup:
+        def link = LinkBuilderFactory.forPath("/content").addParameter("a", "1").addParameter("b", "2")
+            .addParameter("a", "3").build()
+
+        expect:
+        link.href == "/content.html?a=1&a=3&b=2"
+    }
+
+    def "build link for path without selectors, properties, or children"() {
+        setup:
+        def navigationLink = LinkBuilderFactory.forPath("/content").buildNavigationLink()
+
+        expect:
+        navigationLink.selectors == []
+        navigationLink.properties == [:]
+        navigationLink.children == []
+        navigationLink.queryString == ""
+    }
+
     def "build image link"() {
         setup:
         def imageLink = LinkBuilderFactory.forPath("/content/global").setImageSource(imageSource).buildImageLink()
@@ -326,6 +326,18 @@ class DefaultBasicNodeSpec extends BedrockSpec {
         "/content/citytechinc/jcr:content/bourbon" | true
     }
 
+    def "get image dimensions for node without image"() {
+        setup:
+        def node = getBasicNode(path)
+
+        expect:
+        !node.imageDimensions.present
+        !node.getImageDimensions(100).present
+
+        where:
+        path << ["/content/ales/esb/jcr:content", "/content/citytechinc/jcr:content/whiskey"]
+    }
+
     def "get image source"() {
         setup:
         def node = getBasicNode(path)
@@ -0,0 +1,76 @@
+package com.citytechinc.aem.bedrock.core.node.impl
+
+import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
+import com.citytechinc.aem.bedrock.core.specs.BenchmarkTrait
+import com.day.cq.commons.inherit.HierarchyNodeInheritanceValueMap
+import com.google.common.base.Predicates
+import spock.lang.Requires
+
+@Requires({ System.getProperty("benchmark") })
+class DefaultComponentNodeBenchmarkSpec extends BedrockSpec implements BenchmarkTrait {
+
+    static final int PARAGRAPH_COUNT = 500
+
+    def setupSpec() {
+        pageBuilder.content {
+            wide {
+                "jcr:content" {
+                    par {
+                        PARAGRAPH_COUNT.times { index ->
+                            "paragraph$index"("sling:resourceType": "text", text: "paragraph $index") {
+                                image(fileReference: "/content/dam/image$index")
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    def "lazy traversal allocates less than eager value map baseline"() {
+        setup:
+        def par = getComponentNode("/content/wide/jcr:content/par")
+
+        expect:
+        measureAllocation("getComponentNodes() paths only, lazy") {
+            par.componentNodes*.path
+        } < measureAllocation("getComponentNodes() paths only, eager baseline") {
+            // value maps built by the component node constructor before lazy initialization
+            par.componentNodes.collect { node ->
+                node.resource.valueMap
+                new HierarchyNodeInheritanceValueMap(node.resource)
+
+                node.path
+            }
+        }
+    }
+
+    def "wide paragraph system traversal reading paths only"() {
+        setup:
+        def par = getComponentNode("/content/wide/jcr:content/par")
+
+        expect:
+        measureAllocation("getComponentNodes() paths only") {
+            par.componentNodes*.path
+        } < measureAllocation("getComponentNodes() with property reads") {
+            par.componentNodes*.get("text", "")
+        }
+    }
+
+    def "lazy descendant search allocates less than eager value map baseline"() {
+        setup:
+        def par = getComponentNode("/content/wide/jcr:content/par")
+
+        expect:
+        measureAllocation("findDescendants() paths only, lazy") {
+            par.findDescendants(Predicates.alwaysTrue())*.path
+        } < measureAllocation("findDescendants() paths only, eager baseline") {
+            par.findDescendants(Predicates.alwaysTrue()).collect { node ->
+                node.resource.valueMap
+                new HierarchyNodeInheritanceValueMap(node.resource)
+
+                node.path
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.citytechinc.aem.bedrock.api.node.ComponentNode
 import com.citytechinc.aem.bedrock.core.node.predicates.ComponentNodePropertyExistsPredicate
 import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
 import com.google.common.base.Predicate
+import com.google.common.base.Predicates
 import spock.lang.Unroll
 
 @Unroll
@@ -89,6 +90,7 @@ class DefaultComponentNodeSpec extends BedrockSpec {
                         other()
                     }
                 }
+                nocontent()
             }
         }
 
@@ -183,6 +185,46 @@ class DefaultComponentNodeSpec extends BedrockSpec {
         node.findDescendants(predicate).size() == 3
     }
 
+    def "find descendants with limit"() {
+        setup:
+        def node = getComponentNode("/content/citytechinc/jcr:content")
+        def predicate = new ComponentNodePropertyExistsPredicate("sling:resourceType")
+
+        expect:
+        node.findDescendants(predicate, 2)*.resource*.name == ["whiskey", "one"]
+    }
+
+    def "find first descendant"() {
+        setup:
+        def node = getComponentNode("/content/citytechinc/jcr:content")
+        def predicate = new ComponentNodePropertyExistsPredicate("sling:resourceType")
+
+        expect:
+        node.findFirstDescendant(predicate).get().path == "/content/citytechinc/jcr:content/whiskey"
+    }
+
+    def "iterate descendants with traversal predicate and max depth"() {
+        setup:
+        def node = getComponentNode("/content/citytechinc/jcr:content")
+        def traversalPredicate = new Predicate<ComponentNode>() {
+            @Override
+            boolean apply(ComponentNode componentNode) {
+                componentNode.resource.name != excludedName
+            }
+        }
+
+        expect:
+        node.iterateDescendants(Predicates.alwaysTrue(), traversalPredicate, maxDepth).collect { descendant ->
+            descendant.resource.name
+        } == names
+
+        where:
+        excludedName | maxDepth | names
+        ""           | -1       | ["nsfwImage", "beer", "whiskey", "malort", "one", "two"]
+        ""           | 1        | ["nsfwImage", "beer", "whiskey", "malort"]
+        "malort"     | -1       | ["nsfwImage", "beer", "whiskey"]
+    }
+
     def "get as href inherited"() {
         setup:
         def node = getComponentNode(path)
@@ -351,6 +393,19 @@ class DefaultComponentNodeSpec extends BedrockSpec {
         "/content/ales/esb/jcr:content/fullers"                           | "any"         | ""
     }
 
+    def "get inherited returns default for node outside of page content"() {
+        setup:
+        def node = getComponentNode(path)
+
+        expect:
+        node.getInherited("jcr:title", "") == ""
+        !node.getNodeInherited("component").present
+        !node.findAncestorWithProperty("jcr:title").present
+
+        where:
+        path << ["/content/inheritance/child", "/content/inheritance/nocontent"]
+    }
+
     def "get inherited optional"() {
         setup:
         def node = getComponentNode("/content/ales/esb/lace/jcr:content")
@@ -0,0 +1,50 @@
+package com.citytechinc.aem.bedrock.core.page.impl
+
+import com.citytechinc.aem.bedrock.api.page.PageDecorator
+import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
+import com.google.common.base.Predicate
+
+class AncestorChainSpec extends BedrockSpec {
+
+    def setupSpec() {
+        pageBuilder.content {
+            citytechinc {
+                "jcr:content"(inherited: "value")
+                ales {
+                    esb()
+                }
+            }
+        }
+    }
+
+    def "chain contains page and ancestors, nearest first"() {
+        setup:
+        def chain = AncestorChain.forPage(getPage("/content/citytechinc/ales/esb"))
+
+        expect:
+        chain.pages*.path == ["/content/citytechinc/ales/esb", "/content/citytechinc/ales", "/content/citytechinc",
+            "/content"]
+    }
+
+    def "chain is cached for resource resolver"() {
+        setup:
+        def page = getPage("/content/citytechinc/ales/esb")
+
+        expect:
+        AncestorChain.forPage(page).is(AncestorChain.forPage(page))
+    }
+
+    def "find nearest matching page"() {
+        setup:
+        def chain = AncestorChain.forPage(getPage("/content/citytechinc/ales/esb"))
+        def predicate = new Predicate<PageDecorator>() {
+            @Override
+            boolean apply(PageDecorator page) {
+                page.get("inherited", String).present
+            }
+        }
+
+        expect:
+        chain.find(predicate).get().path == "/content/citytechinc"
+    }
+}
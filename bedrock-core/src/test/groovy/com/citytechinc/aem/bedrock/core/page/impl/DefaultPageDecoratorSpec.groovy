@@ -39,6 +39,21 @@ class DefaultPageDecoratorSpec extends BedrockSpec {
             }
             other {
 
+            }
+            navigation {
+                "jcr:content"(navTitle: "Navigation")
+                a {
+                    "jcr:content"("jcr:title": "A")
+                    a1 {
+                        "jcr:content"("jcr:title": "A1")
+                    }
+                    a2 {
+                        "jcr:content"(hideInNav: true)
+                    }
+                }
+                b {
+                    "jcr:content"("jcr:title": "B")
+                }
             }
             inheritance {
                 "jcr:content"("jcr:title": "Inheritance") {
@@ -440,6 +455,59 @@ class DefaultPageDecoratorSpec extends BedrockSpec {
         page.findDescendants(predicate).size() == 4
     }
 
+    def "find descendants with limit"() {
+        setup:
+        def page = getPage("/content/citytechinc")
+        def predicate = Predicates.alwaysTrue()
+
+        expect:
+        page.findDescendants(predicate, limit)*.path == paths
+
+        where:
+        limit | paths
+        0     | []
+        2     | ["/content/citytechinc/child1", "/content/citytechinc/child1/grandchild"]
+        10    | ["/content/citytechinc/child1", "/content/citytechinc/child1/grandchild", "/content/citytechinc/child2",
+                 "/content/citytechinc/empty"]
+    }
+
+    def "find first descendant"() {
+        setup:
+        def page = getPage("/content/citytechinc")
+
+        expect:
+        page.findFirstDescendant(new TemplatePredicate("template")).get().path == "/content/citytechinc/child1"
+    }
+
+    def "find first descendant returns absent when no descendant matches"() {
+        setup:
+        def page = getPage("/content/citytechinc")
+
+        expect:
+        !page.findFirstDescendant(new TemplatePredicate("ghost")).present
+    }
+
+    def "iterate descendants with traversal predicate and max depth"() {
+        setup:
+        def page = getPage("/content/citytechinc")
+        def traversalPredicate = new Predicate<PageDecorator>() {
+            @Override
+            boolean apply(PageDecorator descendant) {
+                descendant.name != excludedName
+            }
+        }
+
+        expect:
+        page.iterateDescendants(Predicates.alwaysTrue(), traversalPredicate, maxDepth).collect { it.name } == names
+
+        where:
+        excludedName | maxDepth | names
+        ""           | -1       | ["child1", "grandchild", "child2", "empty"]
+        ""           | 1        | ["child1", "child2", "empty"]
+        "child1"     | -1       | ["child2", "empty"]
+        "child2"     | 2        | ["child1", "grandchild", "empty"]
+    }
+
     def "get properties"() {
         setup:
         def page = getPage("/content/citytechinc")
@@ -516,4 +584,62 @@ class DefaultPageDecoratorSpec extends BedrockSpec {
         navigationLink.href == "/content/citytechinc.html"
         navigationLink.title == "Navigation Title"
     }
+
+    def "get navigation tree"() {
+        setup:
+        def page = getPage("/content/citytechinc")
+        def navigationTree = page.getNavigationTree(depth)
+
+        expect:
+        navigationTree.title == "Navigation Title"
+        navigationTree.children*.path == childPaths
+        !navigationTree.active
+
+        where:
+        depth | childPaths
+        0     | []
+        1     | ["/content/citytechinc/child2"]
+    }
+
+    def "get navigation tree includes displayable descendants to depth"() {
+        setup:
+        def page = getPage("/content/navigation")
+        def navigationTree = page.getNavigationTree(depth)
+
+        expect:
+        navigationTree.children*.path == childPaths
+        navigationTree.children*.children*.path.flatten() == grandchildPaths
+        navigationTree.children*.title == childTitles
+
+        where:
+        depth | childPaths                                         | grandchildPaths              | childTitles
+        1     | ["/content/navigation/a", "/content/navigation/b"] | []                           | ["A", "B"]
+        2     | ["/content/navigation/a", "/content/navigation/b"] | ["/content/navigation/a/a1"] | ["A", "B"]
+    }
+
+    def "get navigation tree with active trail"() {
+        setup:
+        def page = getPage("/content/citytechinc")
+        def navigationTree = page.getNavigationTree(1, currentPage ? getPage(currentPage) : null)
+
+        expect:
+        navigationTree.active == rootActive
+        navigationTree.children[0].active == childActive
+
+        where:
+        currentPage                   | rootActive | childActive
+        null                          | false      | false
+        "/content/other"              | false      | false
+        "/content/citytechinc"        | true       | false
+        "/content/citytechinc/child2" | true       | true
+        "/content/citytechinc/child1" | true       | false
+    }
+
+    def "get navigation tree with negative depth throws exception"() {
+        when:
+        getPage("/content/citytechinc").getNavigationTree(-1)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
 }
@@ -31,7 +31,8 @@ class DefaultPageManagerDecoratorSpec extends BedrockSpec {
                 }
             }
             other {
-                "jcr:content"("cq:template": "template", "cq:tags": ["/etc/tags/tag1", "/etc/tags/tag2"])
+                "jcr:content"("cq:template": "template", "cq:tags": ["/etc/tags/tag1", "/etc/tags/tag2"],
+                    "sling:resourceType": "bedrock/components/page")
             }
             hierarchy {
                 one {
@@ -67,6 +68,19 @@ class DefaultPageManagerDecoratorSpec extends BedrockSpec {
         pageManager.findPages("/content/hierarchy", predicate).size() == 3
     }
 
+    def "find pages for predicate with limit"() {
+        setup:
+        def predicate = new Predicate<PageDecorator>() {
+            @Override
+            boolean apply(PageDecorator pageDecorator) {
+                pageDecorator.name.startsWith("child")
+            }
+        }
+
+        expect:
+        pageManager.findPages("/content/hierarchy", predicate, 2)*.name == ["child1", "child2"]
+    }
+
     def "find pages for tag IDs"() {
         expect:
         pageManager.findPages("/content", ["/etc/tags/tag1"], true).size() == 2
@@ -100,11 +114,82 @@ class DefaultPageManagerDecoratorSpec extends BedrockSpec {
         pageManager.search(query, 1).size() == 1
     }
 
+    def "search with offset and limit"() {
+        setup:
+        def statement = "/jcr:root/content//element(*, cq:Page) order by @jcr:score descending"
+        def all = pageManager.search(session.workspace.queryManager.createQuery(statement, Query.XPATH))
+        def query = session.workspace.queryManager.createQuery(statement, Query.XPATH)
+
+        expect:
+        pageManager.search(query, offset, limit) == all.subList(Math.min(offset, all.size()),
+            Math.min(offset + limit, all.size()))
+
+        where:
+        offset | limit
+        0      | 0
+        0      | 3
+        3      | 3
+        8      | 3
+        12     | 3
+    }
+
+    def "search with negative limit other than -1 returns no results"() {
+        setup:
+        def statement = "/jcr:root/content//element(*, cq:Page) order by @jcr:score descending"
+        def query = session.workspace.queryManager.createQuery(statement, Query.XPATH)
+
+        expect:
+        pageManager.search(query, -2).empty
+    }
+
+    def "search with offset and limit does not modify query"() {
+        setup:
+        def query = Mock(Query) {
+            getStatement() >> "/jcr:root/content//element(*, cq:Page) order by @jcr:score descending"
+            getLanguage() >> Query.XPATH
+            getBindVariableNames() >> ([] as String[])
+        }
+
+        when:
+        def pages = pageManager.search(query, 0, 3)
+
+        then:
+        pages.size() == 3
+
+        and:
+        0 * query.setLimit(_)
+        0 * query.execute()
+    }
+
+    def "search with limit de-duplicates rows for the same page"() {
+        setup:
+        def statement = "/jcr:root/content/citytechinc//*"
+        def query = session.workspace.queryManager.createQuery(statement, Query.XPATH)
+
+        expect:
+        pageManager.search(query, 0, 2)*.path as Set == ["/content/citytechinc", "/content/citytechinc/child"] as Set
+    }
+
+    def "iterate search"() {
+        setup:
+        def statement = "/jcr:root/content//element(*, cq:Page) order by @jcr:score descending"
+        def query = session.workspace.queryManager.createQuery(statement, Query.XPATH)
+
+        expect:
+        pageManager.iterateSearch(query).size() == 10
+        pageManager.iterateSearch(query).first().present
+    }
+
     def "find pages for template"() {
         expect:
         pageManager.findPages("/content", "template").size() == 2
     }
 
+    def "find pages for template returns pages in document order"() {
+        expect:
+        pageManager.findPages("/content", "template")*.path == ["/content/citytechinc/child", "/content/other"]
+    }
+
     def "find pages for non-existing template"() {
         expect:
         !pageManager.findPages("/content", "ghost")
@@ -114,4 +199,39 @@ class DefaultPageManagerDecoratorSpec extends BedrockSpec {
         expect:
         !pageManager.findPages("/etc", "template")
     }
+
+    def "find pages with template"() {
+        expect:
+        pageManager.findPagesWithTemplate("/content", "template").collect { it.path } as Set ==
+            ["/content/citytechinc/child", "/content/other"] as Set
+    }
+
+    def "find pages with template excludes root page"() {
+        expect:
+        !pageManager.findPagesWithTemplate("/content/other", "template").iterator().hasNext()
+    }
+
+    def "find pages with template for invalid starting path"() {
+        expect:
+        !pageManager.findPagesWithTemplate("/etc", "template").iterator().hasNext()
+    }
+
+    def "find pages with resource type"() {
+        expect:
+        pageManager.findPagesWithResourceType("/content", "bedrock/components/page").collect { it.path } ==
+            ["/content/other"]
+    }
+
+    def "find pages with property value"() {
+        expect:
+        pageManager.findPagesWithPropertyValue("/content", "otherPagePath", "/content/ales/esb").collect {
+            it.path
+        } == ["/content/citytechinc"]
+    }
+
+    def "find pages with property value for unquotable property name traverses page tree"() {
+        expect:
+        !pageManager.findPagesWithPropertyValue("/content", "otherPagePath] = 'x' OR [jcr:title",
+            "/content/ales/esb").iterator().hasNext()
+    }
 }
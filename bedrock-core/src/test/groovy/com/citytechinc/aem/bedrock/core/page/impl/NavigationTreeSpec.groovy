@@ -0,0 +1,53 @@
+package com.citytechinc.aem.bedrock.core.page.impl
+
+import com.citytechinc.aem.bedrock.core.services.cache.NavigationNode
+import org.apache.sling.api.resource.ResourceResolver
+import spock.lang.Specification
+
+class NavigationTreeSpec extends Specification {
+
+    def root = new NavigationNode("/content/site", "Site", null, "", false, [
+        new NavigationNode("/content/site/a", "A", "Navigation A", "", false, [
+            new NavigationNode("/content/site/a/a1", "A1", null, "", false, [])
+        ]),
+        new NavigationNode("/content/site/b", "B", null, "", true, []),
+        new NavigationNode("/content/site/c", "C", null, "/content/other", false, [])
+    ])
+
+    def "build tree from navigation structure skips hidden pages"() {
+        setup:
+        def navigationLink = NavigationTree.build(root, Mock(ResourceResolver), depth, false).getNavigationLink(null)
+
+        expect:
+        navigationLink.title == "Site"
+        navigationLink.children*.title == childTitles
+        navigationLink.children*.children*.title.flatten() == grandchildTitles
+
+        where:
+        depth | childTitles           | grandchildTitles
+        0     | []                    | []
+        1     | ["Navigation A", "C"] | []
+        2     | ["Navigation A", "C"] | ["A1"]
+    }
+
+    def "build tree from navigation structure uses redirect target"() {
+        setup:
+        def navigationLink = NavigationTree.build(root, Mock(ResourceResolver), 1, false).getNavigationLink(null)
+
+        expect:
+        navigationLink.children*.path == ["/content/site/a", "/content/other"]
+    }
+
+    def "build mapped tree from navigation structure"() {
+        setup:
+        def resourceResolver = Mock(ResourceResolver) {
+            map(_) >> { String path -> path.replace("/content/site", "") ?: "/" }
+        }
+        def navigationLink = NavigationTree.build(root, resourceResolver, 1, true).getNavigationLink("/content/site/a")
+
+        expect:
+        navigationLink.path == "/"
+        navigationLink.children*.path == ["/a", "/content/other"]
+        navigationLink.children*.active == [true, false]
+    }
+}
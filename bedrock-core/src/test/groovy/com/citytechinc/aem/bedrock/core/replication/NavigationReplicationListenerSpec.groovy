@@ -0,0 +1,63 @@
+package com.citytechinc.aem.bedrock.core.replication
+
+import com.citytechinc.aem.bedrock.core.services.cache.NavigationCacheService
+import spock.lang.Specification
+import spock.lang.Unroll
+
+@Unroll
+class NavigationReplicationListenerSpec extends Specification {
+
+    def "#method refreshes navigation structure for page"() {
+        setup:
+        def navigationCacheService = Mock(NavigationCacheService) {
+            isEnabled() >> true
+        }
+        def listener = new NavigationReplicationListener(navigationCacheService: navigationCacheService)
+
+        when:
+        listener."$method"(path)
+
+        then:
+        1 * navigationCacheService.refresh("/content/a")
+        0 * navigationCacheService.remove(_)
+
+        where:
+        method           | path
+        "handleActivate" | "/content/a"
+        "handleDelete"   | "/content/a/jcr:content"
+    }
+
+    def "#method removes page from navigation structure"() {
+        setup:
+        def navigationCacheService = Mock(NavigationCacheService) {
+            isEnabled() >> true
+        }
+        def listener = new NavigationReplicationListener(navigationCacheService: navigationCacheService)
+
+        when:
+        listener."$method"("/content/a")
+
+        then:
+        1 * navigationCacheService.remove("/content/a")
+        0 * navigationCacheService.refresh(_)
+
+        where:
+        method << ["handleDeactivate", "handleDelete"]
+    }
+
+    def "replication is ignored when cache is disabled"() {
+        setup:
+        def navigationCacheService = Mock(NavigationCacheService) {
+            isEnabled() >> false
+        }
+        def listener = new NavigationReplicationListener(navigationCacheService: navigationCacheService)
+
+        when:
+        listener.handleActivate("/content/a")
+        listener.handleDeactivate("/content/a")
+
+        then:
+        0 * navigationCacheService.refresh(_)
+        0 * navigationCacheService.remove(_)
+    }
+}
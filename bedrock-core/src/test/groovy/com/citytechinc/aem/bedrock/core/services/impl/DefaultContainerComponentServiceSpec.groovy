@@ -0,0 +1,124 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
+import com.citytechinc.aem.bedrock.core.specs.ObservationTrait
+import org.apache.sling.jcr.api.SlingRepository
+
+import javax.jcr.Session
+import javax.jcr.Workspace
+import javax.jcr.observation.Event
+
+class DefaultContainerComponentServiceSpec extends BedrockSpec implements ObservationTrait {
+
+    def setupSpec() {
+        nodeBuilder.libs {
+            foundation {
+                components {
+                    parsys("cq:Component", "cq:isContainer": true)
+                    text("cq:Component")
+                }
+            }
+        }
+
+        nodeBuilder.apps {
+            bedrock {
+                components {
+                    container("cq:Component", "cq:isContainer": true)
+                    image("cq:Component", "cq:isContainer": false)
+                }
+            }
+        }
+    }
+
+    def "container resource types"() {
+        setup:
+        def service = createService()
+
+        expect:
+        service.containerResourceTypes == ["foundation/components/parsys", "bedrock/components/container"] as Set
+    }
+
+    def "is container"() {
+        setup:
+        def service = createService()
+
+        expect:
+        service.isContainer(resourceType) == result
+
+        where:
+        resourceType                         | result
+        "foundation/components/parsys"       | true
+        "/libs/foundation/components/parsys" | true
+        "/apps/bedrock/components/container" | true
+        "foundation/components/text"         | false
+        "bedrock/components/image"           | false
+        ""                                   | false
+        null                                 | false
+    }
+
+    def "container resource types are computed once"() {
+        setup:
+        def service = createService()
+
+        expect:
+        service.containerResourceTypes.is(service.containerResourceTypes)
+    }
+
+    def "events for container flags invalidate container resource types"() {
+        setup:
+        def service = createService()
+        def listener = new DefaultContainerComponentService.ContainerComponentEventListener(service)
+        def resourceTypes = service.containerResourceTypes
+
+        when:
+        listener.onEvent(createEvents(type, [path]))
+
+        then:
+        service.containerResourceTypes.is(resourceTypes) == cached
+
+        where:
+        type                   | path                                                  | cached
+        Event.PROPERTY_CHANGED | "/apps/bedrock/components/container/jcr:title"        | true
+        Event.PROPERTY_CHANGED | "/apps/bedrock/components/container/cq:isContainer"   | false
+        Event.PROPERTY_ADDED   | "/apps/bedrock/components/image/cq:isContainer"       | false
+        Event.NODE_ADDED       | "/apps/bedrock/components/other"                      | false
+        Event.NODE_REMOVED     | "/apps/bedrock/components/container"                  | false
+    }
+
+    def "container resource types loaded during an invalidation are not cached"() {
+        setup:
+        def service = createService()
+        def queryManager = session.workspace.queryManager
+        def querySession = Mock(Session) {
+            getWorkspace() >> Mock(Workspace) {
+                getQueryManager() >> {
+                    // invalidated while querying
+                    service.invalidate()
+
+                    queryManager
+                }
+            }
+        }
+
+        service.session = querySession
+
+        when:
+        def resourceTypes = service.containerResourceTypes
+
+        then:
+        resourceTypes == ["foundation/components/parsys", "bedrock/components/container"] as Set
+        !service.@containerResourceTypes
+    }
+
+    private DefaultContainerComponentService createService() {
+        def service = new DefaultContainerComponentService()
+
+        service.repository = Mock(SlingRepository) {
+            loginAdministrative(null) >> session
+        }
+
+        service.activate(null, [:])
+
+        service
+    }
+}
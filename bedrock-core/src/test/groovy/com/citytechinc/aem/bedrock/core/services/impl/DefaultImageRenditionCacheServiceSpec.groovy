@@ -0,0 +1,208 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.services.cache.ImageRendition
+import com.citytechinc.aem.bedrock.core.specs.ObservationTrait
+import spock.lang.Specification
+
+import javax.jcr.observation.Event
+import javax.jcr.observation.EventListener
+import javax.jcr.observation.ObservationManager
+import java.nio.file.Files
+
+class DefaultImageRenditionCacheServiceSpec extends Specification implements ObservationTrait {
+
+    static final String IMAGE_PATH = "/content/page/jcr:content/image"
+
+    static final String ASSET_PATH = "/content/dam/image.png"
+
+    def directory = Files.createTempDirectory("renditions").toFile()
+
+    def observationManager = Mock(ObservationManager)
+
+    def cleanup() {
+        directory.deleteDir()
+    }
+
+    def "disabled service does not cache renditions"() {
+        when:
+        def service = createService(false)
+
+        service.putRendition("key", createRendition(), service.generation)
+
+        then:
+        0 * observationManager.addEventListener(*_)
+
+        and:
+        !service.getRendition("key").present
+    }
+
+    def "enabled service registers listener for root path"() {
+        when:
+        createService(true)
+
+        then:
+        1 * observationManager.addEventListener(_, _, "/content", true, null, null, false)
+    }
+
+    def "get rendition from memory"() {
+        setup:
+        def service = createService(true)
+        def rendition = createRendition()
+
+        when:
+        service.putRendition("key", rendition, service.generation)
+
+        then:
+        service.getRendition("key").get().is(rendition)
+        service.getCacheSize("renditions") == 1
+    }
+
+    def "rendition evicted from memory is read from disk"() {
+        setup:
+        def service = createService(true)
+
+        service.putRendition("key", createRendition(), service.generation)
+        service.renditions.invalidateAll()
+
+        when:
+        def rendition = service.getRendition("key")
+
+        then:
+        rendition.present
+        rendition.get().length == 4
+        rendition.get().paths == [IMAGE_PATH, ASSET_PATH] as Set
+
+        and:
+        service.getCacheSize("renditions") == 1
+    }
+
+    def "invalidate renditions for changed path"() {
+        setup:
+        def service = createService(true)
+
+        service.putRendition("key", createRendition(), service.generation)
+
+        when:
+        service.invalidate(path)
+
+        then:
+        service.getRendition("key").present == present
+
+        where:
+        path                                         | present
+        IMAGE_PATH                                   | false
+        IMAGE_PATH + "/file/jcr:content/jcr:data"    | false
+        ASSET_PATH + "/jcr:content/renditions"       | false
+        "/content/page"                              | false
+        "/content/other/jcr:content/image"           | true
+    }
+
+    def "event invalidates renditions"() {
+        setup:
+        EventListener listener = null
+
+        observationManager.addEventListener(*_) >> { arguments -> listener = arguments[0] }
+
+        def service = createService(true)
+
+        service.putRendition("key", createRendition(), service.generation)
+
+        when:
+        listener.onEvent(createEvents(Event.PROPERTY_CHANGED, [ASSET_PATH + "/jcr:content/jcr:lastModified"]))
+
+        then:
+        !service.getRendition("key").present
+    }
+
+    def "events are batched and unrelated paths are ignored"() {
+        setup:
+        def service = createService(true, Spy(DefaultImageRenditionCacheService))
+        def listener = new DefaultImageRenditionCacheService.ImageRenditionEventListener(service)
+
+        service.putRendition("key", createRendition(), service.generation)
+
+        def paths = ["/content/other/jcr:content/jcr:title", "/content/other/jcr:content/jcr:title",
+            "/content/page/jcr:content/jcr:title"]
+
+        when:
+        listener.onEvent(createEvents(Event.PROPERTY_CHANGED, paths))
+
+        then:
+        1 * service.invalidate(["/content/other/jcr:content/jcr:title", "/content/page/jcr:content/jcr:title"] as Set)
+
+        and:
+        service.getRendition("key").present
+    }
+
+    def "invalidated renditions are removed from the key index"() {
+        setup:
+        def service = createService(true)
+
+        service.putRendition("key", createRendition(), service.generation)
+
+        when:
+        service.invalidate(ASSET_PATH)
+
+        then:
+        service.keyIndex.getRelated("/content").empty
+    }
+
+    def "clear all caches discards memory and disk renditions"() {
+        setup:
+        def service = createService(true)
+
+        service.putRendition("key", createRendition(), service.generation)
+
+        when:
+        service.clearAllCaches()
+
+        then:
+        !service.getRendition("key").present
+        !new File(directory, "bedrock-renditions").listFiles()
+    }
+
+    def "disk cache is created in a subdirectory of the configured path"() {
+        setup:
+        def service = createService(true)
+
+        when:
+        service.putRendition("key", createRendition(), service.generation)
+
+        then:
+        directory.listFiles()*.name == ["bedrock-renditions"]
+        new File(directory, "bedrock-renditions").listFiles().length == 1
+    }
+
+    def "rendition rendered before an invalidation is not cached"() {
+        setup:
+        def service = createService(true)
+        def generation = service.generation
+
+        when:
+        service.invalidate("/content/other")
+        service.putRendition("key", createRendition(), generation)
+
+        then:
+        !service.getRendition("key").present
+        !new File(directory, "bedrock-renditions").listFiles()
+    }
+
+    private DefaultImageRenditionCacheService createService(boolean enabled) {
+        createService(enabled, new DefaultImageRenditionCacheService())
+    }
+
+    private DefaultImageRenditionCacheService createService(boolean enabled,
+        DefaultImageRenditionCacheService service) {
+        setRepository(service, observationManager)
+
+        service.activate(null, [(DefaultImageRenditionCacheService.ENABLED): enabled,
+            (DefaultImageRenditionCacheService.DISK_CACHE_PATH): directory.absolutePath,
+            (DefaultImageRenditionCacheService.ROOT_PATHS): ["/content"] as String[]])
+
+        service
+    }
+
+    private static ImageRendition createRendition() {
+        new ImageRendition("image/png", [1, 2, 3, 4] as byte[], [IMAGE_PATH, ASSET_PATH])
+    }
+}
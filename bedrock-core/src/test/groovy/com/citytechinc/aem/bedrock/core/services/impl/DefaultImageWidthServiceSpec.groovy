@@ -0,0 +1,52 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+@Unroll
+class DefaultImageWidthServiceSpec extends Specification {
+
+    @Shared
+    DefaultImageWidthService service = new DefaultImageWidthService()
+
+    def setupSpec() {
+        service.activate([(DefaultImageWidthService.ENABLED): true,
+            (DefaultImageWidthService.WIDTHS): ["640", "320", " 1280", "invalid", "320"] as String[]])
+    }
+
+    def "widths are sorted and distinct"() {
+        expect:
+        service.enabled
+        service.redirect
+        service.widths == [320, 640, 1280]
+    }
+
+    def "snap width to ladder"() {
+        expect:
+        service.getWidth(width) == ladderWidth
+
+        where:
+        width | ladderWidth
+        -1    | -1
+        0     | 320
+        100   | 320
+        320   | 320
+        321   | 640
+        641   | 1280
+        1280  | 1280
+        5000  | 1280
+    }
+
+    def "default widths are used if no valid widths are configured"() {
+        setup:
+        def defaultService = new DefaultImageWidthService()
+
+        defaultService.activate([(DefaultImageWidthService.WIDTHS): ["invalid"] as String[]])
+
+        expect:
+        !defaultService.enabled
+        defaultService.widths.first() == 160
+        defaultService.widths.last() == 2560
+    }
+}
@@ -0,0 +1,150 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.services.cache.InheritedValueCacheService
+import com.citytechinc.aem.bedrock.core.specs.ObservationTrait
+import com.google.common.base.Optional
+import spock.lang.Specification
+
+import javax.jcr.observation.Event
+import javax.jcr.observation.ObservationManager
+import java.util.concurrent.Callable
+
+class DefaultInheritedValueCacheServiceSpec extends Specification implements ObservationTrait {
+
+    def observationManager = Mock(ObservationManager)
+
+    def "disabled service always calls loader"() {
+        setup:
+        def service = createService(false)
+        def loader = Mock(Callable)
+
+        when:
+        service.getInherited("/content/a/jcr:content", "title", String, loader)
+        service.getInherited("/content/a/jcr:content", "title", String, loader)
+
+        then:
+        2 * loader.call() >> Optional.of("A")
+        0 * observationManager.addEventListener(*_)
+    }
+
+    def "enabled service registers listener for content"() {
+        when:
+        createService(true)
+
+        then:
+        1 * observationManager.addEventListener(_, _, "/content", true, null, null, false)
+    }
+
+    def "enabled service caches values by path, property name, and type"() {
+        setup:
+        def service = createService(true)
+        def loader = Mock(Callable)
+
+        when:
+        def first = service.getInherited("/content/a/jcr:content", "title", String, loader)
+        def second = service.getInherited("/content/a/jcr:content", "title", String, loader)
+        service.getInherited("/content/a/jcr:content", "title", String[], loader)
+        service.getInherited("/content/a/jcr:content", "description", String, loader)
+
+        then:
+        3 * loader.call() >> Optional.of("A")
+
+        and:
+        first.get() == "A"
+        second.get() == "A"
+    }
+
+    def "absent values are cached"() {
+        setup:
+        def service = createService(true)
+        def loader = Mock(Callable)
+
+        when:
+        service.getInherited("/content/a/jcr:content", "title", String, loader)
+        def value = service.getInherited("/content/a/jcr:content", "title", String, loader)
+
+        then:
+        1 * loader.call() >> Optional.absent()
+
+        and:
+        !value.present
+    }
+
+    def "invalidate page removes values for page and descendants only"() {
+        setup:
+        def service = createService(true)
+
+        ["/content/a/jcr:content", "/content/a/b/jcr:content/par", "/content/ab/jcr:content"].each { path ->
+            service.getInherited(path, "title", String, { Optional.of(path) } as Callable)
+        }
+
+        when:
+        service.invalidate("/content/a")
+
+        then:
+        service.getCacheSize("inheritedValues") == 1
+        service.listCaches() == ["inheritedValues"]
+    }
+
+    def "value loaded during invalidation is returned but not cached"() {
+        setup:
+        def service = createService(true)
+        def loader = Mock(Callable)
+
+        when:
+        def value = service.getInherited("/content/a/jcr:content", "title", String, loader)
+        service.getInherited("/content/a/jcr:content", "title", String, loader)
+
+        then:
+        1 * loader.call() >> {
+            service.invalidate("/content/a")
+
+            Optional.of("stale")
+        }
+        1 * loader.call() >> Optional.of("A")
+
+        and:
+        value.get() == "stale"
+    }
+
+    def "evicted values are removed from page index"() {
+        setup:
+        def service = createService(true)
+
+        service.getInherited("/content/a/jcr:content", "title", String, { Optional.of("A") } as Callable)
+        service.clearAllCaches()
+
+        expect:
+        service.keyIndex.getDescendantsOrEqual("/content/a").empty
+    }
+
+    def "listener invalidates each changed or removed page once per batch"() {
+        setup:
+        def cacheService = Mock(InheritedValueCacheService)
+        def listener = new DefaultInheritedValueCacheService.InheritedValueEventListener(cacheService)
+
+        when:
+        listener.onEvent(createEvents([
+            "/content/a/jcr:content/jcr:title": Event.PROPERTY_CHANGED,
+            "/content/a/jcr:content/par/text": Event.NODE_ADDED,
+            "/content/b": Event.NODE_REMOVED,
+            "/content/c/jcr:primaryType": Event.PROPERTY_ADDED
+        ]))
+
+        then:
+        1 * cacheService.invalidate("/content/a")
+        1 * cacheService.invalidate("/content/b")
+        0 * cacheService.invalidate(_)
+    }
+
+    private DefaultInheritedValueCacheService createService(boolean enabled) {
+        def service = new DefaultInheritedValueCacheService()
+
+        setRepository(service, observationManager)
+
+        service.activate(null, [(DefaultInheritedValueCacheService.ENABLED): enabled,
+            (DefaultInheritedValueCacheService.MAXIMUM_SIZE): 100L])
+
+        service
+    }
+}
@@ -0,0 +1,171 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.specs.ObservationTrait
+import org.apache.sling.api.resource.ResourceResolver
+import org.osgi.service.cm.ConfigurationEvent
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import javax.jcr.observation.Event
+import javax.jcr.observation.ObservationManager
+
+class DefaultMappingCacheServiceSpec extends Specification implements ObservationTrait {
+
+    def observationManager = Mock(ObservationManager)
+
+    def "disabled service always maps path"() {
+        setup:
+        def service = createService(false)
+        def resourceResolver = Mock(ResourceResolver)
+
+        when:
+        service.map(resourceResolver, "/content/a")
+        service.map(resourceResolver, "/content/a")
+
+        then:
+        2 * resourceResolver.map("/content/a") >> "/a.html"
+        0 * observationManager.addEventListener(*_)
+    }
+
+    def "enabled service registers listeners for mapping and content"() {
+        when:
+        createService(true)
+
+        then:
+        1 * observationManager.addEventListener(_, _, "/etc/map", true, null, null, false)
+        1 * observationManager.addEventListener(_, _, "/content", true, null, null, false)
+    }
+
+    def "enabled service caches mapped paths by path and user ID"() {
+        setup:
+        def service = createService(true)
+        def resourceResolver = Mock(ResourceResolver) {
+            getUserID() >> "anonymous"
+        }
+        def adminResourceResolver = Mock(ResourceResolver) {
+            getUserID() >> "admin"
+        }
+
+        when:
+        def first = service.map(resourceResolver, "/content/a")
+        def second = service.map(resourceResolver, "/content/a")
+        service.map(resourceResolver, "/content/b")
+        service.map(adminResourceResolver, "/content/a")
+
+        then:
+        1 * resourceResolver.map("/content/a") >> "/a.html"
+        1 * resourceResolver.map("/content/b") >> "/b.html"
+        1 * adminResourceResolver.map("/content/a") >> "/a.html"
+
+        and:
+        first == "/a.html"
+        second == "/a.html"
+        service.getCacheStats("mappedPaths").hitCount() == 1
+    }
+
+    def "invalidate discards all mapped paths"() {
+        setup:
+        def service = createService(true)
+        def resourceResolver = Mock(ResourceResolver)
+
+        when:
+        service.map(resourceResolver, "/content/a")
+        service.invalidate()
+        def mappedPath = service.map(resourceResolver, "/content/a")
+
+        then:
+        1 * resourceResolver.map("/content/a") >> "/a.html"
+        1 * resourceResolver.map("/content/a") >> "/alias.html"
+
+        and:
+        mappedPath == "/alias.html"
+        service.getCacheSize("mappedPaths") == 1
+        service.listCaches() == ["mappedPaths"]
+    }
+
+    def "resource resolver factory configuration event invalidates mapped paths"() {
+        setup:
+        def service = createService(true)
+
+        service.map(Mock(ResourceResolver) {
+            map("/content/a") >> "/a.html"
+        }, "/content/a")
+
+        when:
+        service.configurationEvent(Mock(ConfigurationEvent) {
+            getPid() >> pid
+        })
+
+        then:
+        service.getCacheSize("mappedPaths") == size
+
+        where:
+        pid                                                                       | size
+        "org.apache.sling.resourceresolver.impl.ResourceResolverFactoryActivator" | 0
+        "org.apache.sling.jcr.resource.internal.JcrResourceResolverFactoryImpl"   | 0
+        "com.day.cq.wcm.core.impl.LinkCheckerTransformerFactory"                  | 1
+    }
+
+    def "content listener invalidates mapped paths for mapping properties only"() {
+        setup:
+        def service = createService(true)
+        def listener = new DefaultMappingCacheService.MappingEventListener(service, ["sling:alias", "sling:vanityPath"])
+
+        service.map(Mock(ResourceResolver) {
+            map("/content/a") >> "/a.html"
+        }, "/content/a")
+
+        when:
+        listener.onEvent(createEvents(Event.PROPERTY_CHANGED, [path]))
+
+        then:
+        service.getCacheSize("mappedPaths") == size
+
+        where:
+        path                                      | size
+        "/content/a/jcr:content/sling:alias"      | 0
+        "/content/a/jcr:content/sling:vanityPath" | 0
+        "/content/a/jcr:content/jcr:title"        | 1
+    }
+
+    def "mapped paths are invalidated again after the refresh delay"() {
+        setup:
+        def service = createService(true, 1L)
+        def resourceResolver = Mock(ResourceResolver) {
+            map("/content/a") >> "/a.html"
+        }
+
+        when:
+        service.invalidate()
+
+        // mapped before the resource resolver factory reloads its mapping entries
+        service.map(resourceResolver, "/content/a")
+
+        then:
+        service.getCacheSize("mappedPaths") == 1
+
+        and:
+        new PollingConditions(timeout: 5).eventually {
+            assert service.getCacheSize("mappedPaths") == 0
+        }
+
+        cleanup:
+        service.deactivate(null, [:])
+    }
+
+    private DefaultMappingCacheService createService(boolean enabled) {
+        createService(enabled, 0L)
+    }
+
+    private DefaultMappingCacheService createService(boolean enabled, long refreshDelay) {
+        def service = new DefaultMappingCacheService()
+
+        setRepository(service, observationManager)
+
+        service.activate(null, [(DefaultMappingCacheService.ENABLED): enabled,
+            (DefaultMappingCacheService.MAXIMUM_SIZE): 100L,
+            (DefaultMappingCacheService.REFRESH_DELAY): refreshDelay])
+
+        service
+    }
+}
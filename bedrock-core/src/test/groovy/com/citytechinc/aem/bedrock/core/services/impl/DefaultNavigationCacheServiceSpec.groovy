@@ -0,0 +1,331 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
+import org.apache.sling.api.resource.ResourceResolver
+import org.apache.sling.api.resource.ResourceResolverFactory
+import spock.util.concurrent.PollingConditions
+
+import javax.jcr.Session
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+
+class DefaultNavigationCacheServiceSpec extends BedrockSpec {
+
+    private static final int DEPTH = 10
+
+    def setupSpec() {
+        pageBuilder.content {
+            site {
+                "jcr:content"("jcr:title": "Site")
+                a {
+                    "jcr:content"("jcr:title": "A", navTitle: "Navigation A")
+                    a1 {
+                        "jcr:content"("jcr:title": "A1")
+                    }
+                }
+                b {
+                    "jcr:content"("jcr:title": "B", hideInNav: true)
+                }
+                c()
+            }
+            other {
+                "jcr:content"("jcr:title": "Other")
+            }
+        }
+    }
+
+    def cleanup() {
+        if (session.nodeExists("/content/site/d")) {
+            session.getNode("/content/site/d").remove()
+        }
+
+        session.getNode("/content/site/a/jcr:content").setProperty("navTitle", "Navigation A")
+        session.save()
+    }
+
+    def "disabled service always calls loader"() {
+        setup:
+        def service = createService(false)
+        def loader = Mock(Callable)
+
+        when:
+        service.getNavigationTree(resourceResolver, "/content/a", 2, false, loader)
+        service.getNavigationTree(resourceResolver, "/content/a", 2, false, loader)
+
+        then:
+        2 * loader.call() >> "tree"
+    }
+
+    def "enabled service caches trees by root path, depth, and mapping"() {
+        setup:
+        def service = createService(true)
+        def loader = Mock(Callable)
+
+        when:
+        def first = service.getNavigationTree(resourceResolver, "/content/a", 2, false, loader)
+        def second = service.getNavigationTree(resourceResolver, "/content/a", 2, false, loader)
+        service.getNavigationTree(resourceResolver, "/content/a", 3, false, loader)
+        service.getNavigationTree(resourceResolver, "/content/a", 2, true, loader)
+
+        then:
+        3 * loader.call() >> "tree"
+
+        and:
+        first == "tree"
+        second == "tree"
+    }
+
+    def "invalidate removes trees containing the page or rooted below the page"() {
+        setup:
+        def service = createService(true)
+
+        ["/content/a", "/content/a/b", "/content/a/b/c", "/content/ab"].each { rootPath ->
+            service.getNavigationTree(resourceResolver, rootPath, 2, false, { rootPath } as Callable)
+        }
+
+        when:
+        service.invalidate("/content/a/b")
+
+        then:
+        service.getCacheSize("navigationTrees") == 1
+        service.listCaches() == ["navigationTrees"]
+    }
+
+    def "navigation node is absent when service is disabled or page is not below a site root"() {
+        setup:
+        def service = createService(enabled)
+
+        expect:
+        !service.getNavigationNode(resourceResolver, path, DEPTH).present
+
+        where:
+        enabled | path
+        false   | "/content/site"
+        true    | "/content/other"
+        true    | "/content"
+        true    | "/content/site/z"
+    }
+
+    def "get navigation node"() {
+        setup:
+        def service = createLoadedService()
+        def node = service.getNavigationNode(resourceResolver, path, DEPTH).get()
+
+        expect:
+        node.path == path
+        node.navigationTitle == navigationTitle
+        node.hideInNav == hideInNav
+        node.children*.path == childPaths
+
+        where:
+        path              | navigationTitle | hideInNav | childPaths
+        "/content/site"   | "Site"          | false     | ["/content/site/a", "/content/site/b", "/content/site/c"]
+        "/content/site/a" | "Navigation A"  | false     | ["/content/site/a/a1"]
+        "/content/site/b" | "B"             | true      | []
+    }
+
+    def "navigation node is absent until structure is loaded in the background"() {
+        setup:
+        def latch = new CountDownLatch(1)
+        def service = createService(true) {
+            latch.await()
+
+            resourceResolver
+        }
+
+        expect:
+        !service.getNavigationNode(resourceResolver, "/content/site", DEPTH).present
+
+        when:
+        latch.countDown()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert service.getNavigationNode(resourceResolver, "/content/site", DEPTH).present
+        }
+    }
+
+    def "navigation node is limited to depth"() {
+        setup:
+        def service = createLoadedService()
+
+        expect:
+        service.getNavigationNode(resourceResolver, "/content/site", 0).get().children.empty
+        service.getNavigationNode(resourceResolver, "/content/site", 1).get().children*.children.flatten().empty
+    }
+
+    def "navigation node excludes pages that are not readable by the resource resolver"() {
+        setup:
+        def service = createLoadedService()
+        def readablePaths = ["/content/site", "/content/site/a", "/content/site/c"]
+
+        def session = [
+            nodeExists: { String path -> readablePaths.contains(path) }
+        ] as Session
+
+        def userResourceResolver = [
+            adaptTo: { Class type -> type == Session ? session : null }
+        ] as ResourceResolver
+
+        expect:
+        service.getNavigationNode(userResourceResolver, "/content/site", DEPTH).get().children*.path == [
+            "/content/site/a", "/content/site/c"]
+        service.getNavigationNode(userResourceResolver, "/content/site/a", DEPTH).get().children.empty
+        !service.getNavigationNode(userResourceResolver, "/content/site/b", DEPTH).present
+    }
+
+    def "refresh updates changed page and keeps descendants"() {
+        setup:
+        def service = createLoadedService()
+        def root = service.getNavigationNode(resourceResolver, "/content/site", DEPTH).get()
+
+        session.getNode("/content/site/a/jcr:content").setProperty("navTitle", "Changed")
+        session.save()
+
+        when:
+        service.refresh("/content/site/a")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            def node = service.getNavigationNode(resourceResolver, "/content/site/a", DEPTH).get()
+
+            assert node.navigationTitle == "Changed"
+            assert node.children*.path == ["/content/site/a/a1"]
+        }
+
+        and:
+        service.getNavigationNode(resourceResolver, "/content/site/b", DEPTH).get().is(root.children[1])
+    }
+
+    def "refresh adds new page"() {
+        setup:
+        def service = createLoadedService()
+
+        session.getNode("/content/site").addNode("d", "cq:Page").addNode("jcr:content", "cq:PageContent")
+            .setProperty("jcr:title", "D")
+        session.save()
+
+        when:
+        service.refresh("/content/site/d")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert service.getNavigationNode(resourceResolver, "/content/site", DEPTH).get().children*.path == [
+                "/content/site/a", "/content/site/b", "/content/site/c", "/content/site/d"]
+        }
+
+        and:
+        service.getNavigationNode(resourceResolver, "/content/site/d", DEPTH).get().title == "D"
+    }
+
+    def "remove page and descendants"() {
+        setup:
+        def service = createLoadedService()
+
+        when:
+        service.remove("/content/site/a")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert service.getNavigationNode(resourceResolver, "/content/site", DEPTH).get().children*.path == [
+                "/content/site/b", "/content/site/c"]
+        }
+
+        and:
+        !service.getNavigationNode(resourceResolver, "/content/site/a/a1", DEPTH).present
+    }
+
+    def "removing site root discards structure until it is reloaded in the background"() {
+        setup:
+        def service = createLoadedService()
+        def root = service.getNavigationNode(resourceResolver, "/content/site", DEPTH).get()
+
+        when:
+        service.remove("/content/site")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert !service.getNavigationNode(resourceResolver, "/content/site", DEPTH).present
+        }
+
+        and:
+        new PollingConditions(timeout: 5).eventually {
+            def node = service.getNavigationNode(resourceResolver, "/content/site", DEPTH)
+
+            assert node.present && !node.get().is(root)
+        }
+    }
+
+    def "refresh and remove are applied after a pending structure load"() {
+        setup:
+        def latch = new CountDownLatch(1)
+        def service = createService(true) {
+            latch.await()
+
+            resourceResolver
+        }
+
+        when:
+        service.refresh("/content/site/a")
+        service.remove("/content/site/b")
+
+        then:
+        !service.getNavigationNode(resourceResolver, "/content/site", DEPTH).present
+
+        when:
+        latch.countDown()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert service.getNavigationNode(resourceResolver, "/content/site", DEPTH).get().children*.path == [
+                "/content/site/a", "/content/site/c"]
+        }
+    }
+
+    def "refresh and remove discard cached trees containing the page"() {
+        setup:
+        def service = createService(true)
+
+        service.getNavigationTree(resourceResolver, "/content/site", 2, false, { "tree" } as Callable)
+
+        when:
+        service."$method"("/content/site/a")
+
+        then:
+        service.getCacheSize("navigationTrees") == 0
+
+        where:
+        method << ["refresh", "remove"]
+    }
+
+    private DefaultNavigationCacheService createService(boolean enabled) {
+        createService(enabled) { resourceResolver }
+    }
+
+    private DefaultNavigationCacheService createService(boolean enabled, Closure<ResourceResolver> adminResolver) {
+        def service = new DefaultNavigationCacheService()
+
+        service.resourceResolverFactory = Mock(ResourceResolverFactory) {
+            getAdministrativeResourceResolver(null) >> { adminResolver.call() }
+        }
+
+        service.activate(null, [(DefaultNavigationCacheService.ENABLED): enabled,
+            (DefaultNavigationCacheService.MAXIMUM_SIZE): 100L,
+            (DefaultNavigationCacheService.ROOT_PATHS): ["/content/site"] as String[]])
+
+        service
+    }
+
+    /**
+     * Create an enabled service and wait for the background load of the site structure.
+     */
+    private DefaultNavigationCacheService createLoadedService() {
+        def service = createService(true)
+
+        new PollingConditions(timeout: 5).eventually {
+            assert service.getNavigationNode(resourceResolver, "/content/site", DEPTH).present
+        }
+
+        service
+    }
+}
@@ -0,0 +1,73 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.api.page.PageDecorator
+import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
+import com.citytechinc.aem.bedrock.core.specs.BenchmarkTrait
+import com.google.common.base.Predicate
+import spock.lang.Requires
+import spock.lang.Shared
+
+@Requires({ System.getProperty("benchmark") })
+class DefaultParallelPageSearchServiceBenchmarkSpec extends BedrockSpec implements BenchmarkTrait {
+
+    static final int SECTION_COUNT = 10
+
+    static final int ARTICLE_COUNT = 20
+
+    static final int DETAIL_COUNT = 5
+
+    /** template check and property reads, as performed by sitemap and feed generators */
+    static final Predicate<PageDecorator> PREDICATE = new Predicate<PageDecorator>() {
+        @Override
+        boolean apply(PageDecorator page) {
+            page.templatePath == "article" && page.get("priority", 0L) > 2 && !page.hideInNav
+        }
+    }
+
+    @Shared
+    DefaultParallelPageSearchService service = new DefaultParallelPageSearchService()
+
+    def setupSpec() {
+        pageBuilder.content {
+            benchmark {
+                en {
+                    SECTION_COUNT.times { i ->
+                        "section$i" {
+                            ARTICLE_COUNT.times { j ->
+                                "article$j" {
+                                    "jcr:content"("cq:template": "article", priority: j % 5)
+                                    DETAIL_COUNT.times { k ->
+                                        "detail$k" { "jcr:content"("cq:template": "detail") }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        service.activate([(DefaultParallelPageSearchService.POOL_SIZE): Runtime.runtime.availableProcessors()])
+    }
+
+    def cleanupSpec() {
+        service.deactivate()
+    }
+
+    def "deep and wide subtree search"() {
+        setup:
+        def sequential = measureTime("findPages() sequential") {
+            pageManager.findPages("/content/benchmark", PREDICATE)
+        }
+
+        def parallel = measureTime("findPages() parallel") {
+            service.findPages(resourceResolver, "/content/benchmark", PREDICATE)
+        }
+
+        report("findPages() parallel speedup", "percent", sequential * 100 / parallel, "%")
+
+        expect:
+        service.findPages(resourceResolver, "/content/benchmark", PREDICATE)*.path ==
+            pageManager.findPages("/content/benchmark", PREDICATE)*.path
+    }
+}
@@ -0,0 +1,75 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.api.page.PageDecorator
+import com.citytechinc.aem.bedrock.core.page.predicates.TemplatePredicate
+import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
+import com.google.common.base.Predicate
+import com.google.common.base.Predicates
+import spock.lang.Shared
+import spock.lang.Unroll
+
+@Unroll
+class DefaultParallelPageSearchServiceSpec extends BedrockSpec {
+
+    @Shared
+    DefaultParallelPageSearchService service = new DefaultParallelPageSearchService()
+
+    def setupSpec() {
+        pageBuilder.content {
+            site {
+                en {
+                    3.times { i ->
+                        "section$i" {
+                            "jcr:content"("cq:template": "section")
+                            4.times { j ->
+                                "article$j" {
+                                    "jcr:content"("cq:template": j % 2 ? "article" : "feature")
+                                    detail { "jcr:content"("cq:template": "detail") }
+                                }
+                            }
+                        }
+                    }
+                }
+                fr()
+            }
+        }
+
+        service.activate([(DefaultParallelPageSearchService.POOL_SIZE): 2])
+    }
+
+    def cleanupSpec() {
+        service.deactivate()
+    }
+
+    def "parallel search matches sequential search in document order"() {
+        expect:
+        service.findPages(resourceResolver, rootPath, predicate)*.path ==
+            pageManager.findPages(rootPath, predicate)*.path
+
+        where:
+        rootPath                    | predicate
+        "/content/site"             | Predicates.alwaysTrue()
+        "/content/site"             | new TemplatePredicate("article")
+        "/content/site/en"          | new TemplatePredicate("detail")
+        "/content/site/en/section1" | Predicates.alwaysTrue()
+        "/content/site/fr"          | Predicates.alwaysTrue()
+    }
+
+    def "parallel search returns all matching descendants"() {
+        setup:
+        def predicate = new Predicate<PageDecorator>() {
+            @Override
+            boolean apply(PageDecorator page) {
+                page.name.startsWith("article")
+            }
+        }
+
+        expect:
+        service.findPages(resourceResolver, "/content/site", predicate).size() == 12
+    }
+
+    def "parallel search for non-existent root path returns empty list"() {
+        expect:
+        !service.findPages(resourceResolver, "/content/ghost", Predicates.alwaysTrue())
+    }
+}
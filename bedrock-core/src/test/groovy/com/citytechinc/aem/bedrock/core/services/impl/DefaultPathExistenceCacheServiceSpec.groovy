@@ -0,0 +1,200 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.specs.ObservationTrait
+import org.apache.sling.api.resource.Resource
+import org.apache.sling.api.resource.ResourceResolver
+import spock.lang.Specification
+
+import javax.jcr.observation.Event
+import javax.jcr.observation.ObservationManager
+
+import static org.apache.sling.api.resource.Resource.RESOURCE_TYPE_NON_EXISTING
+
+class DefaultPathExistenceCacheServiceSpec extends Specification implements ObservationTrait {
+
+    def observationManager = Mock(ObservationManager)
+
+    def "disabled service always resolves path"() {
+        setup:
+        def service = createService(false)
+        def resourceResolver = Mock(ResourceResolver)
+
+        when:
+        service.exists(resourceResolver, "/content/a")
+        service.exists(resourceResolver, "/content/a")
+
+        then:
+        2 * resourceResolver.resolve("/content/a") >> createResource("cq:Page")
+        0 * observationManager.addEventListener(*_)
+    }
+
+    def "enabled service registers listeners for root paths"() {
+        when:
+        createService(true)
+
+        then:
+        1 * observationManager.addEventListener(_, _, "/content", true, null, null, false)
+        1 * observationManager.addEventListener(_, _, "/etc", true, null, null, false)
+    }
+
+    def "enabled service caches existence by path and user ID"() {
+        setup:
+        def service = createService(true)
+        def resourceResolver = Mock(ResourceResolver) {
+            getUserID() >> "anonymous"
+        }
+        def adminResourceResolver = Mock(ResourceResolver) {
+            getUserID() >> "admin"
+        }
+
+        when:
+        def first = service.exists(resourceResolver, "/content/a")
+        def second = service.exists(resourceResolver, "/content/a")
+        def missing = service.exists(resourceResolver, "/content/b")
+        service.exists(adminResourceResolver, "/content/a")
+
+        then:
+        1 * resourceResolver.resolve("/content/a") >> createResource("cq:Page")
+        1 * resourceResolver.resolve("/content/b") >> createResource(RESOURCE_TYPE_NON_EXISTING)
+        1 * adminResourceResolver.resolve("/content/a") >> createResource("cq:Page")
+
+        and:
+        first
+        second
+        !missing
+        service.getCacheStats("existingPaths").hitCount() == 1
+    }
+
+    def "invalidate removes path, descendants, and extensions only"() {
+        setup:
+        def service = createService(true)
+        def resourceResolver = Mock(ResourceResolver) {
+            resolve(_) >> createResource("cq:Page")
+        }
+
+        ["/content/a", "/content/a.html", "/content/a/b", "/content/ab"].each { path ->
+            service.exists(resourceResolver, path)
+        }
+
+        when:
+        service.invalidate("/content/a")
+
+        then:
+        service.getCacheSize("existingPaths") == 1
+        service.listCaches() == ["existingPaths"]
+    }
+
+    def "path resolved during invalidation is returned but not cached"() {
+        setup:
+        def service = createService(true)
+        def resourceResolver = Mock(ResourceResolver)
+
+        when:
+        def first = service.exists(resourceResolver, "/content/a")
+        def second = service.exists(resourceResolver, "/content/a")
+
+        then:
+        1 * resourceResolver.resolve("/content/a") >> {
+            service.invalidate("/content/a")
+
+            createResource(RESOURCE_TYPE_NON_EXISTING)
+        }
+        1 * resourceResolver.resolve("/content/a") >> createResource("cq:Page")
+
+        and:
+        !first
+        second
+    }
+
+    def "listener invalidates added and removed nodes and all paths for mapping changes"() {
+        setup:
+        def service = createService(true)
+        def listener = new DefaultPathExistenceCacheService.PathExistenceEventListener(service)
+        def resourceResolver = Mock(ResourceResolver) {
+            resolve(_) >> createResource("cq:Page")
+        }
+
+        ["/content/a", "/content/b"].each { path ->
+            service.exists(resourceResolver, path)
+        }
+
+        when:
+        listener.onEvent(createEvents(type, [path]))
+
+        then:
+        service.getCacheSize("existingPaths") == size
+
+        where:
+        type                   | path                                 | size
+        Event.NODE_ADDED       | "/content/a"                         | 1
+        Event.NODE_REMOVED     | "/content/b"                         | 1
+        Event.NODE_ADDED       | "/content/c"                         | 2
+        Event.PROPERTY_CHANGED | "/content/c/jcr:content/jcr:title"   | 2
+        Event.PROPERTY_ADDED   | "/content/c/jcr:content/sling:alias" | 0
+        Event.NODE_ADDED       | "/etc/map/http/localhost"            | 0
+    }
+
+    def "invalidate removes mapped paths by resolved path"() {
+        setup:
+        def service = createService(true)
+        def resourceResolver = Mock(ResourceResolver) {
+            resolve("/about.html") >> createResource(RESOURCE_TYPE_NON_EXISTING, "/content/site/about.html")
+            resolve("/products.html") >> createResource("cq:Page", "/content/site/products")
+            resolve("/other.html") >> createResource("cq:Page", "/content/site/other")
+        }
+
+        ["/about.html", "/products.html", "/other.html"].each { path ->
+            service.exists(resourceResolver, path)
+        }
+
+        when:
+        service.invalidate("/content/site/about")
+        service.invalidate("/content/site/products")
+
+        then:
+        service.getCacheSize("existingPaths") == 1
+    }
+
+    def "listener invalidates node paths once per batch of events"() {
+        setup:
+        def service = createService(true, Spy(DefaultPathExistenceCacheService))
+        def listener = new DefaultPathExistenceCacheService.PathExistenceEventListener(service)
+
+        when:
+        listener.onEvent(createEvents([
+            "/content/a": Event.NODE_ADDED,
+            "/content/a/jcr:content": Event.NODE_ADDED,
+            "/content/a/jcr:content/jcr:title": Event.PROPERTY_ADDED,
+            "/content/b": Event.NODE_REMOVED
+        ]))
+
+        then:
+        1 * service.invalidate(["/content/a", "/content/a/jcr:content", "/content/b"] as Set)
+    }
+
+    private Resource createResource(String resourceType) {
+        Mock(Resource) {
+            getResourceType() >> resourceType
+        }
+    }
+
+    private Resource createResource(String resourceType, String path) {
+        Mock(Resource) {
+            getResourceType() >> resourceType
+            getPath() >> path
+        }
+    }
+
+    private DefaultPathExistenceCacheService createService(boolean enabled) {
+        createService(enabled, new DefaultPathExistenceCacheService())
+    }
+
+    private DefaultPathExistenceCacheService createService(boolean enabled, DefaultPathExistenceCacheService service) {
+        setRepository(service, observationManager)
+
+        service.activate(null, [(DefaultPathExistenceCacheService.ENABLED): enabled,
+            (DefaultPathExistenceCacheService.MAXIMUM_SIZE): 100L])
+
+        service
+    }
+}
@@ -0,0 +1,238 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
+import com.citytechinc.aem.bedrock.core.specs.ObservationTrait
+import com.day.cq.tagging.TagManager
+import org.apache.sling.api.resource.ResourceResolver
+import org.apache.sling.api.resource.ResourceResolverFactory
+
+import javax.jcr.observation.Event
+import javax.jcr.observation.ObservationManager
+import java.util.concurrent.ConcurrentSkipListMap
+
+class DefaultTagIndexServiceSpec extends BedrockSpec implements ObservationTrait {
+
+    def observationManager = Mock(ObservationManager)
+
+    def setupSpec() {
+        nodeBuilder.etc {
+            tags {
+                tag1("cq:Tag") {
+                    child("cq:Tag")
+                }
+                tag2("cq:Tag")
+                tag3("cq:Tag")
+            }
+        }
+
+        pageBuilder.content {
+            one {
+                "jcr:content"("cq:tags": ["/etc/tags/tag1", "/etc/tags/tag2"])
+                child {
+                    "jcr:content"("cq:tags": "/etc/tags/tag1/child")
+                }
+            }
+            two {
+                "jcr:content"("cq:tags": "/etc/tags/tag2")
+            }
+            three()
+        }
+
+        nodeBuilder.content {
+            folder("sling:OrderedFolder") {
+                page("cq:Page") {
+                    "jcr:content"("cq:PageContent", "cq:tags": "/etc/tags/tag3")
+                }
+            }
+        }
+    }
+
+    def "disabled service does not index pages"() {
+        setup:
+        def service = createService(false)
+
+        expect:
+        !service.findPagePaths("/content", ["/etc/tags/tag1"], true).present
+    }
+
+    def "enabled service registers listeners for each root path"() {
+        when:
+        createService(true)
+
+        then:
+        2 * observationManager.addEventListener(_, _, "/content", true, null, null, false)
+    }
+
+    def "root path outside of indexed root paths is not indexed"() {
+        setup:
+        def service = createService(true)
+
+        expect:
+        !service.findPagePaths("/etc", [getTagId("/etc/tags/tag1")], true).present
+    }
+
+    def "root path that does not exist is not indexed"() {
+        setup:
+        def service = createService(true, true, ["/content", "/missing"])
+
+        expect:
+        service.findPagePaths("/content", [getTagId("/etc/tags/tag1")], true).present
+        !service.findPagePaths("/missing", [getTagId("/etc/tags/tag1")], true).present
+    }
+
+    def "pages below folders are indexed"() {
+        setup:
+        def service = createService(true)
+
+        expect:
+        service.findPagePaths("/content", [getTagId("/etc/tags/tag3")], true).get() == ["/content/folder/page"]
+    }
+
+    def "changes observed during the build are re-applied after it is published"() {
+        setup:
+        def service = createService(true)
+        def tagIds = [getTagId("/etc/tags/tag2")]
+
+        when:
+        service.changedPaths = [] as LinkedHashSet
+        service.removeSubtree("/content/two")
+        service.publish(new ConcurrentSkipListMap<String, Set<String>>(), ["/content"] as Set)
+
+        then:
+        service.findPagePaths("/content", tagIds, true).get() == ["/content/two"]
+    }
+
+    def "find page paths"() {
+        setup:
+        def service = createService(true)
+        def canonicalTagIds = tagIds.collect { getTagId(it) }
+
+        expect:
+        service.findPagePaths(rootPath, canonicalTagIds, matchOne).get() == paths
+
+        where:
+        rootPath       | tagIds                               | matchOne | paths
+        "/content"     | ["/etc/tags/tag1"]                   | true     | ["/content/one", "/content/one/child"]
+        "/content"     | ["/etc/tags/tag1/child"]             | true     | ["/content/one/child"]
+        "/content"     | ["/etc/tags/tag2"]                   | true     | ["/content/one", "/content/two"]
+        "/content"     | ["/etc/tags/tag1", "/etc/tags/tag2"] | false    | ["/content/one"]
+        "/content/one" | ["/etc/tags/tag2"]                   | true     | ["/content/one"]
+    }
+
+    def "remove and re-index subtree"() {
+        setup:
+        def service = createService(true)
+        def tagIds = [getTagId("/etc/tags/tag1")]
+
+        when:
+        service.removeSubtree("/content/one")
+
+        then:
+        service.findPagePaths("/content", tagIds, true).get().empty
+
+        when:
+        service.indexSubtree("/content/one")
+
+        then:
+        service.findPagePaths("/content", tagIds, true).get() == ["/content/one", "/content/one/child"]
+    }
+
+    def "structure events update index"() {
+        setup:
+        def service = createService(true)
+        def listener = new DefaultTagIndexService.TagIndexStructureEventListener(service)
+        def tagIds = [getTagId("/etc/tags/tag2")]
+
+        when:
+        listener.onEvent(createEvents(Event.NODE_REMOVED, ["/content/one/jcr:content", "/content/two"]))
+
+        then:
+        service.findPagePaths("/content", tagIds, true).get().empty
+
+        when:
+        listener.onEvent(createEvents(Event.NODE_ADDED, ["/content/one", "/content/two"]))
+
+        then:
+        service.findPagePaths("/content", tagIds, true).get() == ["/content/one", "/content/two"]
+    }
+
+    def "tag property events update index"() {
+        setup:
+        def service = createService(true)
+        def listener = new DefaultTagIndexService.TagIndexTagEventListener(service)
+        def tagIds = [getTagId("/etc/tags/tag2")]
+
+        when:
+        service.removePage("/content/two")
+
+        then:
+        service.findPagePaths("/content", tagIds, true).get() == ["/content/one"]
+
+        when:
+        listener.onEvent(createEvents(Event.PROPERTY_CHANGED, ["/content/two/jcr:content/cq:tags",
+            "/content/two/jcr:content/jcr:title"]))
+
+        then:
+        service.findPagePaths("/content", tagIds, true).get() == ["/content/one", "/content/two"]
+    }
+
+    def "index is not used until the build completes"() {
+        setup:
+        def service = createService(true, false)
+
+        expect:
+        !service.findPagePaths("/content", [getTagId("/etc/tags/tag1")], true).present
+    }
+
+    def "index is listed as a cache"() {
+        setup:
+        def service = createService(true)
+
+        when:
+        service.findPagePaths("/content", [getTagId("/etc/tags/tag1")], true)
+
+        then:
+        service.listCaches() == ["tagIndexes"]
+        service.getCacheSize("tagIndexes") == 1
+    }
+
+    private DefaultTagIndexService createService(boolean enabled) {
+        createService(enabled, true)
+    }
+
+    private DefaultTagIndexService createService(boolean enabled, boolean indexed) {
+        createService(enabled, indexed, ["/content"])
+    }
+
+    private DefaultTagIndexService createService(boolean enabled, boolean indexed, List<String> rootPaths) {
+        def service = new DefaultTagIndexService()
+
+        setRepository(service, observationManager)
+
+        // the build closes its resolver, which must not close the shared test resolver
+        def adminResourceResolver = ProxyGenerator.INSTANCE.instantiateDelegate([close: {}], [ResourceResolver],
+            resourceResolver)
+
+        service.resourceResolverFactory = Mock(ResourceResolverFactory) {
+            getAdministrativeResourceResolver(null) >> adminResourceResolver
+        }
+
+        service.activate(null, [(DefaultTagIndexService.ENABLED): enabled,
+            (DefaultTagIndexService.ROOT_PATHS): rootPaths as String[]])
+
+        if (enabled) {
+            // wait for the background build
+            service.indexing.get()
+        }
+
+        if (!indexed) {
+            service.indexedRootPaths = [] as Set
+        }
+
+        service
+    }
+
+    private String getTagId(String tagPath) {
+        resourceResolver.adaptTo(TagManager).resolve(tagPath)?.tagID ?: tagPath
+    }
+}
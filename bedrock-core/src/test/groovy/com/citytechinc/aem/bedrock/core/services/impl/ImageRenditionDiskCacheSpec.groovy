@@ -0,0 +1,98 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import com.citytechinc.aem.bedrock.core.services.cache.ImageRendition
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class ImageRenditionDiskCacheSpec extends Specification {
+
+    def directory = Files.createTempDirectory("renditions").toFile()
+
+    def cleanup() {
+        directory.deleteDir()
+    }
+
+    def "cached rendition is read from disk"() {
+        setup:
+        def diskCache = new ImageRenditionDiskCache(directory, 1024)
+
+        when:
+        diskCache.put("key", createRendition("/content/image", 4))
+
+        then:
+        def rendition = diskCache.get("key")
+
+        rendition.mimeType == "image/png"
+        rendition.length == 4
+        rendition.paths == ["/content/image"] as Set
+        directory.listFiles().length == 1
+    }
+
+    def "least recently used renditions are evicted when the maximum size is exceeded"() {
+        setup:
+        def diskCache = new ImageRenditionDiskCache(directory, 10)
+
+        when:
+        diskCache.put("one", createRendition("/content/one", 4))
+        diskCache.put("two", createRendition("/content/two", 4))
+        diskCache.get("one")
+        diskCache.put("three", createRendition("/content/three", 4))
+
+        then:
+        diskCache.get("one")
+        !diskCache.get("two")
+        diskCache.get("three")
+        diskCache.size == 8
+        directory.listFiles().length == 2
+    }
+
+    def "rendition larger than the maximum size is not cached"() {
+        setup:
+        def diskCache = new ImageRenditionDiskCache(directory, 10)
+
+        when:
+        diskCache.put("key", createRendition("/content/image", 11))
+
+        then:
+        !diskCache.get("key")
+        !directory.listFiles()
+    }
+
+    def "invalidate renditions for path"() {
+        setup:
+        def diskCache = new ImageRenditionDiskCache(directory, 1024)
+
+        diskCache.put("one", createRendition("/content/one/jcr:content/image", 4))
+        diskCache.put("two", createRendition("/content/two/jcr:content/image", 4))
+
+        expect:
+        diskCache.invalidate(path) == count
+        diskCache.count == 2 - count
+
+        where:
+        path                                               | count
+        "/content/one/jcr:content/image"                   | 1
+        "/content/one/jcr:content/image/file/jcr:content"  | 1
+        "/content/one"                                     | 1
+        "/content"                                         | 2
+        "/content/three"                                   | 0
+    }
+
+    def "rendition files of a previous cache are removed when the cache is created"() {
+        setup:
+        new ImageRenditionDiskCache(directory, 1024).put("key", createRendition("/content/image", 4))
+        new File(directory, "da39a3ee5e6b4b0d3255bfef95601890afd80709123.tmp").text = "partial"
+        new File(directory, "other.txt").text = "other"
+
+        when:
+        new ImageRenditionDiskCache(directory, 1024)
+
+        then:
+        directory.listFiles()*.name == ["other.txt"]
+    }
+
+    private static ImageRendition createRendition(String path, int length) {
+        new ImageRendition("image/png", new byte[length], [path])
+    }
+}
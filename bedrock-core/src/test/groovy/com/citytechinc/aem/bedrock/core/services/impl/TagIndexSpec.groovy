@@ -0,0 +1,59 @@
+package com.citytechinc.aem.bedrock.core.services.impl
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class TagIndexSpec extends Specification {
+
+    static final def PAGE_TAGS = new TreeMap<String, Set<String>>([
+        "/content": ["ns:a"] as Set,
+        "/content/one": ["ns:a", "ns:b"] as Set,
+        "/content/one/child": ["ns:a/child"] as Set,
+        "/content/one-other": ["ns:b"] as Set,
+        "/content/two": ["other:c"] as Set
+    ])
+
+    @Unroll
+    def "union of #first and #second"() {
+        expect:
+        TagIndex.union(first as int[], second as int[]) == result as int[]
+
+        where:
+        first     | second    | result
+        []        | []        | []
+        [1, 3]    | []        | [1, 3]
+        [1, 3, 5] | [2, 3, 6] | [1, 2, 3, 5, 6]
+    }
+
+    @Unroll
+    def "intersection of #first and #second"() {
+        expect:
+        TagIndex.intersect(first as int[], second as int[]) == result as int[]
+
+        where:
+        first        | second       | result
+        []           | [1]          | []
+        [1, 3, 5]    | [2, 4]       | []
+        [1, 3, 5, 7] | [3, 4, 5, 8] | [3, 5]
+    }
+
+    @Unroll
+    def "find #tagIds under #rootPath matching one = #matchOne"() {
+        setup:
+        def tagIndex = new TagIndex(PAGE_TAGS, 0)
+
+        expect:
+        tagIndex.find(rootPath, tagIds, matchOne) == paths
+
+        where:
+        rootPath       | tagIds             | matchOne | paths
+        "/content"     | ["ns:a"]           | true     | ["/content", "/content/one", "/content/one/child"]
+        "/content"     | ["ns:a", "ns:b"]   | true     | ["/content", "/content/one", "/content/one-other", "/content/one/child"]
+        "/content"     | ["ns:a", "ns:b"]   | false    | ["/content/one"]
+        "/content"     | ["ns:"]            | true     | ["/content", "/content/one", "/content/one-other", "/content/one/child"]
+        "/content/one" | ["ns:b"]           | true     | ["/content/one"]
+        "/content/one" | ["ns:a"]           | true     | ["/content/one", "/content/one/child"]
+        "/content"     | ["ns:a", "ghost:"] | false    | []
+        "/content"     | []                 | true     | []
+    }
+}
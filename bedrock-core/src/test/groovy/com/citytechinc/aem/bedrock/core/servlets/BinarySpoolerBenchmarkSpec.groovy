@@ -0,0 +1,77 @@
+package com.citytechinc.aem.bedrock.core.servlets
+
+import com.citytechinc.aem.bedrock.core.specs.BenchmarkTrait
+import com.google.common.io.ByteStreams
+import spock.lang.Requires
+import spock.lang.Shared
+import spock.lang.Specification
+
+@Requires({ System.getProperty("benchmark") })
+class BinarySpoolerBenchmarkSpec extends Specification implements BenchmarkTrait {
+
+    static final int LENGTH = 8 * 1024 * 1024
+
+    static final byte[] DATA = new byte[LENGTH]
+
+    @Shared
+    File file
+
+    def setupSpec() {
+        new Random(0).nextBytes(DATA)
+
+        file = File.createTempFile("binary", ".tmp")
+        file.bytes = DATA
+    }
+
+    def cleanupSpec() {
+        file.delete()
+    }
+
+    def "spool stream reuses the thread buffer instead of allocating a copy buffer"() {
+        setup:
+        def previous = measureTime("spool ${LENGTH / 1024 / 1024}MB stream, 8KB copy") {
+            ByteStreams.copy(new ByteArrayInputStream(DATA), ByteStreams.nullOutputStream())
+        }
+
+        def current = measureTime("spool ${LENGTH / 1024 / 1024}MB stream, binary spooler") {
+            BinarySpooler.copy(new ByteArrayInputStream(DATA), ByteStreams.nullOutputStream(), 0, LENGTH)
+        }
+
+        report("spool stream speedup", "percent", previous * 100 / current, "%")
+
+        expect:
+        measureAllocation("spool ${LENGTH / 1024 / 1024}MB stream, binary spooler") {
+            BinarySpooler.copy(new ByteArrayInputStream(DATA), ByteStreams.nullOutputStream(), 0, LENGTH)
+        } < measureAllocation("spool ${LENGTH / 1024 / 1024}MB stream, 8KB copy") {
+            ByteStreams.copy(new ByteArrayInputStream(DATA), ByteStreams.nullOutputStream())
+        }
+    }
+
+    def "spool file reuses the thread buffer instead of allocating a copy buffer"() {
+        setup:
+        def previous = measureTime("spool ${LENGTH / 1024 / 1024}MB file, 8KB copy") {
+            file.withInputStream { inputStream ->
+                ByteStreams.copy(inputStream, ByteStreams.nullOutputStream())
+            }
+        }
+
+        def current = measureTime("spool ${LENGTH / 1024 / 1024}MB file, binary spooler") {
+            file.withInputStream { inputStream ->
+                BinarySpooler.copy(inputStream, ByteStreams.nullOutputStream(), 0, LENGTH)
+            }
+        }
+
+        report("spool file speedup", "percent", previous * 100 / current, "%")
+
+        expect:
+        measureAllocation("spool ${LENGTH / 1024 / 1024}MB file, binary spooler") {
+            file.withInputStream { inputStream ->
+                BinarySpooler.copy(inputStream, ByteStreams.nullOutputStream(), 0, LENGTH)
+            }
+        } < measureAllocation("spool ${LENGTH / 1024 / 1024}MB file, 8KB copy") {
+            file.withInputStream { inputStream ->
+                ByteStreams.copy(inputStream, ByteStreams.nullOutputStream())
+            }
+        }
+    }
+}
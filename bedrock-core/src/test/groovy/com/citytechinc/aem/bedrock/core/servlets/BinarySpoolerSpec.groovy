@@ -0,0 +1,77 @@
+package com.citytechinc.aem.bedrock.core.servlets
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+@Unroll
+class BinarySpoolerSpec extends Specification {
+
+    static final byte[] DATA = (0..<200000).collect { i -> (byte) (i % 251) } as byte[]
+
+    def "parse ranges"() {
+        expect:
+        BinarySpooler.parseRanges(header, 1000)?.collect { range -> [range.first, range.last] } == ranges
+
+        where:
+        header                  | ranges
+        "bytes=0-499"           | [[0, 499]]
+        "bytes=500-"            | [[500, 999]]
+        "bytes=-200"            | [[800, 999]]
+        "bytes=-2000"           | [[0, 999]]
+        "bytes=900-2000"        | [[900, 999]]
+        "bytes=0-0, 10-19"      | [[0, 0], [10, 19]]
+        "bytes=0-0,2000-3000"   | [[0, 0]]
+        "bytes=10-19,0-0"       | [[0, 0], [10, 19]]
+        "bytes=0-499,200-699"   | [[0, 699]]
+        "bytes=0-499,500-599"   | [[0, 599]]
+        "bytes=0-99,-950,10-19" | [[0, 999]]
+        "bytes=1000-"           | []
+        "bytes=-0"              | []
+        "bytes=500-400"         | null
+        "bytes=abc-"            | null
+        "bytes=5"               | null
+        "bytes=--5"             | null
+        "bytes=+5-10"           | null
+        "bytes=5--10"           | null
+        "items=0-499"           | null
+    }
+
+    def "too many ranges are ignored"() {
+        setup:
+        def header = "bytes=" + (0..BinarySpooler.MAXIMUM_RANGES).collect { i -> "$i-$i" }.join(",")
+
+        expect:
+        BinarySpooler.parseRanges(header, 1000) == null
+    }
+
+    def "content range"() {
+        expect:
+        BinarySpooler.parseRanges("bytes=100-199", 1000)[0].toContentRange(1000) == "bytes 100-199/1000"
+    }
+
+    def "copy range from stream"() {
+        setup:
+        def outputStream = new ByteArrayOutputStream()
+
+        when:
+        BinarySpooler.copy(new ByteArrayInputStream(DATA), outputStream, offset, count)
+
+        then:
+        outputStream.toByteArray() == Arrays.copyOfRange(DATA, offset as int, (offset + count) as int)
+
+        where:
+        offset | count
+        0      | DATA.length
+        0      | 1
+        70000  | 100000
+        199999 | 1
+    }
+
+    def "copy past end of stream throws exception"() {
+        when:
+        BinarySpooler.copy(new ByteArrayInputStream(DATA), new ByteArrayOutputStream(), DATA.length - 10, 20)
+
+        then:
+        thrown(EOFException)
+    }
+}
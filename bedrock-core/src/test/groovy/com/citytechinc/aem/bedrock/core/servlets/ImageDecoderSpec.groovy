@@ -0,0 +1,93 @@
+package com.citytechinc.aem.bedrock.core.servlets
+
+import com.day.cq.wcm.foundation.Image
+import com.day.image.Layer
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import javax.imageio.ImageIO
+import java.awt.image.BufferedImage
+
+@Unroll
+class ImageDecoderSpec extends Specification {
+
+    def "subsampling"() {
+        expect:
+        ImageDecoder.getSubsampling(sourceWidth, width) == subsampling
+
+        where:
+        sourceWidth | width | subsampling
+        6000        | -1    | 1
+        6000        | 6000  | 1
+        6000        | 3000  | 1
+        6000        | 1500  | 2
+        6000        | 320   | 8
+        6000        | 100   | 16
+        6001        | 1500  | 2
+        100         | 1     | 64
+    }
+
+    def "permits"() {
+        setup:
+        def decoder = new ImageDecoder(256, 0)
+
+        expect:
+        decoder.getPermits(width, height) == permits
+
+        where:
+        width | height | permits
+        1     | 1      | 1
+        512   | 512    | 1
+        513   | 512    | 2
+        6000  | 6000   | 138
+        20000 | 20000  | 256
+    }
+
+    def "read subsampled image"() {
+        setup:
+        def outputStream = new ByteArrayOutputStream()
+
+        ImageIO.write(new BufferedImage(1000, 600, BufferedImage.TYPE_INT_RGB), format, outputStream)
+
+        when:
+        def layer = ImageDecoder.read(new ByteArrayInputStream(outputStream.toByteArray()), 4)
+
+        then:
+        layer.width == 250
+        layer.height == 150
+
+        where:
+        format << ["png", "jpeg", "gif"]
+    }
+
+    def "read unrecognized image"() {
+        expect:
+        !ImageDecoder.read(new ByteArrayInputStream("text".bytes), 2)
+    }
+
+    def "image with unknown dimensions reserves the whole budget"() {
+        setup:
+        def decoder = new ImageDecoder(64, 0)
+
+        def image = Mock(Image) {
+            getData() >> null
+            getLayer(false, false, false) >> new Layer(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB))
+        }
+
+        when:
+        def decodedImage = decoder.decode(image, 5)
+
+        then:
+        decodedImage.layer.width == 10
+        decoder.decodeSize == 64
+
+        and:
+        !decoder.decode(image, 5)
+
+        when:
+        decodedImage.close()
+
+        then:
+        decoder.decodeSize == 0
+    }
+}
@@ -1,8 +1,10 @@
 package com.citytechinc.aem.bedrock.core.servlets
 
+import com.citytechinc.aem.bedrock.core.services.ImageWidthService
 import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
 import com.day.cq.wcm.commons.AbstractImageServlet
 import com.day.image.Layer
+import org.apache.sling.api.SlingHttpServletRequest
 import spock.lang.Unroll
 
 import javax.servlet.http.HttpServletResponse
@@ -74,4 +76,95 @@ class ImageServletSpec extends BedrockSpec {
         where:
         requestPath << ["/content/home", "/content/home/jcr:content", "/content/home/jcr:content/component"]
     }
+
+    def "request preconditions"() {
+        setup:
+        def request = Mock(SlingHttpServletRequest) {
+            getHeader("If-None-Match") >> ifNoneMatch
+            getDateHeader("If-Modified-Since") >> ifModifiedSince
+        }
+
+        expect:
+        ImageServlet.isNotModified(request, '"tag"', 1000000) == notModified
+
+        where:
+        ifNoneMatch       | ifModifiedSince | notModified
+        null              | -1              | false
+        '"tag"'           | -1              | true
+        'W/"tag"'         | -1              | true
+        '"other", "tag"'  | -1              | true
+        "*"               | -1              | true
+        '"other"'         | 1000000         | false
+        null              | 1000000         | true
+        null              | 2000000         | true
+        null              | 999000          | false
+    }
+
+    def "if-range precondition"() {
+        setup:
+        def request = Mock(SlingHttpServletRequest) {
+            getHeader("If-Range") >> ifRange
+            getDateHeader("If-Range") >> ifRangeDate
+        }
+
+        expect:
+        ImageServlet.isRangeCurrent(request, '"tag"', 1000000) == current
+
+        where:
+        ifRange                         | ifRangeDate | current
+        null                            | -1          | true
+        '"tag"'                         | -1          | true
+        '"other"'                       | -1          | false
+        'W/"tag"'                       | -1          | false
+        "Thu, 01 Jan 1970 00:16:40 GMT" | 1000000     | true
+        "Thu, 01 Jan 1970 00:16:41 GMT" | 1001000     | false
+    }
+
+    def "ladder path"() {
+        setup:
+        def request = requestBuilder.build {
+            path = "/content/home"
+            selectors = requestSelectors
+            extension = "png"
+        }
+
+        expect:
+        ImageServlet.getLadderPath(request, 640) == ladderPath
+
+        where:
+        requestSelectors       | ladderPath
+        ["img", "641"]         | "/content/home.img.640.png"
+        ["img", "meme", "641"] | "/content/home.img.meme.640.png"
+    }
+
+    def "off-ladder width is redirected or rejected"() {
+        setup:
+        def servlet = new ImageServlet()
+
+        servlet.bindImageWidthService(Mock(ImageWidthService) {
+            isEnabled() >> true
+            isRedirect() >> redirect
+            getWidths() >> [320, 640]
+            getWidth(641) >> 640
+        })
+
+        def request = requestBuilder.build {
+            path = "/content/home"
+            selectors = ["img", "641"]
+            extension = "png"
+        }
+
+        def response = responseBuilder.build()
+
+        when:
+        servlet.writeLayer(request, response, Mock(AbstractImageServlet.ImageContext), Mock(Layer))
+
+        then:
+        response.status == status
+
+        where:
+        redirect | status
+        true     | HttpServletResponse.SC_FOUND
+        false    | HttpServletResponse.SC_NOT_FOUND
+    }
 }
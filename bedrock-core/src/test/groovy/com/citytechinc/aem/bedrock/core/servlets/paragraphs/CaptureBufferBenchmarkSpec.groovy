@@ -0,0 +1,138 @@
+package com.citytechinc.aem.bedrock.core.servlets.paragraphs
+
+import com.citytechinc.aem.bedrock.core.specs.BenchmarkTrait
+import com.fasterxml.jackson.core.JsonFactory
+import spock.lang.Requires
+import spock.lang.Specification
+
+import javax.servlet.ServletOutputStream
+import java.nio.charset.StandardCharsets
+
+@Requires({ System.getProperty("benchmark") })
+class CaptureBufferBenchmarkSpec extends Specification implements BenchmarkTrait {
+
+    static final JsonFactory FACTORY = new JsonFactory()
+
+    /** servlet containers and JSP writers typically flush in 8KB chunks */
+    static final int CHUNK_SIZE = 8192
+
+    static final String HTML = (1..1000).collect { i ->
+        "<div class=\"item-$i\"><p>café — component text $i</p></div>\n"
+    }.join()
+
+    static final byte[] BYTES = HTML.getBytes(StandardCharsets.UTF_8)
+
+    def "capture stream output"() {
+        setup:
+        def previous = measureTime("capture ${BYTES.length / 1024}KB stream output, char per byte") {
+            writeJson(captureWithStringWriter())
+        }
+
+        def current = measureTime("capture ${BYTES.length / 1024}KB stream output, pooled buffer") {
+            def buffer = captureWithBuffer()
+
+            writeJson(buffer)
+
+            buffer.release()
+        }
+
+        measureAllocation("capture ${BYTES.length / 1024}KB stream output, char per byte") {
+            writeJson(captureWithStringWriter())
+        }
+
+        measureAllocation("capture ${BYTES.length / 1024}KB stream output, pooled buffer") {
+            def buffer = captureWithBuffer()
+
+            writeJson(buffer)
+
+            buffer.release()
+        }
+
+        report("capture stream output speedup", "percent", previous * 100 / current, "%")
+
+        expect:
+        BYTES.length > 50 * 1024
+    }
+
+    def "capture writer output"() {
+        setup:
+        def previous = measureTime("capture ${HTML.length() / 1024}KB writer output, new writer per call") {
+            def outputBuffer = new StringWriter()
+
+            chunks(HTML).each { chunk ->
+                new PrintWriter(outputBuffer).write(chunk)
+            }
+
+            writeJson(outputBuffer.toString())
+        }
+
+        def current = measureTime("capture ${HTML.length() / 1024}KB writer output, pooled buffer") {
+            def buffer = CaptureBuffer.acquire(StandardCharsets.UTF_8)
+
+            chunks(HTML).each { chunk ->
+                buffer.writer.write(chunk)
+            }
+
+            writeJson(buffer)
+
+            buffer.release()
+        }
+
+        report("capture writer output speedup", "percent", previous * 100 / current, "%")
+
+        expect:
+        HTML.length() > 50 * 1024
+    }
+
+    /**
+     * Previous capture implementation, appending each byte as a character.
+     */
+    private static String captureWithStringWriter() {
+        def outputBuffer = new StringWriter()
+
+        def outputStream = new ServletOutputStream() {
+            @Override
+            void write(int b) throws IOException {
+                outputBuffer.append((char) b)
+            }
+        }
+
+        writeChunks(outputStream)
+
+        outputBuffer.toString()
+    }
+
+    private static CaptureBuffer captureWithBuffer() {
+        def buffer = CaptureBuffer.acquire(StandardCharsets.UTF_8)
+
+        writeChunks(buffer.outputStream)
+
+        buffer
+    }
+
+    private static void writeChunks(OutputStream outputStream) {
+        for (int offset = 0; offset < BYTES.length; offset += CHUNK_SIZE) {
+            outputStream.write(BYTES, offset, Math.min(CHUNK_SIZE, BYTES.length - offset))
+        }
+    }
+
+    private static List<String> chunks(String html) {
+        (0..<html.length()).step(CHUNK_SIZE).collect { offset ->
+            html.substring(offset, Math.min(offset + CHUNK_SIZE, html.length()))
+        }
+    }
+
+    private static void writeJson(String html) {
+        def generator = FACTORY.createGenerator(new StringWriter(html.length() + 16))
+
+        generator.writeString(html)
+        generator.close()
+    }
+
+    private static void writeJson(CaptureBuffer buffer) {
+        def generator = FACTORY.createGenerator(new StringWriter(BYTES.length + 16))
+
+        buffer.writeTo(generator)
+        generator.close()
+    }
+}
@@ -0,0 +1,131 @@
+package com.citytechinc.aem.bedrock.core.servlets.paragraphs
+
+import com.fasterxml.jackson.core.JsonFactory
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class CaptureBufferSpec extends Specification {
+
+    static final String HTML = "<p>café — 日本 \"quoted\"</p>"
+
+    def "stream output is decoded with charset"() {
+        setup:
+        def buffer = CaptureBuffer.acquire(charset)
+
+        when:
+        def bytes = HTML.getBytes(charset)
+
+        buffer.outputStream.write(bytes, 0, 10)
+        buffer.outputStream.write(bytes, 10, bytes.length - 10)
+
+        then:
+        writeJson(buffer) == expected
+
+        cleanup:
+        buffer.release()
+
+        where:
+        charset                   | expected
+        StandardCharsets.UTF_8    | "\"<p>café — 日本 \\\"quoted\\\"</p>\""
+        StandardCharsets.UTF_16LE | "\"<p>café — 日本 \\\"quoted\\\"</p>\""
+    }
+
+    def "writer output"() {
+        setup:
+        def buffer = CaptureBuffer.acquire(StandardCharsets.UTF_8)
+
+        when:
+        buffer.writer.write(HTML)
+
+        then:
+        writeJson(buffer) == "\"<p>café — 日本 \\\"quoted\\\"</p>\""
+
+        cleanup:
+        buffer.release()
+    }
+
+    def "mixed stream and writer output keeps order"() {
+        setup:
+        def buffer = CaptureBuffer.acquire(StandardCharsets.UTF_8)
+
+        when:
+        buffer.writer.print("<div>")
+        buffer.outputStream.write("café".getBytes(StandardCharsets.UTF_8))
+        buffer.writer.print("</div>")
+
+        then:
+        writeJson(buffer) == "\"<div>café</div>\""
+
+        cleanup:
+        buffer.release()
+    }
+
+    def "released buffer is reused without previous output"() {
+        setup:
+        def buffer = CaptureBuffer.acquire(StandardCharsets.UTF_8)
+
+        buffer.writer.write(HTML)
+        buffer.release()
+
+        when:
+        def reused = CaptureBuffer.acquire(StandardCharsets.UTF_8)
+
+        reused.writer.write("<p>")
+
+        then:
+        writeJson(reused) == "\"<p>\""
+
+        cleanup:
+        reused.release()
+    }
+
+    def "buffer grown beyond pooled capacity is not reused"() {
+        setup:
+        def buffer = CaptureBuffer.acquire(StandardCharsets.UTF_8)
+
+        buffer.writer.write("x" * 100000)
+        buffer.release()
+
+        def reused = []
+
+        when:
+        33.times {
+            reused.add(CaptureBuffer.acquire(StandardCharsets.UTF_8))
+        }
+
+        then:
+        !reused.any { it.is(buffer) }
+
+        cleanup:
+        reused*.release()
+    }
+
+    def "clear discards output"() {
+        setup:
+        def buffer = CaptureBuffer.acquire(StandardCharsets.UTF_8)
+
+        buffer.writer.write(HTML)
+        buffer.outputStream.write(1)
+
+        when:
+        buffer.clear()
+
+        then:
+        writeJson(buffer) == "\"\""
+
+        cleanup:
+        buffer.release()
+    }
+
+    private static String writeJson(CaptureBuffer buffer) {
+        def writer = new StringWriter()
+        def generator = new JsonFactory().createGenerator(writer)
+
+        buffer.writeTo(generator)
+
+        generator.close()
+
+        writer.toString()
+    }
+}
@@ -0,0 +1,53 @@
+package com.citytechinc.aem.bedrock.core.servlets.paragraphs
+
+import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
+
+class ParagraphJsonServletSpec extends BedrockSpec {
+
+    static final def CONTAINER_RESOURCE_TYPES = ["foundation/components/parsys"] as Set
+
+    def setupSpec() {
+        pageBuilder.content {
+            home {
+                "jcr:content" {
+                    header("sling:resourceType": "bedrock/components/header")
+                    par("sling:resourceType": "foundation/components/parsys") {
+                        text("sling:resourceType": "foundation/components/text")
+                        columns("sling:resourceType": "bedrock/components/columns") {
+                            left("sling:resourceType": "foundation/components/parsys") {
+                                image("sling:resourceType": "foundation/components/image")
+                            }
+                        }
+                        nested("sling:resourceType": "foundation/components/parsys")
+                    }
+                    footer("sling:resourceType": "foundation/components/parsys")
+                }
+            }
+        }
+    }
+
+    def "containers from tree are in document order"() {
+        setup:
+        def pageContentResource = resourceResolver.getResource("/content/home/jcr:content")
+
+        expect:
+        ParagraphJsonServlet.getContainersFromTree(pageContentResource, CONTAINER_RESOURCE_TYPES,
+            Integer.MAX_VALUE)*.path == ["/content/home/jcr:content/par",
+            "/content/home/jcr:content/par/columns/left", "/content/home/jcr:content/par/nested",
+            "/content/home/jcr:content/footer"]
+    }
+
+    def "containers from tree exceeding node limit"() {
+        setup:
+        def pageContentResource = resourceResolver.getResource("/content/home/jcr:content")
+
+        expect:
+        ParagraphJsonServlet.getContainersFromTree(pageContentResource, CONTAINER_RESOURCE_TYPES, limit)?.size() ==
+            size
+
+        where:
+        limit | size
+        8     | 4
+        7     | null
+    }
+}
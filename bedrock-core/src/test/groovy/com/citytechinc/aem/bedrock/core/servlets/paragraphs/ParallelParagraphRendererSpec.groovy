@@ -0,0 +1,367 @@
+package com.citytechinc.aem.bedrock.core.servlets.paragraphs
+
+import com.citytechinc.aem.bedrock.core.jmx.impl.DefaultParagraphRenderMetricsMBean
+import com.day.cq.wcm.api.WCMMode
+import com.fasterxml.jackson.core.JsonFactory
+import org.apache.sling.api.SlingHttpServletRequest
+import org.apache.sling.api.SlingHttpServletResponse
+import org.apache.sling.api.resource.Resource
+import org.apache.sling.api.resource.ResourceResolver
+import org.apache.sling.engine.SlingRequestProcessor
+import spock.lang.Specification
+
+import javax.servlet.RequestDispatcher
+import javax.servlet.ServletRequest
+import javax.servlet.ServletResponse
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.RejectedExecutionException
+
+class ParallelParagraphRendererSpec extends Specification {
+
+    def metrics = new DefaultParagraphRenderMetricsMBean()
+
+    def workerResourceResolver = Mock(ResourceResolver)
+
+    def request = Stub(SlingHttpServletRequest) {
+        getHeaderNames() >> Collections.enumeration(["Accept", "If-None-Match"])
+        getHeaders("Accept") >> Collections.enumeration(["text/html"])
+        getHeaders("If-None-Match") >> Collections.enumeration(["\"etag\""])
+        getParameterMap() >> [:]
+        getQueryString() >> null
+        getLocales() >> Collections.enumeration([Locale.US])
+        getResourceResolver() >> Stub(ResourceResolver) {
+            clone(_) >> workerResourceResolver
+        }
+    }
+
+    def response = Stub(SlingHttpServletResponse)
+
+    def "paragraphs are returned in document order"() {
+        setup:
+        def resources = (1..6).collect { createResource("/content/page/jcr:content/par/$it", "type") }
+
+        def processor = { HttpServletRequest paragraphRequest, HttpServletResponse paragraphResponse,
+            ResourceResolver resourceResolver ->
+            def index = paragraphRequest.pathInfo.find(/\d+/) as int
+
+            // later paragraphs finish first
+            Thread.sleep((6 - index) * 20)
+
+            paragraphResponse.writer.write("<p>$index</p>")
+        } as SlingRequestProcessor
+
+        def renderer = new ParallelParagraphRenderer(processor, 3, 5000)
+
+        when:
+        def json = writeJson(renderer.render(request, response, resources, StandardCharsets.UTF_8, metrics))
+
+        then:
+        json == (1..6).collect { "{\"path\":\"/content/page/jcr:content/par/$it\",\"html\":\"<p>$it</p>\"}" }
+            .join(",")
+
+        and:
+        6 * workerResourceResolver.close()
+
+        cleanup:
+        renderer.shutdown()
+    }
+
+    def "paragraph requests are isolated from the current request"() {
+        setup:
+        def resources = (1..4).collect { createResource("/content/page/jcr:content/par/$it", "type") }
+
+        def processor = { HttpServletRequest paragraphRequest, HttpServletResponse paragraphResponse,
+            ResourceResolver resourceResolver ->
+            assert paragraphRequest.getAttribute("rendered") == null
+            assert paragraphRequest.method == "GET"
+            assert paragraphRequest.getParameter("wcmmode") == "disabled"
+            assert paragraphRequest.getHeader("Accept") == "text/html"
+            assert paragraphRequest.getHeader("If-None-Match") == null
+            assert resourceResolver.is(workerResourceResolver)
+
+            paragraphRequest.setAttribute("rendered", true)
+            paragraphResponse.status = 404
+            paragraphResponse.setHeader("Cache-Control", "no-cache")
+            paragraphResponse.writer.write(paragraphRequest.pathInfo)
+        } as SlingRequestProcessor
+
+        def renderer = new ParallelParagraphRenderer(processor, 2, 5000)
+
+        when:
+        def json = writeJson(renderer.render(request, response, resources, StandardCharsets.UTF_8, metrics))
+
+        then:
+        json.contains("\"html\":\"/content/page/jcr:content/par/4.html\"")
+
+        cleanup:
+        renderer.shutdown()
+    }
+
+    def "paragraphs are rendered in the WCM mode of the current request"() {
+        setup:
+        def currentRequest = Stub(SlingHttpServletRequest) {
+            getAttribute(WCMMode.REQUEST_ATTRIBUTE_NAME) >> WCMMode.PREVIEW
+            getParameterMap() >> [wcmmode: ["edit"] as String[]]
+            getQueryString() >> "wcmmode=edit"
+            getLocales() >> Collections.enumeration([Locale.US])
+            getResourceResolver() >> Stub(ResourceResolver) {
+                clone(_) >> workerResourceResolver
+            }
+        }
+
+        def processor = { HttpServletRequest paragraphRequest, HttpServletResponse paragraphResponse,
+            ResourceResolver resourceResolver ->
+            paragraphResponse.writer.write(paragraphRequest.getParameter("wcmmode"))
+        } as SlingRequestProcessor
+
+        def renderer = new ParallelParagraphRenderer(processor, 1, 5000)
+
+        when:
+        def json = writeJson(renderer.render(currentRequest, response,
+            [createResource("/content/page/jcr:content/par/1", "type")], StandardCharsets.UTF_8, metrics))
+
+        then:
+        json.contains("\"html\":\"preview\"")
+
+        cleanup:
+        renderer.shutdown()
+    }
+
+    def "paragraph that requires the current request is included on the request thread"() {
+        setup:
+        def resource = createResource("/content/page/jcr:content/par/1", "type")
+
+        def currentRequest = Stub(SlingHttpServletRequest) {
+            getParameterMap() >> [:]
+            getLocales() >> Collections.enumeration([Locale.US])
+            getResourceResolver() >> Stub(ResourceResolver) {
+                clone(_) >> workerResourceResolver
+            }
+            getRequestDispatcher("/content/page/jcr:content/par/1.html") >> Stub(RequestDispatcher) {
+                include(_, _) >> { ServletRequest includeRequest, ServletResponse includeResponse ->
+                    includeResponse.writer.write("included")
+                }
+            }
+        }
+
+        def processor = { HttpServletRequest paragraphRequest, HttpServletResponse paragraphResponse,
+            ResourceResolver resourceResolver ->
+            paragraphRequest.getSession(true)
+        } as SlingRequestProcessor
+
+        def renderer = new ParallelParagraphRenderer(processor, 1, 5000)
+
+        when:
+        def json = writeJson(renderer.render(currentRequest, response, [resource], StandardCharsets.UTF_8, metrics))
+
+        then:
+        json == "{\"path\":\"/content/page/jcr:content/par/1\",\"html\":\"included\"}"
+
+        cleanup:
+        renderer.shutdown()
+    }
+
+    def "paragraphs beyond the queue capacity are rendered on the request thread"() {
+        setup:
+        def resources = (1..6).collect { createResource("/content/page/jcr:content/par/$it", "type") }
+        def requestThread = Thread.currentThread()
+
+        def processor = { HttpServletRequest paragraphRequest, HttpServletResponse paragraphResponse,
+            ResourceResolver resourceResolver ->
+            Thread.sleep(100)
+
+            paragraphResponse.writer.write(Thread.currentThread().is(requestThread) ? "caller" : "worker")
+        } as SlingRequestProcessor
+
+        // a single worker with a queue of four paragraphs
+        def renderer = new ParallelParagraphRenderer(processor, 1, 5000)
+
+        when:
+        def json = writeJson(renderer.render(request, response, resources, StandardCharsets.UTF_8, metrics))
+
+        then:
+        json.count("\"html\":\"caller\"") == 1
+        json.count("\"html\":\"worker\"") == 5
+
+        and:
+        6 * workerResourceResolver.close()
+
+        cleanup:
+        renderer.shutdown()
+    }
+
+    def "request methods that are not in the snapshot are not delegated to the current request"() {
+        setup:
+        def currentRequest = Mock(SlingHttpServletRequest) {
+            getParameterMap() >> [:]
+            getLocales() >> Collections.enumeration([Locale.US])
+            getProtocol() >> "HTTP/1.1"
+            getResourceResolver() >> Stub(ResourceResolver) {
+                clone(_) >> workerResourceResolver
+            }
+        }
+
+        def processor = { HttpServletRequest paragraphRequest, HttpServletResponse paragraphResponse,
+            ResourceResolver resourceResolver ->
+            def unsupported = [
+                { paragraphRequest.getSession(false) },
+                { paragraphRequest.isUserInRole("admin") },
+                { paragraphRequest.inputStream },
+                { paragraphRequest.getRequestDispatcher("/content") }
+            ].count { method ->
+                try {
+                    method.call()
+
+                    false
+                } catch (UnsupportedOperationException e) {
+                    true
+                }
+            }
+
+            paragraphResponse.writer.write("${paragraphRequest.protocol} $unsupported")
+        } as SlingRequestProcessor
+
+        def renderer = new ParallelParagraphRenderer(processor, 1, 5000)
+
+        when:
+        def source = renderer.render(currentRequest, response,
+            [createResource("/content/page/jcr:content/par/1", "type")], StandardCharsets.UTF_8, metrics)
+
+        then:
+        0 * currentRequest.getSession(_)
+
+        when:
+        def json = writeJson(source)
+
+        then:
+        json.contains("\"html\":\"HTTP/1.1 4\"")
+
+        and:
+        0 * currentRequest._
+
+        cleanup:
+        renderer.shutdown()
+    }
+
+    def "paragraph that exceeds the timeout is returned with empty HTML"() {
+        setup:
+        def resources = [createResource("/content/page/jcr:content/par/slow", "slow"),
+            createResource("/content/page/jcr:content/par/fast", "fast")]
+
+        def processor = { HttpServletRequest paragraphRequest, HttpServletResponse paragraphResponse,
+            ResourceResolver resourceResolver ->
+            if (paragraphRequest.pathInfo.contains("slow")) {
+                Thread.sleep(1000)
+            }
+
+            paragraphResponse.writer.write("html")
+        } as SlingRequestProcessor
+
+        def renderer = new ParallelParagraphRenderer(processor, 2, 100)
+
+        when:
+        def json = writeJson(renderer.render(request, response, resources, StandardCharsets.UTF_8, metrics))
+
+        then:
+        json == "{\"path\":\"/content/page/jcr:content/par/slow\",\"html\":\"\"}," +
+            "{\"path\":\"/content/page/jcr:content/par/fast\",\"html\":\"html\"}"
+
+        and:
+        def rows = metrics.renderMetrics.values().collectEntries { row -> [row.get("Resource Type"), row] }
+
+        rows["slow"].get("Timeout Count") == 1
+        rows["fast"].get("Render Count") == 1
+
+        cleanup:
+        renderer.shutdown()
+    }
+
+    def "timeout is measured from the start of rendering"() {
+        setup:
+        def resources = (1..3).collect { createResource("/content/page/jcr:content/par/$it", "slow") }
+
+        def processor = { HttpServletRequest paragraphRequest, HttpServletResponse paragraphResponse,
+            ResourceResolver resourceResolver ->
+            Thread.sleep(2000)
+        } as SlingRequestProcessor
+
+        def renderer = new ParallelParagraphRenderer(processor, 3, 300)
+
+        when:
+        def start = System.currentTimeMillis()
+        def json = writeJson(renderer.render(request, response, resources, StandardCharsets.UTF_8, metrics))
+        def duration = System.currentTimeMillis() - start
+
+        then:
+        json == (1..3).collect { "{\"path\":\"/content/page/jcr:content/par/$it\",\"html\":\"\"}" }.join(",")
+
+        and: "paragraphs after the first do not wait for a timeout of their own"
+        duration < 900
+
+        cleanup:
+        renderer.shutdown()
+    }
+
+    def "renderer does not accept paragraphs after shutdown"() {
+        setup:
+        def renderer = new ParallelParagraphRenderer({ paragraphRequest, paragraphResponse, resourceResolver ->
+        } as SlingRequestProcessor, 1, 5000)
+
+        renderer.shutdown()
+
+        when:
+        renderer.render(request, response, [createResource("/content/page/jcr:content/par/1", "type")],
+            StandardCharsets.UTF_8, metrics)
+
+        then:
+        thrown(RejectedExecutionException)
+    }
+
+    def "render metrics are recorded by resource type"() {
+        when:
+        metrics.recordRender("one", 2000000)
+        metrics.recordRender("one", 4000000)
+        metrics.recordRender("two", 1000000)
+        metrics.recordTimeout("two")
+
+        then:
+        def rows = metrics.renderMetrics.values().collectEntries { row -> [row.get("Resource Type"), row] }
+
+        rows["one"].get("Render Count") == 2
+        rows["one"].get("Average Render Time (ms)") == 3.0
+        rows["one"].get("Max Render Time (ms)") == 4.0
+        rows["two"].get("Timeout Count") == 1
+
+        when:
+        metrics.resetRenderMetrics()
+
+        then:
+        metrics.renderMetrics.empty
+    }
+
+    private Resource createResource(String path, String resourceType) {
+        Stub(Resource) {
+            getPath() >> path
+            getResourceType() >> resourceType
+        }
+    }
+
+    private static String writeJson(ParagraphSource source) {
+        def writer = new StringWriter()
+        def generator = new JsonFactory().createGenerator(writer)
+
+        try {
+            while (source.hasNext()) {
+                source.next().writeTo(generator)
+            }
+        } finally {
+            source.close()
+        }
+
+        generator.close()
+
+        writer.toString().replace("} {", "},")
+    }
+}
@@ -0,0 +1,66 @@
+package com.citytechinc.aem.bedrock.core.specs
+
+import org.slf4j.LoggerFactory
+
+import java.lang.management.ManagementFactory
+
+/**
+ * Timing and allocation measurements for benchmark specifications.  Benchmarks are skipped unless the "benchmark"
+ * system property is set, e.g. <code>mvn test -Dbenchmark -Dtest=*BenchmarkSpec</code>.
+ */
+trait BenchmarkTrait {
+
+    static final int WARMUP_ITERATIONS = 10
+
+    static final int MEASUREMENT_ITERATIONS = 50
+
+    /**
+     * Measure the average execution time of the given closure after a warmup period.
+     *
+     * @param name benchmark name for reporting
+     * @param closure benchmarked code
+     * @return average time in nanoseconds
+     */
+    long measureTime(String name, Closure closure) {
+        WARMUP_ITERATIONS.times { closure.call() }
+
+        def start = System.nanoTime()
+
+        MEASUREMENT_ITERATIONS.times { closure.call() }
+
+        def average = (System.nanoTime() - start) / MEASUREMENT_ITERATIONS as long
+
+        report(name, "avg time", average / 1000, "us")
+
+        average
+    }
+
+    /**
+     * Measure the average number of bytes allocated by the current thread while executing the given closure.
+     *
+     * @param name benchmark name for reporting
+     * @param closure benchmarked code
+     * @return average allocation in bytes
+     */
+    long measureAllocation(String name, Closure closure) {
+        def threadBean = ManagementFactory.threadMXBean as com.sun.management.ThreadMXBean
+        def threadId = Thread.currentThread().id
+
+        WARMUP_ITERATIONS.times { closure.call() }
+
+        def start = threadBean.getThreadAllocatedBytes(threadId)
+
+        MEASUREMENT_ITERATIONS.times { closure.call() }
+
+        def average = (threadBean.getThreadAllocatedBytes(threadId) - start) / MEASUREMENT_ITERATIONS as long
+
+        report(name, "avg allocation", average / 1024, "KB")
+
+        average
+    }
+
+    void report(String name, String measurement, Number value, String unit) {
+        LoggerFactory.getLogger(getClass()).info(String.format("%-60s %-16s %,12d %s", name, measurement,
+            value as long, unit))
+    }
+}
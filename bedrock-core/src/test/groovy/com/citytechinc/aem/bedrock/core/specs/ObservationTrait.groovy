@@ -0,0 +1,86 @@
+package com.citytechinc.aem.bedrock.core.specs
+
+import com.citytechinc.aem.bedrock.core.services.AbstractSlingService
+import org.apache.sling.jcr.api.SlingRepository
+
+import javax.jcr.Session
+import javax.jcr.Workspace
+import javax.jcr.observation.Event
+import javax.jcr.observation.EventIterator
+import javax.jcr.observation.ObservationManager
+
+/**
+ * Repository and event fixtures for specifications of services that register JCR event listeners.  Spock mocks can
+ * only be created in a specification, so specifications pass in their own mock observation manager to verify
+ * listener registration.
+ */
+trait ObservationTrait {
+
+    /**
+     * Set the repository of the given service to a repository whose administrative session returns the given
+     * observation manager.
+     *
+     * @param service service to activate
+     * @param observationManager observation manager
+     */
+    void setRepository(AbstractSlingService service, ObservationManager observationManager) {
+        def workspace = [
+            getObservationManager: { observationManager }
+        ] as Workspace
+
+        def session = [
+            getWorkspace: { workspace },
+            logout: {}
+        ] as Session
+
+        service.repository = [
+            loginAdministrative: { String workspaceName -> session }
+        ] as SlingRepository
+    }
+
+    /**
+     * Create an event iterator for events of the same type.
+     *
+     * @param type event type
+     * @param paths event paths, in event order
+     * @return event iterator
+     */
+    EventIterator createEvents(int type, List<String> paths) {
+        createEventIterator(paths.collect { path -> createEvent(path, type) })
+    }
+
+    /**
+     * Create an event iterator for events of different types.
+     *
+     * @param eventTypes event types keyed by event path, in event order
+     * @return event iterator
+     */
+    EventIterator createEvents(Map<String, Integer> eventTypes) {
+        createEventIterator(eventTypes.collect { path, type -> createEvent(path, type) })
+    }
+
+    /**
+     * @param path event path
+     * @param type event type
+     * @return event
+     */
+    Event createEvent(String path, int type) {
+        [
+            getPath: { path },
+            getType: { type }
+        ] as Event
+    }
+
+    /**
+     * @param events events
+     * @return iterator over the given events
+     */
+    EventIterator createEventIterator(List<Event> events) {
+        def iterator = events.iterator()
+
+        [
+            hasNext: { iterator.hasNext() },
+            nextEvent: { iterator.next() }
+        ] as EventIterator
+    }
+}
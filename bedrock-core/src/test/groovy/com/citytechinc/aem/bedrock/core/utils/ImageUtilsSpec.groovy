@@ -0,0 +1,130 @@
+package com.citytechinc.aem.bedrock.core.utils
+
+import com.day.cq.wcm.foundation.Image
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import javax.imageio.ImageIO
+import javax.jcr.Node
+import javax.jcr.Property
+import java.awt.image.BufferedImage
+
+@Unroll
+class ImageUtilsSpec extends Specification {
+
+    def "probe dimensions for encoded image"() {
+        setup:
+        def outputStream = new ByteArrayOutputStream()
+
+        ImageIO.write(new BufferedImage(320, 200, BufferedImage.TYPE_INT_RGB), format, outputStream)
+
+        when:
+        def dimensions = ImageUtils.probeDimensions(new ByteArrayInputStream(outputStream.toByteArray())).get()
+
+        then:
+        dimensions.width == 320
+        dimensions.height == 200
+
+        where:
+        format << ["png", "jpeg", "gif"]
+    }
+
+    def "probe dimensions for jpeg with leading segments"() {
+        setup:
+        def outputStream = new ByteArrayOutputStream()
+
+        ImageIO.write(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB), "jpeg", outputStream)
+
+        def jpeg = outputStream.toByteArray()
+
+        // insert a 1KB application segment after the start of image marker
+        def segment = [0xFF, 0xE1, 0x04, 0x02].collect { it as byte } + ([0] * 1024).collect { it as byte }
+
+        def bytes = jpeg[0..1] + segment + jpeg[2..-1]
+
+        when:
+        def dimensions = ImageUtils.probeDimensions(new ByteArrayInputStream(bytes as byte[])).get()
+
+        then:
+        dimensions.width == 64
+        dimensions.height == 48
+    }
+
+    def "probe dimensions for webp"() {
+        setup:
+        def header = new byte[30]
+
+        "RIFF".bytes.eachWithIndex { b, i -> header[i] = b }
+        "WEBP".bytes.eachWithIndex { b, i -> header[8 + i] = b }
+        chunk.bytes.eachWithIndex { b, i -> header[12 + i] = b }
+        data.eachWithIndex { b, i -> header[20 + i] = b as byte }
+
+        when:
+        def dimensions = ImageUtils.probeDimensions(new ByteArrayInputStream(header)).get()
+
+        then:
+        dimensions.width == width
+        dimensions.height == height
+
+        where:
+        chunk  | data                                               | width | height
+        "VP8X" | [0, 0, 0, 0, 0x3F, 0x01, 0, 0xC7, 0, 0]            | 320   | 200
+        "VP8L" | [0x2F, 0x3F, 0x01, 0x32, 0]                        | 320   | 201
+        "VP8 " | [0, 0, 0, 0x9D, 0x01, 0x2A, 0x40, 0x01, 0xC8, 0x00] | 320   | 200
+    }
+
+    def "probe dimensions for unrecognized format"() {
+        expect:
+        !ImageUtils.probeDimensions(new ByteArrayInputStream(bytes as byte[])).present
+
+        where:
+        bytes << [[], "text".bytes, "GIF8".bytes, "RIFF0000WAVE".bytes]
+    }
+
+    def "binary last modified is read from the resource node"() {
+        setup:
+        def calendar = Calendar.getInstance()
+
+        calendar.timeInMillis = 1000L
+
+        def data = Mock(Property) {
+            getParent() >> Mock(Node) {
+                hasProperty("jcr:lastModified") >> hasLastModified
+                getProperty("jcr:lastModified") >> Mock(Property) {
+                    getDate() >> calendar
+                }
+            }
+        }
+
+        expect:
+        ImageUtils.getBinaryLastModified(data) == lastModified
+
+        where:
+        hasLastModified | lastModified
+        true            | 1000L
+        false           | 0L
+    }
+
+    def "dimensions are absent for images with size properties"() {
+        setup:
+        def image = Mock(Image) {
+            get(_ as String) >> { String name -> name == property ? value : null }
+        }
+
+        when:
+        def dimensions = ImageUtils.getDimensions(image, -1)
+
+        then:
+        !dimensions.present
+        0 * image.data
+
+        where:
+        property            | value
+        Image.PN_WIDTH      | "100"
+        Image.PN_HEIGHT     | "100"
+        Image.PN_MIN_WIDTH  | "100"
+        Image.PN_MAX_WIDTH  | "100"
+        Image.PN_MIN_HEIGHT | "100"
+        Image.PN_MAX_HEIGHT | "100"
+    }
+}
@@ -3,6 +3,7 @@ package com.citytechinc.aem.bedrock.core.utils
 import com.citytechinc.aem.bedrock.core.specs.BedrockSpec
 import org.apache.sling.api.SlingHttpServletRequest
 import org.apache.sling.api.resource.Resource
+import org.apache.sling.api.resource.ResourceResolver
 import spock.lang.Unroll
 
 @Unroll
@@ -54,6 +55,43 @@ class PathUtilsSpec extends BedrockSpec {
         "/etc/designs"          | false
     }
 
+    def "is external strict does not resolve values with a scheme"() {
+        setup:
+        def mockResourceResolver = Mock(ResourceResolver)
+
+        when:
+        def external = PathUtils.isExternal(path, mockResourceResolver)
+
+        then:
+        external
+        0 * mockResourceResolver.resolve(_)
+
+        where:
+        path << ["http://www.google.com", "https://www.google.com", "//cdn.example.com/a.js",
+            "mailto:test@example.com", "tel:+15555555555"]
+    }
+
+    def "is external strict resolves path once per resource resolver"() {
+        setup:
+        def mockResourceResolver = Mock(ResourceResolver) {
+            isLive() >> true
+            hasChanges() >> false
+        }
+
+        when:
+        def first = PathUtils.isExternal("/content/cached", mockResourceResolver)
+        def second = PathUtils.isExternal("/content/cached", mockResourceResolver)
+
+        then:
+        1 * mockResourceResolver.resolve("/content/cached") >> Mock(Resource) {
+            getResourceType() >> "foundation/components/page"
+        }
+
+        and:
+        !first
+        !second
+    }
+
     def "get page path for string"() {
         expect:
         PathUtils.getPagePath(path) == result